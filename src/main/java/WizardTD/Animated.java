@@ -0,0 +1,19 @@
+package WizardTD;
+
+/**
+ * An element whose sprite is stepped through an animation by the AnimationSystem.
+ */
+public interface Animated {
+
+    /**
+     * Called when the element's animation moves on to a new frame.
+     * 
+     * @param frame The index of the new frame in the element's sprite sheet.
+     */
+    void showFrame(int frame);
+
+    /**
+     * Called once the last frame of the element's animation has finished.
+     */
+    void animationFinished();
+}
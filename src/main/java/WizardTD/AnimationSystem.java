@@ -0,0 +1,136 @@
+package WizardTD;
+
+import java.util.Arrays;
+
+/**
+ * Steps every running animation in the game from a single clock.
+ * The state of all animations is kept together in one int array and advanced in one pass
+ * each tick. Elements are only called when their frame actually changes or their animation ends.
+ */
+public class AnimationSystem {
+
+    // layout of the state of each animation within the state array
+    private static final int FRAME = 0;
+    private static final int TIMER = 1;
+    private static final int TICKS_PER_FRAME = 2;
+    private static final int LAST_FRAME = 3;
+    private static final int STRIDE = 4;
+
+    private int[] state;
+    private Animated[] owners;
+    private int count;
+
+    /**
+     * Creates an AnimationSystem with room for a given number of running animations.
+     * The arrays grow automatically if more animations run at once.
+     * 
+     * @param capacity The initial number of animations that can run at once.
+     */
+    public AnimationSystem(int capacity) {
+        this.state = new int[Math.max(capacity, 1) * STRIDE];
+        this.owners = new Animated[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Starts playing an element's sprite sheet from a given frame through to its last frame.
+     * 
+     * @param owner The element being animated.
+     * @param sheet The sprite sheet of the element.
+     * @param firstFrame The index of the frame the animation starts at.
+     */
+    public void play(Animated owner, SpriteSheet sheet, int firstFrame) {
+        resume(owner, sheet, firstFrame, 0);
+    }
+
+    /**
+     * Continues playing an element's sprite sheet part way through a frame,
+     * such as when the animation is restored from a snapshot.
+     * 
+     * @param owner The element being animated.
+     * @param sheet The sprite sheet of the element.
+     * @param frame The index of the frame the animation is on.
+     * @param timer The number of ticks the animation has already spent on that frame.
+     */
+    public void resume(Animated owner, SpriteSheet sheet, int frame, int timer) {
+        if (count == owners.length) {
+            this.owners = Arrays.copyOf(owners, count * 2);
+            this.state = Arrays.copyOf(state, count * 2 * STRIDE);
+        }
+
+        int base = count * STRIDE;
+        state[base + FRAME] = frame;
+        state[base + TIMER] = timer;
+        state[base + TICKS_PER_FRAME] = sheet.getTicksPerFrame();
+        state[base + LAST_FRAME] = sheet.getLastFrame();
+        owners[count] = owner;
+        count++;
+
+        owner.showFrame(frame);
+    }
+
+    /**
+     * Advances every running animation by one tick.
+     * Finished animations are removed by moving the last running animation into their place.
+     */
+    public void tick() {
+        int i = 0;
+        while (i < count) {
+            int base = i * STRIDE;
+
+            if (++state[base + TIMER] < state[base + TICKS_PER_FRAME]) {
+                i++;
+                continue;
+            }
+
+            state[base + TIMER] = 0;
+            if (state[base + FRAME] < state[base + LAST_FRAME]) {
+                owners[i].showFrame(++state[base + FRAME]);
+                i++;
+                continue;
+            }
+
+            Animated finished = owners[i];
+            remove(i);
+            finished.animationFinished();
+        }
+    }
+
+    /**
+     * Stops every running animation without notifying their elements.
+     */
+    public void clear() {
+        Arrays.fill(owners, 0, count, null);
+        this.count = 0;
+    }
+
+    /**
+     * Retrieves the number of animations currently running.
+     * 
+     * @return The number of running animations.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Retrieves the number of ticks an element's animation has spent on its current frame.
+     * 
+     * @param owner The element being animated.
+     * @return The number of ticks, or -1 if the element has no running animation.
+     */
+    public int getTimer(Animated owner) {
+        for (int i = 0; i < count; i++) {
+            if (owners[i] == owner) {
+                return state[i * STRIDE + TIMER];
+            }
+        }
+        return -1;
+    }
+
+    private void remove(int index) {
+        int last = --count;
+        System.arraycopy(state, last * STRIDE, state, index * STRIDE, STRIDE);
+        owners[index] = owners[last];
+        owners[last] = null;
+    }
+}
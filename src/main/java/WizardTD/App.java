@@ -2,15 +2,31 @@ package WizardTD;
 
 import processing.core.PApplet;
 import processing.core.PImage;
-import processing.data.JSONObject;
 import processing.event.MouseEvent;
 
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The main class for the game. 
  * Handles the initialisation of necessary classes.
  * Handles the loading of sprites.
+ * The game updates FPS times a second of real time however often the window is drawn,
+ * and moving elements are drawn in between the last two updates.
+ * Once set up, the game runs on a simulation thread of its own unless the config turns it off.
+ * Processing's animation thread then only passes key presses and mouse clicks on through an
+ * InputQueue, and draws the latest RenderFrame published through a RenderBuffer, so it never
+ * touches the game while it updates. The game's fields are only used by the simulation from then on.
  */
 public class App extends PApplet {
 
@@ -24,32 +40,63 @@ public class App extends PApplet {
 
     public static final int FPS = 60;
 
+    // length of one game update in nanoseconds of real time
+    public static final long UPDATE_NANOS = 1_000_000_000L / FPS;
+    // most real time caught up on in one frame, so after a stall the game drops time rather than falling ever further behind
+    private static final long MAX_CATCH_UP_NANOS = 250_000_000L;
+    // frames per second asked for when drawing is uncapped, since Processing always waits between frames
+    private static final int UNCAPPED_FRAME_RATE = 1000;
+
+    // checkpoints are saved to disk every this many seconds of game time
+    public static final int CHECKPOINT_SAVE_INTERVAL = 10;
+    public static final Path CHECKPOINT_FILE = Paths.get("checkpoint.wtds");
+
     public String configPath;
 
     // map elements
     public Tile grass, shrub, paths;
     public ArrayList<PImage> pathSprites;
     public Background background;
-    public JSONObject config;
+    public GameConfig config;
 
     // animated elements
-    public ArrayList<PImage> towerImages;
-    public HashMap<String, ArrayList<PImage>> monsterImages;
+    public SpriteRegistry sprites;
     public PImage fireballImage;
 
     // game details
     public GameManager gameManager;
     public WaveManager waveManager;
     public int framesPassed = 0;
+    // when the next update is due, or 0 before the first update of a game
+    private long nextUpdateTime;
+
+    // input for the simulation, frames for the renderer, and the thread running the game if it has one of its own
+    private final InputQueue input = new InputQueue(64);
+    private final RenderBuffer frames = new RenderBuffer();
+    private Thread simulationThread;
+    // only used by the animation thread
+    private boolean started;
+    private int appliedRenderRate;
     public Level level;
+    public AssetManager assets;
+    public GameSnapshot checkpoint;
+    // the last checkpoint handed to the checkpoint writer, which the file holds once it is written
+    private GameSnapshot savedCheckpoint;
+    // true once this run has saved or deleted the checkpoint file, so it no longer holds an earlier run's checkpoint
+    private boolean checkpointFileChanged;
+    // writes checkpoints to disk one at a time in the order they were taken, so saving never holds up the game
+    private final ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "checkpoint writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    public ConfigWatcher watcher;
    
     /** 
      * Creates new instance of App, with path to config file already specified.
      */
     public App() {
         this.configPath = "config2.json";
-        this.towerImages = new ArrayList<>();
-        this.monsterImages = new HashMap<>();
         this.pathSprites = new ArrayList<>();
     }
 
@@ -62,45 +109,79 @@ public class App extends PApplet {
     }
 
     /**
-     * Load all resources such as images. Initialise the elements such as the player, enemies and map elements.
+     * Load the configuration and start loading all sprites in the background.
+     * The rest of the game is set up once every sprite has loaded.
      */
 	@Override
     public void setup() {
         frameRate(FPS);
-        this.config = loadJSONObject(this.configPath);
+        this.assets = new AssetManager(this);
+
+        assets.request("gremlin");
+        assets.request("worm");
+        assets.request("beetle");
+        assets.requestAll("gremlin", 1, 6);
+        assets.requestAll("tower", 0, 3);
+        assets.request("fireball");
+        assets.requestAll("path", 0, 4);
+        assets.request("grass");
+        assets.request("shrub");
+        assets.request("wizard_house");
+
+        try {
+            this.config = GameConfig.compile(loadJSONObject(this.configPath), this.configPath);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            System.err.println("Invalid config: " + e.getMessage());
+            exit();
+            return;
+        }
         this.level = new Level(config);
-        this.waveManager = new WaveManager(config, FPS);
-        this.gameManager = new GameManager(this.waveManager, config, this.level.getLevelFileName());
-
-        ArrayList<PImage> gremlinImages = new ArrayList<>();
-        ArrayList<PImage> wormImages = new ArrayList<>();
-        ArrayList<PImage> beetleImages = new ArrayList<>();
+        applyRenderRate(config.getRenderRate());
 
-        gremlinImages.add(loadImage("src/main/resources/WizardTD/gremlin.png"));
-        wormImages.add(loadImage("src/main/resources/WizardTD/worm.png"));
-        beetleImages.add(loadImage("src/main/resources/WizardTD/beetle.png"));
-        gremlinImages.addAll(loadImages("gremlin", 1, 6));
-        wormImages.addAll(loadImages("gremlin", 1, 6));
-        beetleImages.addAll(loadImages("gremlin", 1, 6));
+        try {
+            this.watcher = new ConfigWatcher(this.configPath, config);
+        } catch (UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
 
-        monsterImages.put("gremlin", gremlinImages);
-        monsterImages.put("worm", wormImages);
-        monsterImages.put("beetle", beetleImages);
+    /**
+     * Initialise the elements such as the player, enemies and map elements using the loaded sprites,
+     * then starts the simulation thread if the game has one.
+     */
+    public void finishSetup() {
+        this.waveManager = new WaveManager(config, FPS);
+        this.gameManager = new GameManager(this.waveManager, config, this.level.getLevelFileName());
 
-        this.towerImages.addAll(loadImages("tower", 0, 3));
-        this.fireballImage = loadImage("src/main/resources/WizardTD/fireball.png");
+        this.sprites = SpriteRegistry.load(assets);
+        this.fireballImage = assets.get("fireball");
 
         this.pathSprites.addAll(loadImages("path", 0, 4));
         this.paths = new Tile(pathSprites);
-        this.grass = new Tile(loadImage("src/main/resources/WizardTD/grass.png"));
-        this.shrub = new Tile(loadImage("src/main/resources/WizardTD/shrub.png"));
+        this.grass = new Tile(assets.get("grass"));
+        this.shrub = new Tile(assets.get("shrub"));
 
         this.background = new Background(grass, shrub, paths);
-        gameManager.setUpWizardHouse(loadImage("src/main/resources/WizardTD/wizard_house.png"));
+        gameManager.setUpWizardHouse(assets.get("wizard_house"));
+        gameManager.setUpProjectiles(fireballImage);
+
+        System.out.println("Loaded " + assets.getLoadedCount() + " sprites, started in " + assets.getElapsedMillis() + "ms");
+
+        this.started = true;
+        if (config.getSimulationThread()) {
+            this.simulationThread = new Thread(this::simulate, "simulation");
+            simulationThread.setDaemon(true);
+            simulationThread.setUncaughtExceptionHandler((thread, e) -> {
+                e.printStackTrace();
+                exit();
+            });
+            simulationThread.start();
+        }
     }
 
     /**
      * Load a series of image, given a specified type and starting and ending at given indexes.
+     * Images are shared with every other request for the same image.
      * 
      * @param type The name of the image to load, e.g. path, gremlin
      * @param start The starting index of number that comes after name, e.g. 0 for path0
@@ -108,79 +189,207 @@ public class App extends PApplet {
      * @return An ArrayList of loaded images.
      */
     public ArrayList<PImage> loadImages(String type, int start, int end) {
-        ArrayList<PImage> images = new ArrayList<>();
-        for (int i = start; i < end; i++) {
-            String imagePath = "src/main/resources/WizardTD/" + type + i + ".png";
-            images.add(loadImage(imagePath));
-        }
-        return images;
+        return assets.getAll(type, start, end);
     }
 
     /**
-     * Receive key pressed signal from the keyboard.
-     * Updates relevant parts of the game based on key pressed (i.e. tower upgrade) if valid.
+     * Receive key pressed signal from the keyboard, passing it on to the simulation.
      */
 	@Override
     public void keyPressed(){
-        if (gameManager.checkKeyPressed(key)) {
-            restartGame();
-        }
-
-        else if (key == '\n' && !gameManager.getShowWinMessage()) {
-            this.level.setLevelState(false);
+        if (started) {
+            input.offerKey(key);
         }
     }
     
     /**
-     * Called once after every time a mouse button is pressed.
-     * Updates relevant parts of the game based on mouse click (i.e. tower upgrade) if valid.
+     * Called once after every time a mouse button is pressed, passing the click on to the simulation.
      */
     @Override
     public void mousePressed(MouseEvent e) {
-        
-        gameManager.checkMouseClick(this, e);
-        
+        if (started) {
+            input.offerClick(e.getX(), e.getY());
+        }
     }
 
     /**
-     * Updates logic of each element.
-     * Draw all elements in the game by current frame.
+     * Applies the key presses and mouse clicks that arrived since the last update, in order.
+     * 
+     * @return True if there was any input, false otherwise.
      */
-	@Override
-    public void draw() { 
-        if (!gameManager.checkWin()) {
+    private boolean applyInput() {
+        boolean any = false;
+        while (!input.isEmpty()) {
+            if (input.kind() == InputQueue.KEY) {
+                applyKey(input.key());
+            } else {
+                gameManager.checkMouseClick(input.x(), input.y(), sprites);
+            }
+            input.pop();
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * Updates relevant parts of the game based on key pressed (i.e. tower upgrade) if valid.
+     * 
+     * @param key The key pressed.
+     */
+    private void applyKey(char key) {
+        if (gameManager.checkKeyPressed(key)) {
+            restartGame();
+        }
+
+        else if (key == '\n' && !gameManager.getShowWinMessage()) {
+            this.level.setLevelState(false);
+        }
 
-            this.background.makeBackground(level.getLevelFileName(), this);
+        else if (key == 'l') {
+            restoreCheckpoint();
+        }
+    }
 
-            if (!gameManager.sideBar.keyStatus.get("p")) {
-                waveManager.waveTimer(framesPassed * gameManager.gameSpeed);
+    /**
+     * Draws the latest frame published by the simulation, with moving elements part of the way
+     * between the last two updates. Runs the game's due updates first if it has no thread of its own.
+     */
+	@Override
+    public void draw() { 
+        if (!started) {
+            // nothing to show if the config could not be loaded
+            if (config == null) {
+                return;
             }
 
-            // Setting up monsters at intervals specified by config
-            if (gameManager.allowMonsterSetUp(framesPassed, FPS)) {
-                gameManager.setUpMonster(monsterImages);
+            // showing loading screen until every sprite has loaded
+            if (!assets.isDone()) {
+                assets.drawSplash(this);
+                return;
             }
-            
-            // call tick for each animated element
-            if (gameManager.allowTick()) {
-                gameManager.tick(FPS, framesPassed);
-                framesPassed++;
+            finishSetup();
+        }
+
+        if (simulationThread == null) {
+            runDueUpdates();
+        }
+
+        RenderFrame frame = frames.latest();
+        if (frame == null) {
+            return;
+        }
+        if (frame.getRenderRate() != appliedRenderRate) {
+            applyRenderRate(frame.getRenderRate());
+        }
+        float interpolation = (float)(System.nanoTime() - frame.getUpdatedAt()) / UPDATE_NANOS;
+        frame.draw(this, background, Math.min(Math.max(interpolation, 0), 1));
+    }
+
+    /**
+     * Runs the game on the simulation thread, sleeping until each update is due.
+     */
+    private void simulate() {
+        while (true) {
+            runDueUpdates();
+            long wait = nextUpdateTime - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
             }
+        }
+    }
+
+    /**
+     * Applies waiting input and runs the game updates that are due, then publishes a frame for
+     * the renderer. Moves on to the next level once it has been won and the player is ready.
+     */
+    private void runDueUpdates() {
+        boolean changed = applyInput();
+        int updates = dueUpdates();
+
+        for (int i = 0; i < updates && !gameManager.checkWin(); i++) {
+            // skipping quiet periods between waves while the game is fast forwarded
+            boolean fastForward = gameManager.sideBar.keyStatus.get("f");
+            this.framesPassed = gameManager.update(FPS, framesPassed, sprites, fastForward);
+            takeCheckpoint();
+            applyReloads();
+        }
+
+        gameManager.setShowWinMessage(this.level.getCurrentLevel() == this.level.getLevels().size() - 1);
+        if (updates > 0 || changed) {
+            publish();
+        }
 
-            gameManager.setShowWinMessage(this.level.getCurrentLevel() == this.level.getLevels().size() - 1);
-            gameManager.draw(this);
+        if (gameManager.checkWin() && !level.getPreLevelState()) {
+            this.level.nextLevel();
+            this.level.setLevelState(true);
+            clearCheckpoint();
+            restartGame();
+        }
+    }
+
+    /**
+     * Works out how many game updates are due for the real time passed since the last one.
+     * A slow frame or update is made up for with extra updates, so it does not slow the game down.
+     * 
+     * @return The number of updates to run now.
+     */
+    private int dueUpdates() {
+        long now = System.nanoTime();
+        if (nextUpdateTime == 0) {
+            // the first update of a game is due straight away
+            this.nextUpdateTime = now;
+        } else if (now - nextUpdateTime > MAX_CATCH_UP_NANOS) {
+            this.nextUpdateTime = now - MAX_CATCH_UP_NANOS;
         }
-        this.level.writeCurrentLevel(this);
 
-        if (gameManager.checkWin()) {
-            this.level.startLevelMessage(this);
+        int updates = 0;
+        while (nextUpdateTime <= now) {
+            updates++;
+            this.nextUpdateTime += UPDATE_NANOS;
+        }
+        return updates;
+    }
 
-            if (!level.getPreLevelState()) {
-                this.level.nextLevel();
-                this.level.setLevelState(true);
-                restartGame();
+    /**
+     * Fills in the renderer's next frame with the game as it is after the last update, and publishes it.
+     */
+    private void publish() {
+        RenderFrame frame = frames.back();
+        gameManager.capture(frame);
+        frame.setLevel(level.getCurrentLevel(), level.getLevels().size());
+        frame.setTiming(nextUpdateTime - UPDATE_NANOS, config.getRenderRate());
+        frames.publish();
+    }
 
-            }
+    /**
+     * Sets how often the window is drawn: at a fixed rate, as often as possible,
+     * or at the refresh rate of the display for vsync. The game updates at FPS whatever the rate.
+     * 
+     * @param renderRate The frames drawn per second, GameConfig.UNCAPPED or GameConfig.VSYNC.
+     */
+    private void applyRenderRate(int renderRate) {
+        this.appliedRenderRate = renderRate;
+        int rate = renderRate;
+        if (rate == GameConfig.VSYNC) {
+            rate = displayRefreshRate();
+        } else if (rate == GameConfig.UNCAPPED) {
+            rate = UNCAPPED_FRAME_RATE;
+        }
+        frameRate(rate);
+    }
+
+    /**
+     * Finds the refresh rate of the display the window is on.
+     * 
+     * @return The refresh rate in hertz, or FPS if it is not known.
+     */
+    private static int displayRefreshRate() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode().getRefreshRate();
+            return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? FPS : rate;
+        } catch (HeadlessException e) {
+            return FPS;
         }
     }
 
@@ -188,12 +397,141 @@ public class App extends PApplet {
      * Resets game by creating new instances of classes to set up a new game.
      */
     public void restartGame() {
+        if (watcher != null) {
+            watcher.applyLevels(null);
+            GameConfig reloaded = watcher.getPendingConfig();
+            if (reloaded != null) {
+                watcher.configApplied(reloaded);
+                useConfig(reloaded);
+            }
+        }
+
         this.waveManager = new WaveManager(config, FPS);
         this.gameManager = new GameManager(waveManager, config, this.level.getLevelFileName());
-        gameManager.setUpWizardHouse(loadImage("src/main/resources/WizardTD/wizard_house.png"));
+        gameManager.setUpWizardHouse(assets.get("wizard_house"));
+        gameManager.setUpProjectiles(fireballImage);
         this.framesPassed = 0;
+        this.nextUpdateTime = 0;
+    }
+
+    /**
+     * Applies config and level files that were changed on disk while the game runs.
+     * Levels that are not being played are replaced straight away. A changed config is
+     * applied between waves, once the field is empty, by carrying the game over to the
+     * new config through a snapshot. Changes to the level being played wait until it restarts.
+     */
+    public void applyReloads() {
+        if (watcher == null) {
+            return;
+        }
+        watcher.applyLevels(level.getLevelFileName());
+
+        GameConfig reloaded = watcher.getPendingConfig();
+        if (reloaded == null || !gameManager.isIdle()) {
+            return;
+        }
+
+        watcher.configApplied(reloaded);
+        String levelFile = level.getLevelFileName();
+        // the game restarts if it cannot carry on, such as when the wave being played or a placed tower's type was removed
+        boolean fits = gameManager.fitsConfig(reloaded);
+        GameSnapshot snapshot = GameSnapshot.capture(gameManager, framesPassed);
+        useConfig(reloaded);
+        this.checkpoint = null;
+
+        if (!fits || !level.getLevelFileName().equals(levelFile)) {
+            restartGame();
+            return;
+        }
+
+        this.gameManager = snapshot.restore(config, sprites);
+        this.waveManager = gameManager.waveManager;
+    }
+
+    /**
+     * Switches to a new config, staying on the same level if it is still part of the layout.
+     * 
+     * @param reloaded The new config.
+     */
+    private void useConfig(GameConfig reloaded) {
+        String levelFile = level.getLevelFileName();
+        this.config = reloaded;
+        this.level = new Level(reloaded);
+        level.selectLevel(levelFile);
+    }
+
+    /**
+     * Captures a checkpoint of the game once every second of game time while it is being played.
+     * Every few checkpoints are also saved to disk, so the game can be recovered after a crash.
+     * Snapshots never change once captured, so they are written on a background thread.
+     */
+    public void takeCheckpoint() {
+        if (!gameManager.allowTick()) {
+            return;
+        }
+
+        int second = framesPassed / FPS;
+        if (checkpoint != null && checkpoint.getFramesPassed() / FPS == second) {
+            return;
+        }
+
+        GameSnapshot snapshot = GameSnapshot.capture(gameManager, framesPassed);
+        this.checkpoint = snapshot;
+        if (second % CHECKPOINT_SAVE_INTERVAL == 0) {
+            this.savedCheckpoint = snapshot;
+            this.checkpointFileChanged = true;
+            checkpointWriter.execute(() -> {
+                try {
+                    snapshot.save(CHECKPOINT_FILE);
+                } catch (UncheckedIOException e) {
+                    System.out.println(e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Restores the game to the last checkpoint. If no checkpoint has been captured since the
+     * config was reloaded, the last one saved is used, kept in memory so the game never waits
+     * for the checkpoint writer. Just after starting the game, the checkpoint saved to disk by an
+     * earlier run is used instead.
+     */
+    public void restoreCheckpoint() {
+        GameSnapshot snapshot = this.checkpoint != null ? this.checkpoint : this.savedCheckpoint;
+        if (snapshot == null && !checkpointFileChanged && Files.exists(CHECKPOINT_FILE)) {
+            try {
+                snapshot = GameSnapshot.load(CHECKPOINT_FILE);
+            } catch (UncheckedIOException | IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+
+        if (snapshot == null || !level.selectLevel(snapshot.getLevelFile())) {
+            return;
+        }
+
+        this.gameManager = snapshot.restore(config, sprites);
+        this.waveManager = gameManager.waveManager;
+        this.framesPassed = snapshot.getFramesPassed();
+        this.checkpoint = snapshot;
     }
 
+    /**
+     * Discards the checkpoint of the current level, both in memory and on disk.
+     * The file is deleted by the checkpoint writer, after any save still waiting to be written.
+     */
+    public void clearCheckpoint() {
+        this.checkpoint = null;
+        this.savedCheckpoint = null;
+        this.checkpointFileChanged = true;
+        checkpointWriter.execute(() -> {
+            try {
+                Files.deleteIfExists(CHECKPOINT_FILE);
+            } catch (IOException e) {
+                System.out.println("Could not delete " + CHECKPOINT_FILE);
+            }
+        });
+    }
 
     public static void main(String[] args) {
         PApplet.main("WizardTD.App");
@@ -0,0 +1,210 @@
+package WizardTD;
+
+import processing.core.PApplet;
+import processing.core.PImage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads sprites from the resources folder in parallel on background threads.
+ * Each image is only decoded once, however many times it is requested, and stays
+ * cached for as long as the AssetManager is kept, including across game restarts.
+ */
+public class AssetManager {
+
+    public static final String DIRECTORY = "src/main/resources/WizardTD/";
+
+    private static AssetManager headless;
+
+    private final PApplet app;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Future<PImage>> images;
+    private final AtomicInteger loaded;
+    private final long startTime;
+
+    /**
+     * Creates a new AssetManager with one background thread per processor.
+     *
+     * @param app The PApplet used to decode images, or null to decode them
+     * without a window.
+     */
+    public AssetManager(PApplet app) {
+        this.app = app;
+        this.images = new ConcurrentHashMap<>();
+        this.loaded = new AtomicInteger();
+        this.startTime = System.nanoTime();
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "asset-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retrieves the AssetManager shared by all games run without a window.
+     *
+     * @return The shared headless AssetManager.
+     */
+    public static synchronized AssetManager headless() {
+        if (headless == null) {
+            headless = new AssetManager(null);
+        }
+        return headless;
+    }
+
+    /**
+     * Starts loading an image in the background, unless it has already been requested.
+     *
+     * @param name The name of the image, e.g. gremlin for gremlin.png.
+     * @return The pending image.
+     */
+    public Future<PImage> request(String name) {
+        return images.computeIfAbsent(name, key -> executor.submit(() -> {
+            PImage image = decode(DIRECTORY + key + ".png");
+            loaded.incrementAndGet();
+            return image;
+        }));
+    }
+
+    /**
+     * Starts loading a series of images in the background.
+     *
+     * @param type The name of the images to load, e.g. path, gremlin
+     * @param start The starting index of number that comes after name, e.g. 0 for path0
+     * @param end The ending index (exclusive) of number that comes after name, e.g. 4 for path3
+     */
+    public void requestAll(String type, int start, int end) {
+        for (int i = start; i < end; i++) {
+            request(type + i);
+        }
+    }
+
+    /**
+     * Retrieves an image, waiting for it to finish loading if necessary.
+     *
+     * @param name The name of the image, e.g. gremlin for gremlin.png.
+     * @return The loaded image.
+     */
+    public PImage get(String name) {
+        try {
+            return request(name).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + name, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not load " + name, e.getCause());
+        }
+    }
+
+    /**
+     * Retrieves a series of images, waiting for them to finish loading if necessary.
+     *
+     * @param type The name of the images to load, e.g. path, gremlin
+     * @param start The starting index of number that comes after name, e.g. 0 for path0
+     * @param end The ending index (exclusive) of number that comes after name, e.g. 4 for path3
+     * @return An ArrayList of loaded images.
+     */
+    public ArrayList<PImage> getAll(String type, int start, int end) {
+        ArrayList<PImage> list = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            list.add(get(type + i));
+        }
+        return list;
+    }
+
+    /**
+     * Checks if every requested image has finished loading.
+     *
+     * @return True if all images are loaded, false otherwise.
+     */
+    public boolean isDone() {
+        for (Future<PImage> image : images.values()) {
+            if (!image.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the fraction of requested images that have finished loading.
+     *
+     * @return The progress, between 0 and 1.
+     */
+    public float getProgress() {
+        int requested = images.size();
+        return requested == 0 ? 1 : (float)loaded.get() / requested;
+    }
+
+    /**
+     * Calculates the time passed since the AssetManager was created.
+     *
+     * @return The time passed in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    public int getLoadedCount() {
+        return this.loaded.get();
+    }
+
+    public int getRequestedCount() {
+        return this.images.size();
+    }
+
+    /**
+     * Draws a loading screen with a progress bar.
+     *
+     * @param app The PApplet window where the loading screen is drawn.
+     */
+    public void drawSplash(PApplet app) {
+        app.background(132, 115, 74);
+        app.fill(0);
+        app.textSize(30);
+        app.text("Wizard TD", App.WIDTH/2 - 75, App.HEIGHT/2 - 30);
+
+        app.stroke(0);
+        app.strokeWeight(2);
+        app.fill(255);
+        app.rect(App.WIDTH/2 - 160, App.HEIGHT/2, 320, 20);
+        app.fill(0, 214, 214);
+        app.rect(App.WIDTH/2 - 160, App.HEIGHT/2, 320 * getProgress(), 20);
+
+        app.fill(0);
+        app.textSize(15);
+        app.text("Loading sprites " + getLoadedCount() + " / " + getRequestedCount(), App.WIDTH/2 - 75, App.HEIGHT/2 + 45);
+    }
+
+    /**
+     * Decodes an image file, through the PApplet if there is one.
+     *
+     * @param path The path to the image file.
+     * @return The decoded image.
+     * @throws IOException If the image could not be read.
+     */
+    private PImage decode(String path) throws IOException {
+        if (app != null) {
+            PImage image = app.loadImage(path);
+            if (image == null) {
+                throw new IOException("Could not load " + path);
+            }
+            return image;
+        }
+        BufferedImage image = ImageIO.read(new File(path));
+        if (image == null) {
+            throw new IOException("Could not load " + path);
+        }
+        return new PImage(image);
+    }
+}
@@ -1,12 +1,12 @@
 package WizardTD;
 
-import java.util.*;
+import java.util.Arrays;
 
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 
-import java.io.*;
+import java.io.UncheckedIOException;
 import processing.core.PImage;
 import processing.core.PApplet;
 
@@ -17,6 +17,7 @@ public class Background {
     private int pixelX;
     private int pixelY;
     private Tile grass, shrub, paths;
+    private PImage[][] rotatedPaths;
 
     private static final int WIDTH = 20;
     private static final int LENGTH = 20;
@@ -35,6 +36,7 @@ public class Background {
         this.grass = grass;
         this.shrub = shrub;
         this.paths = paths;
+        this.rotatedPaths = new PImage[paths.getSprites().size()][4];
     }
 
     /**
@@ -44,17 +46,26 @@ public class Background {
      * @param app           The PApplet instance/window where background will be drawn.
      */
     public void makeBackground(String filename, PApplet app) {
-        char[][] layout = obtainMap(filename);
+        makeBackground(LevelLoader.load(filename).getTileSprites(), app);
+    }
 
+    /**
+     * Draws background from the sprite of each tile onto PApplet instance passed,
+     * such as a map that has been changed while playing.
+     * 
+     * @param tileSprites   The sprite code of each tile, see LevelData.spriteCode.
+     * @param app           The PApplet instance/window where background will be drawn.
+     */
+    public void makeBackground(byte[][] tileSprites, PApplet app) {
         for (int i = 0; i < LENGTH; i++) {
             for (int j = 0; j < WIDTH; j++) {
-                char currentChar = layout[i][j];
+                byte code = tileSprites[i][j];
+                int sprite = LevelData.spriteOf(code);
                     
-                if (currentChar == 'S') {
+                if (sprite == LevelData.SHRUB) {
                     shrub.draw(app, pixelX, pixelY);
-                } else if (currentChar == 'X') {
-                    Tile chosenPath = findSuitablePath(layout, i, j, app);
-                    chosenPath.draw(app, pixelX, pixelY);
+                } else if (sprite >= LevelData.PATH) {
+                    app.image(pathSprite(sprite - LevelData.PATH, LevelData.quarterTurnsOf(code), app), pixelX, pixelY);
                 } else {
                     grass.draw(app, pixelX, pixelY);
                 } 
@@ -68,8 +79,24 @@ public class Background {
             resetPixelX();
             resetPixelY(); 
         } 
-   
 
+    /**
+     * Retrieves a path sprite rotated clockwise by a number of quarter turns.
+     * Rotated sprites are only created the first time they are needed.
+     * 
+     * @param index The index of the path sprite, e.g. 1 for path1.
+     * @param quarterTurns The number of clockwise quarter turns.
+     * @param app The PApplet instance for image rotation.
+     * @return The rotated path sprite.
+     */
+    private PImage pathSprite(int index, int quarterTurns, PApplet app) {
+        if (rotatedPaths[index][quarterTurns] == null) {
+            PImage sprite = paths.getSprite(index);
+            rotatedPaths[index][quarterTurns] = quarterTurns == 0 ? sprite : rotateImageByDegrees(sprite, 90 * quarterTurns, app);
+        }
+        return rotatedPaths[index][quarterTurns];
+    }
+   
     /**
      * Incrementes pixelX by 32.
      */
@@ -106,94 +133,19 @@ public class Background {
      * @return              A 20x20 2D char array containing the characters in the given file.
      */
     public static char[][] obtainMap(String filename) {
-        char[][] mapLayout = new char[LENGTH][WIDTH];
-        File file = new File(filename);
-        try (Scanner mapDetails = new Scanner(file);) {
-        
-        for (int i = 0; i < LENGTH; i++) {
-            // Creating a string with 20 whitespace in case there are no more lines in txt file
-            String line = new String(new char[20]).replace('\0', ' ');
+        try {
+            return LevelLoader.load(filename).copyMap();
 
-            if (mapDetails.hasNext()) {
-                line = mapDetails.nextLine();
-            } 
-            
-            int length = line.length();
-            
-            if (line.length() > 20) {
-                length = 20;
-            }
-
-            for (int j = 0; j < length; j++) {
-                mapLayout[i][j] = line.charAt(j);
-            }
-            
-        }
-    
-        // replacing null with space (grass)
-        for (int a = 0; a < mapLayout.length; a++) {
-            for (int b = 0; b < mapLayout[0].length; b++) {
-                if (mapLayout[a][b] == '\0') {
-                    mapLayout[a][b] = ' ';
-                }
-            }
-    
+        } catch (UncheckedIOException e) {
+            System.out.println(e);
         }
-        return mapLayout;
-
-    } catch (FileNotFoundException e) {
-        System.out.println(e);
-    }
-    
-    return mapLayout;
-    
-    }
 
-    /**
-     * Finds a suitable path tile based on the neighbouring map elements.
-     * Ensures path orientation is correct, and calls for rotation of path images if necessary.
-     * 
-     * @param map The map represented as a 2D array of characters.
-     * @param lineIndex The index of the current line in the map.
-     * @param index The index of the current position in the line.
-     * @param app The PApplet instance for image rotation.
-     * @return A suitable path tile containing suitable sprite for path drawing.
-     */
-    private Tile findSuitablePath(char[][] map, int lineIndex, int index, PApplet app) {
-        boolean checkLeft = (index > 0) && (map[lineIndex][index - 1] == 'X');
-        boolean checkRight = (index < map[lineIndex].length - 1) && (map[lineIndex][index + 1] == 'X');
-        boolean checkUp = (lineIndex > 0) && (map[lineIndex - 1][index] == 'X');
-        boolean checkDown = (lineIndex < map.length - 1) && (map[lineIndex + 1][index] == 'X');
-
-
-        if (checkLeft && checkRight && checkUp && checkDown) {
-            this.paths.setCurrentSprite(3);
-            return this.paths;
-        } else if (checkLeft && checkRight && checkUp) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(2), 180, app));
-        } else if (checkLeft && checkRight && checkDown) {
-            this.paths.setCurrentSprite(2);
-            return this.paths;
-        } else if (checkUp && checkDown && checkLeft ) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(2), 90, app));
-        } else if (checkUp && checkDown && checkRight) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(2), 270, app));
-        } else if (checkUp && checkRight) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(1), 180, app));
-        } else if (checkUp && checkLeft) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(1), 90, app));
-        } else if (checkDown && checkRight) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(1), 270, app));
-        } else if (checkDown && checkLeft) {
-            this.paths.setCurrentSprite(1);
-            return this.paths;
-        } else if (checkUp || checkDown) {
-            return new Tile(rotateImageByDegrees(paths.getSprite(0), 90, app));
-        } else {
-            this.paths.setCurrentSprite(0);
-            return this.paths;
+        // replacing missing map with space (grass)
+        char[][] mapLayout = new char[LENGTH][WIDTH];
+        for (char[] row : mapLayout) {
+            Arrays.fill(row, ' ');
         }
-
+        return mapLayout;
     }
 
     /**
@@ -0,0 +1,176 @@
+package WizardTD;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watches the config file and level files for changes while the game runs.
+ * Changed files are read and validated on a background thread as soon as they are saved,
+ * but the game decides when to apply them, so nothing changes in the middle of a wave.
+ * Files that fail to validate are reported and ignored, and the game keeps the last good version.
+ */
+public class ConfigWatcher {
+
+    // time to wait after a change, so that editors have finished writing the file
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path configPath;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private volatile GameConfig config;
+    private final AtomicReference<GameConfig> pendingConfig;
+    private final ConcurrentHashMap<String, LevelData> pendingLevels;
+
+    /**
+     * Starts watching a config file and the level files it lists.
+     *
+     * @param configPath The path to the config file.
+     * @param config The config currently in use.
+     * @throws UncheckedIOException If the files cannot be watched.
+     */
+    public ConfigWatcher(String configPath, GameConfig config) {
+        this.configPath = Paths.get(configPath).toAbsolutePath().normalize();
+        this.config = config;
+        this.pendingConfig = new AtomicReference<>();
+        this.pendingLevels = new ConcurrentHashMap<>();
+
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            HashSet<Path> directories = new HashSet<>();
+            directories.add(this.configPath.getParent());
+            for (String levelFile : config.getLayout()) {
+                directories.add(levelPath(levelFile).getParent());
+            }
+            for (Path directory : directories) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not watch " + configPath + " for changes", e);
+        }
+
+        this.thread = new Thread(this::watch, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for changes to watched files and reloads the files that changed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                Path directory = (Path)key.watchable();
+                HashSet<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        changed.add(directory.resolve((Path)event.context()).normalize());
+                    }
+                }
+                key.reset();
+
+                for (Path file : changed) {
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher closed
+        }
+    }
+
+    /**
+     * Reads and validates a changed file if it is the config or one of its levels.
+     *
+     * @param file The file that changed.
+     */
+    private void reload(Path file) {
+        try {
+            if (file.equals(configPath)) {
+                GameConfig reloaded = GameConfig.load(configPath.toString());
+                this.config = reloaded;
+                pendingConfig.set(reloaded);
+                System.out.println("Reloaded " + configPath.getFileName());
+                return;
+            }
+
+            for (String levelFile : config.getLayout()) {
+                if (file.equals(levelPath(levelFile))) {
+                    pendingLevels.put(levelFile, LevelLoader.read(levelFile));
+                    System.out.println("Reloaded " + levelFile);
+                }
+            }
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            System.out.println("Not reloading, " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the most recently reloaded config that has not been applied yet.
+     *
+     * @return The reloaded config, or null if the config has not changed.
+     */
+    public GameConfig getPendingConfig() {
+        return pendingConfig.get();
+    }
+
+    /**
+     * Marks a reloaded config as applied, unless an even newer config has been loaded since.
+     *
+     * @param applied The config that was applied.
+     */
+    public void configApplied(GameConfig applied) {
+        pendingConfig.compareAndSet(applied, null);
+    }
+
+    /**
+     * Replaces cached levels with the levels that changed on disk.
+     *
+     * @param levelInPlay The level file currently being played, which is left alone
+     * until the level restarts, or null to apply every change.
+     * @return True if any level was replaced, false otherwise.
+     */
+    public boolean applyLevels(String levelInPlay) {
+        boolean replaced = false;
+        for (Map.Entry<String, LevelData> change : pendingLevels.entrySet()) {
+            if (levelInPlay != null && change.getKey().equals(levelInPlay)) {
+                continue;
+            }
+            LevelLoader.replace(change.getKey(), change.getValue());
+            // keeping the change pending if the file was reloaded again in the meantime
+            pendingLevels.remove(change.getKey(), change.getValue());
+            replaced = true;
+        }
+        return replaced;
+    }
+
+    /**
+     * Stops watching files.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.println("Could not stop watching " + configPath);
+        }
+        thread.interrupt();
+    }
+
+    private static Path levelPath(String levelFile) {
+        return Paths.get(levelFile).toAbsolutePath().normalize();
+    }
+}
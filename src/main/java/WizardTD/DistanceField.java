@@ -0,0 +1,418 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The cost of the cheapest route from every tile of the map to the nearest Wizard House.
+ * Monsters find their way by stepping to any neighbouring tile that brings them closer.
+ * When a tile changes, only the tiles whose route depended on it are recalculated,
+ * so editing the map costs time proportional to the part of the map affected.
+ */
+public class DistanceField {
+
+    // distance of tiles that cannot reach the Wizard House
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // neighbours in the order up, down, left, right, which decides between equally short routes
+    private static final int[] D_ROW = {-1, 1, 0, 0};
+    private static final int[] D_COLUMN = {0, 0, -1, 1};
+
+    private final int rows, columns;
+    private final PathCosts costs;
+    private final int[] distance;
+    private final int[] cost;
+    private final boolean[] goal;
+
+    // scratch space reused between updates
+    private final boolean[] affected;
+    private final int[] affectedCells;
+    private int[] heapCells, heapKeys;
+    private int heapSize;
+
+    /**
+     * Calculates the distance of every tile from the nearest Wizard House, where each
+     * path tile costs 1 to step onto.
+     *
+     * @param map The map represented as a 2D char array.
+     */
+    public DistanceField(char[][] map) {
+        this(map, PathCosts.DEFAULT);
+    }
+
+    /**
+     * Calculates the cost of the cheapest route from every tile to the nearest Wizard House,
+     * for a type of monster with its own cost for each type of tile.
+     *
+     * @param map The map represented as a 2D char array.
+     * @param costs The cost of stepping onto each type of tile.
+     */
+    public DistanceField(char[][] map, PathCosts costs) {
+        this.costs = costs;
+        this.rows = map.length;
+        this.columns = map[0].length;
+        int size = rows * columns;
+
+        this.distance = new int[size];
+        this.cost = new int[size];
+        this.goal = new boolean[size];
+        this.affected = new boolean[size];
+        this.affectedCells = new int[size];
+        this.heapCells = new int[size * 4];
+        this.heapKeys = new int[size * 4];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                goal[cell] = map[row][column] == 'W';
+                cost[cell] = costs.costOf(map[row][column]);
+            }
+        }
+
+        Arrays.fill(distance, UNREACHABLE);
+        for (int cell = 0; cell < size; cell++) {
+            if (goal[cell]) {
+                distance[cell] = 0;
+                push(cell, 0);
+            }
+        }
+        propagate();
+    }
+
+    /**
+     * Copies a distance field, so that the copy can be changed without affecting the original.
+     *
+     * @param field The distance field to be copied.
+     */
+    public DistanceField(DistanceField field) {
+        this.costs = field.costs;
+        this.rows = field.rows;
+        this.columns = field.columns;
+        int size = rows * columns;
+
+        this.distance = field.distance.clone();
+        this.cost = field.cost.clone();
+        this.goal = field.goal.clone();
+        this.affected = new boolean[size];
+        this.affectedCells = new int[size];
+        this.heapCells = new int[size * 4];
+        this.heapKeys = new int[size * 4];
+    }
+
+    /**
+     * Checks if monsters can walk on a type of tile.
+     *
+     * @param tile The character representing the tile on the map.
+     * @return True for paths and the Wizard House, false otherwise.
+     */
+    public static boolean isWalkable(char tile) {
+        return tile == 'X' || tile == 'W';
+    }
+
+    /**
+     * Changes the cost of stepping onto a tile and repairs the distances that depended on it.
+     * Tiles whose cheapest route passed through the changed tile, and have no other route
+     * just as cheap, are cleared and recalculated from the tiles around them.
+     *
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param newCost The new cost of stepping onto the tile, or UNREACHABLE to block it.
+     * @return The number of tiles that had to be recalculated.
+     */
+    public int setCost(int column, int row, int newCost) {
+        int changed = row * columns + column;
+        if (cost[changed] == newCost) {
+            return 0;
+        }
+
+        // finding every tile whose route depended on the changed tile, using the old costs.
+        // Tiles are decided closest first, so every tile that could offer another route
+        // has already been decided by the time it is checked.
+        int count = 0;
+        push(changed, distance[changed]);
+        while (heapSize > 0) {
+            int cell = heapCells[0];
+            pop();
+            if (affected[cell] || (cell != changed && hasOtherRoute(cell))) {
+                continue;
+            }
+            affected[cell] = true;
+            affectedCells[count++] = cell;
+            if (distance[cell] == UNREACHABLE || cost[cell] == UNREACHABLE) {
+                continue;
+            }
+
+            int through = distance[cell] + cost[cell];
+            for (int i = 0; i < 4; i++) {
+                int next = neighbour(cell, i);
+                if (next != -1 && !affected[next] && !goal[next] && distance[next] == through) {
+                    push(next, through);
+                }
+            }
+        }
+
+        cost[changed] = newCost;
+
+        // clearing the affected tiles, then seeding them from the unaffected tiles around them
+        for (int i = 0; i < count; i++) {
+            distance[affectedCells[i]] = goal[affectedCells[i]] ? 0 : UNREACHABLE;
+        }
+        for (int i = 0; i < count; i++) {
+            int cell = affectedCells[i];
+            affected[cell] = false;
+            int best = goal[cell] ? 0 : bestFromNeighbours(cell);
+            if (best != UNREACHABLE) {
+                distance[cell] = best;
+                push(cell, best);
+            }
+        }
+        propagate();
+        return count;
+    }
+
+    /**
+     * Changes whether a tile can be walked on, giving path tiles a cost of 1.
+     *
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param walkable True if monsters can walk on the tile, false otherwise.
+     * @return The number of tiles that had to be recalculated.
+     */
+    public int setWalkable(int column, int row, boolean walkable) {
+        return setCost(column, row, walkable ? 1 : UNREACHABLE);
+    }
+
+    /**
+     * Changes the type of a tile, using the field's cost for that type of tile.
+     *
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param tile The character representing the new tile.
+     * @return The number of tiles that had to be recalculated.
+     */
+    public int setTile(int column, int row, char tile) {
+        return setCost(column, row, costs.costOf(tile));
+    }
+
+    /**
+     * Finds the cheapest route from a tile to the nearest Wizard House by following the field downhill.
+     * Each step takes a constant amount of time, whatever the size of the map.
+     *
+     * @param column The column of the tile to start from.
+     * @param row The row of the tile to start from.
+     * @return List of tiles (x, y) from the starting tile to the Wizard House, or null if the
+     * tile cannot reach the Wizard House.
+     */
+    public ArrayList<int[]> routeFrom(int column, int row) {
+        if (!inBounds(column, row) || distance[row * columns + column] == UNREACHABLE) {
+            return null;
+        }
+
+        ArrayList<int[]> route = new ArrayList<>();
+        int cell = row * columns + column;
+        route.add(new int[] {column, row});
+        while (!goal[cell]) {
+            cell = nextStep(cell);
+            route.add(new int[] {cell % columns, cell / columns});
+        }
+        return route;
+    }
+
+    /**
+     * Finds one of the cheapest routes from a tile to the nearest Wizard House, choosing at random
+     * wherever several neighbouring tiles are equally cheap, so monsters spread over every lane.
+     * Each step only looks at the four neighbouring tiles.
+     *
+     * @param column The column of the tile to start from.
+     * @param row The row of the tile to start from.
+     * @param random Chooses a number from 0 up to, but not including, the number it is given.
+     * @return List of tiles (x, y) from the starting tile to the Wizard House, or null if the
+     * tile cannot reach the Wizard House.
+     */
+    public ArrayList<int[]> randomRouteFrom(int column, int row, IntUnaryOperator random) {
+        if (!inBounds(column, row) || distance[row * columns + column] == UNREACHABLE) {
+            return null;
+        }
+
+        ArrayList<int[]> route = new ArrayList<>();
+        int cell = row * columns + column;
+        route.add(new int[] {column, row});
+        while (!goal[cell]) {
+            int choices = 0;
+            for (int i = 0; i < 4; i++) {
+                if (continuesRoute(cell, neighbour(cell, i))) {
+                    choices++;
+                }
+            }
+
+            // only drawing a random number where the route actually splits
+            int choice = choices > 1 ? random.applyAsInt(choices) : 0;
+            for (int i = 0; i < 4; i++) {
+                int next = neighbour(cell, i);
+                if (continuesRoute(cell, next) && choice-- == 0) {
+                    cell = next;
+                    break;
+                }
+            }
+            route.add(new int[] {cell % columns, cell / columns});
+        }
+        return route;
+    }
+
+    private boolean continuesRoute(int cell, int next) {
+        return next != -1 && distance[next] != UNREACHABLE && cost[next] != UNREACHABLE
+            && distance[next] + cost[next] == distance[cell];
+    }
+
+    /**
+     * Finds the neighbouring tile that continues the cheapest route from a tile.
+     *
+     * @param cell The index of the tile (row * columns + column).
+     * @return The index of the next tile on the route.
+     */
+    private int nextStep(int cell) {
+        for (int i = 0; i < 4; i++) {
+            int next = neighbour(cell, i);
+            if (continuesRoute(cell, next)) {
+                return next;
+            }
+        }
+        throw new IllegalStateException("Distance field has no route from tile " + cell);
+    }
+
+    /**
+     * Checks if a tile can still reach the Wizard House as cheaply without passing through affected tiles.
+     *
+     * @param cell The index of the tile.
+     * @return True if an unaffected neighbour gives a route of the same cost, false otherwise.
+     */
+    private boolean hasOtherRoute(int cell) {
+        for (int i = 0; i < 4; i++) {
+            int next = neighbour(cell, i);
+            if (next != -1 && !affected[next] && distance[next] != UNREACHABLE && cost[next] != UNREACHABLE
+                && distance[next] + cost[next] == distance[cell]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the cheapest route from a tile through its neighbours.
+     *
+     * @param cell The index of the tile.
+     * @return The cost of the cheapest route, or UNREACHABLE if the tile cannot be walked on
+     * or no neighbour leads to the Wizard House.
+     */
+    private int bestFromNeighbours(int cell) {
+        if (cost[cell] == UNREACHABLE) {
+            return UNREACHABLE;
+        }
+        int best = UNREACHABLE;
+        for (int i = 0; i < 4; i++) {
+            int next = neighbour(cell, i);
+            if (next != -1 && distance[next] != UNREACHABLE && cost[next] != UNREACHABLE) {
+                best = Math.min(best, distance[next] + cost[next]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Spreads distances outwards from the tiles in the queue until no tile can get any closer.
+     */
+    private void propagate() {
+        while (heapSize > 0) {
+            int cell = heapCells[0];
+            int key = heapKeys[0];
+            pop();
+            if (key != distance[cell]) {
+                continue;
+            }
+
+            int through = distance[cell] + cost[cell];
+            if (cost[cell] == UNREACHABLE) {
+                continue;
+            }
+            for (int i = 0; i < 4; i++) {
+                int next = neighbour(cell, i);
+                if (next != -1 && cost[next] != UNREACHABLE && !goal[next] && through < distance[next]) {
+                    distance[next] = through;
+                    push(next, through);
+                }
+            }
+        }
+    }
+
+    private int neighbour(int cell, int direction) {
+        int row = cell / columns + D_ROW[direction];
+        int column = cell % columns + D_COLUMN[direction];
+        return inBounds(column, row) ? row * columns + column : -1;
+    }
+
+    private boolean inBounds(int column, int row) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    private void push(int cell, int key) {
+        if (heapSize == heapCells.length) {
+            this.heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            this.heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    private void pop() {
+        int cell = heapCells[--heapSize];
+        int key = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= key) {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    /**
+     * Retrieves the cost of the cheapest route from a tile to the nearest Wizard House.
+     *
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @return The cost of the route, or UNREACHABLE if there is none.
+     */
+    public int getDistance(int column, int row) {
+        return inBounds(column, row) ? distance[row * columns + column] : UNREACHABLE;
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+}
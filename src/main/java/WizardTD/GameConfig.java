@@ -0,0 +1,570 @@
+package WizardTD;
+
+import processing.core.PApplet;
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The validated configuration of the game, compiled once from the config JSON.
+ * Every field is checked when the config is compiled, so mistakes are reported at startup
+ * with the file and field they are in, rather than part way through a game.
+ * The game only ever reads the typed values held here.
+ */
+public class GameConfig {
+
+    // render rates for drawing as often as possible, and once for each refresh of the display
+    public static final int UNCAPPED = 0;
+    public static final int VSYNC = -1;
+
+    private final String source;
+    private final List<String> layout;
+    private final List<WaveConfig> waves;
+    private final Map<String, PathCosts> pathCosts;
+    private final List<TowerType> towerTypes;
+
+    private final int initialTowerRange, towerCost;
+    private final float initialTowerFiringSpeed, initialTowerDamage, fireballSpeed;
+    private final boolean groupSpawns;
+    private final int renderRate;
+    private final boolean simulationThread;
+
+    private final int initialMana, initialManaCap, initialManaGainedPerSecond;
+    private final int manaPoolSpellInitialCost, manaPoolSpellCostIncrease;
+    private final float manaPoolSpellCapMultiplier, manaPoolSpellManaGainedMultiplier;
+
+    /**
+     * Compiles a config, checking every field.
+     *
+     * @param json The config as read from its JSON file.
+     * @param source The name of the config file, used in error messages.
+     * @throws IllegalArgumentException If any field is missing or invalid.
+     */
+    private GameConfig(JSONObject json, String source) {
+        this.source = source;
+        this.layout = compileLayout(json);
+        this.waves = compileWaves(json);
+        this.pathCosts = compilePathCosts(json);
+
+        this.initialTowerRange = wholeNumber(json, "initial_tower_range", "", true);
+        this.initialTowerFiringSpeed = (float)positive(json, "initial_tower_firing_speed", "");
+        this.initialTowerDamage = (float)nonNegative(json, "initial_tower_damage", "");
+        this.towerCost = wholeNumber(json, "tower_cost", "", false);
+        this.fireballSpeed = json.hasKey("fireball_speed") ? (float)positive(json, "fireball_speed", "") : 5;
+        this.towerTypes = compileTowerTypes(json);
+        this.groupSpawns = json.hasKey("group_spawns") && flag(json, "group_spawns", "");
+        this.renderRate = compileRenderRate(json);
+        this.simulationThread = !json.hasKey("simulation_thread") || flag(json, "simulation_thread", "");
+
+        this.initialMana = wholeNumber(json, "initial_mana", "", true);
+        this.initialManaCap = wholeNumber(json, "initial_mana_cap", "", true);
+        this.initialManaGainedPerSecond = wholeNumber(json, "initial_mana_gained_per_second", "", false);
+        this.manaPoolSpellInitialCost = wholeNumber(json, "mana_pool_spell_initial_cost", "", false);
+        this.manaPoolSpellCostIncrease = wholeNumber(json, "mana_pool_spell_cost_increase_per_use", "", false);
+        this.manaPoolSpellCapMultiplier = (float)positive(json, "mana_pool_spell_cap_multiplier", "");
+        this.manaPoolSpellManaGainedMultiplier = (float)positive(json, "mana_pool_spell_mana_gained_multiplier", "");
+    }
+
+    /**
+     * Compiles a config, checking every field.
+     *
+     * @param json The config as read from its JSON file.
+     * @param source The name of the config file, used in error messages.
+     * @return The compiled config.
+     * @throws IllegalArgumentException If any field is missing or invalid.
+     */
+    public static GameConfig compile(JSONObject json, String source) {
+        return new GameConfig(json, source);
+    }
+
+    /**
+     * Reads and compiles a config file.
+     *
+     * @param path The path to the config file.
+     * @return The compiled config.
+     * @throws IllegalArgumentException If the file cannot be read, or any field is missing or invalid.
+     */
+    public static GameConfig load(String path) {
+        JSONObject json;
+        try {
+            json = PApplet.loadJSONObject(new File(path));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(path + ": could not be read as JSON (" + e.getMessage() + ")", e);
+        }
+        if (json == null) {
+            throw new IllegalArgumentException(path + ": could not be read as JSON");
+        }
+        return compile(json, path);
+    }
+
+    /**
+     * Reads the list of level files, which can be a single file name or an array of them.
+     * Every level is loaded, so broken level files are also reported at startup.
+     *
+     * @param json The config as read from its JSON file.
+     * @return The level files, in order.
+     */
+    private List<String> compileLayout(JSONObject json) {
+        Object value = require(json, "layout", "");
+        List<String> files;
+        if (value instanceof String) {
+            files = Arrays.asList((String)value);
+        } else if (value instanceof JSONArray && ((JSONArray)value).size() > 0) {
+            JSONArray array = (JSONArray)value;
+            files = new ArrayList<>();
+            for (int i = 0; i < array.size(); i++) {
+                if (!(array.get(i) instanceof String)) {
+                    throw error("", "layout[" + i + "]", "must be the name of a level file");
+                }
+                files.add(array.getString(i));
+            }
+        } else {
+            throw error("", "layout", "must be a level file or a non-empty array of level files");
+        }
+
+        for (String file : files) {
+            if (!new File(file).isFile()) {
+                throw error("", "layout", "names a level file that does not exist: " + file);
+            }
+            LevelLoader.load(file);
+        }
+        return List.copyOf(files);
+    }
+
+    /**
+     * Compiles every wave and the monsters in it.
+     *
+     * @param json The config as read from its JSON file.
+     * @return The compiled waves, in order.
+     */
+    private List<WaveConfig> compileWaves(JSONObject json) {
+        Object value = require(json, "waves", "");
+        if (!(value instanceof JSONArray) || ((JSONArray)value).size() == 0) {
+            throw error("", "waves", "must be a non-empty array of waves");
+        }
+
+        JSONArray array = (JSONArray)value;
+        List<WaveConfig> compiled = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++) {
+            String where = "waves[" + i + "].";
+            if (!(array.get(i) instanceof JSONObject)) {
+                throw error("", "waves[" + i + "]", "must be an object");
+            }
+            JSONObject wave = array.getJSONObject(i);
+
+            float duration = (float)positive(wave, "duration", where);
+            double preWavePause = nonNegative(wave, "pre_wave_pause", where);
+
+            Object monsters = require(wave, "monsters", where);
+            if (!(monsters instanceof JSONArray) || ((JSONArray)monsters).size() == 0) {
+                throw error(where, "monsters", "must be a non-empty array of monsters");
+            }
+
+            List<MonsterSpec> specs = new ArrayList<>();
+            JSONArray monsterArray = (JSONArray)monsters;
+            for (int j = 0; j < monsterArray.size(); j++) {
+                if (!(monsterArray.get(j) instanceof JSONObject)) {
+                    throw error(where, "monsters[" + j + "]", "must be an object");
+                }
+                specs.add(compileMonster(monsterArray.getJSONObject(j), where + "monsters[" + j + "]."));
+            }
+
+            WaveConfig compiledWave = new WaveConfig(duration, preWavePause, specs);
+            // monsters are spawned every whole number of frames, so they cannot be closer than one frame apart
+            if ((int)(duration / compiledWave.getTotalMonsters() * App.FPS) <= 0) {
+                throw error(where, "duration", "is too short to spawn " + compiledWave.getTotalMonsters() + " monsters");
+            }
+            compiled.add(compiledWave);
+        }
+        return List.copyOf(compiled);
+    }
+
+    /**
+     * Compiles the details of one type of monster in a wave.
+     *
+     * @param monster The monster details as read from the JSON file.
+     * @param where The location of the monster in the config, used in error messages.
+     * @return The compiled monster details.
+     */
+    private MonsterSpec compileMonster(JSONObject monster, String where) {
+        Object type = require(monster, "type", where);
+        if (!(type instanceof String) || !Arrays.asList(SpriteRegistry.MONSTER_TYPES).contains(type)) {
+            throw error(where, "type", "must be one of " + String.join(", ", SpriteRegistry.MONSTER_TYPES));
+        }
+
+        return new MonsterSpec((String)type,
+            (float)positive(monster, "hp", where),
+            (float)positive(monster, "speed", where),
+            (float)nonNegative(monster, "armour", where),
+            wholeNumber(monster, "mana_gained_on_kill", where, false),
+            wholeNumber(monster, "quantity", where, true));
+    }
+
+    /**
+     * Compiles the optional cost for each type of monster to step onto each type of tile, such as
+     * {"default": {"path": 1}, "worm": {"path": 2, "grass": 3}}. Monster types that are not listed
+     * use the "default" costs. Every set of costs must leave a route to the Wizard House on every level.
+     *
+     * @param json The config as read from its JSON file.
+     * @return The costs for "default" and each listed type of monster, or an empty map if there are none.
+     */
+    private Map<String, PathCosts> compilePathCosts(JSONObject json) {
+        if (!json.hasKey("path_costs")) {
+            return Map.of();
+        }
+        if (!(json.get("path_costs") instanceof JSONObject)) {
+            throw error("", "path_costs", "must be an object");
+        }
+
+        JSONObject object = json.getJSONObject("path_costs");
+        List<String> types = Arrays.asList(SpriteRegistry.MONSTER_TYPES);
+        Map<String, PathCosts> compiled = new HashMap<>();
+        for (Object key : object.keys()) {
+            String type = (String)key;
+            String where = "path_costs.";
+            if (!type.equals("default") && !types.contains(type)) {
+                throw error(where, type, "is not a type of monster, must be default or one of " + String.join(", ", types));
+            }
+            if (!(object.get(type) instanceof JSONObject)) {
+                throw error(where, type, "must be an object");
+            }
+
+            JSONObject tiles = object.getJSONObject(type);
+            where += type + ".";
+            for (Object tile : tiles.keys()) {
+                if (!Arrays.asList("path", "grass", "shrub").contains(tile)) {
+                    throw error(where, (String)tile, "is not a type of tile, must be path, grass or shrub");
+                }
+            }
+            PathCosts costs = new PathCosts(
+                tiles.hasKey("path") ? wholeNumber(tiles, "path", where, false) : 1,
+                tiles.hasKey("grass") ? wholeNumber(tiles, "grass", where, false) : 0,
+                tiles.hasKey("shrub") ? wholeNumber(tiles, "shrub", where, false) : 0);
+
+            for (String file : layout) {
+                char[][] map = LevelLoader.load(file).getMap();
+                DistanceField field = new DistanceField(map, costs);
+                boolean reachable = false;
+                for (int[] start : PathCalculations.findStartCoordinates(map)) {
+                    reachable |= field.getDistance(start[0], start[1]) != DistanceField.UNREACHABLE;
+                }
+                if (!reachable) {
+                    throw error("path_costs.", type, "leaves no route to the Wizard House on " + file);
+                }
+            }
+            compiled.put(type, costs);
+        }
+        return Map.copyOf(compiled);
+    }
+
+    /**
+     * Compiles the optional types of tower the player can build besides the fireball tower, such as
+     * {"splash": {"cost": 150, "radius": 48, "damage": 0.5}, "chain": {"jumps": 3, "radius": 64, "falloff": 0.7},
+     * "slow": {"slow": 0.5, "duration": 2}}. Each costs tower_cost unless it has a cost of its own.
+     * Any type can also burn the monsters it damages, with "burn" damage per second for "burn_duration"
+     * seconds, or shred their armour, ignoring a "shred" fraction of it for "shred_duration" seconds.
+     *
+     * @param json The config as read from its JSON file.
+     * @return The fireball tower followed by each listed type, in the order splash, chain, slow.
+     */
+    private List<TowerType> compileTowerTypes(JSONObject json) {
+        List<TowerType> compiled = new ArrayList<>();
+        compiled.add(TowerType.fireball(towerCost));
+        if (!json.hasKey("tower_types")) {
+            return List.copyOf(compiled);
+        }
+        if (!(json.get("tower_types") instanceof JSONObject)) {
+            throw error("", "tower_types", "must be an object");
+        }
+
+        JSONObject object = json.getJSONObject("tower_types");
+        List<String> kinds = Arrays.asList(TowerType.NAMES).subList(1, TowerType.NAMES.length);
+        String[][] fields = {{"cost", "radius", "damage"}, {"cost", "jumps", "radius", "falloff"},
+                             {"cost", "slow", "duration", "damage"}};
+        List<String> effectFields = Arrays.asList("burn", "burn_duration", "shred", "shred_duration");
+        for (Object key : object.keys()) {
+            if (!kinds.contains(key)) {
+                throw error("tower_types.", (String)key, "is not a type of tower, must be one of " + String.join(", ", kinds));
+            }
+            if (!(object.get((String)key) instanceof JSONObject)) {
+                throw error("tower_types.", (String)key, "must be an object");
+            }
+            List<String> allowed = new ArrayList<>(Arrays.asList(fields[kinds.indexOf(key)]));
+            allowed.addAll(effectFields);
+            for (Object field : object.getJSONObject((String)key).keys()) {
+                if (!allowed.contains(field)) {
+                    throw error("tower_types." + key + ".", (String)field, "is not used, must be one of " + String.join(", ", allowed));
+                }
+            }
+        }
+
+        for (int kind = TowerType.SPLASH; kind <= TowerType.SLOW; kind++) {
+            String name = TowerType.NAMES[kind];
+            if (!object.hasKey(name)) {
+                continue;
+            }
+            JSONObject type = object.getJSONObject(name);
+            String where = "tower_types." + name + ".";
+            int cost = type.hasKey("cost") ? wholeNumber(type, "cost", where, false) : towerCost;
+            float burn = type.hasKey("burn") ? (float)nonNegative(type, "burn", where) : 0;
+            float burnSeconds = burn > 0 ? (float)positive(type, "burn_duration", where) : 0;
+            float shred = (float)fraction(type, "shred", where, 0);
+            float shredSeconds = shred > 0 ? (float)positive(type, "shred_duration", where) : 0;
+
+            if (kind == TowerType.SPLASH) {
+                compiled.add(new TowerType(kind, cost, (float)fraction(type, "damage", where, 0.5),
+                    (float)positive(type, "radius", where), 0, 0, 1, 0, burn, burnSeconds, shred, shredSeconds));
+            } else if (kind == TowerType.CHAIN) {
+                compiled.add(new TowerType(kind, cost, 0, (float)positive(type, "radius", where),
+                    wholeNumber(type, "jumps", where, true), (float)fraction(type, "falloff", where, 1), 1, 0,
+                    burn, burnSeconds, shred, shredSeconds));
+            } else {
+                compiled.add(new TowerType(kind, cost, (float)fraction(type, "damage", where, 0), 0, 0, 0,
+                    (float)fraction(type, "slow", where, 0.5), (float)positive(type, "duration", where),
+                    burn, burnSeconds, shred, shredSeconds));
+            }
+        }
+        return List.copyOf(compiled);
+    }
+
+    /**
+     * Reads how often the window is drawn: a number of frames per second, 0 to draw as often
+     * as possible, or "vsync" to draw once for each refresh of the display. Without it, the
+     * window is drawn as often as the game updates.
+     *
+     * @param json The config as read from its JSON file.
+     * @return The frames drawn per second, UNCAPPED or VSYNC.
+     */
+    private int compileRenderRate(JSONObject json) {
+        if (!json.hasKey("render_rate")) {
+            return App.FPS;
+        }
+        Object value = require(json, "render_rate", "");
+        if ("vsync".equals(value)) {
+            return VSYNC;
+        }
+        if (!(value instanceof Number)) {
+            throw error("", "render_rate", "must be a number or \"vsync\"");
+        }
+        return wholeNumber(json, "render_rate", "", false);
+    }
+
+    private double fraction(JSONObject json, String key, String where, double defaultValue) {
+        if (!json.hasKey(key)) {
+            return defaultValue;
+        }
+        double value = nonNegative(json, key, where);
+        if (value > 1) {
+            throw error(where, key, "must be between 0 and 1, but is " + value);
+        }
+        return value;
+    }
+
+    private Object require(JSONObject json, String key, String where) {
+        if (!json.hasKey(key) || json.isNull(key)) {
+            throw error(where, key, "is missing");
+        }
+        return json.get(key);
+    }
+
+    private boolean flag(JSONObject json, String key, String where) {
+        Object value = require(json, key, where);
+        if (!(value instanceof Boolean)) {
+            throw error(where, key, "must be true or false");
+        }
+        return (Boolean)value;
+    }
+
+    private double number(JSONObject json, String key, String where) {
+        Object value = require(json, key, where);
+        if (!(value instanceof Number)) {
+            throw error(where, key, "must be a number");
+        }
+        return ((Number)value).doubleValue();
+    }
+
+    private double positive(JSONObject json, String key, String where) {
+        double value = number(json, key, where);
+        if (!(value > 0)) {
+            throw error(where, key, "must be greater than 0, but is " + value);
+        }
+        return value;
+    }
+
+    private double nonNegative(JSONObject json, String key, String where) {
+        double value = number(json, key, where);
+        if (!(value >= 0)) {
+            throw error(where, key, "must not be negative, but is " + value);
+        }
+        return value;
+    }
+
+    private int wholeNumber(JSONObject json, String key, String where, boolean mustBePositive) {
+        double value = mustBePositive ? positive(json, key, where) : nonNegative(json, key, where);
+        if (value != Math.rint(value) || value > Integer.MAX_VALUE) {
+            throw error(where, key, "must be a whole number, but is " + value);
+        }
+        return (int)value;
+    }
+
+    private IllegalArgumentException error(String where, String key, String problem) {
+        return new IllegalArgumentException(source + ": " + where + key + " " + problem);
+    }
+
+    public String getSource() {
+        return this.source;
+    }
+
+    public List<String> getLayout() {
+        return this.layout;
+    }
+
+    public List<WaveConfig> getWaves() {
+        return this.waves;
+    }
+
+    /**
+     * Checks if monsters are routed by the cost of each tile, rather than along the
+     * shortest paths of the level.
+     *
+     * @return True if the config has path costs, false otherwise.
+     */
+    public boolean hasPathCosts() {
+        return !this.pathCosts.isEmpty();
+    }
+
+    /**
+     * Checks if any type of monster can step onto grass, so towers stand in the way of its route.
+     *
+     * @return True if some path costs give grass a cost, false otherwise.
+     */
+    public boolean hasWalkableGrass() {
+        for (PathCosts costs : this.pathCosts.values()) {
+            if (costs.getGrass() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the cost for a type of monster to step onto each type of tile.
+     *
+     * @param type The type of monster.
+     * @return The costs for the type of monster, or the default costs if it has none of its own.
+     */
+    public PathCosts getPathCosts(String type) {
+        PathCosts costs = this.pathCosts.get(type);
+        if (costs == null) {
+            costs = this.pathCosts.getOrDefault("default", PathCosts.DEFAULT);
+        }
+        return costs;
+    }
+
+    /**
+     * Retrieves the types of tower the player can build, the fireball tower first.
+     *
+     * @return The tower types.
+     */
+    public List<TowerType> getTowerTypes() {
+        return this.towerTypes;
+    }
+
+    /**
+     * Finds the type of tower of a given kind.
+     *
+     * @param kind The kind of tower, such as TowerType.SPLASH.
+     * @return The tower type, or null if the config does not have that kind of tower.
+     */
+    public TowerType getTowerType(int kind) {
+        for (TowerType type : towerTypes) {
+            if (type.getKind() == kind) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if monsters that spawn onto the same path are simulated together as a group
+     * until a tower can reach them.
+     *
+     * @return True if spawns are grouped, false otherwise.
+     */
+    public boolean getGroupSpawns() {
+        return this.groupSpawns;
+    }
+
+    /**
+     * Retrieves how often the window is drawn, which does not change how fast the game runs.
+     *
+     * @return The frames drawn per second, UNCAPPED or VSYNC.
+     */
+    public int getRenderRate() {
+        return this.renderRate;
+    }
+
+    /**
+     * Checks if the game runs on a thread of its own, rather than on the thread that draws the window.
+     * Only read when the game starts.
+     *
+     * @return True if the game has a simulation thread, false otherwise.
+     */
+    public boolean getSimulationThread() {
+        return this.simulationThread;
+    }
+
+    public int getInitialTowerRange() {
+        return this.initialTowerRange;
+    }
+
+    public float getInitialTowerFiringSpeed() {
+        return this.initialTowerFiringSpeed;
+    }
+
+    public float getInitialTowerDamage() {
+        return this.initialTowerDamage;
+    }
+
+    public int getTowerCost() {
+        return this.towerCost;
+    }
+
+    public float getFireballSpeed() {
+        return this.fireballSpeed;
+    }
+
+    public int getInitialMana() {
+        return this.initialMana;
+    }
+
+    public int getInitialManaCap() {
+        return this.initialManaCap;
+    }
+
+    public int getInitialManaGainedPerSecond() {
+        return this.initialManaGainedPerSecond;
+    }
+
+    public int getManaPoolSpellInitialCost() {
+        return this.manaPoolSpellInitialCost;
+    }
+
+    public int getManaPoolSpellCostIncrease() {
+        return this.manaPoolSpellCostIncrease;
+    }
+
+    public float getManaPoolSpellCapMultiplier() {
+        return this.manaPoolSpellCapMultiplier;
+    }
+
+    public float getManaPoolSpellManaGainedMultiplier() {
+        return this.manaPoolSpellManaGainedMultiplier;
+    }
+}
@@ -0,0 +1,16 @@
+package WizardTD;
+
+/**
+ * Something told about every event applied by GameEvents, such as a counter of kills or mana spent.
+ */
+public interface GameEventListener {
+
+    /**
+     * Called once an event has been applied to the game, in the order the events were published.
+     *
+     * @param type The type of the event, one of the constants in GameEvents.
+     * @param monster The monster the event is about, or null for mana gained or spent.
+     * @param amount The damage dealt before armour, or the amount of mana gained or lost.
+     */
+    void onEvent(int type, Monster monster, float amount);
+}
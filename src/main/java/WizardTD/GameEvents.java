@@ -0,0 +1,192 @@
+package WizardTD;
+
+import java.util.ArrayList;
+
+/**
+ * Queues the damage and mana changes made during a tick, and applies them together in the order
+ * they were published. Events are kept in a ring of flat arrays of primitives, which grows to fit
+ * the busiest tick and is then reused, so publishing and draining events does not allocate.
+ * Listeners are told about each event as it is applied, so the HUD or statistics can follow
+ * the game without being called from every place that changes it.
+ */
+public class GameEvents {
+
+    // a tower's fireball has reached a monster, with the damage before armour
+    public static final int DAMAGE = 0;
+    // a killed monster has been removed, with the mana gained
+    public static final int KILL = 1;
+    // a monster has reached the Wizard House, with the mana it takes
+    public static final int BANISH = 2;
+    // mana generated by the Wizard House over time
+    public static final int MANA_GAIN = 3;
+    // mana spent by the player on towers and upgrades
+    public static final int SPEND = 4;
+
+    private int[] types;
+    private float[] amounts;
+    private Monster[] monsters;
+    private int head, size, mask;
+
+    private final ArrayList<GameEventListener> listeners = new ArrayList<>();
+
+    /**
+     * Creates an empty event queue.
+     *
+     * @param capacity The initial number of events that can be queued, rounded up to a power of two.
+     */
+    public GameEvents(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.types = new int[length];
+        this.amounts = new float[length];
+        this.monsters = new Monster[length];
+        this.mask = length - 1;
+    }
+
+    /**
+     * Adds a listener that is told about every event from now on.
+     *
+     * @param listener The listener to add.
+     */
+    public void subscribe(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about events.
+     *
+     * @param listener The listener to remove.
+     */
+    public void unsubscribe(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues damage to a monster.
+     *
+     * @param monster The monster hit.
+     * @param damage The damage dealt, before the monster's armour is applied.
+     */
+    public void damage(Monster monster, float damage) {
+        publish(DAMAGE, monster, damage);
+    }
+
+    /**
+     * Queues the mana gained for killing a monster.
+     *
+     * @param monster The monster killed.
+     * @param mana The mana gained.
+     */
+    public void kill(Monster monster, float mana) {
+        publish(KILL, monster, mana);
+    }
+
+    /**
+     * Queues the mana taken by a monster reaching the Wizard House.
+     *
+     * @param monster The monster banished.
+     * @param mana The mana lost.
+     */
+    public void banish(Monster monster, float mana) {
+        publish(BANISH, monster, mana);
+    }
+
+    /**
+     * Queues mana generated by the Wizard House.
+     *
+     * @param mana The mana gained.
+     */
+    public void gainMana(float mana) {
+        publish(MANA_GAIN, null, mana);
+    }
+
+    /**
+     * Queues mana spent by the player.
+     *
+     * @param mana The mana spent.
+     */
+    public void spend(float mana) {
+        publish(SPEND, null, mana);
+    }
+
+    /**
+     * Adds an event to the end of the queue, growing the queue if it is full.
+     *
+     * @param type The type of the event.
+     * @param monster The monster the event is about, or null.
+     * @param amount The damage or amount of mana.
+     */
+    private void publish(int type, Monster monster, float amount) {
+        if (size == types.length) {
+            grow();
+        }
+        int slot = (head + size) & mask;
+        types[slot] = type;
+        monsters[slot] = monster;
+        amounts[slot] = amount;
+        size++;
+    }
+
+    /**
+     * Applies every queued event in the order it was published, then tells the listeners about it.
+     * Damage is dealt to monsters and mana is added to or taken from the Wizard House.
+     *
+     * @param wizardHouse The Wizard House whose mana changes.
+     */
+    public void drain(WizardHouse wizardHouse) {
+        while (size > 0) {
+            int type = types[head];
+            Monster monster = monsters[head];
+            float amount = amounts[head];
+            monsters[head] = null;
+            this.head = (head + 1) & mask;
+            size--;
+
+            switch (type) {
+                case DAMAGE:
+                    monster.hit(amount);
+                    break;
+                case KILL:
+                case MANA_GAIN:
+                    wizardHouse.addMana(amount);
+                    break;
+                default:
+                    wizardHouse.addMana(-amount);
+                    break;
+            }
+
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onEvent(type, monster, amount);
+            }
+        }
+    }
+
+    /**
+     * Doubles the size of the queue, moving the queued events to the start of the new arrays.
+     */
+    private void grow() {
+        int length = types.length * 2;
+        int[] newTypes = new int[length];
+        float[] newAmounts = new float[length];
+        Monster[] newMonsters = new Monster[length];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & mask;
+            newTypes[i] = types[slot];
+            newAmounts[i] = amounts[slot];
+            newMonsters[i] = monsters[slot];
+        }
+        this.types = newTypes;
+        this.amounts = newAmounts;
+        this.monsters = newMonsters;
+        this.head = 0;
+        this.mask = length - 1;
+    }
+
+    /**
+     * Retrieves the number of events waiting to be applied.
+     *
+     * @return The number of queued events.
+     */
+    public int size() {
+        return this.size;
+    }
+}
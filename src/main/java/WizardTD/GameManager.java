@@ -1,12 +1,14 @@
 package WizardTD;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import processing.core.PImage;
-import processing.event.MouseEvent;
-import processing.data.JSONObject;
-import java.util.HashMap;
-import processing.core.PApplet;
 
 /**
  * Manages all aspects of the game, such as wave timing, gameplay actions and drawing onto the screen.
@@ -15,17 +17,63 @@ public class GameManager {
 
     public WaveManager waveManager;
     public SideBar sideBar;
-    public JSONObject config;
+    public GameConfig config;
 
     public ArrayList<Monster> monsters;
+    public ArrayList<MonsterGroup> groups;
     public ArrayList<Tower> towers;
-    public ArrayList<Fireball> fireballs;
+    public ProjectileSystem projectiles;
+    public SpatialGrid monsterGrid;
+    public AnimationSystem animations;
+    public GameEvents events;
+    public StatusEffects effects;
+    public LodScheduler lodScheduler;
     public  WizardHouse wizardHouse;
     private boolean showWinMessage;
 
     public int gameSpeed = 1;
     public String levelFile;
 
+    // longest span of game time that can be skipped at once, in seconds
+    private static final int MAX_IDLE_SKIP = 3600;
+    // fewest and most steps a monster out of reach of every tower rests for at once
+    private static final int MIN_REST_STEPS = 8;
+    private static final int MAX_REST_STEPS = 1 << 16;
+    // upper bound on the number of bytes written by writeState
+    public static final int STATE_BYTES = 20;
+
+    private List<PathTrack> tracks;
+    private long randomState;
+    // index of the type of tower built, in the config's list of tower types
+    private int towerType;
+    // number of monsters spawned so far, which keeps monsters released from groups in spawn order
+    private int spawnCount;
+    // changes whenever a tower is built or its range upgraded, so groups know to work out their reach again
+    private int towerVersion;
+    private float[] towerReach = new float[0];
+    // the parts of each path towers can reach, for each size of monster sprite, worked out when needed
+    private final IdentityHashMap<PathTrack, ArrayList<PathCoverage>> coverages = new IdentityHashMap<>();
+    // monsters released from groups or woken from rest during a step, merged into the monster list together
+    private final MonsterArrivals arrivals = new MonsterArrivals(64);
+    // the group moving along each path from each wave entry, so spawning monsters find theirs directly
+    private final IdentityHashMap<MonsterSpec, IdentityHashMap<PathTrack, MonsterGroup>> groupIndex = new IdentityHashMap<>();
+    // the compiled routes monsters have taken on the current map, so monsters on the same route share a track
+    private final HashMap<PathTrack, PathTrack> routeTracks = new HashMap<>();
+    private int towerReachVersion = -1;
+    // encodes snapshots of the game, kept between captures and grown when the field gets busier
+    private ByteBuffer snapshotBuffer;
+    // number of steps the last update moved the game on, which drawing interpolates across
+    private int stepsLastUpdate;
+
+    // the map with the changes made while playing, or null if it has not been changed
+    private char[][] editedMap;
+    // until the map is changed, the tracks and distance fields are the level's own, shared with other games
+    private DistanceField distanceField;
+    private byte[][] tileSprites;
+    // distance fields for each set of path costs in the config, and the tiles monsters start from
+    private final HashMap<PathCosts, DistanceField> costFields = new HashMap<>();
+    private ArrayList<int[]> startTiles;
+
 
     /**
      * Creates a new instance of GameManager.
@@ -35,64 +83,774 @@ public class GameManager {
      * @param details Configuration details about the game.
      * @param levelFile Current level to display in game.
      */
-    public GameManager(WaveManager waveManager, JSONObject details, String levelFile) {
+    public GameManager(WaveManager waveManager, GameConfig details, String levelFile) {
         this.monsters = new ArrayList<Monster>();
+        this.groups = new ArrayList<MonsterGroup>();
         this.towers = new ArrayList<Tower>();
-        this.fireballs = new ArrayList<Fireball>();
+        this.projectiles = new ProjectileSystem(32, details.getFireballSpeed());
+        this.monsterGrid = new SpatialGrid(App.BOARD_WIDTH, App.BOARD_WIDTH);
+        this.animations = new AnimationSystem(16);
+        this.events = new GameEvents(64);
+        this.effects = new StatusEffects(64);
+        this.lodScheduler = new LodScheduler(64);
         this.waveManager = waveManager;
         this.config = details;
-        int towerCost = details.getInt("tower_cost");
-        int manaPoolCost = details.getInt("mana_pool_spell_initial_cost");
+        int towerCost = details.getTowerCost();
+        int manaPoolCost = details.getManaPoolSpellInitialCost();
         this.sideBar = new SideBar(towerCost, manaPoolCost);
         this.levelFile = levelFile;
+        setSeed(new Random().nextLong());
     }
 
     /**
      * Sets up a new monster for the game.
+     * If the config groups spawns, the monster joins the group of monsters from the same wave entry
+     * on the same path instead, and is only set up on its own once a tower can reach it.
      * 
-     * @param monsterImages Lists of images of different types of monsters.
+     * @param sprites The sprite sheets of different types of monsters.
      */
-    public void setUpMonster(HashMap<String, ArrayList<PImage>> monsterImages) {
-        if (waveManager.currentMonsterQuantity >= waveManager.currentMonsters.getInt("quantity")) {
+    public void setUpMonster(SpriteRegistry sprites) {
+        if (waveManager.currentMonsterQuantity >= waveManager.currentMonsters.getQuantity()) {
             waveManager.nextMonsterElement();
             waveManager.currentMonsterQuantity = 0;
         }
 
-        char[][] currentMap = Background.obtainMap(levelFile);
-        ArrayList<int[]> path = PathCalculations.getValidPath(currentMap);
-        int gremlinX = path.get(0)[0];
-        int gremlinY = path.get(0)[1];
-        ArrayList<PImage> images = monsterImages.get(waveManager.currentMonsters.get("type"));
+        PathTrack track = spawnTrack(waveManager.currentMonsters.getType());
+        SpriteSheet sheet = sprites.get(waveManager.currentMonsters.getType());
         waveManager.incrementMonsterQuantity();
-        Monster monsterToAdd = new Monster(images, gremlinX, gremlinY, path);
+        MonsterSpec spec = waveManager.monsters.get(waveManager.monsterIndex);
+
+        if (config.getGroupSpawns()) {
+            joinGroup(spec, sheet, track);
+            return;
+        }
+        Monster monsterToAdd = new Monster(sheet, track, animations, effects);
+        monsterToAdd.setSpawnOrder(spawnCount++);
         this.monsters.add(monsterToAdd); 
-        monsterToAdd.loadConfigDetails(waveManager.monsters.getJSONObject(waveManager.monsterIndex));
+        monsterToAdd.loadConfigDetails(spec);
+    }
+
+    /**
+     * Adds a newly spawned monster to the latest group moving along its path from the same
+     * wave entry, or starts a new group if there is none.
+     * 
+     * @param spec The wave entry the monster spawns from.
+     * @param sheet The sprite sheet of the monster.
+     * @param track The path the monster spawns onto.
+     */
+    private void joinGroup(MonsterSpec spec, SpriteSheet sheet, PathTrack track) {
+        findGroup(spec, sheet, track).add(spawnCount++);
+    }
+
+    /**
+     * Finds the group moving along a path from a wave entry, starting a new group if there is none.
+     * Monsters taking the same route share its track, so they share a group too.
+     * 
+     * @param spec The wave entry of the group.
+     * @param sheet The sprite sheet of its monsters.
+     * @param track The path it moves along.
+     * @return The group.
+     */
+    private MonsterGroup findGroup(MonsterSpec spec, SpriteSheet sheet, PathTrack track) {
+        IdentityHashMap<PathTrack, MonsterGroup> specGroups = groupIndex.get(spec);
+        MonsterGroup group = specGroups != null ? specGroups.get(track) : null;
+        if (group != null && group.accepts(spec, sheet, track)) {
+            return group;
+        }
+        group = new MonsterGroup(spec, sheet, track);
+        addGroup(group);
+        return group;
+    }
+
+    /**
+     * Adds a group to the game, such as one read from a snapshot.
+     * It replaces any group of the same wave entry and path in the index, which is then only stepped until it empties.
+     * 
+     * @param group The group to be added.
+     */
+    public void addGroup(MonsterGroup group) {
+        groups.add(group);
+        IdentityHashMap<PathTrack, MonsterGroup> specGroups = groupIndex.get(group.getSpec());
+        if (specGroups == null) {
+            specGroups = new IdentityHashMap<>();
+            groupIndex.put(group.getSpec(), specGroups);
+        }
+        specGroups.put(group.getTrack(), group);
+    }
+
+    /**
+     * Retrieves the compiled track of a route, compiling it the first time any monster takes it on the current map.
+     * 
+     * @param route List of tiles (x, y) the route passes through.
+     * @return The track shared by every monster on the route.
+     */
+    public PathTrack routeTrack(ArrayList<int[]> route) {
+        PathTrack track = new PathTrack(route);
+        PathTrack shared = routeTracks.putIfAbsent(track, track);
+        return shared != null ? shared : track;
+    }
+
+    /**
+     * Puts a banished monster back into a group at the start of its path instead of restarting it,
+     * if it is untouched: it has full hp, no status effects, no fireball on its way to it,
+     * and no tower can reach the start of the path.
+     * 
+     * @param monster The banished monster.
+     * @return True if the monster joined a group and should be dropped from the monster list, false otherwise.
+     */
+    private boolean regroup(Monster monster) {
+        MonsterSpec spec = monster.getSpec();
+        if (spec == null || monster.getHp() != spec.getHp() || monster.getEffectSlot() != -1
+            || projectiles.isTargeting(monster)) {
+            return false;
+        }
+
+        MonsterGroup group = findGroup(spec, monster.getSheet(), monster.getTrack());
+        if (coverageOf(group.getTrack(), group.getXShift(), group.getYShift()).nextCovered(0) <= 0) {
+            return false;
+        }
+        group.addRestarted(monster);
+        return true;
+    }
+
+    /**
+     * Moves every group one step, and releases the members that have come within reach of a tower
+     * to be merged into the monster list. Groups left empty are kept for monsters joining them later, unless they
+     * are on a path that is not one of the level's, which no other monster will take.
+     */
+    private void stepGroups() {
+        int kept = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            MonsterGroup group = groups.get(i);
+            group.step();
+            float engaged = coverageOf(group.getTrack(), group.getXShift(), group.getYShift()).nextCovered(0);
+            while (!group.isEmpty() && group.frontDistance() >= engaged) {
+                arrivals.add(group.releaseFront(animations, effects));
+            }
+            if (!group.isEmpty() || levelTrackIndex(group.getTrack()) != -1) {
+                groups.set(kept++, group);
+            } else {
+                IdentityHashMap<PathTrack, MonsterGroup> specGroups = groupIndex.get(group.getSpec());
+                if (specGroups.get(group.getTrack()) == group) {
+                    specGroups.remove(group.getTrack());
+                }
+            }
+        }
+        for (int i = groups.size() - 1; i >= kept; i--) {
+            groups.remove(i);
+        }
+    }
+
+    /**
+     * Releases every member of every group into the monster list, such as before the paths change.
+     */
+    public void ungroupAll() {
+        for (MonsterGroup group : groups) {
+            while (!group.isEmpty()) {
+                arrivals.add(group.releaseFront(animations, effects));
+            }
+        }
+        arrivals.mergeInto(monsters);
+        groups.clear();
+        groupIndex.clear();
+    }
+
+    /**
+     * Retrieves the parts of a path towers can reach, for monsters of a given sprite size.
+     * Coverage is kept by the game rather than the path, since paths are shared between games
+     * with different towers, and is only worked out again once the towers have changed.
+     * 
+     * @param track The compiled path.
+     * @param xShift The x offset of the monster's sprite from the corner of its tile.
+     * @param yShift The y offset of the monster's sprite from the corner of its tile.
+     * @return The coverage of the path.
+     */
+    private PathCoverage coverageOf(PathTrack track, float xShift, float yShift) {
+        ArrayList<PathCoverage> trackCoverages = coverages.get(track);
+        if (trackCoverages == null) {
+            trackCoverages = new ArrayList<>();
+            coverages.put(track, trackCoverages);
+        }
+        for (int i = 0; i < trackCoverages.size(); i++) {
+            PathCoverage coverage = trackCoverages.get(i);
+            if (coverage.isFor(xShift, yShift)) {
+                if (coverage.getVersion() == towerVersion) {
+                    return coverage;
+                }
+                trackCoverages.remove(i);
+                break;
+            }
+        }
+
+        updateTowerReach();
+        PathCoverage coverage = new PathCoverage(track, xShift, yShift, towers, towerReach, towerVersion);
+        trackCoverages.add(coverage);
+        return coverage;
+    }
+
+    /**
+     * Works out how many steps a monster that has just been ticked can rest for, which is until
+     * just before it could come within reach of a tower. Monsters with status effects, fireballs
+     * on their way to them, or that are dying or at the Wizard House are ticked every step.
+     * 
+     * @param monster The monster.
+     * @return The number of steps the monster can rest for, or 0 if it should keep being ticked.
+     */
+    private int restingSteps(Monster monster) {
+        if (!monster.getAlive() || monster.getHp() <= 0 || monster.getEffectSlot() != -1) {
+            return 0;
+        }
+
+        float distance = monster.getDistance();
+        float covered = coverageOf(monster.getTrack(), monster.getXShift(), monster.getYShift()).nextCovered(distance);
+        // two steps short, so rounding in the sums of speed can never carry it into reach while it rests
+        float steps = (covered - distance) / monster.getSpeed() - 2;
+        if (steps < MIN_REST_STEPS || projectiles.isTargeting(monster)) {
+            return 0;
+        }
+        return (int)Math.min(steps, MAX_REST_STEPS);
+    }
+
+    /**
+     * Wakes every resting monster, putting it back in the monster list where it would be
+     * had it been ticked every step.
+     */
+    public void wakeResting() {
+        lodScheduler.wakeAll(arrivals);
+        arrivals.mergeInto(monsters);
+    }
+
+    /**
+     * Retrieves an empty buffer for encoding a snapshot of the game, reusing the last one if it is big enough.
+     *
+     * @param bytes The most bytes the snapshot can take.
+     * @return The cleared buffer.
+     */
+    public ByteBuffer snapshotBuffer(int bytes) {
+        if (snapshotBuffer == null || snapshotBuffer.capacity() < bytes) {
+            this.snapshotBuffer = ByteBuffer.allocate(Math.max(bytes, snapshotBuffer == null ? 0 : 2 * snapshotBuffer.capacity()));
+        }
+        snapshotBuffer.clear();
+        return snapshotBuffer;
+    }
+
+    /**
+     * Works out how far from each tower a monster can be hit, when the towers have changed.
+     * A fireball can land on its target up to a step after the target leaves the tower's range,
+     * and splash and chain attacks reach further from where it lands, so they reach the
+     * furthest a monster can move in a step beyond the range, plus their radius.
+     */
+    private void updateTowerReach() {
+        if (towerReachVersion == towerVersion) {
+            return;
+        }
+        float fastest = 0;
+        for (WaveConfig wave : config.getWaves()) {
+            for (MonsterSpec spec : wave.getMonsters()) {
+                fastest = Math.max(fastest, spec.getSpeed());
+            }
+        }
+
+        this.towerReach = new float[towers.size()];
+        for (int i = 0; i < towers.size(); i++) {
+            TowerType type = towers.get(i).getType();
+            float reach = towers.get(i).getRange();
+            if (type.getKind() == TowerType.SPLASH) {
+                reach += fastest + type.getRadius();
+            } else if (type.getKind() == TowerType.CHAIN) {
+                reach += fastest + type.getRadius() * type.getJumps();
+            }
+            // a pixel more, so rounding never leaves a monster in a group that a tower could hit
+            towerReach[i] = reach + 1;
+        }
+        this.towerReachVersion = towerVersion;
+    }
+
+    /**
+     * Counts the monsters on the field, including those moving in groups and those resting.
+     * 
+     * @return The number of monsters.
+     */
+    public int countMonsters() {
+        int count = monsters.size() + lodScheduler.size();
+        for (MonsterGroup group : groups) {
+            count += group.size();
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the compiled paths monsters can take on the current level.
+     * Until the map is changed these are the level's own paths, compiled once and shared by every game.
+     * 
+     * @return List of every valid path from a starting point to the Wizard House.
+     */
+    public List<PathTrack> getTracks() {
+        if (this.tracks == null) {
+            this.tracks = LevelLoader.load(levelFile).getTracks();
+        }
+        return this.tracks;
+    }
+
+    /**
+     * Finds a track among the level's paths. Tracks are compared by identity rather than by their
+     * tiles, since a monster on a lane of its own is still on its own lane where it matches a level path.
+     * 
+     * @param track The compiled path.
+     * @return The index of the track in the level's paths, or -1 if it is not one of them.
+     */
+    public int levelTrackIndex(PathTrack track) {
+        List<PathTrack> tracks = getTracks();
+        for (int i = 0; i < tracks.size(); i++) {
+            if (tracks.get(i) == track) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Chooses a random path for a monster to take.
+     * 
+     * @return One of the paths from a starting point to the Wizard House.
+     */
+    private PathTrack randomTrack() {
+        return getTracks().get(nextRandom(getTracks().size()));
+    }
+
+    /**
+     * Chooses the path for a new monster. If the config has path costs, the monster starts from a
+     * random edge tile and follows the distance field for its type, taking a random lane wherever
+     * routes of equal cost split. Otherwise it takes one of the level's shortest paths at random.
+     * 
+     * @param type The type of monster.
+     * @return The path the monster will take.
+     */
+    private PathTrack spawnTrack(String type) {
+        if (!config.hasPathCosts()) {
+            return randomTrack();
+        }
+
+        DistanceField field = getDistanceField(config.getPathCosts(type));
+        int reachable = 0;
+        for (int[] start : getStartTiles()) {
+            if (field.getDistance(start[0], start[1]) != DistanceField.UNREACHABLE) {
+                reachable++;
+            }
+        }
+        // monsters that cannot reach the Wizard House since the map changed take an ordinary path
+        if (reachable == 0) {
+            return randomTrack();
+        }
+
+        int choice = nextRandom(reachable);
+        for (int[] start : getStartTiles()) {
+            if (field.getDistance(start[0], start[1]) != DistanceField.UNREACHABLE && choice-- == 0) {
+                ArrayList<int[]> route = field.randomRouteFrom(start[0], start[1], this::nextRandom);
+                route.add(0, PathCalculations.coordinateBeforeStart(start));
+                return routeTrack(route);
+            }
+        }
+        return randomTrack();
+    }
+
+    /**
+     * Draws the next number from the random number generator (SplitMix64).
+     * The generator's whole state is a single number, so it can be saved and restored directly.
+     * 
+     * @param bound The number of possible values.
+     * @return A random number from 0 up to, but not including, bound.
+     */
+    private int nextRandom(int bound) {
+        this.randomState += 0x9E3779B97F4A7C15L;
+        long z = randomState;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int)((z >>> 1) % bound);
+    }
+
+    /**
+     * Retrieves the map of the current level, including any changes made while playing.
+     * The map must not be modified, use setTile instead.
+     * 
+     * @return The map represented as a 2D char array.
+     */
+    public char[][] getMap() {
+        return editedMap != null ? editedMap : LevelLoader.load(levelFile).getMap();
+    }
+
+    /**
+     * Retrieves the sprite of every tile of the current level, including any changes made while playing.
+     * 
+     * @return The sprite code of each tile, see LevelData.spriteCode.
+     */
+    public byte[][] getTileSprites() {
+        return tileSprites != null ? tileSprites : LevelLoader.load(levelFile).getTileSprites();
+    }
+
+    /**
+     * Changes a tile of the map while playing, such as blocking a path with a shrub or clearing one.
+     * Only the part of the distance field that depended on the tile is recalculated, and monsters
+     * on the field are rerouted from the tile they are on. A change that would leave no path from
+     * the edge of the map to the Wizard House is refused.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param tile The new tile: ' ' for grass, 'S' for shrub or 'X' for path.
+     * @return True if the tile was changed, false otherwise.
+     * @throws IllegalArgumentException If the new tile is not grass, shrub or path.
+     */
+    public boolean setTile(int column, int row, char tile) {
+        if (tile != ' ' && tile != 'S' && tile != 'X') {
+            throw new IllegalArgumentException("Tiles can only be changed to grass, shrub or path, not '" + tile + "'");
+        }
+
+        char[][] map = getMap();
+        if (row < 0 || row >= map.length || column < 0 || column >= map[row].length) {
+            return false;
+        }
+        char previous = map[row][column];
+        if (previous == tile || previous == 'W'
+            || (tile != ' ' && Tower.towerExists(towers, column * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR))) {
+            return false;
+        }
+
+        if (editedMap == null) {
+            this.editedMap = LevelLoader.load(levelFile).copyMap();
+            copyDistanceFields();
+        }
+        DistanceField field = getDistanceField();
+        editedMap[row][column] = tile;
+        field.setWalkable(column, row, DistanceField.isWalkable(tile));
+
+        ArrayList<PathTrack> routes = spawnTracks();
+        if (routes.isEmpty()) {
+            editedMap[row][column] = previous;
+            field.setWalkable(column, row, DistanceField.isWalkable(previous));
+            return false;
+        }
+
+        for (DistanceField costField : costFields.values()) {
+            costField.setTile(column, row, tile);
+        }
+        this.tracks = routes;
+        this.startTiles = null;
+        this.tileSprites = LevelLoader.tileSprites(editedMap);
+        this.coverages.clear();
+        this.routeTracks.clear();
+        wakeResting();
+        ungroupAll();
+        for (Monster monster : monsters) {
+            reroute(monster);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the distance field of the current map, calculating it the first time it is needed.
+     * 
+     * @return The distance of every tile from the Wizard House.
+     */
+    private DistanceField getDistanceField() {
+        if (this.distanceField == null) {
+            this.distanceField = editedMap != null ? new DistanceField(editedMap)
+                : LevelLoader.load(levelFile).getDistanceField(PathCosts.DEFAULT);
+        }
+        return this.distanceField;
+    }
+
+    /**
+     * Retrieves the distance field for a set of path costs, calculating it the first time it is needed.
+     * Types of monster with the same costs share a field.
+     * 
+     * @param costs The cost of stepping onto each type of tile.
+     * @return The cost of the cheapest route from every tile to the Wizard House.
+     */
+    private DistanceField getDistanceField(PathCosts costs) {
+        if (costs == PathCosts.DEFAULT) {
+            return getDistanceField();
+        }
+        return costFields.computeIfAbsent(costs, this::compileCostField);
+    }
+
+    /**
+     * Works out the distance field for a set of path costs on the current map. Monsters that can
+     * walk on grass cannot walk through towers, so their fields are this game's own, with every
+     * tower's tile blocked, rather than the level's shared field.
+     * 
+     * @param costs The cost of stepping onto each type of tile.
+     * @return The cost of the cheapest route from every tile to the Wizard House.
+     */
+    private DistanceField compileCostField(PathCosts costs) {
+        if (editedMap == null && costs.getGrass() == 0) {
+            return LevelLoader.load(levelFile).getDistanceField(costs);
+        }
+        DistanceField field = editedMap != null ? new DistanceField(editedMap, costs)
+            : new DistanceField(LevelLoader.load(levelFile).getDistanceField(costs));
+        if (costs.getGrass() > 0) {
+            for (Tower tower : towers) {
+                field.setCost((int)tower.x / App.CELLSIZE, ((int)tower.y - App.TOPBAR) / App.CELLSIZE, DistanceField.UNREACHABLE);
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Checks if a monster is standing on a tile or about to step onto it.
+     * 
+     * @param monster The monster.
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param ahead The number of tiles of its path past the one it is on to check.
+     * @return True if the tile is on the monster's path from the tile it is on within the given number of tiles.
+     */
+    private static boolean isOnPath(Monster monster, int column, int row, int ahead) {
+        ArrayList<int[]> points = monster.getTrack().getPoints();
+        int tile = Math.min((int)(monster.getDistance() / App.CELLSIZE), points.size() - 1);
+        int last = Math.min(tile + ahead, points.size() - 1);
+        for (int i = tile; i <= last; i++) {
+            if (points.get(i)[0] == column && points.get(i)[1] == row) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the level's shared distance fields with copies of this game's own, before the map is first changed.
+     */
+    private void copyDistanceFields() {
+        if (this.distanceField != null) {
+            this.distanceField = new DistanceField(distanceField);
+        }
+        costFields.replaceAll((costs, field) -> new DistanceField(field));
+    }
+
+    /**
+     * Retrieves the tiles on the edge of the map that monsters can start from.
+     * 
+     * @return List of tiles (x, y) monsters can start from.
+     */
+    private ArrayList<int[]> getStartTiles() {
+        if (this.startTiles == null) {
+            this.startTiles = PathCalculations.findStartCoordinates(getMap());
+        }
+        return this.startTiles;
+    }
+
+    /**
+     * Compiles the path from every starting point on the edge of the map to the Wizard House,
+     * following the distance field.
+     * 
+     * @return List of paths from each starting point that can reach the Wizard House.
+     */
+    private ArrayList<PathTrack> spawnTracks() {
+        DistanceField field = getDistanceField();
+        ArrayList<PathTrack> routes = new ArrayList<>();
+        for (int[] start : PathCalculations.findStartCoordinates(getMap())) {
+            ArrayList<int[]> route = field.routeFrom(start[0], start[1]);
+            if (route != null) {
+                route.add(0, PathCalculations.coordinateBeforeStart(start));
+                routes.add(new PathTrack(route));
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Moves a monster onto the shortest path from the tile it is on, keeping it heading to the
+     * next tile of its old path if that tile can still be walked on. Monsters that cannot reach
+     * the Wizard House from where they are keep their old path.
+     * 
+     * @param monster The monster to be rerouted.
+     */
+    private void reroute(Monster monster) {
+        if (!monster.getAlive() || monster.getHp() <= 0) {
+            return;
+        }
+
+        DistanceField field = config.hasPathCosts()
+            ? getDistanceField(config.getPathCosts(monster.getSheet().getName())) : getDistanceField();
+        ArrayList<int[]> points = monster.getTrack().getPoints();
+        int tile = Math.min((int)(monster.getDistance() / App.CELLSIZE), points.size() - 1);
+        int[] from = points.get(tile);
+
+        if (tile + 1 < points.size()) {
+            int[] to = points.get(tile + 1);
+            ArrayList<int[]> route = field.routeFrom(to[0], to[1]);
+            if (route != null) {
+                route.add(0, from);
+                monster.reroute(routeTrack(route), monster.getDistance() - tile * App.CELLSIZE);
+                return;
+            }
+        }
+
+        ArrayList<int[]> route = field.routeFrom(from[0], from[1]);
+        if (route != null) {
+            monster.reroute(routeTrack(route), 0);
+        }
     }
 
     /**
      * Sets up a new tower for the game based on user input (mouse click or key press).
      * 
-     * @param e The mouse event representing the user's click.
-     * @param towerImages Images of tower to be displayed at different levels.
-     * @param fireballImage The image representing fireballs.
+     * @param x The x coordinate of the user's click on the window.
+     * @param y The y coordinate of the user's click on the window.
+     * @param towerSheet Sprite sheet of tower, with a frame for each level.
      */
-    public void setUpTower(MouseEvent e, ArrayList<PImage> towerImages, PImage fireballImage) {
+    public void setUpTower(int x, int y, SpriteSheet towerSheet) {
         
-        if (e.getX() <= App.WIDTH - 120 && e.getY() >= 40 && wizardHouse.getMana() >= config.getInt("tower_cost")) {
-            
-            int towerX = (int)Math.floor(e.getX() / 32) * 32;
-            int towerY = (int)Math.floor(e.getY() / 32) * 32 + 8; // adding 8 because y starts at 40
-            // Checking that there is grass at chosen tile
-            char[][] map = Background.obtainMap(levelFile);
-            
-            if (map[(towerY - 8)/32 - 1][towerX/32] == ' ' && !Tower.towerExists(towers, towerX, towerY)) {
-                Tower towerToAdd = new Tower(towerImages, towerX, towerY, config);
-                towers.add(towerToAdd);
-                fireballs.add(new Fireball(fireballImage, towerToAdd));
-                wizardHouse.addMana(-config.getInt("tower_cost"));
+        if (x <= App.WIDTH - 120 && y >= 40) {
+            int column = (int)Math.floor(x / 32);
+            int row = (int)Math.floor(y / 32) - 1; // subtracting 1 because y starts at 40
+            placeTower(column, row, towerSheet);
+        }
+
+    }
+
+    /**
+     * Places a new tower of the selected type on a given tile, if there is enough mana and the tile is empty grass.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param towerSheet Sprite sheet of tower, with a frame for each level.
+     * @return True if the tower was placed, false otherwise.
+     */
+    public boolean placeTower(int column, int row, SpriteSheet towerSheet) {
+        return placeTower(column, row, towerSheet, getTowerType());
+    }
+
+    /**
+     * Places a new tower of a given type on a given tile, if there is enough mana and the tile is empty grass.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param towerSheet Sprite sheet of tower, with a frame for each level.
+     * @param type The type of tower to place.
+     * @return True if the tower was placed, false otherwise.
+     */
+    public boolean placeTower(int column, int row, SpriteSheet towerSheet, TowerType type) {
+        if (wizardHouse.getMana() < type.getCost()) {
+            return false;
+        }
+
+        int towerX = column * 32;
+        int towerY = row * 32 + 40;
+        // Checking that there is grass at chosen tile
+        char[][] map = getMap();
+
+        if (row >= 0 && row < map.length && column >= 0 && column < map[row].length
+            && map[row][column] == ' ' && !Tower.towerExists(towers, towerX, towerY)) {
+            wakeResting();
+            if (config.hasWalkableGrass() && !blockTile(column, row)) {
+                return false;
+            }
+            Tower towerToAdd = new Tower(towerSheet, towerX, towerY, config, type);
+            towers.add(towerToAdd);
+            spend(type.getCost());
+            this.towerVersion++;
+            this.coverages.clear();
+            if (config.hasWalkableGrass()) {
+                for (Monster monster : monsters) {
+                    if (isOnPath(monster, column, row, monster.getTrack().getPoints().size())) {
+                        reroute(monster);
+                    }
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Blocks a grass tile for monsters that can walk on grass, before a tower is built on it.
+     * The tile is left as it was if a monster is standing on it or stepping onto it next, or if
+     * blocking it would leave some type of monster no route from the edge of the map.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @return True if the tile was blocked, false otherwise.
+     */
+    private boolean blockTile(int column, int row) {
+        ungroupAll();
+        for (Monster monster : monsters) {
+            if (monster.getAlive() && isOnPath(monster, column, row, 1)) {
+                return false;
+            }
+        }
+
+        ArrayList<PathCosts> blocked = new ArrayList<>();
+        boolean reachable = true;
+        for (Map.Entry<PathCosts, DistanceField> entry : costFields.entrySet()) {
+            if (entry.getKey().getGrass() == 0) {
+                continue;
+            }
+            entry.getValue().setCost(column, row, DistanceField.UNREACHABLE);
+            blocked.add(entry.getKey());
+            reachable &= canReachHouse(entry.getValue());
+        }
+
+        if (!reachable) {
+            for (PathCosts costs : blocked) {
+                costFields.get(costs).setTile(column, row, ' ');
             }
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * Checks if the Wizard House can be reached from any of the tiles monsters start from.
+     * 
+     * @param field The distance field to follow.
+     * @return True if some starting tile has a route to the Wizard House, false otherwise.
+     */
+    private boolean canReachHouse(DistanceField field) {
+        for (int[] start : getStartTiles()) {
+            if (field.getDistance(start[0], start[1]) != DistanceField.UNREACHABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the type of tower the player builds.
+     * 
+     * @return The selected tower type.
+     */
+    public TowerType getTowerType() {
+        return config.getTowerTypes().get(towerType);
+    }
+
+    /**
+     * Selects the next type of tower in the config for the player to build, going back to the first after the last.
+     */
+    public void cycleTowerType() {
+        this.towerType = (towerType + 1) % config.getTowerTypes().size();
+        sideBar.setTowerType(getTowerType().getName(), getTowerType().getCost());
+    }
+
+    /**
+     * Takes mana spent by the player from the Wizard House straight away, through the event queue
+     * so listeners hear about it, since the next action the player takes depends on what is left.
+     * 
+     * @param mana The mana spent.
+     */
+    private void spend(float mana) {
+        events.spend(mana);
+        events.drain(wizardHouse);
+    }
 
+    /**
+     * Sets up the fireballs fired by towers with the image they are drawn with.
+     * 
+     * @param fireballSprite The image representing fireballs.
+     */
+    public void setUpProjectiles(PImage fireballSprite) {
+        projectiles.setSprite(fireballSprite);
     }
 
     /**
@@ -101,7 +859,7 @@ public class GameManager {
      * @param wizardHouseSprite The image representing the Wizard House.
      */
     public void setUpWizardHouse(PImage wizardHouseSprite) {
-        char map[][] = Background.obtainMap(levelFile);
+        char map[][] = getMap();
         
         outerLoop:
         for (int i = 0; i < map.length; i++) {
@@ -122,7 +880,7 @@ public class GameManager {
      * @return True if the current level has been beaten, false otherwise.
      */
     public boolean checkWin() {
-        if (monsters.size() == 0) {
+        if (countMonsters() == 0) {
             if (waveManager.wavesDone) {
                 return true;
             }   
@@ -144,87 +902,182 @@ public class GameManager {
         return false;
     }
 
+    /**
+     * Runs the game logic for one frame: wave timing, monster spawning and updating elements.
+     * 
+     * @param FPS The frames per second of the game.
+     * @param framesPassed The number of frames passed since the beginning of the level.
+     * @param sprites The sprite sheets of different types of monsters.
+     * @param skipIdle True to jump straight to the next wave event if nothing is happening on the field.
+     * @return The number of frames passed after this frame.
+     */
+    public int update(int FPS, int framesPassed, SpriteRegistry sprites, boolean skipIdle) {
+        if (skipIdle) {
+            framesPassed += skipIdleFrames(FPS, framesPassed, FPS * MAX_IDLE_SKIP);
+        }
+
+        if (!sideBar.keyStatus.get("p")) {
+            waveManager.waveTimer(framesPassed * gameSpeed);
+        }
+
+        // Setting up monsters at intervals specified by config
+        if (allowMonsterSetUp(framesPassed, FPS)) {
+            setUpMonster(sprites);
+        }
+
+        // call tick for each animated element
+        this.stepsLastUpdate = 0;
+        if (allowTick()) {
+            tick(FPS, framesPassed);
+            framesPassed++;
+            this.stepsLastUpdate = gameSpeed;
+        }
+
+        return framesPassed;
+    }
+
+    /**
+     * Checks if nothing can happen on the field until the wave timer's next event:
+     * no monsters or fireballs, and no wave currently spawning monsters.
+     * 
+     * @return True if the game is idle, false otherwise.
+     */
+    public boolean isIdle() {
+        return countMonsters() == 0 && projectiles.size() == 0 && waveManager.preWaveState 
+            && !waveManager.wavesDone && allowTick();
+    }
+
+    /**
+     * Jumps game time forward to just before the next wave event while the game is idle.
+     * The wave countdown, mana regeneration and tower charge for the skipped frames are
+     * worked out directly rather than stepped through frame by frame.
+     * 
+     * @param FPS The frames per second of the game.
+     * @param framesPassed The number of frames passed since the beginning of the level.
+     * @param maxFrames The most frames that can be skipped.
+     * @return The number of frames skipped.
+     */
+    public int skipIdleFrames(int FPS, int framesPassed, int maxFrames) {
+        if (!isIdle()) {
+            return 0;
+        }
+
+        int frames = Math.min(maxFrames, waveManager.idleFramesUntilNextEvent(framesPassed, gameSpeed));
+        if (frames <= 0) {
+            return 0;
+        }
+
+        waveManager.skipIdleFrames(framesPassed, gameSpeed, frames);
+        wizardHouse.accrueMana(waveManager.secondTicksBetween(framesPassed, framesPassed + frames, gameSpeed));
+        for (Tower tower : towers) {
+            tower.chargeIdle(FPS, frames * gameSpeed);
+        }
+
+        return frames;
+    }
+
     /**
      * Updates the position of game elements based on how many frames have passed.
+     * Killed monsters are removed by compacting the monster list in place, keeping the order of
+     * the remaining monsters, so a tick does not allocate once the game's arrays have grown to fit.
+     * Damage and mana changes are queued as events while the game is updated, then applied in
+     * the order they happened at the end of each step. Status effects are advanced at the start of each step.
+     * Grouped monsters move after the monster list, and those released join it before the towers fire.
+     * Monsters that no tower can reach rest in the LodScheduler until just before they could be hit.
+     * Where monsters and fireballs were before the update is kept, so they can be drawn in between updates.
      * 
      * @param FPS The frames per second of the game.
      * @param framesPassed The number of frames passed since the beginning of the level.
      */
     public void tick(int FPS, int framesPassed) {
-        ArrayList<Monster> monstersToRemove = new ArrayList<>();
-        
+        for (int j = 0; j < monsters.size(); j++) {
+            monsters.get(j).keepPosition();
+        }
+        projectiles.keepPositions();
+
         for (int i = 0; i < gameSpeed; i++) {
-            
+            int kept = 0;
+            effects.tick(events);
+
             for (int j = 0; j < monsters.size(); j++) {
                 Monster gremlin = monsters.get(j);
                 if (!gremlin.getAlive() && !gremlin.getReachedDest()) {
-                    wizardHouse.addMana(gremlin.getManaGainedOnKill());
-                    monstersToRemove.add(gremlin);
+                    events.kill(gremlin, gremlin.getManaGainedOnKill());
+                    effects.clear(gremlin);
+                    continue;
                 
                 } else if (gremlin.getReachedDest()) {
-                    wizardHouse.addMana((int)-gremlin.getHp());
-                    checkGameOver();
-                    gremlin.restart();
+                    events.banish(gremlin, (int)gremlin.getHp());
+                    // monsters on a lane of their own, or rerouted after the map changed, start again on a new path
+                    if (levelTrackIndex(gremlin.getTrack()) != -1) {
+                        if (config.getGroupSpawns() && regroup(gremlin)) {
+                            continue;
+                        }
+                        gremlin.restart();
+                    } else {
+                        gremlin.respawn(spawnTrack(gremlin.getSheet().getName()));
+                    }
                 
                 } else {
                     gremlin.tick();
+                    int steps = restingSteps(gremlin);
+                    if (steps > 0) {
+                        lodScheduler.rest(gremlin, steps);
+                        continue;
+                    }
                 }
+
+                monsters.set(kept++, gremlin);
             }
 
-            this.monsters = Monster.removeMonsters(this.monsters, monstersToRemove);
-    
-            for (Fireball fireball : fireballs) {
-                fireball.tick(FPS, framesPassed, monsters);
+            // dropping the killed monsters from the end of the list
+            for (int j = monsters.size() - 1; j >= kept; j--) {
+                monsters.remove(j);
             }
+            stepGroups();
+            lodScheduler.tick(arrivals);
+            arrivals.mergeInto(monsters);
+            animations.tick();
+
+            monsterGrid.rebuild(monsters);
+            projectiles.tick(FPS, towers, monsterGrid, events);
+            events.drain(wizardHouse);
         }
 
-        if (framesPassed * gameSpeed % 60 == 0 && framesPassed * gameSpeed > 0) {
-            wizardHouse.addMana(wizardHouse.getManaPerSecond());
+        if (framesPassed * gameSpeed % FPS == 0 && framesPassed * gameSpeed > 0) {
+            events.gainMana(wizardHouse.getManaPerSecond());
+            events.drain(wizardHouse);
         }
 
     } 
     
     /**
-     * Draws all game elements and writes relevant text on the window.
+     * Fills in a frame for the renderer with everything drawn on the window: the map, monsters
+     * and fireballs, towers, and the text and bars around them. Monsters and fireballs are drawn
+     * moving between where they were before the last update and where they are now, so they move
+     * smoothly when the window is drawn more or less often than the game updates.
      * 
-     * @param app The PApplet window elements will be drawn on.
+     * @param frame The frame being filled in.
      */
-    public void draw(PApplet app) {
-        for (Monster monster : monsters) {
-            monster.draw(app);
-        }
+    public void capture(RenderFrame frame) {
+        boolean moved = stepsLastUpdate > 0;
+        frame.clear();
+        frame.setTileSprites(getTileSprites());
 
-        for (Fireball fireball : fireballs) {
-            fireball.draw(app);
+        for (int i = 0; i < monsters.size(); i++) {
+            monsters.get(i).capture(frame, moved);
         }
-        
-        app.fill(132, 115, 74);
-        app.noStroke();
-        app.rect(0, 0, App.WIDTH, App.TOPBAR);
-        app.rect(640, 0, App.SIDEBAR, App.HEIGHT);
-
-        waveManager.writeWaveText(app);
-        sideBar.draw(app);
-
-        wizardHouse.draw(app);
-        
-
-        for (Tower tower : towers) {
-            Boolean rangeButton = sideBar.keyStatus.get("1");
-            Boolean speedButton = sideBar.keyStatus.get("2");
-            Boolean damageButton = sideBar.keyStatus.get("3");
-            tower.draw(app, rangeButton, speedButton, damageButton);
+        for (int i = 0; i < groups.size(); i++) {
+            groups.get(i).capture(frame, stepsLastUpdate);
         }
+        lodScheduler.capture(frame, stepsLastUpdate);
+        projectiles.capture(frame, moved);
 
-        if (checkGameOver()) {
-            app.textSize(30);
-            app.fill(0);
-            app.text("YOU LOST\nPress 'r' to restart", 240, 250);
-        } else if (checkWin() && showWinMessage) {
-            app.textSize(30);
-            app.fill(0);
-            app.text("YOU WIN", 240, 250);
-        }
+        boolean wavesLeft = waveManager.waveNumber + 1 <= waveManager.waves.size();
+        frame.setWave(wavesLeft ? waveManager.waveNumber + 1 : 0, (int)waveManager.countdown);
+        frame.copyHud(wizardHouse, sideBar);
+        frame.copyTowers(towers);
+        frame.setOutcome(checkGameOver(), checkWin(), showWinMessage);
     }
 
     /**
@@ -282,19 +1135,25 @@ public class GameManager {
 
         }
 
+        if (key == 'c') {
+            cycleTowerType();
+            sideBar.updateKeyStatus(String.valueOf(key));
+        }
+
         return false;
     }
 
     /**
      * Updates game actions based on mouse clicks.
      * 
-     * @param app The instance of App running the game.
-     * @param e The mouse event representing the user's click.
+     * @param x The x coordinate of the user's click on the window.
+     * @param y The y coordinate of the user's click on the window.
+     * @param sprites The sprite sheets of the game, including the tower's.
      */
-    public void checkMouseClick(App app, MouseEvent e) {
+    public void checkMouseClick(int x, int y, SpriteRegistry sprites) {
         
         // Speeding up game via mouse click
-        String key = sideBar.checkButtonClicked(e.getX(), e.getY());
+        String key = sideBar.checkButtonClicked(x, y);
         if (key == "f") {
             if (sideBar.keyStatus.get("f")) {
                 gameSpeed = 2;
@@ -307,29 +1166,37 @@ public class GameManager {
             wizardHouse.activateManaPool();
             sideBar.setManaPoolCost(wizardHouse.getManaPoolCost());
         }
+
+        if (key == "c") {
+            cycleTowerType();
+            sideBar.updateKeyStatus(key);
+        }
         
         // Setting up new tower
         if (sideBar.keyStatus.get("t")) {
-            setUpTower(e, app.towerImages, app.fireballImage);
+            setUpTower(x, y, sprites.get("tower"));
         } 
         
         // upgrading an existing tower (including one newly set up)
         for (Tower tower : towers) {
-            int xClicked = (int)Math.floor(e.getX() / 32) * 32;
-            int yClicked = (int)Math.floor(e.getY() / 32) * 32 + 8; // adding 8 because y starts at 40
+            int xClicked = (int)Math.floor(x / 32) * 32;
+            int yClicked = (int)Math.floor(y / 32) * 32 + 8; // adding 8 because y starts at 40
                 
             if (xClicked == tower.x && yClicked == tower.y) {
                 
                 if (sideBar.keyStatus.get("1") && wizardHouse.getMana() > tower.getRangeCost()) {
-                    wizardHouse.addMana(-tower.getRangeCost());
+                    spend(tower.getRangeCost());
                     tower.upgradeRange();
+                    this.towerVersion++;
+                    this.coverages.clear();
+                    wakeResting();
                 
                 } if (sideBar.keyStatus.get("2") && wizardHouse.getMana() > tower.getSpeedCost()) {
-                    wizardHouse.addMana(-tower.getSpeedCost());
+                    spend(tower.getSpeedCost());
                     tower.upgradeFireSpeed();
                     
                 } if (sideBar.keyStatus.get("3") && wizardHouse.getMana() > tower.getDamageCost()) {
-                    wizardHouse.addMana(-tower.getDamageCost());
+                    spend(tower.getDamageCost());
                     tower.upgradeDamage();
                     
                 }
@@ -344,6 +1211,150 @@ public class GameManager {
      */
     public void setLevelFile(String filename) {
         this.levelFile = filename;
+        this.tracks = null;
+        this.editedMap = null;
+        this.distanceField = null;
+        this.tileSprites = null;
+        this.costFields.clear();
+        this.coverages.clear();
+        this.routeTracks.clear();
+        this.startTiles = null;
+    }
+
+    /**
+     * Sets the seed used to randomly choose the path of each monster,
+     * so that runs of the game can be repeated exactly.
+     * 
+     * @param seed The seed for the random number generator.
+     */
+    public void setSeed(long seed) {
+        this.randomState = seed;
+    }
+
+    /**
+     * Checks if the game can carry on under a reloaded config through a snapshot. The waves
+     * being played must still exist, every placed tower's kind must still be a type in the
+     * config, and so must the type selected for building. Monsters store their wave entry by
+     * its place in the config, so the game must also have no monsters left on the field.
+     * 
+     * @param reloaded The new config.
+     * @return True if a snapshot of the game can be restored under the new config, false otherwise.
+     */
+    public boolean fitsConfig(GameConfig reloaded) {
+        if (countMonsters() > 0 || !waveManager.fitsConfig(reloaded) || towerType >= reloaded.getTowerTypes().size()) {
+            return false;
+        }
+        for (Tower tower : towers) {
+            if (reloaded.getTowerType(tower.getType().getKind()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the game speed, selected actions and tower type, random path state and number of
+     * monsters spawned to a snapshot.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.put((byte)gameSpeed);
+        buffer.put((byte)(showWinMessage ? 1 : 0));
+        buffer.putLong(randomState);
+        buffer.put((byte)towerType);
+        buffer.putInt(spawnCount);
+        sideBar.writeState(buffer);
+    }
+
+    /**
+     * Reads the game speed, selected actions and tower type, random path state and number of
+     * monsters spawned from a snapshot.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.gameSpeed = buffer.get();
+        this.showWinMessage = buffer.get() != 0;
+        this.randomState = buffer.getLong();
+        // a config with fewer tower types goes back to the first type
+        this.towerType = buffer.get();
+        if (towerType >= config.getTowerTypes().size()) {
+            this.towerType = 0;
+        }
+        this.spawnCount = buffer.getInt();
+        sideBar.setTowerType(getTowerType().getName(), getTowerType().getCost());
+        sideBar.readState(buffer);
+    }
+
+    /**
+     * Counts the tiles that have been changed from the level file while playing.
+     * 
+     * @return The number of changed tiles.
+     */
+    public int countMapEdits() {
+        if (editedMap == null) {
+            return 0;
+        }
+        char[][] original = LevelLoader.load(levelFile).getMap();
+        int count = 0;
+        for (int row = 0; row < original.length; row++) {
+            for (int column = 0; column < original[row].length; column++) {
+                if (editedMap[row][column] != original[row][column]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the tiles changed from the level file to a snapshot, as their column, row and new tile.
+     * Uses 4 bytes, plus 3 bytes for each changed tile (see countMapEdits).
+     * 
+     * @param buffer The buffer the changes are written to.
+     */
+    public void writeMapEdits(ByteBuffer buffer) {
+        buffer.putInt(countMapEdits());
+        if (editedMap == null) {
+            return;
+        }
+        char[][] original = LevelLoader.load(levelFile).getMap();
+        for (int row = 0; row < original.length; row++) {
+            for (int column = 0; column < original[row].length; column++) {
+                if (editedMap[row][column] != original[row][column]) {
+                    buffer.put((byte)column);
+                    buffer.put((byte)row);
+                    buffer.put((byte)editedMap[row][column]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the tiles changed from the level file from a snapshot and applies them all at once,
+     * recalculating the distance field and paths from scratch.
+     * 
+     * @param buffer The buffer the changes are read from.
+     */
+    public void readMapEdits(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count == 0) {
+            return;
+        }
+        this.editedMap = LevelLoader.load(levelFile).copyMap();
+        for (int i = 0; i < count; i++) {
+            int column = buffer.get();
+            int row = buffer.get();
+            editedMap[row][column] = (char)buffer.get();
+        }
+        this.distanceField = new DistanceField(editedMap);
+        this.costFields.clear();
+        this.coverages.clear();
+        this.routeTracks.clear();
+        this.startTiles = null;
+        this.tracks = spawnTracks();
+        this.tileSprites = LevelLoader.tileSprites(editedMap);
     }
 
     /**
@@ -0,0 +1,475 @@
+package WizardTD;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * An immutable copy of the state of a game at a single frame, stored in a compact binary format.
+ * Snapshots only hold the state that changes while playing, so a game is restored by setting
+ * up a new game from the config and level and then reading the snapshot into it. The restored
+ * game shares the level's compiled paths and distance fields rather than working them out again.
+ * Sprites are stored by name and paths by their index in the level, so a snapshot of a
+ * busy field is still only a few kilobytes. Tiles changed while playing are stored as a list
+ * of changes, and monsters rerouted by them store their own path. Monsters and groups store
+ * the wave entry they spawned from by its place in the config. Resting monsters are stored as they
+ * were put to rest, with how long they have rested and have left to rest, so capturing a game
+ * leaves it exactly as it was.
+ */
+public class GameSnapshot {
+
+    public static final int MAGIC = 0x57544453; // "WTDS"
+    public static final short VERSION = 6;
+
+    // magic number, version, frames passed and the length of the level name
+    private static final int HEADER_BYTES = 12;
+
+    private final byte[] data;
+    private final int stateOffset;
+    private final int framesPassed;
+    private final String levelFile;
+
+    /**
+     * Creates a GameSnapshot from encoded data, checking that it was written by a compatible version.
+     *
+     * @param data The encoded snapshot.
+     * @throws IllegalArgumentException If the data is not a snapshot or is from an unsupported version.
+     */
+    public GameSnapshot(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported game snapshot version " + version);
+        }
+
+        this.data = data;
+        this.framesPassed = buffer.getInt();
+        this.levelFile = getString(buffer);
+        this.stateOffset = buffer.position();
+    }
+
+    /**
+     * Captures the state of a game.
+     *
+     * @param game The game to be captured.
+     * @param framesPassed The number of frames passed since the beginning of the level.
+     * @return A snapshot of the game.
+     */
+    public static GameSnapshot capture(GameManager game, int framesPassed) {
+        LodScheduler lodScheduler = game.lodScheduler;
+        byte[] levelName = game.levelFile.getBytes(StandardCharsets.UTF_8);
+
+        // resting monsters are stored in spawn order, as which entry each rests in depends on when others woke
+        ArrayList<Integer> restingEntries = new ArrayList<>(lodScheduler.size());
+        for (int entry = 0; entry < lodScheduler.getEntryCount(); entry++) {
+            if (lodScheduler.getMonster(entry) != null) {
+                restingEntries.add(entry);
+            }
+        }
+        restingEntries.sort(Comparator.comparingInt(entry -> lodScheduler.getMonster(entry).getSpawnOrder()));
+
+        // sprite sheet names are stored once, and monsters refer to them by index
+        ArrayList<SpriteSheet> sheets = new ArrayList<>();
+        int sheetBytes = 1;
+        for (Monster monster : game.monsters) {
+            sheetBytes += addSheet(sheets, monster.getSheet());
+        }
+        for (MonsterGroup group : game.groups) {
+            sheetBytes += addSheet(sheets, group.getSheet());
+        }
+        for (int entry : restingEntries) {
+            sheetBytes += addSheet(sheets, lodScheduler.getMonster(entry).getSheet());
+        }
+
+        // monsters on a path that is not one of the level's store the tiles of their path
+        int routeBytes = 0;
+        for (Monster monster : game.monsters) {
+            routeBytes += routeBytes(game, monster.getTrack());
+        }
+        int groupBytes = 4;
+        for (MonsterGroup group : game.groups) {
+            groupBytes += 15 + 8 * group.size() + routeBytes(game, group.getTrack());
+        }
+        int restingBytes = 4;
+        for (int entry : restingEntries) {
+            restingBytes += 15 + Monster.STATE_BYTES + routeBytes(game, lodScheduler.getMonster(entry).getTrack());
+        }
+
+        ByteBuffer buffer = game.snapshotBuffer(HEADER_BYTES + levelName.length + GameManager.STATE_BYTES
+            + 4 + 3 * game.countMapEdits()
+            + WaveManager.STATE_BYTES + WizardHouse.STATE_BYTES + sheetBytes
+            + 4 + game.towers.size() * (9 + Tower.STATE_BYTES)
+            + 4 + game.monsters.size() * (7 + Monster.STATE_BYTES) + routeBytes
+            + 4 + game.projectiles.size() * ProjectileSystem.STATE_BYTES + groupBytes + restingBytes);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(framesPassed);
+        buffer.putShort((short)levelName.length);
+        buffer.put(levelName);
+
+        game.writeState(buffer);
+        game.writeMapEdits(buffer);
+        game.waveManager.writeState(buffer);
+        game.wizardHouse.writeState(buffer);
+
+        buffer.put((byte)sheets.size());
+        for (SpriteSheet sheet : sheets) {
+            putString(buffer, sheet.getName());
+        }
+
+        IdentityHashMap<Tower, Integer> towerIndexes = new IdentityHashMap<>();
+        buffer.putInt(game.towers.size());
+        for (Tower tower : game.towers) {
+            towerIndexes.put(tower, towerIndexes.size());
+            buffer.putInt((int)tower.x);
+            buffer.putInt((int)tower.y);
+            buffer.put((byte)tower.getType().getKind());
+            tower.writeState(buffer);
+        }
+
+        IdentityHashMap<Monster, Integer> monsterIndexes = new IdentityHashMap<>();
+        buffer.putInt(game.monsters.size());
+        for (Monster monster : game.monsters) {
+            monsterIndexes.put(monster, monsterIndexes.size());
+            putMonster(buffer, game, sheets, monster);
+        }
+
+        game.projectiles.writeState(buffer, monsterIndexes, towerIndexes);
+
+        buffer.putInt(game.groups.size());
+        for (MonsterGroup group : game.groups) {
+            buffer.put((byte)sheets.indexOf(group.getSheet()));
+            putTrack(buffer, game, group.getTrack());
+            putSpec(buffer, game.config, group.getSpec());
+            group.writeState(buffer);
+        }
+
+        // resting monsters are never the target of a fireball, so they come after the fireballs
+        buffer.putInt(restingEntries.size());
+        for (int entry : restingEntries) {
+            buffer.putInt(lodScheduler.getRestedSteps(entry));
+            buffer.putInt(lodScheduler.getStepsToWake(entry));
+            putMonster(buffer, game, sheets, lodScheduler.getMonster(entry));
+        }
+
+        byte[] data = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(data);
+        return new GameSnapshot(data);
+    }
+
+    /**
+     * Sets up a new game in the state the snapshot was captured in.
+     * The game is built from the same config and level as the captured game.
+     *
+     * @param config Configuration details about the game.
+     * @param sprites The sprite sheets of the game elements.
+     * @return The restored game.
+     */
+    public GameManager restore(GameConfig config, SpriteRegistry sprites) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(stateOffset);
+
+        WaveManager waveManager = new WaveManager(config, App.FPS);
+        GameManager game = new GameManager(waveManager, config, levelFile);
+        game.setUpWizardHouse(sprites.get("wizard_house").getFrame(0));
+        game.setUpProjectiles(sprites.get("fireball").getFrame(0));
+
+        game.readState(buffer);
+        game.readMapEdits(buffer);
+        waveManager.readState(buffer);
+        game.wizardHouse.readState(buffer);
+        game.sideBar.setManaPoolCost(game.wizardHouse.getManaPoolCost());
+
+        SpriteSheet[] sheets = new SpriteSheet[buffer.get()];
+        for (int i = 0; i < sheets.length; i++) {
+            sheets[i] = sprites.get(getString(buffer));
+        }
+
+        SpriteSheet towerSheet = sprites.get("tower");
+        int towerCount = buffer.getInt();
+        for (int i = 0; i < towerCount; i++) {
+            int x = buffer.getInt();
+            int y = buffer.getInt();
+            TowerType type = config.getTowerType(buffer.get());
+            if (type == null) {
+                throw new IllegalArgumentException("Game snapshot has a type of tower that is not in the config");
+            }
+            Tower tower = new Tower(towerSheet, x, y, config, type);
+            tower.readState(buffer);
+            game.towers.add(tower);
+        }
+
+        int monsterCount = buffer.getInt();
+        for (int i = 0; i < monsterCount; i++) {
+            game.monsters.add(getMonster(buffer, game, config, sheets));
+        }
+
+        game.projectiles.readState(buffer, game.monsters, game.towers);
+
+        int groupCount = buffer.getInt();
+        for (int i = 0; i < groupCount; i++) {
+            SpriteSheet sheet = sheets[buffer.get()];
+            PathTrack track = getTrack(buffer, game);
+            MonsterGroup group = new MonsterGroup(getSpec(buffer, config), sheet, track);
+            group.readState(buffer);
+            game.addGroup(group);
+        }
+
+        int restingCount = buffer.getInt();
+        for (int i = 0; i < restingCount; i++) {
+            int rested = buffer.getInt();
+            int steps = buffer.getInt();
+            game.lodScheduler.resume(getMonster(buffer, game, config, sheets), rested, steps);
+        }
+        return game;
+    }
+
+    /**
+     * Writes the snapshot to a file. The file is replaced in a single step,
+     * so a crash while saving never leaves a partly written snapshot behind.
+     *
+     * @param file The file to be written.
+     */
+    public void save(Path file) {
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, data);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save snapshot to " + file, e);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param file The file to be read.
+     * @return The snapshot stored in the file.
+     */
+    public static GameSnapshot load(Path file) {
+        try {
+            return new GameSnapshot(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot from " + file, e);
+        }
+    }
+
+    /**
+     * Adds a sprite sheet to the list of sheets stored in a snapshot, if it is not there yet.
+     *
+     * @param sheets The sheets stored so far.
+     * @param sheet The sheet a monster or group is drawn with.
+     * @return The number of bytes its name takes, or 0 if it was already in the list.
+     */
+    private static int addSheet(ArrayList<SpriteSheet> sheets, SpriteSheet sheet) {
+        if (sheets.contains(sheet)) {
+            return 0;
+        }
+        sheets.add(sheet);
+        return 2 + sheet.getName().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Works out the number of bytes needed to store the tiles of a path that is not one of the level's.
+     *
+     * @param game The game being captured.
+     * @param track The path of a monster or group.
+     * @return The number of bytes, or 0 for one of the level's paths.
+     */
+    private static int routeBytes(GameManager game, PathTrack track) {
+        return game.levelTrackIndex(track) == -1 ? 2 + 2 * track.getPoints().size() : 0;
+    }
+
+    /**
+     * Writes a path to a buffer as its index in the level, or -1 followed by its tiles.
+     *
+     * @param buffer The buffer the path is written to.
+     * @param game The game being captured.
+     * @param track The path of a monster or group.
+     */
+    private static void putTrack(ByteBuffer buffer, GameManager game, PathTrack track) {
+        int trackIndex = game.levelTrackIndex(track);
+        buffer.putShort((short)trackIndex);
+        if (trackIndex == -1) {
+            putPoints(buffer, track.getPoints());
+        }
+    }
+
+    /**
+     * Reads a path written by putTrack from a buffer.
+     *
+     * @param buffer The buffer the path is read from.
+     * @param game The game being restored.
+     * @return The level's path, or the track shared by monsters on the same route.
+     */
+    private static PathTrack getTrack(ByteBuffer buffer, GameManager game) {
+        int trackIndex = buffer.getShort();
+        return trackIndex == -1 ? game.routeTrack(getPoints(buffer)) : game.getTracks().get(trackIndex);
+    }
+
+    /**
+     * Writes a monster to a buffer: its sprite sheet, path and wave entry, then its state.
+     *
+     * @param buffer The buffer the monster is written to.
+     * @param game The game being captured.
+     * @param sheets The sheets stored in the snapshot.
+     * @param monster The monster to be written.
+     */
+    private static void putMonster(ByteBuffer buffer, GameManager game, ArrayList<SpriteSheet> sheets, Monster monster) {
+        buffer.put((byte)sheets.indexOf(monster.getSheet()));
+        putTrack(buffer, game, monster.getTrack());
+        putSpec(buffer, game.config, monster.getSpec());
+        monster.writeState(buffer);
+    }
+
+    /**
+     * Reads a monster written by putMonster from a buffer.
+     *
+     * @param buffer The buffer the monster is read from.
+     * @param game The game being restored.
+     * @param config Configuration details about the game.
+     * @param sheets The sheets stored in the snapshot.
+     * @return The restored monster.
+     */
+    private static Monster getMonster(ByteBuffer buffer, GameManager game, GameConfig config, SpriteSheet[] sheets) {
+        SpriteSheet sheet = sheets[buffer.get()];
+        PathTrack track = getTrack(buffer, game);
+        Monster monster = new Monster(sheet, track, game.animations, game.effects);
+        MonsterSpec spec = getSpec(buffer, config);
+        if (spec != null) {
+            monster.loadConfigDetails(spec);
+        }
+        monster.readState(buffer);
+        return monster;
+    }
+
+    /**
+     * Writes the tiles of a path to a buffer, preceded by the number of tiles.
+     * Tiles are stored in a byte each for x and y, as paths start at most one tile outside the map.
+     *
+     * @param buffer The buffer the path is written to.
+     * @param points The tiles (x, y) of the path.
+     */
+    private static void putPoints(ByteBuffer buffer, ArrayList<int[]> points) {
+        buffer.putShort((short)points.size());
+        for (int[] point : points) {
+            buffer.put((byte)point[0]);
+            buffer.put((byte)point[1]);
+        }
+    }
+
+    /**
+     * Writes the wave entry a monster or group spawned from as the index of its wave and its index in the wave.
+     *
+     * @param buffer The buffer the entry is written to.
+     * @param config The config the entry is from.
+     * @param spec The wave entry, or null if there is none.
+     */
+    private static void putSpec(ByteBuffer buffer, GameConfig config, MonsterSpec spec) {
+        if (spec == null) {
+            buffer.putShort((short)-1);
+            buffer.putShort((short)-1);
+            return;
+        }
+        for (int wave = 0; wave < config.getWaves().size(); wave++) {
+            int index = config.getWaves().get(wave).getMonsters().indexOf(spec);
+            if (index != -1) {
+                buffer.putShort((short)wave);
+                buffer.putShort((short)index);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Monster is not from a wave in the config");
+    }
+
+    /**
+     * Reads a wave entry written by putSpec from a buffer.
+     *
+     * @param buffer The buffer the entry is read from.
+     * @param config The config the entry is from.
+     * @return The wave entry, or null if there is none.
+     */
+    private static MonsterSpec getSpec(ByteBuffer buffer, GameConfig config) {
+        int wave = buffer.getShort();
+        int index = buffer.getShort();
+        if (wave == -1) {
+            return null;
+        }
+        if (wave >= config.getWaves().size() || index >= config.getWaves().get(wave).getMonsters().size()) {
+            throw new IllegalArgumentException("Game snapshot has a monster that is not in the config");
+        }
+        return config.getWaves().get(wave).getMonsters().get(index);
+    }
+
+    /**
+     * Reads the tiles of a path written by putPoints from a buffer.
+     *
+     * @param buffer The buffer the path is read from.
+     * @return The tiles (x, y) of the path.
+     */
+    private static ArrayList<int[]> getPoints(ByteBuffer buffer) {
+        int count = buffer.getShort();
+        ArrayList<int[]> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new int[] {buffer.get(), buffer.get()});
+        }
+        return points;
+    }
+
+    /**
+     * Writes a string to a buffer, preceded by its length in bytes.
+     *
+     * @param buffer The buffer the string is written to.
+     * @param text The string to be written.
+     */
+    private static void putString(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short)bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString from a buffer.
+     *
+     * @param buffer The buffer the string is read from.
+     * @return The string read.
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves a copy of the encoded snapshot.
+     *
+     * @return The encoded snapshot.
+     */
+    public byte[] toBytes() {
+        return this.data.clone();
+    }
+
+    public int size() {
+        return this.data.length;
+    }
+
+    public int getFramesPassed() {
+        return this.framesPassed;
+    }
+
+    public String getLevelFile() {
+        return this.levelFile;
+    }
+}
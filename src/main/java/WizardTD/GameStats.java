@@ -0,0 +1,79 @@
+package WizardTD;
+
+/**
+ * Totals what happened during a game by listening to its events: damage dealt, monsters killed
+ * and banished, and the mana gained and spent.
+ */
+public class GameStats implements GameEventListener {
+
+    private float damageDealt;
+    private int kills, banishes;
+    private float manaFromKills, manaLostToBanishes, manaGenerated, manaSpent;
+
+    /**
+     * Creates a new GameStats listening to a game's events.
+     *
+     * @param events The events of the game.
+     */
+    public GameStats(GameEvents events) {
+        events.subscribe(this);
+    }
+
+    @Override
+    public void onEvent(int type, Monster monster, float amount) {
+        switch (type) {
+            case GameEvents.DAMAGE:
+                this.damageDealt += amount;
+                break;
+            case GameEvents.KILL:
+                this.kills++;
+                this.manaFromKills += amount;
+                break;
+            case GameEvents.BANISH:
+                this.banishes++;
+                this.manaLostToBanishes += amount;
+                break;
+            case GameEvents.MANA_GAIN:
+                this.manaGenerated += amount;
+                break;
+            case GameEvents.SPEND:
+                this.manaSpent += amount;
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kills + " kills, " + banishes + " banishes, " + Math.round(damageDealt) + " damage dealt, mana +"
+            + Math.round(manaFromKills) + " from kills +" + Math.round(manaGenerated) + " generated -"
+            + Math.round(manaLostToBanishes) + " to banishes -" + Math.round(manaSpent) + " spent";
+    }
+
+    public float getDamageDealt() {
+        return this.damageDealt;
+    }
+
+    public int getKills() {
+        return this.kills;
+    }
+
+    public int getBanishes() {
+        return this.banishes;
+    }
+
+    public float getManaFromKills() {
+        return this.manaFromKills;
+    }
+
+    public float getManaLostToBanishes() {
+        return this.manaLostToBanishes;
+    }
+
+    public float getManaGenerated() {
+        return this.manaGenerated;
+    }
+
+    public float getManaSpent() {
+        return this.manaSpent;
+    }
+}
@@ -0,0 +1,177 @@
+package WizardTD;
+
+import java.util.ArrayList;
+
+/**
+ * Runs a level of the game without a window, for batch runs of the simulation.
+ * Follows the same game logic as App, one frame at a time, but always skips
+ * quiet periods between waves.
+ */
+public class HeadlessGame {
+
+    private GameConfig config;
+    private SpriteRegistry sprites;
+
+    private GameManager gameManager;
+    private WaveManager waveManager;
+    private int framesPassed;
+
+    /**
+     * Creates a new headless game of a given level.
+     * 
+     * @param config Configuration details about the game.
+     * @param levelFile The level to be played.
+     * @param seed The seed used to randomly choose monster paths.
+     */
+    public HeadlessGame(GameConfig config, String levelFile, long seed) {
+        this.config = config;
+        AssetManager assets = AssetManager.headless();
+        this.sprites = SpriteRegistry.headless();
+
+        this.waveManager = new WaveManager(config, App.FPS);
+        this.gameManager = new GameManager(waveManager, config, levelFile);
+        gameManager.setSeed(seed);
+        gameManager.setUpWizardHouse(assets.get("wizard_house"));
+        gameManager.setUpProjectiles(assets.get("fireball"));
+    }
+
+    /**
+     * Creates a headless game continuing from a snapshot, so several outcomes
+     * can be played out from the same point of a game.
+     * 
+     * @param config Configuration details about the game.
+     * @param snapshot The snapshot the game continues from.
+     */
+    public HeadlessGame(GameConfig config, GameSnapshot snapshot) {
+        this.config = config;
+        this.sprites = SpriteRegistry.headless();
+        this.gameManager = snapshot.restore(config, sprites);
+        this.waveManager = gameManager.waveManager;
+        this.framesPassed = snapshot.getFramesPassed();
+    }
+
+    /**
+     * Captures the current state of the game.
+     * 
+     * @return A snapshot of the game.
+     */
+    public GameSnapshot snapshot() {
+        return GameSnapshot.capture(gameManager, framesPassed);
+    }
+
+    /**
+     * Creates a copy of the game that can be played on independently.
+     * Only the state that changes while playing is copied, through a snapshot. The sprites,
+     * the level, its compiled paths and its distance fields are shared with this game until
+     * either game changes a tile of the map.
+     * 
+     * @return A new headless game in the same state as this one.
+     */
+    public HeadlessGame fork() {
+        return new HeadlessGame(config, snapshot());
+    }
+
+    /**
+     * Sets the seed used to randomly choose the path of each monster from now on.
+     * 
+     * @param seed The seed for the random number generator.
+     */
+    public void setSeed(long seed) {
+        gameManager.setSeed(seed);
+    }
+
+    /**
+     * Runs the game logic for a single frame.
+     * 
+     * @return True if the game is still running, false if it has been won or lost.
+     */
+    public boolean step() {
+        if (isFinished()) {
+            return false;
+        }
+
+        this.framesPassed = gameManager.update(App.FPS, framesPassed, sprites, true);
+        return !isFinished();
+    }
+
+    /**
+     * Runs the game until it has been won or lost, or a number of frames have passed.
+     * 
+     * @param maxFrames The most frames of game time to run for.
+     * @return The number of frames passed since the beginning of the level.
+     */
+    public int run(int maxFrames) {
+        while (framesPassed < maxFrames && step()) {
+        }
+        return framesPassed;
+    }
+
+    /**
+     * Places a tower on a given tile, as if the player had clicked there.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @return True if the tower was placed, false otherwise.
+     */
+    public boolean placeTower(int column, int row) {
+        return gameManager.placeTower(column, row, sprites.get("tower"));
+    }
+
+    /**
+     * Places a tower of a given type on a given tile.
+     * 
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param type The type of tower to place.
+     * @return True if the tower was placed, false otherwise.
+     */
+    public boolean placeTower(int column, int row, TowerType type) {
+        return gameManager.placeTower(column, row, sprites.get("tower"), type);
+    }
+
+    public boolean isFinished() {
+        return gameManager.checkWin() || gameManager.checkGameOver();
+    }
+
+    public GameManager getGameManager() {
+        return this.gameManager;
+    }
+
+    public int getFramesPassed() {
+        return this.framesPassed;
+    }
+
+    /**
+     * Plays every level in a config file without a window and reports the result of each.
+     * 
+     * @param args The config file to use (config2.json by default), the number of runs of
+     * each level and the most seconds of game time to run each for.
+     */
+    public static void main(String[] args) {
+        String configPath = args.length > 0 ? args[0] : "config2.json";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int maxSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+
+        GameConfig config = GameConfig.load(configPath);
+        Level level = new Level(config);
+
+        for (int i = 0; i < level.getLevels().size(); i++) {
+            String levelFile = level.getLevels().get(i);
+
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                HeadlessGame game = new HeadlessGame(config, levelFile, run);
+                GameStats stats = new GameStats(game.getGameManager().events);
+                int frames = game.run(maxSeconds * App.FPS);
+                long elapsed = (System.nanoTime() - start) / 1000000;
+
+                GameManager result = game.getGameManager();
+                String outcome = result.checkWin() ? "won" : result.checkGameOver() ? "lost" : "unfinished";
+                System.out.println(levelFile + " run " + run + ": " + outcome + " after "
+                    + frames / App.FPS + "s of game time, mana " + Math.round(result.wizardHouse.getMana())
+                    + ", " + elapsed + "ms");
+                System.out.println("  " + stats);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package WizardTD;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries key presses and mouse clicks from the animation thread, where Processing reports them,
+ * to the simulation thread, which applies them between updates. It is a ring of flat arrays for
+ * one producer and one consumer: each side only moves its own end of the ring, so neither side
+ * ever locks or waits for the other. Input arriving while the ring is full is dropped.
+ */
+public class InputQueue {
+
+    public static final int KEY = 0;
+    public static final int CLICK = 1;
+
+    private final int[] kinds, keys, xs, ys;
+    private final int mask;
+    // number of events taken and added so far; the consumer only writes head and the producer only writes tail
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity The number of events the queue holds, rounded up to a power of two.
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.kinds = new int[size];
+        this.keys = new int[size];
+        this.xs = new int[size];
+        this.ys = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a key press. Called by the producer only.
+     *
+     * @param key The key pressed.
+     * @return True if the key press was added, false if the queue is full.
+     */
+    public boolean offerKey(char key) {
+        return offer(KEY, key, 0, 0);
+    }
+
+    /**
+     * Adds a mouse click. Called by the producer only.
+     *
+     * @param x The x coordinate of the click on the window.
+     * @param y The y coordinate of the click on the window.
+     * @return True if the click was added, false if the queue is full.
+     */
+    public boolean offerClick(int x, int y) {
+        return offer(CLICK, 0, x, y);
+    }
+
+    private boolean offer(int kind, int key, int x, int y) {
+        long added = tail.get();
+        if (added - head.get() > mask) {
+            return false;
+        }
+
+        int slot = (int)added & mask;
+        kinds[slot] = kind;
+        keys[slot] = key;
+        xs[slot] = x;
+        ys[slot] = y;
+        // publishing the slot only once it is filled in
+        tail.lazySet(added + 1);
+        return true;
+    }
+
+    /**
+     * Checks if there is an event waiting. Called by the consumer only.
+     *
+     * @return True if no event is waiting, false otherwise.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Retrieves the kind of the oldest waiting event. Called by the consumer only, when the queue is not empty.
+     *
+     * @return KEY or CLICK.
+     */
+    public int kind() {
+        return kinds[(int)head.get() & mask];
+    }
+
+    public char key() {
+        return (char)keys[(int)head.get() & mask];
+    }
+
+    public int x() {
+        return xs[(int)head.get() & mask];
+    }
+
+    public int y() {
+        return ys[(int)head.get() & mask];
+    }
+
+    /**
+     * Removes the oldest waiting event, handing its slot back to the producer. Called by the consumer only.
+     */
+    public void pop() {
+        head.lazySet(head.get() + 1);
+    }
+}
@@ -1,8 +1,7 @@
 package WizardTD;
 
-import processing.data.JSONObject;
-import processing.data.JSONArray;
 import processing.core.PApplet;
+import java.util.List;
 
 /**
  * Manages the game levels, including level progression and layout.
@@ -11,26 +10,19 @@ public class Level {
 
     private int currentLevel;
     private boolean preLevelState;
-    private JSONObject config;
-    private JSONArray levels;
+    private GameConfig config;
+    private List<String> levels;
 
     /**
      * Creates a new instance of Level.
      * 
-     * @param config The configuration object containing details of game levels.
+     * @param config The compiled config containing details of game levels.
      */
-    public Level(JSONObject config) {
+    public Level(GameConfig config) {
         this.currentLevel = 0;
         this.preLevelState = true;
         this.config = config;
-
-        if (this.config.get("layout") instanceof String) {
-            this.levels = new JSONArray();
-            this.levels.append(config.getString("layout"));
-
-        } else if (this.config.get("layout") instanceof JSONArray) {
-            this.levels = config.getJSONArray("layout");
-        }   
+        this.levels = config.getLayout();
     }
 
     /**
@@ -43,7 +35,23 @@ public class Level {
     }
 
     public String getLevelFileName() {
-        return levels.getString(currentLevel);
+        return levels.get(currentLevel);
+    }
+
+    /**
+     * Moves to a level by the name of its file.
+     * 
+     * @param levelFileName The name of the level file.
+     * @return True if the level is part of the config, false otherwise.
+     */
+    public boolean selectLevel(String levelFileName) {
+        for (int i = 0; i < levels.size(); i++) {
+            if (levels.get(i).equals(levelFileName)) {
+                this.currentLevel = i;
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -60,8 +68,9 @@ public class Level {
      * Write current level to the window.
      * 
      * @param app The PApplet window where message will be written.
+     * @param currentLevel The index of the current level.
      */
-    public void writeCurrentLevel(PApplet app) {
+    public static void writeCurrentLevel(PApplet app, int currentLevel) {
         app.textSize(15);
         String text = "GAME LEVEL: " + (currentLevel + 1);
         app.fill(0);
@@ -73,10 +82,12 @@ public class Level {
      * Write message indicating player has won current level and can advance to next level.
      * 
      * @param app The PApplet window where message will be written.
+     * @param currentLevel The index of the current level.
+     * @param levelCount The number of levels in the game.
      * @return True if message was written, false if not.
      */
-    public boolean startLevelMessage(PApplet app) {
-        if (currentLevel != levels.size() - 1) { 
+    public static boolean startLevelMessage(PApplet app, int currentLevel, int levelCount) {
+        if (currentLevel != levelCount - 1) { 
             app.textSize(30);
             app.fill(0);
             app.text("Level " + (currentLevel + 1) + " complete!", 240, 250);
@@ -96,7 +107,7 @@ public class Level {
         return this.currentLevel;
     }
 
-    public JSONArray getLevels() {
+    public List<String> getLevels() {
         return this.levels;
     }
 }
\ No newline at end of file
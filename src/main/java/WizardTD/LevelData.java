@@ -0,0 +1,121 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A loaded and validated level: the map, every path monsters can take
+ * and the sprite to draw on each tile.
+ * Levels are cached and shared by every game playing them, including forked games on other
+ * threads, so nothing here is changed after loading. Games copy what they need to change.
+ */
+public class LevelData {
+
+    public static final int GRASS = 0;
+    public static final int SHRUB = 1;
+    // path sprites are numbered PATH + n for pathn.png
+    public static final int PATH = 2;
+    public static final int PATH_SPRITES = 4;
+
+    private final char[][] map;
+    private final byte[][] tileSprites;
+    private final ArrayList<ArrayList<int[]>> paths;
+    private final List<PathTrack> tracks;
+    // distance fields of the unchanged map for each set of path costs, worked out when needed
+    private final ConcurrentHashMap<PathCosts, DistanceField> distanceFields = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of LevelData.
+     *
+     * @param map The map represented as a 2D char array.
+     * @param tileSprites The sprite code of each tile, see spriteCode.
+     * @param paths Every valid path from a starting point to the Wizard House.
+     */
+    public LevelData(char[][] map, byte[][] tileSprites, ArrayList<ArrayList<int[]>> paths) {
+        this.map = map;
+        this.tileSprites = tileSprites;
+        this.paths = paths;
+        this.tracks = Collections.unmodifiableList(PathTrack.compileAll(paths));
+    }
+
+    /**
+     * Combines a sprite and a rotation into a single sprite code.
+     *
+     * @param sprite The sprite, one of GRASS, SHRUB or PATH + n.
+     * @param quarterTurns The number of clockwise quarter turns the sprite is rotated by.
+     * @return The sprite code.
+     */
+    public static byte spriteCode(int sprite, int quarterTurns) {
+        return (byte)((quarterTurns << 4) | sprite);
+    }
+
+    /**
+     * Retrieves the sprite of a sprite code.
+     *
+     * @param code The sprite code.
+     * @return The sprite, one of GRASS, SHRUB or PATH + n.
+     */
+    public static int spriteOf(byte code) {
+        return code & 0x0F;
+    }
+
+    /**
+     * Retrieves the rotation of a sprite code.
+     *
+     * @param code The sprite code.
+     * @return The number of clockwise quarter turns the sprite is rotated by.
+     */
+    public static int quarterTurnsOf(byte code) {
+        return (code >> 4) & 0x03;
+    }
+
+    /**
+     * Copies the map, so that the copy can be changed without affecting the loaded level.
+     *
+     * @return A copy of the map.
+     */
+    public char[][] copyMap() {
+        char[][] copy = new char[map.length][];
+        for (int i = 0; i < map.length; i++) {
+            copy[i] = map[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Retrieves the distance field of the unchanged map for a set of path costs, calculating it
+     * the first time it is needed. The field is shared, so it must be copied before being changed.
+     *
+     * @param costs The cost of stepping onto each type of tile.
+     * @return The cost of the cheapest route from every tile to the Wizard House.
+     */
+    public DistanceField getDistanceField(PathCosts costs) {
+        return distanceFields.computeIfAbsent(costs, key -> new DistanceField(map, key));
+    }
+
+    public char[][] getMap() {
+        return this.map;
+    }
+
+    public byte[][] getTileSprites() {
+        return this.tileSprites;
+    }
+
+    public ArrayList<ArrayList<int[]>> getPaths() {
+        return this.paths;
+    }
+
+    public List<PathTrack> getTracks() {
+        return this.tracks;
+    }
+
+    public int getRows() {
+        return this.map.length;
+    }
+
+    public int getColumns() {
+        return this.map[0].length;
+    }
+}
@@ -0,0 +1,447 @@
+package WizardTD;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads level files, either as text (one row of the map per line) or in a compact
+ * pre-baked binary format that already contains the path table and tile sprites.
+ * Loaded levels are cached, so each file is only read and validated once.
+ */
+public class LevelLoader {
+
+    public static final int ROWS = 20;
+    public static final int COLUMNS = 20;
+
+    // files ending with this are read as pre-baked binary levels
+    public static final String BINARY_EXTENSION = ".wtdl";
+
+    private static final int MAGIC = 0x5754444C; // "WTDL"
+    private static final byte VERSION = 1;
+
+    private static final ConcurrentHashMap<String, LevelData> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Loads a level, reading and validating the file only the first time it is needed.
+     *
+     * @param filename The level file, either text or pre-baked binary.
+     * @return The loaded level.
+     * @throws UncheckedIOException If the file could not be read.
+     * @throws IllegalArgumentException If the file is not a valid level.
+     */
+    public static LevelData load(String filename) {
+        return cache.computeIfAbsent(filename, LevelLoader::read);
+    }
+
+    /**
+     * Forgets a cached level, so it is read again the next time it is loaded.
+     *
+     * @param filename The level file.
+     */
+    public static void invalidate(String filename) {
+        cache.remove(filename);
+    }
+
+    /**
+     * Replaces a cached level with one that has already been read, such as a level
+     * file that was changed on disk while the game was running.
+     *
+     * @param filename The level file.
+     * @param level The new contents of the level.
+     */
+    public static void replace(String filename, LevelData level) {
+        cache.put(filename, level);
+    }
+
+    /**
+     * Reads a level from disk without using the cache.
+     *
+     * @param filename The level file, either text or pre-baked binary.
+     * @return The loaded level.
+     */
+    public static LevelData read(String filename) {
+        ByteBuffer contents;
+        try {
+            contents = readFile(Paths.get(filename));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read level " + filename, e);
+        }
+
+        if (filename.endsWith(BINARY_EXTENSION)) {
+            return decode(contents, filename);
+        }
+
+        char[][] map = parseMap(contents, filename);
+        validateTiles(map, filename);
+
+        ArrayList<ArrayList<int[]>> paths = PathCalculations.getValidPaths(map);
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException(filename + ": no path leads from the edge of the map to the Wizard House");
+        }
+        return new LevelData(map, tileSprites(map), paths);
+    }
+
+    /**
+     * Reads the contents of a file through a file channel.
+     * Boards are a fixed size, so level files are always small enough to read into one buffer.
+     *
+     * @param path The file to be read.
+     * @return A buffer holding the contents of the file.
+     * @throws IOException If the file could not be read.
+     */
+    private static ByteBuffer readFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Generates a 20x20 map from the text of a level file.
+     * Missing rows and columns are filled with grass.
+     *
+     * @param contents The text of the level file.
+     * @param filename The name of the level file, for error messages.
+     * @return A 20x20 2D char array containing the characters in the given file.
+     */
+    private static char[][] parseMap(ByteBuffer contents, String filename) {
+        char[][] map = new char[ROWS][COLUMNS];
+        for (char[] row : map) {
+            Arrays.fill(row, ' ');
+        }
+
+        int row = 0;
+        int column = 0;
+        while (contents.hasRemaining()) {
+            char tile = (char)(contents.get() & 0xFF);
+
+            if (tile == '\n') {
+                row++;
+                column = 0;
+            } else if (tile != '\r') {
+                // characters outside of the board are only allowed if they are grass
+                if (row >= ROWS || column >= COLUMNS) {
+                    if (tile != ' ') {
+                        throw new IllegalArgumentException(filename + ": row " + (row + 1) + " column "
+                            + (column + 1) + " is outside of the " + ROWS + "x" + COLUMNS + " board");
+                    }
+                } else {
+                    map[row][column] = tile;
+                }
+                column++;
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Checks that a map only contains known tiles and has a Wizard House.
+     *
+     * @param map The map represented as a 2D char array.
+     * @param filename The name of the level file, for error messages.
+     * @throws IllegalArgumentException If the map is not valid.
+     */
+    private static void validateTiles(char[][] map, String filename) {
+        boolean wizardHouseFound = false;
+
+        for (int i = 0; i < map.length; i++) {
+            for (int j = 0; j < map[i].length; j++) {
+                char tile = map[i][j];
+                if (tile != ' ' && tile != 'S' && tile != 'X' && tile != 'W') {
+                    throw new IllegalArgumentException(filename + ": row " + (i + 1) + " column " + (j + 1)
+                        + " has unknown tile '" + tile + "', expected ' ', 'S', 'X' or 'W'");
+                }
+                wizardHouseFound |= tile == 'W';
+            }
+        }
+
+        if (!wizardHouseFound) {
+            throw new IllegalArgumentException(filename + ": map has no Wizard House ('W')");
+        }
+    }
+
+    /**
+     * Checks that every sprite code read from a binary level names a known sprite and rotation.
+     *
+     * @param sprites The sprite code of each tile.
+     * @param filename The name of the level file, for error messages.
+     * @throws IllegalArgumentException If a sprite code is not valid.
+     */
+    private static void validateSprites(byte[][] sprites, String filename) {
+        for (int i = 0; i < sprites.length; i++) {
+            for (int j = 0; j < sprites[i].length; j++) {
+                byte code = sprites[i][j];
+                if (code != LevelData.spriteCode(LevelData.spriteOf(code), LevelData.quarterTurnsOf(code))
+                        || LevelData.spriteOf(code) >= LevelData.PATH + LevelData.PATH_SPRITES) {
+                    throw new IllegalArgumentException(filename + ": row " + (i + 1) + " column " + (j + 1)
+                        + " has unknown sprite code " + code);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that every path read from a binary level starts just outside of the map, moves one
+     * tile at a time along path tiles and ends at the Wizard House, as the paths found for text levels do.
+     *
+     * @param paths The paths, each a list of x and y tile coordinates.
+     * @param map The map represented as a 2D char array.
+     * @param filename The name of the level file, for error messages.
+     * @throws IllegalArgumentException If a path is not valid.
+     */
+    private static void validatePaths(ArrayList<ArrayList<int[]>> paths, char[][] map, String filename) {
+        for (int i = 0; i < paths.size(); i++) {
+            ArrayList<int[]> path = paths.get(i);
+            if (path.size() < 2) {
+                throw new IllegalArgumentException(filename + ": path " + (i + 1) + " has " + path.size()
+                    + " points, expected at least 2");
+            }
+
+            for (int j = 0; j < path.size(); j++) {
+                int x = path.get(j)[0];
+                int y = path.get(j)[1];
+                boolean onMap = x >= 0 && x < COLUMNS && y >= 0 && y < ROWS;
+
+                if (j == 0 && (onMap || x < -1 || x > COLUMNS || y < -1 || y > ROWS)) {
+                    throw new IllegalArgumentException(filename + ": path " + (i + 1) + " starts at ("
+                        + x + ", " + y + "), which is not just outside of the map");
+                }
+                if (j > 0 && (!onMap || (map[y][x] != 'X' && map[y][x] != 'W'))) {
+                    throw new IllegalArgumentException(filename + ": path " + (i + 1) + " point " + (j + 1)
+                        + " (" + x + ", " + y + ") is not on a path tile");
+                }
+                if (j > 0 && Math.abs(x - path.get(j - 1)[0]) + Math.abs(y - path.get(j - 1)[1]) != 1) {
+                    throw new IllegalArgumentException(filename + ": path " + (i + 1) + " point " + (j + 1)
+                        + " (" + x + ", " + y + ") does not follow on from the point before it");
+                }
+            }
+
+            int[] end = path.get(path.size() - 1);
+            if (map[end[1]][end[0]] != 'W') {
+                throw new IllegalArgumentException(filename + ": path " + (i + 1) + " does not end at the Wizard House");
+            }
+        }
+    }
+
+    /**
+     * Works out the sprite and rotation of every tile, so paths join up with their neighbours.
+     *
+     * @param map The map represented as a 2D char array.
+     * @return The sprite code of each tile, see LevelData.spriteCode.
+     */
+    public static byte[][] tileSprites(char[][] map) {
+        byte[][] sprites = new byte[map.length][];
+
+        for (int i = 0; i < map.length; i++) {
+            sprites[i] = new byte[map[i].length];
+            for (int j = 0; j < map[i].length; j++) {
+                if (map[i][j] == 'S') {
+                    sprites[i][j] = LevelData.spriteCode(LevelData.SHRUB, 0);
+                } else if (map[i][j] == 'X') {
+                    sprites[i][j] = pathSprite(map, i, j);
+                } else {
+                    sprites[i][j] = LevelData.spriteCode(LevelData.GRASS, 0);
+                }
+            }
+        }
+
+        return sprites;
+    }
+
+    /**
+     * Finds a suitable path sprite based on the neighbouring map elements.
+     *
+     * @param map The map represented as a 2D array of characters.
+     * @param lineIndex The index of the current line in the map.
+     * @param index The index of the current position in the line.
+     * @return The sprite code of the path tile.
+     */
+    private static byte pathSprite(char[][] map, int lineIndex, int index) {
+        boolean checkLeft = (index > 0) && (map[lineIndex][index - 1] == 'X');
+        boolean checkRight = (index < map[lineIndex].length - 1) && (map[lineIndex][index + 1] == 'X');
+        boolean checkUp = (lineIndex > 0) && (map[lineIndex - 1][index] == 'X');
+        boolean checkDown = (lineIndex < map.length - 1) && (map[lineIndex + 1][index] == 'X');
+
+        if (checkLeft && checkRight && checkUp && checkDown) {
+            return LevelData.spriteCode(LevelData.PATH + 3, 0);
+        } else if (checkLeft && checkRight && checkUp) {
+            return LevelData.spriteCode(LevelData.PATH + 2, 2);
+        } else if (checkLeft && checkRight && checkDown) {
+            return LevelData.spriteCode(LevelData.PATH + 2, 0);
+        } else if (checkUp && checkDown && checkLeft) {
+            return LevelData.spriteCode(LevelData.PATH + 2, 1);
+        } else if (checkUp && checkDown && checkRight) {
+            return LevelData.spriteCode(LevelData.PATH + 2, 3);
+        } else if (checkUp && checkRight) {
+            return LevelData.spriteCode(LevelData.PATH + 1, 2);
+        } else if (checkUp && checkLeft) {
+            return LevelData.spriteCode(LevelData.PATH + 1, 1);
+        } else if (checkDown && checkRight) {
+            return LevelData.spriteCode(LevelData.PATH + 1, 3);
+        } else if (checkDown && checkLeft) {
+            return LevelData.spriteCode(LevelData.PATH + 1, 0);
+        } else if (checkUp || checkDown) {
+            return LevelData.spriteCode(LevelData.PATH, 1);
+        } else {
+            return LevelData.spriteCode(LevelData.PATH, 0);
+        }
+    }
+
+    /**
+     * Encodes a level in the pre-baked binary format.
+     * The format is the magic number "WTDL", a version byte, the number of rows and columns,
+     * the map and tile sprites one byte per tile, then the path table: the number of paths and,
+     * for each path, its number of points followed by one byte for each x and y.
+     *
+     * @param level The level to be encoded.
+     * @return A buffer holding the encoded level, ready to be read.
+     */
+    public static ByteBuffer encode(LevelData level) {
+        int rows = level.getRows();
+        int columns = level.getColumns();
+        int size = 4 + 1 + 2 + 2 * rows * columns + 2;
+        for (ArrayList<int[]> path : level.getPaths()) {
+            size += 2 + 2 * path.size();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte)rows);
+        buffer.put((byte)columns);
+
+        for (char[] row : level.getMap()) {
+            for (char tile : row) {
+                buffer.put((byte)tile);
+            }
+        }
+        for (byte[] row : level.getTileSprites()) {
+            buffer.put(row);
+        }
+
+        buffer.putShort((short)level.getPaths().size());
+        for (ArrayList<int[]> path : level.getPaths()) {
+            buffer.putShort((short)path.size());
+            for (int[] point : path) {
+                buffer.put((byte)point[0]);
+                buffer.put((byte)point[1]);
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a level in the pre-baked binary format.
+     *
+     * @param buffer A buffer holding the encoded level.
+     * @param filename The name of the level file, for error messages.
+     * @return The decoded level.
+     * @throws IllegalArgumentException If the buffer does not hold a valid level.
+     */
+    public static LevelData decode(ByteBuffer buffer, String filename) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException(filename + ": not a binary level file");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(filename + ": unsupported binary level version " + version);
+            }
+
+            int rows = buffer.get() & 0xFF;
+            int columns = buffer.get() & 0xFF;
+            if (rows != ROWS || columns != COLUMNS) {
+                throw new IllegalArgumentException(filename + ": map is " + rows + "x" + columns
+                    + ", expected " + ROWS + "x" + COLUMNS);
+            }
+
+            char[][] map = new char[rows][columns];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    map[i][j] = (char)(buffer.get() & 0xFF);
+                }
+            }
+
+            validateTiles(map, filename);
+
+            byte[][] sprites = new byte[rows][columns];
+            for (int i = 0; i < rows; i++) {
+                buffer.get(sprites[i]);
+            }
+            validateSprites(sprites, filename);
+
+            int pathCount = buffer.getShort();
+            if (pathCount <= 0) {
+                throw new IllegalArgumentException(filename + ": no path leads to the Wizard House");
+            }
+            ArrayList<ArrayList<int[]>> paths = new ArrayList<>(pathCount);
+            for (int i = 0; i < pathCount; i++) {
+                int points = buffer.getShort();
+                if (points < 0) {
+                    throw new IllegalArgumentException(filename + ": path " + (i + 1) + " has " + points + " points");
+                }
+                ArrayList<int[]> path = new ArrayList<>(points);
+                for (int j = 0; j < points; j++) {
+                    // signed, since paths start from just outside of the map
+                    int[] point = {buffer.get(), buffer.get()};
+                    path.add(point);
+                }
+                paths.add(path);
+            }
+            validatePaths(paths, map, filename);
+
+            return new LevelData(map, sprites, paths);
+
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(filename + ": binary level file is truncated", e);
+        }
+    }
+
+    /**
+     * Pre-bakes a text level into the binary format.
+     *
+     * @param textFile The text level file to be read.
+     * @param binaryFile The binary level file to be written.
+     * @throws UncheckedIOException If a file could not be read or written.
+     */
+    public static void bake(String textFile, String binaryFile) {
+        ByteBuffer encoded = encode(read(textFile));
+
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write level " + binaryFile, e);
+        }
+    }
+
+    /**
+     * Pre-bakes text levels into the binary format, next to the original files.
+     *
+     * @param args The text level files to be baked, e.g. level1.txt becomes level1.wtdl.
+     */
+    public static void main(String[] args) {
+        for (String textFile : args) {
+            String binaryFile = textFile.replaceFirst("\\.txt$", "") + BINARY_EXTENSION;
+            bake(textFile, binaryFile);
+            System.out.println(textFile + " -> " + binaryFile);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package WizardTD;
+
+import java.util.Arrays;
+
+/**
+ * Lets monsters that no tower can reach rest instead of being ticked every step. A resting monster
+ * is taken out of the monster list and only woken on the step before it could come within reach
+ * of a tower, when it catches up on the steps it missed in one go. Catching up adds the monster's
+ * speed once for each missed step, the same sums tick would have done, so the game plays exactly as
+ * if every monster were ticked every step. Wake-ups are kept in a timing wheel like status effects,
+ * so a step only looks at the monsters waking on it.
+ */
+public class LodScheduler {
+
+    // number of steps covered by one turn of the timing wheel, a power of two
+    private static final int WHEEL_SIZE = 256;
+
+    private final int[] wheel = new int[WHEEL_SIZE];
+    private Monster[] entryMonster;
+    private int[] entryStart, entryWake, entryNext;
+    private int freeEntry = -1;
+    private int entryCount, resting;
+    private int now;
+
+    /**
+     * Creates an empty scheduler with room for a given number of resting monsters.
+     * The arrays grow automatically if more monsters rest at once.
+     *
+     * @param capacity The initial number of monsters that can rest at once.
+     */
+    public LodScheduler(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.entryMonster = new Monster[capacity];
+        this.entryStart = new int[capacity];
+        this.entryWake = new int[capacity];
+        this.entryNext = new int[capacity];
+        Arrays.fill(wheel, -1);
+    }
+
+    /**
+     * Puts a monster to rest after it has been ticked this step. It is woken with its missed
+     * steps caught up once the given number of further steps have passed.
+     *
+     * @param monster The monster to rest, which must have no status effects and not be the target of a fireball.
+     * @param steps The number of steps until it is woken.
+     */
+    public void rest(Monster monster, int steps) {
+        // the monster is already up to date with the step in progress, which ends when tick is called
+        int start = now + 1;
+        add(monster, start, start + steps);
+    }
+
+    /**
+     * Puts a monster back to rest as it was when a snapshot was captured.
+     *
+     * @param monster The monster to rest, in the state it was put to rest in.
+     * @param rested The number of steps it had already rested for.
+     * @param steps The number of steps until it is woken.
+     */
+    public void resume(Monster monster, int rested, int steps) {
+        add(monster, now - rested, now + steps);
+    }
+
+    private void add(Monster monster, int start, int wake) {
+        int entry;
+        if (freeEntry != -1) {
+            entry = freeEntry;
+            this.freeEntry = entryNext[entry];
+        } else {
+            if (entryCount == entryMonster.length) {
+                grow();
+            }
+            entry = entryCount++;
+        }
+
+        int bucket = wake & (WHEEL_SIZE - 1);
+        entryMonster[entry] = monster;
+        entryStart[entry] = start;
+        entryWake[entry] = wake;
+        entryNext[entry] = wheel[bucket];
+        wheel[bucket] = entry;
+        resting++;
+    }
+
+    /**
+     * Advances by one step, waking the monsters due on it to be put back in the monster list.
+     * Called once the monsters in the list have been ticked for the step.
+     *
+     * @param arrivals The monsters to be merged into the monster list.
+     */
+    public void tick(MonsterArrivals arrivals) {
+        this.now++;
+
+        int bucket = now & (WHEEL_SIZE - 1);
+        int previous = -1;
+        int entry = wheel[bucket];
+        while (entry != -1) {
+            int next = entryNext[entry];
+            if (entryWake[entry] > now) {
+                // wakes on a later turn of the wheel
+                previous = entry;
+                entry = next;
+                continue;
+            }
+
+            wake(entry, arrivals);
+            if (previous == -1) {
+                wheel[bucket] = next;
+            } else {
+                entryNext[previous] = next;
+            }
+            entryNext[entry] = freeEntry;
+            this.freeEntry = entry;
+            entry = next;
+        }
+    }
+
+    /**
+     * Wakes every resting monster straight away, such as when a tower is built or the map changes.
+     *
+     * @param arrivals The monsters to be merged into the monster list.
+     */
+    public void wakeAll(MonsterArrivals arrivals) {
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (entryMonster[entry] != null) {
+                wake(entry, arrivals);
+            }
+        }
+        Arrays.fill(wheel, -1);
+        this.freeEntry = -1;
+        this.entryCount = 0;
+    }
+
+    private void wake(int entry, MonsterArrivals arrivals) {
+        Monster monster = entryMonster[entry];
+        entryMonster[entry] = null;
+        monster.catchUp(now - entryStart[entry]);
+        arrivals.add(monster);
+        resting--;
+    }
+
+    private void grow() {
+        int capacity = entryMonster.length * 2;
+        this.entryMonster = Arrays.copyOf(entryMonster, capacity);
+        this.entryStart = Arrays.copyOf(entryStart, capacity);
+        this.entryWake = Arrays.copyOf(entryWake, capacity);
+        this.entryNext = Arrays.copyOf(entryNext, capacity);
+    }
+
+    /**
+     * Adds every resting monster to a frame for the renderer, where it has got to along its path.
+     *
+     * @param frame The frame being filled in.
+     * @param moved The number of steps taken in the last update.
+     */
+    public void capture(RenderFrame frame, int moved) {
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (entryMonster[entry] != null) {
+                entryMonster[entry].captureResting(frame, now - entryStart[entry], moved);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of entries in use or free, so every resting monster is found by
+     * looking at each entry from 0 up to this number.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Retrieves the monster resting in an entry, in the state it was put to rest in.
+     *
+     * @param entry The index of the entry.
+     * @return The resting monster, or null if the entry is free.
+     */
+    public Monster getMonster(int entry) {
+        return entryMonster[entry];
+    }
+
+    /**
+     * Retrieves the number of steps the monster in an entry has rested for so far.
+     *
+     * @param entry The index of the entry.
+     * @return The number of steps it has missed.
+     */
+    public int getRestedSteps(int entry) {
+        return now - entryStart[entry];
+    }
+
+    /**
+     * Retrieves the number of steps until the monster in an entry is woken.
+     *
+     * @param entry The index of the entry.
+     * @return The number of steps left to rest.
+     */
+    public int getStepsToWake(int entry) {
+        return entryWake[entry] - now;
+    }
+
+    /**
+     * Retrieves the number of monsters resting.
+     *
+     * @return The number of resting monsters.
+     */
+    public int size() {
+        return this.resting;
+    }
+}
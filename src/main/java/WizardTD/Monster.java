@@ -1,274 +1,280 @@
 package WizardTD;
 
-import processing.core.PImage;
 import processing.core.PApplet;
+import processing.core.PImage;
 import java.util.*;
-import processing.data.JSONObject;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a monster in the game, handling movement and health.
  */
-public class Monster extends AnimatedElement {
-    private ArrayList<PImage> sprites;
-    private int pointer;
-    private int deathAnimationCounter;
-    private float startX, startY, xDest, yDest, armour, speed, hp, totalHp;
-    private ArrayList<int[]> path;
-    private int currentLocation, mana_gained_on_kill;
+public class Monster extends AnimatedElement implements Animated {
+    private SpriteSheet sheet;
+    private AnimationSystem animations;
+    private StatusEffects effects;
+    private int effectSlot = -1;
+    // number of fireballs in flight towards the monster, kept up to date by the ProjectileSystem
+    private int incoming;
+    private int spawnOrder;
+    private MonsterSpec spec;
+    private int frame;
+    private float startX, startY, armour, speed, hp, totalHp;
+    // where the monster was before the last update, to draw it in between updates
+    private float previousX, previousY;
+    private PathTrack track;
+    private float distance;
+    private int segment, mana_gained_on_kill;
     private boolean alive, reachedDestination;
+
+    // upper bound on the number of bytes written by writeState
+    public static final int STATE_BYTES = 60;
     
     /**
-     * Creates a new instance of a Monster given sprites, starting position and path.
+     * Creates a new instance of a Monster given its sprite sheet and the path it will traverse.
      * 
-     * @param sprites List of images for monster, where first is used when monster is alive and the
-     * remaining are used for death animation.
-     * @param x Starting x coordinate of monster.
-     * @param y Starting y coordinate of monster.
-     * @param path List of arrays representing the path the monster will traverse.
+     * @param sheet Shared sprite sheet for monster, where the first frame is used when monster is
+     * alive and the remaining are used for death animation.
+     * @param track The compiled path the monster will traverse, starting at its first tile.
+     * @param animations The AnimationSystem that plays the monster's death animation.
+     * @param effects The status effects of every monster in the game.
      */
-    public Monster(ArrayList<PImage> sprites, float x, float y, ArrayList<int[]> path) {
-        super(sprites.get(0));
-        this.sprites = sprites;
-        this.startX = x * 32 + xShift;
-        this.startY = y * 32 + 40 + yShift;
+    public Monster(SpriteSheet sheet, PathTrack track, AnimationSystem animations, StatusEffects effects) {
+        super(sheet.getFrame(0));
+        this.sheet = sheet;
+        this.animations = animations;
+        this.effects = effects;
+        this.track = track;
+        this.startX = track.xAt(0, 0) + xShift;
+        this.startY = track.yAt(0, 0) + yShift;
         this.x = startX;
         this.y = startY;
-        this.path = path;
-        this.xDest = this.x;
-        this.yDest = this.y;
         this.alive = true;
-        
+        keepPosition();
     }
 
     /**
-     * Loads configuration details for the monster from a JSON object.
+     * Loads configuration details for the monster from its compiled config.
      * 
-     * @param details the JSON object to be read.
+     * @param details the monster details to be read.
      */
-    public void loadConfigDetails(JSONObject details) {
-        this.totalHp = details.getFloat("hp");
+    public void loadConfigDetails(MonsterSpec details) {
+        this.spec = details;
+        this.totalHp = details.getHp();
         this.hp = this.totalHp;
-        this.mana_gained_on_kill = details.getInt("mana_gained_on_kill");
-        this.speed = details.getFloat("speed");
-        this.armour = details.getFloat("armour");
+        this.mana_gained_on_kill = details.getManaGainedOnKill();
+        this.speed = details.getSpeed();
+        this.armour = details.getArmour();
     }
 
     /**
      * Updates the monster's position and state.
      * 
-     * @return True if additional methods were called to ensure monster
-     * maintained speed while staying on its path (for testing purposes), false otherwise.
+     * @return True if monster turned a corner of its path this frame (for testing purposes), false otherwise.
      */
     public boolean tick() {
-        boolean movementAdjusted = false;
-
         if (this.alive) {
             
-            // checking if monster has enough hp, calling death animation if not
+            // monster does not move while its death animation plays
             if (this.hp <= 0) {
                 monsterDeath();
                 return false;
             }
 
-            if (adjustMovementX()) {
-                movementAdjusted = true;
-            } else if (adjustMovementY()) {
-                movementAdjusted = true;
-            }
+            return advance(this.speed * effects.speedMultiplier(effectSlot));
+        }
 
-            if (this.x == this.xDest && this.y == this.yDest) {
-                determineDirection();
-            }
+        return false;
+    }
 
-            if (!movementAdjusted) {
-                move();
-            }
+    /**
+     * Moves the monster a given distance along its path.
+     * Position is worked out from the total distance travelled, so moving any distance
+     * at once ends up in exactly the same place as moving in smaller steps.
+     * 
+     * @param travelled The distance to move along the path.
+     * @return True if monster turned a corner of its path, false otherwise.
+     */
+    public boolean advance(float travelled) {
+        int previousSegment = this.segment;
+        this.distance = Math.min(this.distance + travelled, track.getLength());
+        this.segment = track.segmentAt(this.distance, this.segment);
+        updatePosition();
+
+        if (this.distance >= track.getLength()) {
+            this.reachedDestination = true;
+            this.alive = false;
         }
 
-        return movementAdjusted;
+        return this.segment != previousSegment;
+    }
+
+    /**
+     * Moves the monster along its path for a number of steps it was resting for, adding its speed
+     * once for each step exactly as tick does, so it ends up where it would have been had it been
+     * ticked every step. Only used for monsters that have no status effects and cannot be hit.
+     * 
+     * @param steps The number of steps the monster rested for.
+     */
+    public void catchUp(int steps) {
+        float length = track.getLength();
+        for (int i = 0; i < steps; i++) {
+            this.distance = Math.min(this.distance + this.speed, length);
+        }
+        advance(0);
+        keepPosition();
+    }
+
+    /**
+     * Remembers where the monster is before an update, so it can be drawn moving smoothly
+     * from there to where the update leaves it.
+     */
+    public void keepPosition() {
+        this.previousX = this.x;
+        this.previousY = this.y;
+    }
+
+    /**
+     * Updates the monster's coordinates and velocity from the distance travelled along its path.
+     */
+    private void updatePosition() {
+        this.x = track.xAt(this.segment, this.distance) + xShift;
+        this.y = track.yAt(this.segment, this.distance) + yShift;
+        this.dx = track.getDirectionX(this.segment) * speed;
+        this.dy = track.getDirectionY(this.segment) * speed;
     }
   
     /**
-     * Draws the monster on the screen, along with its health bar.
+     * Adds the monster to a frame for the renderer, moving from where it was before the last
+     * update to where it is now.
+     * 
+     * @param frame The frame being filled in.
+     * @param moved True if the last update moved the game on, false if it was paused.
+     */
+    public void capture(RenderFrame frame, boolean moved) {
+        frame.addSprite(sheet.getFrame(this.frame), moved ? this.previousX : this.x, moved ? this.previousY : this.y,
+            this.x, this.y, this.hp > 0 ? this.hp / this.totalHp : 0);
+    }
+
+    /**
+     * Adds a resting monster to a frame for the renderer, where it has got to along its path.
+     * This is worked out directly from the steps it has rested for rather than stepped through,
+     * since only the drawing needs it.
+     * 
+     * @param frame The frame being filled in.
+     * @param steps The number of steps the monster has rested for.
+     * @param moved The number of those steps taken in the last update.
+     */
+    public void captureResting(RenderFrame frame, int steps, int moved) {
+        float length = track.getLength();
+        float from = Math.min(this.distance + this.speed * Math.max(steps - moved, 0), length);
+        float to = Math.min(this.distance + this.speed * steps, length);
+        int fromSegment = track.segmentAt(from, this.segment);
+        int toSegment = track.segmentAt(to, fromSegment);
+        frame.addSprite(sheet.getFrame(this.frame),
+            track.xAt(fromSegment, from) + xShift, track.yAt(fromSegment, from) + yShift,
+            track.xAt(toSegment, to) + xShift, track.yAt(toSegment, to) + yShift, this.hp / this.totalHp);
+    }
+
+    /**
+     * Draws a monster's sprite, along with its health bar.
      * 
      * @param app The PApplet window where monster will be drawn.
+     * @param image The frame of the monster's sprite sheet.
+     * @param x The x coordinate where the monster is drawn.
+     * @param y The y coordinate where the monster is drawn.
+     * @param health The fraction of its hp the monster has left, or 0 to draw no health bar.
      */
-    public void draw(PApplet app) {
-        app.image(sprite, this.x, this.y);
+    public static void drawSprite(PApplet app, PImage image, float x, float y, float health) {
+        app.image(image, x, y);
         
         // drawing health bar only if monsters hp is greater than 0
-        if (this.hp > 0) {
+        if (health > 0) {
             // drawing red section of health bar
             app.noStroke();
             app.fill(230, 8, 7);
-            app.rect(this.x, this.y - 5, this.sprite.width, 2);
+            app.rect(x, y - 5, image.width, 2);
 
             // drawing green section of health bar
-            float greenBarLength = (float)(hp)/totalHp * this.sprite.width;
+            float greenBarLength = health * image.width;
             app.fill(41, 255, 74);
-            app.rect(this.x, this.y - 5, greenBarLength, 2);
+            app.rect(x, y - 5, greenBarLength, 2);
         }
     }
 
-
     /**
-     * Increment monster's x coordinate by a given amount.
+     * Decrease monster's hp by a given amount, after armour (and any shred of it) has been applied.
      * 
-     * @param shift The amount that x coordinate is incremented by.
+     * @param damage The amount of damage monster will take (before it is reduced by armour).
      */
-    public void moveX(float shift) {
-        this.x += shift;
+    public void hit(float damage) {
+        this.hp -= (damage * effects.armourAfterShred(effectSlot, armour));
+
+        if (this.hp <= 0) {
+            monsterDeath();
+        }
     }
 
     /**
-     * Increment monster's y coordinate by a given amount.
+     * Slows the monster down for a number of frames. While it is slowed by more than one tower,
+     * the strongest slow and the longest time left both apply.
      * 
-     * @param shift The amount that x coordinate is incremented by.
+     * @param multiplier The fraction of its speed the monster keeps.
+     * @param frames The number of frames the monster stays slowed.
      */
-    public void moveY(float shift) {
-        this.y += shift;
+    public void slow(float multiplier, int frames) {
+        effects.apply(this, StatusEffects.SLOW, multiplier, frames);
     }
 
     /**
-     * Determine dx and dy (the x and y direction) that the monster must
-     * travel in to remain on the path.
+     * Sets the monster on fire, damaging it every frame for a number of frames.
+     * 
+     * @param damagePerFrame The damage taken each frame (before it is reduced by armour).
+     * @param frames The number of frames the monster burns for.
      */
-    public void determineDirection() {
-        if (currentLocation == path.size() - 1) {
-            this.reachedDestination = true;
-            this.alive = false;
-            return;
-        }
-        
-        int[] currentPoint = path.get(currentLocation);
-        int[] nextPoint = path.get(currentLocation + 1);
-        
-        this.xDest = nextPoint[0] * 32 + xShift;
-        this.yDest = nextPoint[1] * 32 + 40 + yShift;
-       
-        this.dx = (nextPoint[0] - currentPoint[0]) * speed;
-        this.dy = (nextPoint[1] - currentPoint[1]) * speed;
-
-        currentLocation++;
-
+    public void burn(float damagePerFrame, int frames) {
+        effects.apply(this, StatusEffects.BURN, damagePerFrame, frames);
     }
 
     /**
-     * Decrease monster's hp by a given amount, after armour has been applied.
+     * Shreds the monster's armour for a number of frames, so it takes more of each hit.
      * 
-     * @param damage The amount of damage monster will take (before it is reduced by armour).
+     * @param fraction The fraction of the monster's armour ignored.
+     * @param frames The number of frames the armour stays shredded.
      */
-    public void hit(float damage) {
-        this.hp -= (damage * armour);
+    public void shred(float fraction, int frames) {
+        effects.apply(this, StatusEffects.SHRED, fraction, frames);
     }
 
     /**
-     * Handles sprites for monster death animation and updates alive status.
+     * Starts the monster's death animation, unless it has already started.
+     * The animation is then stepped by the AnimationSystem.
      */ 
     public void monsterDeath() {
-        if (pointer == sprites.size() - 1) {
-            this.alive = false;
-            return;
-        }
-        
-        if (pointer == 0) {
-            this.sprites.get(++pointer);
-        }
-        
-        deathAnimationCounter++;
-        // since each image in the death animation lasts 4 frames
-        if (deathAnimationCounter == 4) {
-            this.sprite = sprites.get(++pointer);
-            this.deathAnimationCounter = 0;
-
+        if (this.frame == 0 && this.alive) {
+            animations.play(this, sheet, 1);
         }
     }
 
     /**
-     * Handles case where monster may need to move left/right and then up/down in one frame.
-     * Ensures monster's speed is maintained while this happens.
+     * Shows a new frame of the monster's death animation.
      * 
-     * @return True, if monster had to move left/right then up/down in one frame.
+     * @param frame The index of the frame in the monster's sprite sheet.
      */
-    public boolean adjustMovementX() {
-        
-        // if monster is currently moving left or right
-        if (this.dx != 0 && Math.abs(xDest - x) < speed && Math.abs(xDest - x) != 0) {
-            if (currentLocation == path.size() - 1) {
-                moveX(xDest - x);
-                moveY(yDest - y);
-                this.reachedDestination = true;
-                this.alive = false;
-                return true;
-            }
-            
-            // future point is point that comes after next point
-            float futureDy = speed * (path.get(currentLocation + 1)[1] - path.get(currentLocation)[1]);
-
-            // if monster needs to switch direction from left/right to up/down
-            if (futureDy != 0) {
-                moveX((this.dx/speed) * Math.abs(xDest - x));
-                moveY(((futureDy/speed) * Math.abs(speed - (Math.abs(xDest - x)))));
-
-                this.dy = futureDy;
-                this.dx = 0;
-                    
-            } else {
-                moveX(this.dx);
-            }
-            currentLocation++;
-            xDest = path.get(currentLocation)[0] * 32 + xShift;
-            yDest = path.get(currentLocation)[1] * 32 + yShift + 40;
-            return true;
-
-        } else {
-            return false;
-        }
+    @Override
+    public void showFrame(int frame) {
+        this.frame = frame;
     }
 
     /**
-     * Handles case where monster may need to move up/down and then left/right in one frame.
-     * Ensures monster's speed is maintained while this happens.
-     * 
-     * @return True, if monster had to move up/downtthen left/right in one frame.
+     * Updates alive status once the death animation has finished.
      */
-    public boolean adjustMovementY() {
-        if (this.dy != 0 && Math.abs(yDest - y) < speed && Math.abs(yDest - y) != 0) {
-            if (currentLocation == path.size() - 1) {
-                moveX(xDest - x);
-                moveY(yDest - y);
-                this.reachedDestination = true;
-                this.alive = false;
-                return true;
-            }
-            
-            // future point is point that comes after next point
-            float futureDx = speed * (path.get(currentLocation + 1)[0] - path.get(currentLocation)[0]);
-            // if monster needs to switch direction from up/down to left/right
-            if (futureDx != 0) {
-                moveY((this.dy/speed) * Math.abs(yDest - y));
-                moveX(((futureDx/speed) * Math.abs(speed - (Math.abs(yDest - y)))));
-
-                this.dy = 0;
-                this.dx = futureDx;
-            } else {
-                moveY(this.dy);
-            }
-
-            currentLocation++;
-            xDest = path.get(currentLocation)[0] * 32 + xShift;
-            yDest = path.get(currentLocation)[1] * 32 + yShift + 40;
-
-            return true;
-
-        } else {
-            return false;
-        }
-
+    @Override
+    public void animationFinished() {
+        this.alive = false;
     }
 
     /**
-     * Resets monster coordinates, velocity, alive and location status
+     * Resets monster coordinates, velocity, alive and location status, and any status effects,
      * in the event that monster is banished from the Wizard House.
      */
     public void restart() {
@@ -278,24 +284,88 @@ public class Monster extends AnimatedElement {
         this.reachedDestination = false;
         this.dx = 0;
         this.dy = 0;
-        this.xDest = this.x;
-        this.yDest = this.y;
-        this.currentLocation = 0;
+        this.distance = 0;
+        this.segment = 0;
+        effects.clear(this);
+        keepPosition();
     }
 
     /**
-     * Removes a list of monsters from another list of monsters.
+     * Moves the monster onto a new path, such as after the map has changed.
      * 
-     * @param list List of monsters where monsters will be removed.
-     * @param toRemove The list of monsters to remove.
-     * @return Updated list after specified monsters have been removed.
+     * @param track The compiled path the monster will traverse from now on.
+     * @param distance The distance the monster has already travelled along the new path.
      */
-    public static ArrayList<Monster> removeMonsters(ArrayList<Monster> list, ArrayList<Monster> toRemove) {
-        for (Monster monster : toRemove) {
-            list.remove(monster);
-        }
+    public void reroute(PathTrack track, float distance) {
+        this.track = track;
+        this.distance = distance;
+        this.segment = track.segmentAt(distance);
+        updatePosition();
+        keepPosition();
+    }
 
-        return list;
+    /**
+     * Sends a banished monster back to the start of a different path,
+     * used when the path it was on no longer starts from the edge of the map.
+     * 
+     * @param track The compiled path the monster will traverse, starting at its first tile.
+     */
+    public void respawn(PathTrack track) {
+        this.track = track;
+        this.startX = track.xAt(0, 0) + xShift;
+        this.startY = track.yAt(0, 0) + yShift;
+        restart();
+    }
+
+    /**
+     * Writes the monster's spawn order, progress, health, death animation and status effects to a snapshot.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putInt(spawnOrder);
+        buffer.putFloat(distance);
+        buffer.putFloat(hp);
+        buffer.putFloat(totalHp);
+        buffer.putFloat(speed);
+        buffer.putFloat(armour);
+        buffer.putInt(mana_gained_on_kill);
+        buffer.put((byte)((alive ? 1 : 0) | (reachedDestination ? 2 : 0)));
+        buffer.putShort((short)frame);
+        buffer.putShort((short)animations.getTimer(this));
+        effects.writeState(this, buffer);
+    }
+
+    /**
+     * Reads the monster's spawn order, progress, health, death animation and status effects from a snapshot,
+     * moving it to where it was along its path.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.spawnOrder = buffer.getInt();
+        this.distance = buffer.getFloat();
+        this.hp = buffer.getFloat();
+        this.totalHp = buffer.getFloat();
+        this.speed = buffer.getFloat();
+        this.armour = buffer.getFloat();
+        this.mana_gained_on_kill = buffer.getInt();
+        byte flags = buffer.get();
+        this.alive = (flags & 1) != 0;
+        this.reachedDestination = (flags & 2) != 0;
+        int savedFrame = buffer.getShort();
+        int timer = buffer.getShort();
+        effects.readState(this, buffer);
+
+        this.segment = track.segmentAt(this.distance);
+        updatePosition();
+        keepPosition();
+
+        if (timer >= 0) {
+            animations.resume(this, sheet, savedFrame, timer);
+        } else {
+            this.frame = savedFrame;
+        }
     }
 
     public int getManaGainedOnKill() {
@@ -306,6 +376,38 @@ public class Monster extends AnimatedElement {
         return this.reachedDestination;
     }
 
+    public boolean isSlowed() {
+        return effects.has(effectSlot, StatusEffects.SLOW);
+    }
+
+    public int getEffectSlot() {
+        return this.effectSlot;
+    }
+
+    public void setEffectSlot(int slot) {
+        this.effectSlot = slot;
+    }
+
+    public int getIncoming() {
+        return this.incoming;
+    }
+
+    public void setIncoming(int fireballs) {
+        this.incoming = fireballs;
+    }
+
+    public MonsterSpec getSpec() {
+        return this.spec;
+    }
+
+    public int getSpawnOrder() {
+        return this.spawnOrder;
+    }
+
+    public void setSpawnOrder(int order) {
+        this.spawnOrder = order;
+    }
+
     public boolean getAlive() {
         return this.alive;
     }
@@ -351,7 +453,25 @@ public class Monster extends AnimatedElement {
     }
 
     public void addPath(int[] element) {
-        this.path.add(element);
+        ArrayList<int[]> path = new ArrayList<>(track.getPoints());
+        path.add(element);
+        this.track = new PathTrack(path);
+    }
+
+    public int getFrame() {
+        return this.frame;
+    }
+
+    public SpriteSheet getSheet() {
+        return this.sheet;
+    }
+
+    public float getDistance() {
+        return this.distance;
+    }
+
+    public PathTrack getTrack() {
+        return this.track;
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Collects the monsters joining the monster list during a step, released from groups or woken from
+ * rest, and merges them into the list in spawn order all at once. Inserting each monster where it
+ * belongs would shift the rest of the list every time, while a merge moves each monster at most once.
+ */
+public class MonsterArrivals {
+
+    private Monster[] arrivals, scratch;
+    private int count;
+
+    /**
+     * Creates an empty buffer with room for a given number of monsters.
+     * The arrays grow automatically if more monsters arrive in one step.
+     *
+     * @param capacity The initial number of monsters that can arrive at once.
+     */
+    public MonsterArrivals(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.arrivals = new Monster[capacity];
+        this.scratch = new Monster[capacity];
+    }
+
+    /**
+     * Adds a monster to be merged into the monster list.
+     *
+     * @param monster The monster joining the list.
+     */
+    public void add(Monster monster) {
+        if (count == arrivals.length) {
+            this.arrivals = Arrays.copyOf(arrivals, count * 2);
+            this.scratch = new Monster[count * 2];
+        }
+        arrivals[count++] = monster;
+    }
+
+    /**
+     * Merges every monster that has arrived into a list in spawn order, and empties the buffer.
+     * The list ends up exactly as if each monster had been inserted into it in spawn order on its own.
+     *
+     * @param monsters The monsters on the field, in spawn order.
+     */
+    public void mergeInto(ArrayList<Monster> monsters) {
+        if (count == 0) {
+            return;
+        }
+        sort();
+
+        // making room at the end, then merging from the back so no monster is moved twice
+        int listed = monsters.size();
+        monsters.ensureCapacity(listed + count);
+        for (int added = 0; added < count; added++) {
+            monsters.add(null);
+        }
+        int i = listed - 1;
+        int j = count - 1;
+        for (int to = listed + count - 1; j >= 0; to--) {
+            if (i >= 0 && monsters.get(i).getSpawnOrder() >= arrivals[j].getSpawnOrder()) {
+                monsters.set(to, monsters.get(i--));
+            } else {
+                monsters.set(to, arrivals[j--]);
+            }
+        }
+
+        Arrays.fill(arrivals, 0, count, null);
+        this.count = 0;
+    }
+
+    /**
+     * Sorts the arrivals by spawn order with a bottom-up merge sort, using the scratch array so nothing is allocated.
+     * Monsters usually arrive nearly in order, so runs already in order are merged without comparing them further.
+     */
+    private void sort() {
+        Monster[] from = arrivals;
+        Monster[] to = scratch;
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                if (middle == high || from[middle - 1].getSpawnOrder() < from[middle].getSpawnOrder()) {
+                    System.arraycopy(from, low, to, low, high - low);
+                    continue;
+                }
+                int i = low;
+                int j = middle;
+                for (int k = low; k < high; k++) {
+                    if (j >= high || (i < middle && from[i].getSpawnOrder() < from[j].getSpawnOrder())) {
+                        to[k] = from[i++];
+                    } else {
+                        to[k] = from[j++];
+                    }
+                }
+            }
+            Monster[] swap = from;
+            from = to;
+            to = swap;
+        }
+        this.arrivals = from;
+        this.scratch = to;
+        Arrays.fill(scratch, 0, count, null);
+    }
+
+    /**
+     * Retrieves the number of monsters waiting to be merged.
+     *
+     * @return The number of monsters.
+     */
+    public int size() {
+        return this.count;
+    }
+}
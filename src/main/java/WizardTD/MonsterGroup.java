@@ -0,0 +1,247 @@
+package WizardTD;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Monsters of the same wave entry spawned onto the same path, moved as one entity while no tower can
+ * reach them. Members are only kept as the step they joined on and the order they spawned in: they
+ * move in lockstep and are untouched, so each one has the full hp of its entry, and its distance
+ * along the path is read from a table of the distance covered after each number of steps, shared by
+ * the whole group. Once the furthest member reaches the part of the path a tower can reach, it is
+ * released as an ordinary Monster exactly where it would have been had it been simulated on its own.
+ * Monsters that reach the Wizard House untouched join a group again when they start over.
+ */
+public class MonsterGroup {
+
+    private final MonsterSpec spec;
+    private final SpriteSheet sheet;
+    private final PathTrack track;
+    private final float xShift, yShift;
+
+    // distance travelled after each number of steps, worked out up to the step that reaches the end
+    private float[] distances;
+    private int known;
+    private int age;
+
+    // members from the one that has travelled furthest, by the age of the group when they joined
+    private int[] joinedAt, spawnOrder;
+    private int first, count;
+    // monsters that rejoined the group, reused when members are released so the game does not allocate
+    private Monster[] spares;
+    private int spareCount;
+
+    /**
+     * Creates an empty group.
+     *
+     * @param spec The wave entry the members spawned from.
+     * @param sheet The sprite sheet of the members.
+     * @param track The compiled path the members traverse, starting at its first tile.
+     */
+    public MonsterGroup(MonsterSpec spec, SpriteSheet sheet, PathTrack track) {
+        this.spec = spec;
+        this.sheet = sheet;
+        this.track = track;
+        this.xShift = (Tile.TILE_LENGTH - sheet.getFrame(0).width) / 2;
+        this.yShift = (Tile.TILE_LENGTH - sheet.getFrame(0).height) / 2;
+        this.distances = new float[64];
+        this.known = 1;
+        this.joinedAt = new int[16];
+        this.spawnOrder = new int[16];
+        this.spares = new Monster[16];
+    }
+
+    /**
+     * Checks if a monster spawning from a wave entry onto a path moves with this group.
+     *
+     * @param spec The wave entry the monster spawns from.
+     * @param sheet The sprite sheet of the monster.
+     * @param track The path the monster spawns onto.
+     * @return True if the monster can join the group, false otherwise.
+     */
+    public boolean accepts(MonsterSpec spec, SpriteSheet sheet, PathTrack track) {
+        return this.spec == spec && this.sheet == sheet && this.track == track;
+    }
+
+    /**
+     * Adds a monster that has just spawned at the start of the path.
+     *
+     * @param order The order the monster spawned in, counting every monster of the game.
+     */
+    public void add(int order) {
+        addAt(order, age);
+    }
+
+    /**
+     * Adds an untouched monster sent back to the start of the path after reaching the Wizard House.
+     * It waits at the start for the rest of the step, as a restarted Monster does, and the Monster
+     * itself is kept to be reused when a member is released.
+     *
+     * @param monster The monster rejoining the group.
+     */
+    public void addRestarted(Monster monster) {
+        addAt(monster.getSpawnOrder(), age + 1);
+        if (spareCount == spares.length) {
+            this.spares = Arrays.copyOf(spares, spares.length * 2);
+        }
+        spares[spareCount++] = monster;
+    }
+
+    private void addAt(int order, int joined) {
+        if (first + count == joinedAt.length) {
+            if (first > 0) {
+                System.arraycopy(joinedAt, first, joinedAt, 0, count);
+                System.arraycopy(spawnOrder, first, spawnOrder, 0, count);
+                this.first = 0;
+            } else {
+                this.joinedAt = Arrays.copyOf(joinedAt, joinedAt.length * 2);
+                this.spawnOrder = Arrays.copyOf(spawnOrder, spawnOrder.length * 2);
+            }
+        }
+        joinedAt[first + count] = joined;
+        spawnOrder[first + count] = order;
+        count++;
+    }
+
+    /**
+     * Moves every member one step along the path.
+     */
+    public void step() {
+        this.age++;
+    }
+
+    /**
+     * Works out the distance a member has travelled after a number of steps, adding up its speed
+     * step by step exactly as a Monster does, so released members are in the same place.
+     *
+     * @param steps The number of steps since the member spawned, or -1 if it is still waiting to move.
+     * @return The distance travelled along the path.
+     */
+    private float distanceAfter(int steps) {
+        if (steps < 0) {
+            return 0;
+        }
+        while (known <= steps && distances[known - 1] < track.getLength()) {
+            if (known == distances.length) {
+                this.distances = Arrays.copyOf(distances, distances.length * 2);
+            }
+            distances[known] = Math.min(distances[known - 1] + spec.getSpeed(), track.getLength());
+            known++;
+        }
+        return steps < known ? distances[steps] : track.getLength();
+    }
+
+    /**
+     * Retrieves how far the member that has travelled furthest is along the path.
+     *
+     * @return The distance travelled by the front member.
+     */
+    public float frontDistance() {
+        return distanceAfter(age - joinedAt[first]);
+    }
+
+    /**
+     * Takes the member that has travelled furthest out of the group, as an ordinary Monster.
+     *
+     * @param animations The AnimationSystem that plays the monster's death animation.
+     * @param effects The status effects of every monster in the game.
+     * @return The released monster.
+     */
+    public Monster releaseFront(AnimationSystem animations, StatusEffects effects) {
+        Monster monster;
+        if (spareCount > 0) {
+            monster = spares[--spareCount];
+            spares[spareCount] = null;
+            monster.restart();
+        } else {
+            monster = new Monster(sheet, track, animations, effects);
+        }
+        monster.loadConfigDetails(spec);
+        monster.advance(frontDistance());
+        monster.keepPosition();
+        monster.setSpawnOrder(spawnOrder[first]);
+        this.first++;
+        this.count--;
+        if (count == 0) {
+            this.first = 0;
+        }
+        return monster;
+    }
+
+    /**
+     * Adds every member to a frame for the renderer at its place along the path, with a full health bar.
+     *
+     * @param frame The frame being filled in.
+     * @param moved The number of steps the group moved in the last update.
+     */
+    public void capture(RenderFrame frame, int moved) {
+        for (int i = first; i < first + count; i++) {
+            float from = distanceAfter(age - joinedAt[i] - moved);
+            float to = distanceAfter(age - joinedAt[i]);
+            int fromSegment = track.segmentAt(from);
+            int toSegment = track.segmentAt(to, fromSegment);
+            frame.addSprite(sheet.getFrame(0),
+                track.xAt(fromSegment, from) + xShift, track.yAt(fromSegment, from) + yShift,
+                track.xAt(toSegment, to) + xShift, track.yAt(toSegment, to) + yShift, 1);
+        }
+    }
+
+    /**
+     * Writes the age of the group and when each member joined and spawned to a snapshot.
+     * Uses 8 bytes, plus 8 bytes for each member.
+     *
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putInt(age);
+        buffer.putInt(count);
+        for (int i = first; i < first + count; i++) {
+            buffer.putInt(joinedAt[i]);
+            buffer.putInt(spawnOrder[i]);
+        }
+    }
+
+    /**
+     * Reads the age of the group and its members from a snapshot, replacing any members it has.
+     *
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.age = buffer.getInt();
+        this.first = 0;
+        this.count = 0;
+        int members = buffer.getInt();
+        for (int i = 0; i < members; i++) {
+            int joined = buffer.getInt();
+            addAt(buffer.getInt(), joined);
+        }
+    }
+
+    public MonsterSpec getSpec() {
+        return this.spec;
+    }
+
+    public SpriteSheet getSheet() {
+        return this.sheet;
+    }
+
+    public PathTrack getTrack() {
+        return this.track;
+    }
+
+    public float getXShift() {
+        return this.xShift;
+    }
+
+    public float getYShift() {
+        return this.yShift;
+    }
+
+    public boolean isEmpty() {
+        return this.count == 0;
+    }
+
+    public int size() {
+        return this.count;
+    }
+}
@@ -0,0 +1,53 @@
+package WizardTD;
+
+/**
+ * The validated details of one type of monster spawned in a wave.
+ */
+public class MonsterSpec {
+    private final String type;
+    private final float hp, speed, armour;
+    private final int manaGainedOnKill, quantity;
+
+    /**
+     * Creates a new MonsterSpec.
+     *
+     * @param type The type of monster, which is also the name of its sprite sheet.
+     * @param hp The hp each monster starts with.
+     * @param speed The number of pixels each monster moves per frame.
+     * @param armour The fraction of damage each monster takes.
+     * @param manaGainedOnKill The mana gained when a monster is killed.
+     * @param quantity The number of monsters spawned.
+     */
+    public MonsterSpec(String type, float hp, float speed, float armour, int manaGainedOnKill, int quantity) {
+        this.type = type;
+        this.hp = hp;
+        this.speed = speed;
+        this.armour = armour;
+        this.manaGainedOnKill = manaGainedOnKill;
+        this.quantity = quantity;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public float getHp() {
+        return this.hp;
+    }
+
+    public float getSpeed() {
+        return this.speed;
+    }
+
+    public float getArmour() {
+        return this.armour;
+    }
+
+    public int getManaGainedOnKill() {
+        return this.manaGainedOnKill;
+    }
+
+    public int getQuantity() {
+        return this.quantity;
+    }
+}
@@ -0,0 +1,283 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Reusable working memory for finding paths on a map.
+ * The queue, parent links and visited marks are kept between searches, and tiles are marked
+ * visited with the number of the current search, so nothing has to be cleared or allocated
+ * before each search. Each thread has its own arena, so searches can run on several threads at once.
+ */
+public class PathArena {
+
+    private static final ThreadLocal<PathArena> ARENAS = ThreadLocal.withInitial(PathArena::new);
+
+    // neighbours in the order up, down, left, right
+    private static final int[] D_ROW = {-1, 1, 0, 0};
+    private static final int[] D_COLUMN = {0, 0, -1, 1};
+
+    private int capacity;
+    private int[] queue;
+    private int[] keys;
+    private int[] parent;
+    private int[] steps;
+    private int[] visited;
+    private int search;
+
+    private int[] goals;
+    private int goalCount;
+
+    /**
+     * Creates an empty arena, which grows to fit the maps it is used on.
+     */
+    public PathArena() {
+        reserve(20 * 20);
+    }
+
+    /**
+     * Retrieves the arena belonging to the current thread.
+     *
+     * @return The arena of the current thread.
+     */
+    public static PathArena get() {
+        return ARENAS.get();
+    }
+
+    /**
+     * Finds the shortest path from a starting point to the nearest Wizard House ('W' tile).
+     * Breadth first search visits tiles in the same order as PathCalculations always has,
+     * so it finds exactly the same path. A* with the Manhattan distance to the nearest
+     * Wizard House visits fewer tiles on large maps, but may choose a different path of the same length.
+     *
+     * @param grid A 2D char grid with symbols indicating walkable and unwalkable elements.
+     * @param startPoint The point (x, y) on the grid where path will start.
+     * @param aStar True to use A*, false to use breadth first search.
+     * @return List of coordinates (x, y) from the tile before the starting point to the Wizard House,
+     * or null if no path is found.
+     */
+    public ArrayList<int[]> findPath(char[][] grid, int[] startPoint, boolean aStar) {
+        int columns = grid[0].length;
+        reserve(grid.length * columns);
+        nextSearch();
+
+        int start = startPoint[1] * columns + startPoint[0];
+        int end = aStar ? aStar(grid, start) : breadthFirst(grid, start);
+        if (end == -1) {
+            return null;
+        }
+
+        // following parent links back from the Wizard House, then reversing
+        ArrayList<int[]> path = new ArrayList<>();
+        for (int cell = end; cell != start; cell = parent[cell]) {
+            path.add(new int[] {cell % columns, cell / columns});
+        }
+        path.add(startPoint);
+        path.add(PathCalculations.coordinateBeforeStart(startPoint));
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Searches outwards from a starting tile in order of distance until a Wizard House is reached.
+     *
+     * @param grid The map represented as a 2D char array.
+     * @param start The index of the starting tile (row * columns + column).
+     * @return The index of the Wizard House reached, or -1 if none can be reached.
+     */
+    private int breadthFirst(char[][] grid, int start) {
+        int columns = grid[0].length;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = search;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / columns;
+            int column = cell % columns;
+            if (grid[row][column] == 'W') {
+                return cell;
+            }
+
+            for (int i = 0; i < 4; i++) {
+                int next = walkableNeighbour(grid, row + D_ROW[i], column + D_COLUMN[i]);
+                if (next != -1 && visited[next] != search) {
+                    visited[next] = search;
+                    parent[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches from a starting tile towards the nearest Wizard House, always expanding the tile
+     * with the lowest steps taken plus Manhattan distance to the closest Wizard House.
+     *
+     * @param grid The map represented as a 2D char array.
+     * @param start The index of the starting tile (row * columns + column).
+     * @return The index of the Wizard House reached, or -1 if none can be reached.
+     */
+    private int aStar(char[][] grid, int start) {
+        int columns = grid[0].length;
+        findGoals(grid);
+        if (goalCount == 0) {
+            return -1;
+        }
+
+        steps[start] = 0;
+        visited[start] = search;
+        int heapSize = push(0, start, estimate(start, columns));
+
+        while (heapSize > 0) {
+            int cell = queue[0];
+            int key = keys[0];
+            heapSize = pop(heapSize);
+            int row = cell / columns;
+            int column = cell % columns;
+
+            // skipping entries left behind when a shorter way to the tile was found
+            if (key != steps[cell] + estimate(cell, columns)) {
+                continue;
+            }
+            if (grid[row][column] == 'W') {
+                return cell;
+            }
+
+            for (int i = 0; i < 4; i++) {
+                int next = walkableNeighbour(grid, row + D_ROW[i], column + D_COLUMN[i]);
+                if (next != -1 && (visited[next] != search || steps[cell] + 1 < steps[next])) {
+                    visited[next] = search;
+                    steps[next] = steps[cell] + 1;
+                    parent[next] = cell;
+                    heapSize = push(heapSize, next, steps[next] + estimate(next, columns));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lists every Wizard House on the map, for the A* estimate.
+     *
+     * @param grid The map represented as a 2D char array.
+     */
+    private void findGoals(char[][] grid) {
+        this.goalCount = 0;
+        for (int row = 0; row < grid.length; row++) {
+            for (int column = 0; column < grid[row].length; column++) {
+                if (grid[row][column] == 'W') {
+                    if (goalCount == goals.length) {
+                        this.goals = Arrays.copyOf(goals, goalCount * 2);
+                    }
+                    goals[goalCount++] = row * grid[0].length + column;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of steps from a tile to the closest Wizard House, ignoring obstacles.
+     *
+     * @param cell The index of the tile.
+     * @param columns The number of columns of the map.
+     * @return The Manhattan distance to the closest Wizard House.
+     */
+    private int estimate(int cell, int columns) {
+        int row = cell / columns;
+        int column = cell % columns;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < goalCount; i++) {
+            int distance = Math.abs(goals[i] / columns - row) + Math.abs(goals[i] % columns - column);
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    private static int walkableNeighbour(char[][] grid, int row, int column) {
+        if (row >= 0 && column >= 0 && row < grid.length && column < grid[0].length
+            && (grid[row][column] == 'X' || grid[row][column] == 'W')) {
+            return row * grid[0].length + column;
+        }
+        return -1;
+    }
+
+    private int push(int heapSize, int cell, int key) {
+        if (heapSize == queue.length) {
+            this.queue = Arrays.copyOf(queue, heapSize * 2);
+            this.keys = Arrays.copyOf(keys, heapSize * 2);
+        }
+        int i = heapSize;
+        while (i > 0) {
+            int parentIndex = (i - 1) / 2;
+            if (keys[parentIndex] <= key) {
+                break;
+            }
+            queue[i] = queue[parentIndex];
+            keys[i] = keys[parentIndex];
+            i = parentIndex;
+        }
+        queue[i] = cell;
+        keys[i] = key;
+        return heapSize + 1;
+    }
+
+    private int pop(int heapSize) {
+        heapSize--;
+        int cell = queue[heapSize];
+        int key = keys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            queue[i] = queue[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        queue[i] = cell;
+        keys[i] = key;
+        return heapSize;
+    }
+
+    /**
+     * Starts a new search, so that every tile counts as unvisited without clearing the marks.
+     */
+    private void nextSearch() {
+        this.search++;
+        if (search == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            this.search = 1;
+        }
+    }
+
+    /**
+     * Makes sure the arena can hold a map with a given number of tiles.
+     *
+     * @param tiles The number of tiles of the map.
+     */
+    private void reserve(int tiles) {
+        if (tiles <= capacity) {
+            return;
+        }
+        this.capacity = tiles;
+        // A* can queue a tile more than once, so its queue grows further if needed
+        this.queue = new int[tiles * 2];
+        this.keys = new int[tiles * 2];
+        this.parent = new int[tiles];
+        this.steps = new int[tiles];
+        this.visited = new int[tiles];
+        this.goals = new int[4];
+        this.search = 0;
+    }
+}
@@ -3,81 +3,34 @@ package WizardTD;
 import java.util.*;
 
 /**
- * Represents a coordinate with row and column indices
+ * Responsible for pathfinding so that monsters traverse correct path to Wizard House.
  */
-class Coordinate {
-    int row;
-    int col;
-    Coordinate previous;
+public class PathCalculations {
     
     /**
-     * Creates new instance of Coordinate with specified row, column and Coordinate instance of 
-     * previous coordinate.
+     * Determine the shortest path to 'W' char on given grid when given a starting point.
      * 
-     * @param row
-     * @param col
-     * @param previous
+     * @param grid A 2D char grid with symbols indicating walkable and unwalkable elements.
+     * @param startPoint The point on the grid where path will start.
+     * @return ArrayList of coordinates (int[] of length 2) of shortest path from the starting point
+     * to the destination 'W'. If no path is found, return null.
      */
-    public Coordinate(int row, int col, Coordinate previous) {
-        this.row = row; // y
-        this.col = col; // x
-        this.previous = previous;
+    public static ArrayList<int[]> getShortestPath(char[][] grid, int[] startPoint) {
+        return PathArena.get().findPath(grid, startPoint, false);
     }
-}
 
-/**
- * Responsible for pathfinding so that monsters traverse correct path to Wizard House.
- */
-public class PathCalculations {
-    
     /**
-     * Determine the shortest path to 'W' char on given grid when given a starting point.
+     * Determine the shortest path to the nearest 'W' char on given grid when given a starting point,
+     * using A* search with the Manhattan distance to the closest Wizard House. Visits fewer tiles than
+     * getShortestPath on large maps, but may choose a different path of the same length.
      * 
      * @param grid A 2D char grid with symbols indicating walkable and unwalkable elements.
      * @param startPoint The point on the grid where path will start.
      * @return ArrayList of coordinates (int[] of length 2) of shortest path from the starting point
      * to the destination 'W'. If no path is found, return null.
      */
-    public static ArrayList<int[]> getShortestPath(char[][] grid, int[] startPoint) {
-        Coordinate start = new Coordinate(startPoint[1], startPoint[0], null);
-        Queue<Coordinate> queue = new LinkedList<>();
-        queue.add(start);
-    
-        boolean[][] visited = new boolean[grid.length][grid[0].length];
-        visited[start.row][start.col] = true;
-    
-        while (!queue.isEmpty()) {
-            Coordinate p = queue.remove();
-    
-            // Destination found
-            if (grid[p.row][p.col] == 'W') {
-                ArrayList<int[]> finalPath = new ArrayList<>();
-                while (p.previous != null) {
-                    int[] coordinate = { p.col, p.row };
-                    finalPath.add(coordinate);
-                    p = p.previous; // Move to the previous coordinate
-                }
-                finalPath.add(startPoint);
-                finalPath.add(coordinateBeforeStart(startPoint));
-                Collections.reverse(finalPath); // Reverse the path to start from the beginning
-                return finalPath;
-            }
-    
-            // Moving up, down, left, right
-            int[] dRow = {-1, 1, 0, 0};
-            int[] dCol = {0, 0, -1, 1};
-    
-            for (int i = 0; i < 4; i++) {
-                int newRow = p.row + dRow[i];
-                int newCol = p.col + dCol[i];
-    
-                if (isValid(newRow, newCol, grid, visited)) {
-                    queue.add(new Coordinate(newRow, newCol, p));
-                    visited[newRow][newCol] = true;
-                }
-            }
-        }
-        return null;
+    public static ArrayList<int[]> getShortestPathAStar(char[][] grid, int[] startPoint) {
+        return PathArena.get().findPath(grid, startPoint, true);
     }
 
     /**
@@ -172,14 +125,12 @@ public class PathCalculations {
     }
 
     /**
-     * Randomly selected a valid path for monsters to traverse on the map from
-     * all possible valid (and shortest) paths.
+     * Finds the shortest path to the Wizard House from every possible starting point on the map.
      * 
      * @param map The map represented as a 2D char array.
-     * @return An ArrayList of integer arrays representing the valid path. If no
-     * valid path was found, returns null.
+     * @return An ArrayList of every valid path, which is empty if no valid path was found.
      */
-    public static ArrayList<int[]> getValidPath(char[][] map) {
+    public static ArrayList<ArrayList<int[]>> getValidPaths(char[][] map) {
         ArrayList<ArrayList<int[]>> paths = new ArrayList<>();
 
         ArrayList<int[]> startCoordinates = findStartCoordinates(map);
@@ -192,6 +143,20 @@ public class PathCalculations {
             }
         }
 
+        return paths;
+    }
+
+    /**
+     * Randomly selected a valid path for monsters to traverse on the map from
+     * all possible valid (and shortest) paths.
+     * 
+     * @param map The map represented as a 2D char array.
+     * @return An ArrayList of integer arrays representing the valid path. If no
+     * valid path was found, returns null.
+     */
+    public static ArrayList<int[]> getValidPath(char[][] map) {
+        ArrayList<ArrayList<int[]>> paths = getValidPaths(map);
+
         if (paths.size() == 0) {
             return null;
         }
@@ -203,4 +168,4 @@ public class PathCalculations {
 
     }
 
-}
\ No newline at end of file
+}
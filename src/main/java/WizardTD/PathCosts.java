@@ -0,0 +1,59 @@
+package WizardTD;
+
+/**
+ * The validated cost for a type of monster to step onto each type of tile.
+ * A cost of 0 means the monster cannot walk on that type of tile at all.
+ */
+public class PathCosts {
+
+    // monsters walk only on paths, one step at a time, unless the config says otherwise
+    public static final PathCosts DEFAULT = new PathCosts(1, 0, 0);
+
+    private final int path, grass, shrub;
+
+    /**
+     * Creates a new PathCosts.
+     *
+     * @param path The cost of stepping onto a path tile, or 0 if it cannot be walked on.
+     * @param grass The cost of stepping onto a grass tile, or 0 if it cannot be walked on.
+     * @param shrub The cost of stepping onto a shrub tile, or 0 if it cannot be walked on.
+     */
+    public PathCosts(int path, int grass, int shrub) {
+        this.path = path;
+        this.grass = grass;
+        this.shrub = shrub;
+    }
+
+    /**
+     * Finds the cost of stepping onto a tile, as used by DistanceField.
+     * The Wizard House can always be walked on.
+     *
+     * @param tile The character representing the tile on the map.
+     * @return The cost of the tile, or DistanceField.UNREACHABLE if it cannot be walked on.
+     */
+    public int costOf(char tile) {
+        int cost;
+        if (tile == 'W') {
+            cost = 1;
+        } else if (tile == 'X') {
+            cost = path;
+        } else if (tile == 'S') {
+            cost = shrub;
+        } else {
+            cost = grass;
+        }
+        return cost > 0 ? cost : DistanceField.UNREACHABLE;
+    }
+
+    public int getPath() {
+        return this.path;
+    }
+
+    public int getGrass() {
+        return this.grass;
+    }
+
+    public int getShrub() {
+        return this.shrub;
+    }
+}
@@ -0,0 +1,168 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The parts of a path where a monster could be hit by a tower, as sorted intervals of distance
+ * along the path. Towers and paths only change when a tower is built or upgraded or the map is
+ * edited, so the intervals are worked out once then and looked up by how far a monster has travelled.
+ * Monster positions are the top left corner of their sprite, so coverage is worked out for one
+ * size of sprite.
+ */
+public class PathCoverage {
+
+    private final float xShift, yShift;
+    private final float length;
+    private final int version;
+    private float[] starts, ends;
+    private int count;
+
+    /**
+     * Works out the parts of a path within reach of any tower.
+     *
+     * @param track The compiled path.
+     * @param xShift The x offset of the monster's sprite from the corner of its tile.
+     * @param yShift The y offset of the monster's sprite from the corner of its tile.
+     * @param towers The towers on the field.
+     * @param reach How far from each tower, in the same order, a monster can be hit by its attacks.
+     * @param version The version of the towers the coverage is worked out for.
+     */
+    public PathCoverage(PathTrack track, float xShift, float yShift, ArrayList<Tower> towers, float[] reach, int version) {
+        this.xShift = xShift;
+        this.yShift = yShift;
+        this.length = track.getLength();
+        this.version = version;
+        this.starts = new float[Math.max(towers.size(), 1)];
+        this.ends = new float[Math.max(towers.size(), 1)];
+
+        for (int i = 0; i < towers.size(); i++) {
+            addWithin(track, towers.get(i).x, towers.get(i).y, reach[i]);
+        }
+        merge();
+    }
+
+    /**
+     * Adds the parts of the path where a monster is within a radius of a point, by solving for
+     * where each straight segment crosses the circle.
+     *
+     * @param track The compiled path.
+     * @param x The x coordinate of the centre of the circle.
+     * @param y The y coordinate of the centre of the circle.
+     * @param radius The radius of the circle.
+     */
+    private void addWithin(PathTrack track, float x, float y, float radius) {
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            float start = track.getSegmentStart(segment);
+            float end = segment + 1 < track.getSegmentCount() ? track.getSegmentStart(segment + 1) : length;
+            float xFrom = track.xAt(segment, start) + xShift - x;
+            float yFrom = track.yAt(segment, start) + yShift - y;
+            float xDirection = track.getDirectionX(segment);
+            float yDirection = track.getDirectionY(segment);
+
+            // |from + direction * u| = radius, with direction a unit vector or zero
+            float b = xFrom * xDirection + yFrom * yDirection;
+            float c = xFrom * xFrom + yFrom * yFrom - radius * radius;
+            if (xDirection == 0 && yDirection == 0) {
+                if (c <= 0) {
+                    add(start, end);
+                }
+                continue;
+            }
+            float discriminant = b * b - c;
+            if (discriminant < 0) {
+                continue;
+            }
+            float root = (float)Math.sqrt(discriminant);
+            float enter = -b - root;
+            float leave = -b + root;
+            if (leave >= 0 && enter <= end - start) {
+                add(start + Math.max(enter, 0), start + Math.min(leave, end - start));
+            }
+        }
+    }
+
+    private void add(float start, float end) {
+        if (count == starts.length) {
+            this.starts = Arrays.copyOf(starts, count * 2);
+            this.ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Sorts the intervals by where they start and joins the ones that overlap.
+     */
+    private void merge() {
+        // insertion sort, as there are only a few intervals for each tower
+        for (int i = 1; i < count; i++) {
+            float start = starts[i];
+            float end = ends[i];
+            int j = i - 1;
+            while (j >= 0 && starts[j] > start) {
+                starts[j + 1] = starts[j];
+                ends[j + 1] = ends[j];
+                j--;
+            }
+            starts[j + 1] = start;
+            ends[j + 1] = end;
+        }
+
+        int merged = 0;
+        for (int i = 0; i < count; i++) {
+            if (merged > 0 && starts[i] <= ends[merged - 1]) {
+                ends[merged - 1] = Math.max(ends[merged - 1], ends[i]);
+            } else {
+                starts[merged] = starts[i];
+                ends[merged] = ends[i];
+                merged++;
+            }
+        }
+        this.count = merged;
+    }
+
+    /**
+     * Finds the first distance along the path, at or after a given distance, where a monster could be hit.
+     *
+     * @param distance The distance travelled along the path.
+     * @return The distance itself if it is covered, the start of the next covered part of the path,
+     * or the length of the path if no tower covers the rest of it.
+     */
+    public float nextCovered(float distance) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < distance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == count) {
+            return length;
+        }
+        return Math.max(starts[low], distance);
+    }
+
+    /**
+     * Checks if this coverage is for a given size of sprite.
+     *
+     * @param xShift The x offset of the monster's sprite from the corner of its tile.
+     * @param yShift The y offset of the monster's sprite from the corner of its tile.
+     * @return True if the offsets match, false otherwise.
+     */
+    public boolean isFor(float xShift, float yShift) {
+        return this.xShift == xShift && this.yShift == yShift;
+    }
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    public int size() {
+        return this.count;
+    }
+}
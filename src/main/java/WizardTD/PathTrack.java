@@ -0,0 +1,210 @@
+package WizardTD;
+
+import java.util.ArrayList;
+
+/**
+ * A path compiled into straight segments with their cumulative length along the path.
+ * Monsters only need to track how far they have travelled, and their position
+ * is worked out directly from that distance.
+ * Tracks are never changed once compiled, so games can share them, and two tracks
+ * compiled from the same tiles are equal.
+ */
+public class PathTrack {
+    private final ArrayList<int[]> points;
+    private final float[] segmentX, segmentY, segmentDx, segmentDy, segmentStart;
+    private final int segmentCount;
+    private final float length;
+    private final int hash;
+
+    /**
+     * Compiles a path of tiles into straight segments.
+     * Consecutive steps in the same direction are merged into a single segment.
+     *
+     * @param path List of arrays representing the tiles (x, y) the path passes through.
+     */
+    public PathTrack(ArrayList<int[]> path) {
+        this.points = path;
+        int steps = Math.max(path.size() - 1, 0);
+
+        this.segmentX = new float[Math.max(steps, 1)];
+        this.segmentY = new float[Math.max(steps, 1)];
+        this.segmentDx = new float[Math.max(steps, 1)];
+        this.segmentDy = new float[Math.max(steps, 1)];
+        this.segmentStart = new float[Math.max(steps, 1)];
+
+        int count = 0;
+        float travelled = 0;
+        for (int i = 0; i < steps; i++) {
+            int dx = path.get(i + 1)[0] - path.get(i)[0];
+            int dy = path.get(i + 1)[1] - path.get(i)[1];
+
+            // starting a new segment whenever the path changes direction
+            if (count == 0 || segmentDx[count - 1] != dx || segmentDy[count - 1] != dy) {
+                segmentX[count] = tileX(path.get(i));
+                segmentY[count] = tileY(path.get(i));
+                segmentDx[count] = dx;
+                segmentDy[count] = dy;
+                segmentStart[count] = travelled;
+                count++;
+            }
+            travelled += App.CELLSIZE;
+        }
+
+        // a path of a single tile is a segment of length 0
+        if (count == 0 && path.size() > 0) {
+            segmentX[0] = tileX(path.get(0));
+            segmentY[0] = tileY(path.get(0));
+            count = 1;
+        }
+
+        this.segmentCount = count;
+        this.length = travelled;
+
+        int hash = 1;
+        for (int[] point : path) {
+            hash = 31 * (31 * hash + point[0]) + point[1];
+        }
+        this.hash = hash;
+    }
+
+    /**
+     * Compiles a list of paths.
+     *
+     * @param paths The paths to be compiled.
+     * @return A list of compiled paths, in the same order.
+     */
+    public static ArrayList<PathTrack> compileAll(ArrayList<ArrayList<int[]>> paths) {
+        ArrayList<PathTrack> tracks = new ArrayList<>();
+        for (ArrayList<int[]> path : paths) {
+            tracks.add(new PathTrack(path));
+        }
+        return tracks;
+    }
+
+    /**
+     * Finds the segment containing a given distance along the path, scanning forward from
+     * a known segment. Monsters only ever move forward, so this is usually a single check.
+     *
+     * @param distance The distance travelled along the path.
+     * @param hint A segment at or before the one containing the distance.
+     * @return The index of the segment containing the distance.
+     */
+    public int segmentAt(float distance, int hint) {
+        int segment = hint;
+        while (segment + 1 < segmentCount && distance >= segmentStart[segment + 1]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    /**
+     * Finds the segment containing a given distance along the path using a binary search.
+     *
+     * @param distance The distance travelled along the path.
+     * @return The index of the segment containing the distance.
+     */
+    public int segmentAt(float distance) {
+        int low = 0;
+        int high = segmentCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segmentStart[middle] <= distance) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Calculates the x coordinate (of the top left corner of the tile) at a distance along the path.
+     *
+     * @param segment The segment containing the distance.
+     * @param distance The distance travelled along the path.
+     * @return The x coordinate at that distance.
+     */
+    public float xAt(int segment, float distance) {
+        return segmentX[segment] + segmentDx[segment] * (distance - segmentStart[segment]);
+    }
+
+    /**
+     * Calculates the y coordinate (of the top left corner of the tile) at a distance along the path.
+     *
+     * @param segment The segment containing the distance.
+     * @param distance The distance travelled along the path.
+     * @return The y coordinate at that distance.
+     */
+    public float yAt(int segment, float distance) {
+        return segmentY[segment] + segmentDy[segment] * (distance - segmentStart[segment]);
+    }
+
+    /**
+     * Converts the x index of a tile to its x coordinate on the window.
+     *
+     * @param point The tile (x, y) to be converted.
+     * @return The x coordinate of the tile.
+     */
+    public static float tileX(int[] point) {
+        return point[0] * App.CELLSIZE;
+    }
+
+    /**
+     * Converts the y index of a tile to its y coordinate on the window.
+     *
+     * @param point The tile (x, y) to be converted.
+     * @return The y coordinate of the tile.
+     */
+    public static float tileY(int[] point) {
+        return point[1] * App.CELLSIZE + App.TOPBAR;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PathTrack)) {
+            return false;
+        }
+        PathTrack track = (PathTrack)other;
+        if (hash != track.hash || points.size() != track.points.size()) {
+            return false;
+        }
+        for (int i = 0; i < points.size(); i++) {
+            if (points.get(i)[0] != track.points.get(i)[0] || points.get(i)[1] != track.points.get(i)[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    public float getDirectionX(int segment) {
+        return this.segmentDx[segment];
+    }
+
+    public float getDirectionY(int segment) {
+        return this.segmentDy[segment];
+    }
+
+    public float getSegmentStart(int segment) {
+        return this.segmentStart[segment];
+    }
+
+    public int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    public float getLength() {
+        return this.length;
+    }
+
+    public ArrayList<int[]> getPoints() {
+        return this.points;
+    }
+}
@@ -0,0 +1,39 @@
+package WizardTD;
+
+/**
+ * A tile a tower could be placed on, along with how well games went after placing it there.
+ */
+public class Placement {
+    private final int column, row;
+    private final float score;
+
+    /**
+     * Creates a new Placement.
+     *
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @param score The average score of games played with the tower placed on the tile.
+     */
+    public Placement(int column, int row, float score) {
+        this.column = column;
+        this.row = row;
+        this.score = score;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+
+    public int getRow() {
+        return this.row;
+    }
+
+    public float getScore() {
+        return this.score;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + column + ", " + row + ") score " + Math.round(score);
+    }
+}
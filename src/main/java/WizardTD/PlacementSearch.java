@@ -0,0 +1,233 @@
+package WizardTD;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Suggests where to place the next tower by playing the game ahead from its current state.
+ * For each candidate tile, the game is forked from a snapshot, the tower is placed and the
+ * game is played for a number of seconds without a window, several times over with different
+ * monster paths. Candidates are spread over every processor.
+ */
+public class PlacementSearch {
+
+    // score given to a game that is lost, before adding how long it lasted
+    private static final float LOST_SCORE = -1000000;
+
+    private final GameConfig config;
+    private final int trials;
+    private final int horizonFrames;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new PlacementSearch with one thread per processor.
+     *
+     * @param config Configuration details about the game.
+     * @param trials The number of games played for each candidate tile.
+     * @param horizonSeconds The number of seconds of game time each game is played for.
+     */
+    public PlacementSearch(GameConfig config, int trials, int horizonSeconds) {
+        this.config = config;
+        this.trials = trials;
+        this.horizonFrames = horizonSeconds * App.FPS;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "placement-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scores every candidate tile by playing the game ahead from a snapshot.
+     * Every candidate is played with the same monster paths in each trial,
+     * so differences in score come from the placement rather than from chance.
+     *
+     * @param start The state of the game the tower would be placed in.
+     * @param candidates The tiles (column, row) a tower could be placed on.
+     * @return The candidates where a tower could be placed, from best to worst.
+     */
+    public ArrayList<Placement> search(GameSnapshot start, List<int[]> candidates) {
+        ArrayList<Future<Placement>> results = new ArrayList<>();
+        for (int[] tile : candidates) {
+            Callable<Placement> task = () -> evaluate(start, tile[0], tile[1]);
+            results.add(executor.submit(task));
+        }
+
+        ArrayList<Placement> placements = new ArrayList<>();
+        for (Future<Placement> result : results) {
+            Placement placement = await(result);
+            if (placement != null) {
+                placements.add(placement);
+            }
+        }
+
+        placements.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
+        return placements;
+    }
+
+    /**
+     * Calculates the average score of games played without placing a tower,
+     * to compare candidates against.
+     *
+     * @param start The state of the game.
+     * @return The average score.
+     */
+    public float baseline(GameSnapshot start) {
+        float total = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            HeadlessGame game = new HeadlessGame(config, start);
+            game.setSeed(trial);
+            total += play(game);
+        }
+        return total / trials;
+    }
+
+    /**
+     * Plays every trial of a single candidate tile.
+     *
+     * @param start The state of the game the tower is placed in.
+     * @param column The column of the tile on the map.
+     * @param row The row of the tile on the map.
+     * @return The candidate with its average score, or null if a tower cannot be placed there.
+     */
+    private Placement evaluate(GameSnapshot start, int column, int row) {
+        float total = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            HeadlessGame game = new HeadlessGame(config, start);
+            if (!game.placeTower(column, row)) {
+                return null;
+            }
+            game.setSeed(trial);
+            total += play(game);
+        }
+        return new Placement(column, row, total / trials);
+    }
+
+    /**
+     * Plays a game for the search horizon and scores the outcome. Games that are lost score
+     * far below any other, ranked by how long they lasted, and other games score the mana
+     * left, with a bonus of the mana cap if the level was won.
+     *
+     * @param game The game to be played.
+     * @return The score of the game.
+     */
+    private float play(HeadlessGame game) {
+        int end = game.getFramesPassed() + horizonFrames;
+        game.run(end);
+
+        GameManager result = game.getGameManager();
+        if (result.checkGameOver()) {
+            return LOST_SCORE + game.getFramesPassed();
+        }
+        float score = result.wizardHouse.getMana();
+        if (result.checkWin()) {
+            score += result.wizardHouse.getManaCap();
+        }
+        return score;
+    }
+
+    /**
+     * Finds the empty grass tiles where a tower would have part of a path within its initial range.
+     *
+     * @param game The game towers would be placed in.
+     * @return List of tiles (column, row) a tower could usefully be placed on.
+     */
+    public static ArrayList<int[]> candidates(GameManager game) {
+        char[][] map = game.getMap();
+        int reach = game.config.getInitialTowerRange() / App.CELLSIZE;
+        ArrayList<int[]> candidates = new ArrayList<>();
+
+        for (int row = 0; row < map.length; row++) {
+            for (int column = 0; column < map[row].length; column++) {
+                if (map[row][column] == ' '
+                    && !Tower.towerExists(game.towers, column * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR)
+                    && pathWithin(map, column, row, reach)) {
+                    candidates.add(new int[] {column, row});
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Checks if there is a path tile within a number of tiles of a given tile.
+     *
+     * @param map The map represented as a 2D char array.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param reach The largest distance in tiles to check.
+     * @return True if there is a path tile within reach, false otherwise.
+     */
+    private static boolean pathWithin(char[][] map, int column, int row, int reach) {
+        for (int i = Math.max(0, row - reach); i <= Math.min(map.length - 1, row + reach); i++) {
+            for (int j = Math.max(0, column - reach); j <= Math.min(map[i].length - 1, column + reach); j++) {
+                int dx = j - column;
+                int dy = i - row;
+                if (map[i][j] == 'X' && dx * dx + dy * dy <= reach * reach) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Placement await(Future<Placement> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching placements", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Placement search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the threads used by the search.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Suggests where to place the first tower on every level in a config file.
+     *
+     * @param args The config file to use (config2.json by default), the number of trials for
+     * each candidate, the number of seconds to play ahead and the number of suggestions to show.
+     */
+    public static void main(String[] args) {
+        String configPath = args.length > 0 ? args[0] : "config2.json";
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int horizonSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 120;
+        int shown = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        GameConfig config = GameConfig.load(configPath);
+        Level level = new Level(config);
+        PlacementSearch search = new PlacementSearch(config, trials, horizonSeconds);
+
+        for (int i = 0; i < level.getLevels().size(); i++) {
+            String levelFile = level.getLevels().get(i);
+            long start = System.nanoTime();
+
+            HeadlessGame game = new HeadlessGame(config, levelFile, 0);
+            GameSnapshot snapshot = game.snapshot();
+            ArrayList<int[]> candidates = candidates(game.getGameManager());
+            ArrayList<Placement> placements = search.search(snapshot, candidates);
+            float baseline = search.baseline(snapshot);
+            long elapsed = (System.nanoTime() - start) / 1000000;
+
+            System.out.println(levelFile + ": " + candidates.size() + " candidates, baseline score "
+                + Math.round(baseline) + ", " + elapsed + "ms");
+            for (int j = 0; j < Math.min(shown, placements.size()); j++) {
+                System.out.println("  " + placements.get(j));
+            }
+        }
+
+        search.shutdown();
+    }
+}
@@ -0,0 +1,570 @@
+package WizardTD;
+
+import processing.core.PImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Manages every fireball in flight, for all towers.
+ * Fireballs are pooled in flat arrays, so a tower can have any number of shots in the air
+ * and firing does not allocate once the arrays have grown to fit the busiest moment of a level.
+ * Attacks that hit an area, such as splashes, chains and slow pulses, find the monsters
+ * around them through the spatial grid, so they only look at the monsters nearby.
+ * Towers look for targets only in the cells along the path within their range.
+ */
+public class ProjectileSystem {
+
+    // stands in for a zero velocity component so the slab test never divides by zero
+    private static final float EPSILON = 1e-6f;
+
+    // number of bytes written by writeState for each fireball
+    public static final int STATE_BYTES = 16;
+
+    private final float speed;
+    private PImage sprite;
+    private float xShift, yShift;
+
+    private float[] x, y;
+    // where each fireball was before the last update, to draw it in between updates
+    private float[] previousX, previousY;
+    private Monster[] targets;
+    private Tower[] sources;
+    private boolean[] resolved;
+    private int count;
+
+    // targets and towers of the fireballs gathered into flat arrays before each sweep, so the sweep only does arithmetic
+    private float[] aimX, aimY, targetX, targetY, targetWidth, targetHeight;
+    private float[] sourceX, sourceY, reachSquared;
+    private boolean[] targetAlive;
+
+    // scratch space for the monsters found by area attacks, and the monsters a chain has hit
+    private int[] found = new int[64];
+    private Monster[] chained = new Monster[8];
+
+    /**
+     * Creates an empty projectile system with room for a given number of fireballs.
+     * The arrays grow automatically if more fireballs are in flight at once.
+     *
+     * @param capacity The initial number of fireballs that can be in flight.
+     * @param speed The number of pixels fireballs travel per frame.
+     */
+    public ProjectileSystem(int capacity, float speed) {
+        this.speed = speed;
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.previousX = new float[capacity];
+        this.previousY = new float[capacity];
+        this.targets = new Monster[capacity];
+        this.sources = new Tower[capacity];
+        this.resolved = new boolean[capacity];
+        this.aimX = new float[capacity];
+        this.aimY = new float[capacity];
+        this.targetX = new float[capacity];
+        this.targetY = new float[capacity];
+        this.targetWidth = new float[capacity];
+        this.targetHeight = new float[capacity];
+        this.sourceX = new float[capacity];
+        this.sourceY = new float[capacity];
+        this.reachSquared = new float[capacity];
+        this.targetAlive = new boolean[capacity];
+    }
+
+    /**
+     * Sets the image used to draw fireballs, centering it on a tile like other sprites.
+     *
+     * @param sprite The image representing fireballs.
+     */
+    public void setSprite(PImage sprite) {
+        this.sprite = sprite;
+        this.xShift = (Tile.TILE_LENGTH - sprite.width)/2;
+        this.yShift = (Tile.TILE_LENGTH - sprite.height)/2;
+    }
+
+    /**
+     * Advances every fireball in flight and lets towers fire new ones.
+     * Fireballs that collide with their target, or whose target has died or left
+     * the tower's range, are returned to the pool and their damage is queued as an event.
+     * Slow towers send out a pulse instead of firing.
+     *
+     * @param FPS The frames per second of the game.
+     * @param towers The towers currently placed on the map.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     * @param events The queue the damage dealt is published to.
+     */
+    public void tick(int FPS, ArrayList<Tower> towers, SpatialGrid grid, GameEvents events) {
+        if (found.length < grid.size()) {
+            this.found = new int[Math.max(grid.size(), found.length * 2)];
+        }
+
+        sweep();
+        applyHits(FPS, grid, events);
+
+        for (int i = 0; i < towers.size(); i++) {
+            Tower tower = towers.get(i);
+            if (tower.getType().getKind() == TowerType.SLOW) {
+                pulse(tower, FPS, grid, events);
+            } else {
+                fire(tower, FPS, grid);
+            }
+        }
+    }
+
+    /**
+     * Lets a tower fire as many fireballs as it has charged up this frame.
+     * Charge builds up at the tower's firing speed, so towers firing faster than the
+     * frame rate release several fireballs in the same frame.
+     *
+     * @param tower The tower firing.
+     * @param FPS The frames per second of the game.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     */
+    private void fire(Tower tower, int FPS, SpatialGrid grid) {
+        tower.charge(FPS);
+
+        while (tower.isCharged()) {
+            int index = grid.firstInRange(tower);
+            if (index == -1) {
+                // holding the shot until a monster comes into range
+                tower.holdCharge();
+                return;
+            }
+
+            spawn(tower, grid.get(index));
+            tower.useCharge();
+        }
+    }
+
+    /**
+     * Lets a slow tower send out as many pulses as it has charged up this frame. Each pulse slows
+     * every monster in range and queues the tower's share of damage to them.
+     *
+     * @param tower The slow tower.
+     * @param FPS The frames per second of the game.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     * @param events The queue the damage dealt is published to.
+     */
+    private void pulse(Tower tower, int FPS, SpatialGrid grid, GameEvents events) {
+        tower.charge(FPS);
+        TowerType type = tower.getType();
+        int frames = Math.round(type.getSlowSeconds() * FPS);
+        float damage = tower.getDamage() * type.getDamageMultiplier();
+
+        while (tower.isCharged()) {
+            int total = grid.allInRange(tower, found);
+            int hit = 0;
+            for (int i = 0; i < total; i++) {
+                Monster monster = grid.get(found[i]);
+                if (monster.getAlive()) {
+                    monster.slow(type.getSlowMultiplier(), frames);
+                    if (damage > 0) {
+                        events.damage(monster, damage);
+                    }
+                    afflict(type, monster, FPS);
+                    hit++;
+                }
+            }
+            if (hit == 0) {
+                // holding the pulse until a monster comes into range
+                tower.holdCharge();
+                return;
+            }
+            tower.useCharge();
+        }
+    }
+
+    /**
+     * Takes a fireball from the pool and sends it from a tower towards a target.
+     *
+     * @param tower The tower firing the fireball.
+     * @param target The monster being fired at.
+     */
+    public void spawn(Tower tower, Monster target) {
+        if (count == x.length) {
+            grow();
+        }
+
+        this.x[count] = tower.x + xShift;
+        this.y[count] = tower.y + yShift;
+        this.previousX[count] = x[count];
+        this.previousY[count] = y[count];
+        this.targets[count] = target;
+        this.sources[count] = tower;
+        this.resolved[count] = false;
+        target.setIncoming(target.getIncoming() + 1);
+        count++;
+    }
+
+    /**
+     * Moves every fireball towards the centre of its target and checks for collisions in one pass.
+     * Instead of only checking where the fireball ends up, the whole segment it travels this frame
+     * is tested against the target's box, so fast fireballs cannot skip past or circle a target.
+     * The targets and towers are gathered into flat arrays first, so the loop that moves the
+     * fireballs only does arithmetic on arrays and has no early exits, and stays cheap for large pools.
+     */
+    private void sweep() {
+        gather();
+        float width = spriteWidth();
+        float height = spriteHeight();
+
+        for (int i = 0; i < count; i++) {
+            float toX = aimX[i] - x[i];
+            float toY = aimY[i] - y[i];
+            float distance = (float)Math.sqrt(toX * toX + toY * toY);
+
+            // never stepping past the centre of the target
+            float scaleFactor = Math.min(speed, distance) / Math.max(distance, EPSILON);
+            float dx = scaleFactor * toX;
+            float dy = scaleFactor * toY;
+
+            // target box grown by the fireball's size, so the fireball can be treated as a point
+            boolean collided = sweptHit(x[i], y[i], dx, dy,
+                targetX[i] - width, targetY[i] - height,
+                targetX[i] + targetWidth[i], targetY[i] + targetHeight[i]);
+
+            // the same check as Tower.inRange
+            float xDiff = sourceX[i] - targetX[i];
+            float yDiff = sourceY[i] - targetY[i];
+            boolean inRange = xDiff * xDiff + yDiff * yDiff <= reachSquared[i];
+
+            resolved[i] = collided || !targetAlive[i] || !inRange;
+            x[i] += dx;
+            y[i] += dy;
+        }
+    }
+
+    /**
+     * Copies where each fireball's target is, its size and if it is alive, and where the tower
+     * that fired it is and how far it reaches, into flat arrays for the sweep.
+     */
+    private void gather() {
+        for (int i = 0; i < count; i++) {
+            Monster target = targets[i];
+            Tower source = sources[i];
+            aimX[i] = target.x + target.getXShift();
+            aimY[i] = target.y + target.getYShift();
+            targetX[i] = target.x;
+            targetY[i] = target.y;
+            targetWidth[i] = target.getSprite().width;
+            targetHeight[i] = target.getSprite().height;
+            targetAlive[i] = target.getAlive();
+            sourceX[i] = source.x;
+            sourceY[i] = source.y;
+            reachSquared[i] = source.getRange() * source.getRange();
+        }
+    }
+
+    /**
+     * Checks if a point moving along a segment passes through a box at any time during the frame,
+     * including when it starts inside the box.
+     *
+     * @param x The starting x coordinate of the point.
+     * @param y The starting y coordinate of the point.
+     * @param dx The distance travelled along the x axis this frame.
+     * @param dy The distance travelled along the y axis this frame.
+     * @param left The left edge of the box.
+     * @param top The top edge of the box.
+     * @param right The right edge of the box.
+     * @param bottom The bottom edge of the box.
+     * @return True if the segment intersects the box, false otherwise.
+     */
+    public static boolean sweptHit(float x, float y, float dx, float dy,
+                                   float left, float top, float right, float bottom) {
+        float inverseDx = 1 / (dx == 0 ? EPSILON : dx);
+        float inverseDy = 1 / (dy == 0 ? EPSILON : dy);
+
+        // fraction of the segment at which the point crosses each edge of the box
+        float xNear = (left - x) * inverseDx;
+        float xFar = (right - x) * inverseDx;
+        float yNear = (top - y) * inverseDy;
+        float yFar = (bottom - y) * inverseDy;
+
+        float enter = Math.max(Math.min(xNear, xFar), Math.min(yNear, yFar));
+        float exit = Math.min(Math.max(xNear, xFar), Math.max(yNear, yFar));
+
+        return enter < exit && enter <= 1 && exit > 0;
+    }
+
+    /**
+     * Queues damage to the targets of resolved fireballs, and to the monsters around them for
+     * splash and chain towers, then compacts the pool by moving the last fireball in flight
+     * into each freed slot.
+     *
+     * @param FPS The frames per second of the game.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     * @param events The queue the damage dealt is published to.
+     */
+    private void applyHits(int FPS, SpatialGrid grid, GameEvents events) {
+        int i = 0;
+        while (i < count) {
+            if (!resolved[i]) {
+                i++;
+                continue;
+            }
+
+            events.damage(targets[i], sources[i].getDamage());
+            afflict(sources[i].getType(), targets[i], FPS);
+            int kind = sources[i].getType().getKind();
+            if (kind == TowerType.SPLASH) {
+                splash(sources[i], targets[i], FPS, grid, events);
+            } else if (kind == TowerType.CHAIN) {
+                chain(sources[i], targets[i], FPS, grid, events);
+            }
+            targets[i].setIncoming(targets[i].getIncoming() - 1);
+
+            int last = --count;
+            x[i] = x[last];
+            y[i] = y[last];
+            previousX[i] = previousX[last];
+            previousY[i] = previousY[last];
+            targets[i] = targets[last];
+            sources[i] = sources[last];
+            resolved[i] = resolved[last];
+            targets[last] = null;
+            sources[last] = null;
+        }
+    }
+
+    /**
+     * Queues a share of a splash tower's damage to every other monster within its radius of the monster hit.
+     *
+     * @param tower The splash tower that fired.
+     * @param target The monster hit.
+     * @param FPS The frames per second of the game.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     * @param events The queue the damage dealt is published to.
+     */
+    private void splash(Tower tower, Monster target, int FPS, SpatialGrid grid, GameEvents events) {
+        TowerType type = tower.getType();
+        float damage = tower.getDamage() * type.getDamageMultiplier();
+        int total = grid.allInRange(target.x, target.y, type.getRadius(), found);
+        for (int i = 0; i < total; i++) {
+            Monster monster = grid.get(found[i]);
+            if (monster != target && monster.getAlive()) {
+                events.damage(monster, damage);
+                afflict(type, monster, FPS);
+            }
+        }
+    }
+
+    /**
+     * Jumps from the monster hit to the closest monster within the chain tower's radius that has
+     * not been hit yet, again and again, losing some of the damage on each jump.
+     *
+     * @param tower The chain tower that fired.
+     * @param target The monster hit.
+     * @param FPS The frames per second of the game.
+     * @param grid The spatial index of monsters, rebuilt for the current frame.
+     * @param events The queue the damage dealt is published to.
+     */
+    private void chain(Tower tower, Monster target, int FPS, SpatialGrid grid, GameEvents events) {
+        TowerType type = tower.getType();
+        if (chained.length <= type.getJumps()) {
+            this.chained = new Monster[type.getJumps() + 1];
+        }
+
+        float damage = tower.getDamage();
+        Monster current = target;
+        chained[0] = target;
+        int hit = 1;
+        for (int jump = 0; jump < type.getJumps(); jump++) {
+            int total = grid.allInRange(current.x, current.y, type.getRadius(), found);
+            Monster closest = null;
+            float closestDistance = Float.MAX_VALUE;
+            for (int i = 0; i < total; i++) {
+                Monster monster = grid.get(found[i]);
+                float xDiff = monster.x - current.x;
+                float yDiff = monster.y - current.y;
+                float distance = xDiff * xDiff + yDiff * yDiff;
+                if (distance < closestDistance && monster.getAlive() && !alreadyChained(monster, hit)) {
+                    closest = monster;
+                    closestDistance = distance;
+                }
+            }
+            if (closest == null) {
+                break;
+            }
+
+            damage *= type.getFalloff();
+            events.damage(closest, damage);
+            afflict(type, closest, FPS);
+            chained[hit++] = closest;
+            current = closest;
+        }
+        Arrays.fill(chained, 0, hit, null);
+    }
+
+    /**
+     * Burns a monster damaged by a tower, or shreds its armour, if the tower's type does.
+     * Effects take hold straight away, so shred already adds to the damage of the hit that caused it,
+     * which is only applied once the event queue is drained.
+     *
+     * @param type The type of the tower.
+     * @param monster The monster damaged.
+     * @param FPS The frames per second of the game.
+     */
+    private void afflict(TowerType type, Monster monster, int FPS) {
+        if (type.getBurnPerSecond() > 0) {
+            monster.burn(type.getBurnPerSecond() / FPS, Math.round(type.getBurnSeconds() * FPS));
+        }
+        if (type.getShred() > 0) {
+            monster.shred(type.getShred(), Math.round(type.getShredSeconds() * FPS));
+        }
+    }
+
+    private boolean alreadyChained(Monster monster, int hit) {
+        for (int i = 0; i < hit; i++) {
+            if (chained[i] == monster) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes every fireball in flight to a snapshot, storing its target and the tower
+     * that fired it by their index in the snapshot. Fireballs whose target is not part
+     * of the snapshot are left out.
+     * 
+     * @param buffer The buffer the state is written to.
+     * @param monsterIndexes The index of each monster in the snapshot.
+     * @param towerIndexes The index of each tower in the snapshot.
+     */
+    public void writeState(ByteBuffer buffer, IdentityHashMap<Monster, Integer> monsterIndexes,
+                           IdentityHashMap<Tower, Integer> towerIndexes) {
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            if (monsterIndexes.containsKey(targets[i]) && towerIndexes.containsKey(sources[i])) {
+                written++;
+            }
+        }
+
+        buffer.putInt(written);
+        for (int i = 0; i < count; i++) {
+            Integer target = monsterIndexes.get(targets[i]);
+            Integer source = towerIndexes.get(sources[i]);
+            if (target != null && source != null) {
+                buffer.putFloat(x[i]);
+                buffer.putFloat(y[i]);
+                buffer.putInt(target);
+                buffer.putInt(source);
+            }
+        }
+    }
+
+    /**
+     * Replaces every fireball in flight with the fireballs read from a snapshot.
+     * 
+     * @param buffer The buffer the state is read from.
+     * @param monsters The monsters restored from the snapshot, in order.
+     * @param towers The towers restored from the snapshot, in order.
+     */
+    public void readState(ByteBuffer buffer, ArrayList<Monster> monsters, ArrayList<Tower> towers) {
+        for (int i = 0; i < count; i++) {
+            targets[i].setIncoming(targets[i].getIncoming() - 1);
+        }
+        Arrays.fill(targets, 0, count, null);
+        Arrays.fill(sources, 0, count, null);
+        this.count = 0;
+
+        int fireballs = buffer.getInt();
+        for (int i = 0; i < fireballs; i++) {
+            if (count == x.length) {
+                grow();
+            }
+            this.x[count] = buffer.getFloat();
+            this.y[count] = buffer.getFloat();
+            this.previousX[count] = x[count];
+            this.previousY[count] = y[count];
+            this.targets[count] = monsters.get(buffer.getInt());
+            this.sources[count] = towers.get(buffer.getInt());
+            this.resolved[count] = false;
+            targets[count].setIncoming(targets[count].getIncoming() + 1);
+            count++;
+        }
+    }
+
+    /**
+     * Remembers where every fireball is before an update, so they can be drawn moving smoothly
+     * from there to where the update leaves them.
+     */
+    public void keepPositions() {
+        System.arraycopy(x, 0, previousX, 0, count);
+        System.arraycopy(y, 0, previousY, 0, count);
+    }
+
+    /**
+     * Adds every fireball in flight to a frame for the renderer, moving from where it was before
+     * the last update to where it is now.
+     *
+     * @param frame The frame being filled in.
+     * @param moved True if the last update moved the game on, false if it was paused.
+     */
+    public void capture(RenderFrame frame, boolean moved) {
+        for (int i = 0; i < count; i++) {
+            frame.addSprite(sprite, moved ? previousX[i] : x[i], moved ? previousY[i] : y[i], x[i], y[i], 0);
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(1, x.length * 2);
+        this.x = Arrays.copyOf(x, capacity);
+        this.y = Arrays.copyOf(y, capacity);
+        this.previousX = Arrays.copyOf(previousX, capacity);
+        this.previousY = Arrays.copyOf(previousY, capacity);
+        this.targets = Arrays.copyOf(targets, capacity);
+        this.sources = Arrays.copyOf(sources, capacity);
+        this.resolved = Arrays.copyOf(resolved, capacity);
+        this.aimX = new float[capacity];
+        this.aimY = new float[capacity];
+        this.targetX = new float[capacity];
+        this.targetY = new float[capacity];
+        this.targetWidth = new float[capacity];
+        this.targetHeight = new float[capacity];
+        this.sourceX = new float[capacity];
+        this.sourceY = new float[capacity];
+        this.reachSquared = new float[capacity];
+        this.targetAlive = new boolean[capacity];
+    }
+
+    private float spriteWidth() {
+        return sprite == null ? 0 : sprite.width;
+    }
+
+    private float spriteHeight() {
+        return sprite == null ? 0 : sprite.height;
+    }
+
+    /**
+     * Checks if any fireball in flight is aimed at a monster, from the count of fireballs
+     * each monster has on their way to it rather than by looking through every fireball.
+     *
+     * @param monster The monster to check.
+     * @return True if a fireball is on its way to the monster, false otherwise.
+     */
+    public boolean isTargeting(Monster monster) {
+        return monster.getIncoming() > 0;
+    }
+
+    /**
+     * Retrieves the number of fireballs currently in flight.
+     *
+     * @return The number of active fireballs.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    public float getX(int index) {
+        return this.x[index];
+    }
+
+    public float getY(int index) {
+        return this.y[index];
+    }
+
+    public Monster getTarget(int index) {
+        return this.targets[index];
+    }
+}
@@ -0,0 +1,56 @@
+package WizardTD;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands RenderFrames from the simulation to the renderer through three frames. The simulation
+ * fills in the back frame and swaps it with the middle one, and the renderer swaps the middle
+ * frame for its front frame whenever a newer one has been published. The swaps are single atomic
+ * exchanges, so neither side ever waits for the other: the simulation never holds up on a slow
+ * frame being drawn, and the renderer always draws the latest complete update.
+ */
+public class RenderBuffer {
+
+    // set on the middle index when it holds a frame the renderer has not taken yet
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final RenderFrame[] frames = {new RenderFrame(), new RenderFrame(), new RenderFrame()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // only used by the simulation
+    private int back = 0;
+    // only used by the renderer
+    private int front = 2;
+    private boolean taken;
+
+    /**
+     * Retrieves the frame the simulation fills in next. Called by the simulation only.
+     *
+     * @return The back frame.
+     */
+    public RenderFrame back() {
+        return frames[back];
+    }
+
+    /**
+     * Publishes the back frame once it has been filled in, taking the old middle frame to fill in next.
+     * Called by the simulation only.
+     */
+    public void publish() {
+        this.back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Retrieves the latest published frame, taking it from the middle if it is newer than the one
+     * the renderer already has. Called by the renderer only.
+     *
+     * @return The latest frame, or null if no frame has been published yet.
+     */
+    public RenderFrame latest() {
+        if ((middle.get() & FRESH) != 0) {
+            this.front = middle.getAndSet(front) & INDEX;
+            this.taken = true;
+        }
+        return taken ? frames[front] : null;
+    }
+}
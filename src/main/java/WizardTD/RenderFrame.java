@@ -0,0 +1,212 @@
+package WizardTD;
+
+import processing.core.PApplet;
+import processing.core.PImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Everything the renderer needs to draw the game after one update, filled in by the simulation
+ * and handed over through a RenderBuffer, so drawing never reads the game while it is updating.
+ * Monsters and fireballs are kept in flat arrays as their sprite and where it is drawn before and
+ * after the update, and are drawn part of the way between the two. The towers, Wizard House and
+ * sidebar are copies, updated in place, so filling in a frame does not allocate once it has grown.
+ */
+public class RenderFrame {
+
+    private PImage[] images = new PImage[64];
+    private float[] fromX = new float[64], fromY = new float[64], toX = new float[64], toY = new float[64];
+    // fraction of health left shown above each sprite, or 0 for no health bar
+    private float[] health = new float[64];
+    private int spriteCount;
+
+    private byte[][] tileSprites;
+    private final ArrayList<Tower> towers = new ArrayList<>();
+    private int towerCount;
+    private WizardHouse wizardHouse;
+    private SideBar sideBar;
+    private int wave, countdown;
+    private boolean gameOver, won, showWinMessage;
+    private int currentLevel, levelCount;
+    private long updatedAt;
+    private int renderRate;
+
+    /**
+     * Removes every sprite, ready for the frame to be filled in for a new update.
+     */
+    public void clear() {
+        this.spriteCount = 0;
+    }
+
+    /**
+     * Adds a sprite that moves during the update, such as a monster or a fireball.
+     *
+     * @param image The image of the sprite.
+     * @param fromX The x coordinate of the sprite before the update.
+     * @param fromY The y coordinate of the sprite before the update.
+     * @param toX The x coordinate of the sprite after the update.
+     * @param toY The y coordinate of the sprite after the update.
+     * @param health The fraction of health left, or 0 to draw no health bar.
+     */
+    public void addSprite(PImage image, float fromX, float fromY, float toX, float toY, float health) {
+        if (spriteCount == images.length) {
+            grow();
+        }
+        this.images[spriteCount] = image;
+        this.fromX[spriteCount] = fromX;
+        this.fromY[spriteCount] = fromY;
+        this.toX[spriteCount] = toX;
+        this.toY[spriteCount] = toY;
+        this.health[spriteCount] = health;
+        spriteCount++;
+    }
+
+    /**
+     * Copies the towers to be drawn, reusing the copies of the frame's earlier updates.
+     *
+     * @param placed The towers on the map.
+     */
+    public void copyTowers(ArrayList<Tower> placed) {
+        for (int i = 0; i < placed.size(); i++) {
+            if (i < towers.size()) {
+                towers.get(i).copyFrom(placed.get(i));
+            } else {
+                towers.add(new Tower(placed.get(i)));
+            }
+        }
+        this.towerCount = placed.size();
+    }
+
+    /**
+     * Copies the Wizard House and its mana, and the sidebar, to be drawn.
+     *
+     * @param house The Wizard House.
+     * @param bar The sidebar.
+     */
+    public void copyHud(WizardHouse house, SideBar bar) {
+        if (wizardHouse == null) {
+            this.wizardHouse = new WizardHouse(house);
+            this.sideBar = new SideBar(bar);
+        } else {
+            wizardHouse.copyFrom(house);
+            sideBar.copyFrom(bar);
+        }
+    }
+
+    public void setTileSprites(byte[][] tileSprites) {
+        this.tileSprites = tileSprites;
+    }
+
+    /**
+     * Sets the wave countdown written in the top bar.
+     *
+     * @param wave The number of the next wave, or 0 if there are no waves left.
+     * @param countdown The whole seconds until it starts.
+     */
+    public void setWave(int wave, int countdown) {
+        this.wave = wave;
+        this.countdown = countdown;
+    }
+
+    /**
+     * Sets how the game has ended, if it has.
+     *
+     * @param gameOver True if the game has been lost, false otherwise.
+     * @param won True if the level has been won, false otherwise.
+     * @param showWinMessage True if winning the level wins the game, false otherwise.
+     */
+    public void setOutcome(boolean gameOver, boolean won, boolean showWinMessage) {
+        this.gameOver = gameOver;
+        this.won = won;
+        this.showWinMessage = showWinMessage;
+    }
+
+    /**
+     * Sets the level being played.
+     *
+     * @param currentLevel The index of the level in the config's layout.
+     * @param levelCount The number of levels in the layout.
+     */
+    public void setLevel(int currentLevel, int levelCount) {
+        this.currentLevel = currentLevel;
+        this.levelCount = levelCount;
+    }
+
+    /**
+     * Sets when the update the frame shows was due, and how often the window should be drawn.
+     *
+     * @param updatedAt The System.nanoTime the update was due at.
+     * @param renderRate The frames drawn per second, GameConfig.UNCAPPED or GameConfig.VSYNC.
+     */
+    public void setTiming(long updatedAt, int renderRate) {
+        this.updatedAt = updatedAt;
+        this.renderRate = renderRate;
+    }
+
+    public long getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    public int getRenderRate() {
+        return this.renderRate;
+    }
+
+    /**
+     * Draws the frame: the map, monsters and fireballs, towers, and the text and bars around them.
+     *
+     * @param app The PApplet window the frame is drawn on.
+     * @param background The tiles of the map.
+     * @param interpolation How far between the update before and the update the frame shows to draw
+     * moving sprites, from 0 to 1.
+     */
+    public void draw(PApplet app, Background background, float interpolation) {
+        background.makeBackground(tileSprites, app);
+
+        for (int i = 0; i < spriteCount; i++) {
+            Monster.drawSprite(app, images[i], fromX[i] + (toX[i] - fromX[i]) * interpolation,
+                fromY[i] + (toY[i] - fromY[i]) * interpolation, health[i]);
+        }
+
+        app.fill(132, 115, 74);
+        app.noStroke();
+        app.rect(0, 0, App.WIDTH, App.TOPBAR);
+        app.rect(640, 0, App.SIDEBAR, App.HEIGHT);
+
+        WaveManager.writeWaveText(app, wave, countdown);
+        sideBar.draw(app);
+
+        wizardHouse.draw(app);
+
+        for (int i = 0; i < towerCount; i++) {
+            Boolean rangeButton = sideBar.keyStatus.get("1");
+            Boolean speedButton = sideBar.keyStatus.get("2");
+            Boolean damageButton = sideBar.keyStatus.get("3");
+            towers.get(i).draw(app, rangeButton, speedButton, damageButton);
+        }
+
+        if (gameOver) {
+            app.textSize(30);
+            app.fill(0);
+            app.text("YOU LOST\nPress 'r' to restart", 240, 250);
+        } else if (won && showWinMessage) {
+            app.textSize(30);
+            app.fill(0);
+            app.text("YOU WIN", 240, 250);
+        }
+
+        Level.writeCurrentLevel(app, currentLevel);
+        if (won) {
+            Level.startLevelMessage(app, currentLevel, levelCount);
+        }
+    }
+
+    private void grow() {
+        int capacity = images.length * 2;
+        this.images = Arrays.copyOf(images, capacity);
+        this.fromX = Arrays.copyOf(fromX, capacity);
+        this.fromY = Arrays.copyOf(fromY, capacity);
+        this.toX = Arrays.copyOf(toX, capacity);
+        this.toY = Arrays.copyOf(toY, capacity);
+        this.health = Arrays.copyOf(health, capacity);
+    }
+}
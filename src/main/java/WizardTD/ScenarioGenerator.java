@@ -0,0 +1,307 @@
+package WizardTD;
+
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Creates large random scenarios for stress testing: levels with paths winding in from several
+ * edges of the map, and a config with waves of many thousands of monsters and enough mana for
+ * hundreds of towers. The same seed always creates the same scenario.
+ */
+public class ScenarioGenerator {
+
+    // the map is always the size of the board
+    private static final int SIZE = App.BOARD_WIDTH;
+    // monster types in the order they are used in waves
+    private static final String[] TYPES = SpriteRegistry.MONSTER_TYPES;
+
+    private final Random random;
+
+    /**
+     * Creates a new ScenarioGenerator.
+     *
+     * @param seed The seed the scenario is created from.
+     */
+    public ScenarioGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Creates a map with paths leading to a Wizard House from a number of edges.
+     * Each path winds through several random waypoints on its way, so paths are long
+     * and cross each other. Paths never run along the edge of the map, so each edge has
+     * exactly one starting tile per path.
+     *
+     * @param spawns The number of paths, each starting from an edge of the map (top, bottom, left, right in turn).
+     * @param waypoints The number of turns each path takes on its way to the Wizard House.
+     * @param shrubs The fraction of the remaining tiles that are shrubs.
+     * @return The map represented as a 2D char array.
+     */
+    public char[][] generateMap(int spawns, int waypoints, float shrubs) {
+        char[][] map = new char[SIZE][SIZE];
+        for (char[] row : map) {
+            Arrays.fill(row, ' ');
+        }
+
+        int[] house = {4 + random.nextInt(SIZE - 8), 4 + random.nextInt(SIZE - 8)};
+        for (int i = 0; i < spawns; i++) {
+            int[] start = edgeTile(i % 4);
+            map[start[1]][start[0]] = 'X';
+
+            // stepping in from the edge, then winding through the waypoints
+            int[] current = inward(start, i % 4);
+            map[current[1]][current[0]] = 'X';
+            for (int j = 0; j < waypoints; j++) {
+                int[] waypoint = {1 + random.nextInt(SIZE - 2), 1 + random.nextInt(SIZE - 2)};
+                carve(map, current, waypoint);
+                current = waypoint;
+            }
+            carve(map, current, house);
+        }
+        map[house[1]][house[0]] = 'W';
+
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                if (map[row][column] == ' ' && random.nextFloat() < shrubs) {
+                    map[row][column] = 'S';
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Creates a config with waves of many monsters of every type.
+     * Monsters spawn as often as the game allows, once every frame, and the player starts
+     * with enough mana to place every tower and survive the monsters that get through.
+     * Every type of tower is available, so attacks that hit an area and status effects are tested on crowded paths.
+     * Spawns are grouped, so waves can be far larger than the number of monsters simulated one by one.
+     *
+     * @param levelFiles The level files of the config.
+     * @param waves The number of waves.
+     * @param monstersPerWave The number of monsters in each wave.
+     * @param towers The number of towers the player should be able to afford.
+     * @return The config as JSON.
+     */
+    public JSONObject generateConfig(String[] levelFiles, int waves, int monstersPerWave, int towers) {
+        JSONObject config = new JSONObject();
+        JSONArray layout = new JSONArray();
+        for (String levelFile : levelFiles) {
+            layout.append(levelFile);
+        }
+        config.setJSONArray("layout", layout);
+
+        JSONArray waveArray = new JSONArray();
+        for (int i = 0; i < waves; i++) {
+            JSONObject wave = new JSONObject();
+            // one monster per frame, plus a second to spare
+            wave.setInt("duration", monstersPerWave / App.FPS + 1);
+            setDecimal(wave, "pre_wave_pause", 2);
+
+            JSONArray monsters = new JSONArray();
+            int remaining = monstersPerWave;
+            for (int j = 0; j < TYPES.length && remaining > 0; j++) {
+                int quantity = j == TYPES.length - 1 ? remaining : monstersPerWave / TYPES.length;
+                remaining -= quantity;
+
+                JSONObject monster = new JSONObject();
+                monster.setString("type", TYPES[(i + j) % TYPES.length]);
+                monster.setInt("hp", 500 + 250 * i + random.nextInt(500));
+                setDecimal(monster, "speed", 1 + random.nextInt(4) * 0.25f);
+                setDecimal(monster, "armour", 0.5f + random.nextInt(5) * 0.1f);
+                monster.setInt("mana_gained_on_kill", 5);
+                monster.setInt("quantity", quantity);
+                monsters.append(monster);
+            }
+            wave.setJSONArray("monsters", monsters);
+            waveArray.append(wave);
+        }
+        config.setJSONArray("waves", waveArray);
+
+        int towerCost = 100;
+        config.setInt("initial_tower_range", 96);
+        setDecimal(config, "initial_tower_firing_speed", 1.5f);
+        config.setInt("initial_tower_damage", 40);
+        config.setInt("tower_cost", towerCost);
+
+        JSONObject towerTypes = new JSONObject();
+        JSONObject splash = new JSONObject();
+        splash.setInt("radius", 48);
+        setDecimal(splash, "damage", 0.5f);
+        setDecimal(splash, "burn", 5);
+        setDecimal(splash, "burn_duration", 2);
+        towerTypes.setJSONObject("splash", splash);
+        JSONObject chain = new JSONObject();
+        chain.setInt("radius", 64);
+        chain.setInt("jumps", 4);
+        setDecimal(chain, "falloff", 0.75f);
+        setDecimal(chain, "shred", 0.5f);
+        setDecimal(chain, "shred_duration", 2);
+        towerTypes.setJSONObject("chain", chain);
+        JSONObject slow = new JSONObject();
+        setDecimal(slow, "slow", 0.5f);
+        setDecimal(slow, "duration", 2);
+        setDecimal(slow, "damage", 0.1f);
+        towerTypes.setJSONObject("slow", slow);
+        config.setJSONObject("tower_types", towerTypes);
+        config.setBoolean("group_spawns", true);
+        config.setInt("initial_mana", exactMana(towers * towerCost + 1000000000L));
+        config.setInt("initial_mana_cap", exactMana(2000000000L));
+        config.setInt("initial_mana_gained_per_second", 100);
+        config.setInt("mana_pool_spell_initial_cost", 1000);
+        config.setInt("mana_pool_spell_cost_increase_per_use", 500);
+        setDecimal(config, "mana_pool_spell_cap_multiplier", 1.1f);
+        setDecimal(config, "mana_pool_spell_mana_gained_multiplier", 1.1f);
+        return config;
+    }
+
+    /**
+     * Sets a decimal value as it would be written by hand. JSONObject.setFloat widens the float to
+     * a double first, so 1.1f would be written as 1.100000023841858.
+     *
+     * @param json The JSON object the value is set in.
+     * @param key The key of the value.
+     * @param value The value, written as the shortest decimal that reads back as the same float.
+     */
+    private static void setDecimal(JSONObject json, String key, float value) {
+        json.setDouble(key, Double.parseDouble(Float.toString(value)));
+    }
+
+    /**
+     * Rounds an amount of mana to the nearest whole number a float holds exactly.
+     * Mana is kept as a float, so the Wizard House starts with exactly the mana written in the config.
+     *
+     * @param mana The amount of mana.
+     * @return The nearest amount of mana a float holds exactly.
+     */
+    private static int exactMana(long mana) {
+        return (int)(float)mana;
+    }
+
+    /**
+     * Chooses a tile on an edge of the map, away from the corners.
+     *
+     * @param edge The edge: 0 for top, 1 for bottom, 2 for left and 3 for right.
+     * @return The tile (x, y).
+     */
+    private int[] edgeTile(int edge) {
+        int along = 2 + random.nextInt(SIZE - 4);
+        switch (edge) {
+            case 0:
+                return new int[] {along, 0};
+            case 1:
+                return new int[] {along, SIZE - 1};
+            case 2:
+                return new int[] {0, along};
+            default:
+                return new int[] {SIZE - 1, along};
+        }
+    }
+
+    private static int[] inward(int[] start, int edge) {
+        switch (edge) {
+            case 0:
+                return new int[] {start[0], 1};
+            case 1:
+                return new int[] {start[0], SIZE - 2};
+            case 2:
+                return new int[] {1, start[1]};
+            default:
+                return new int[] {SIZE - 2, start[1]};
+        }
+    }
+
+    /**
+     * Carves a path between two tiles, going horizontally then vertically or the other way round.
+     *
+     * @param map The map being created.
+     * @param from The tile (x, y) the path starts from.
+     * @param to The tile (x, y) the path ends at.
+     */
+    private void carve(char[][] map, int[] from, int[] to) {
+        int x = from[0];
+        int y = from[1];
+        boolean horizontalFirst = random.nextBoolean();
+        for (int leg = 0; leg < 2; leg++) {
+            if (horizontalFirst == (leg == 0)) {
+                while (x != to[0]) {
+                    x += Integer.signum(to[0] - x);
+                    map[y][x] = 'X';
+                }
+            } else {
+                while (y != to[1]) {
+                    y += Integer.signum(to[1] - y);
+                    map[y][x] = 'X';
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a map as a level file.
+     *
+     * @param map The map represented as a 2D char array.
+     * @param file The level file to be written.
+     */
+    public static void writeLevel(char[][] map, Path file) {
+        StringBuilder contents = new StringBuilder();
+        for (char[] row : map) {
+            contents.append(row).append('\n');
+        }
+        try {
+            Files.write(file, contents.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write level " + file, e);
+        }
+    }
+
+    /**
+     * Writes a stress test scenario: a number of levels and a config that plays them.
+     *
+     * @param args The directory to write to (stress by default), the seed, the number of levels,
+     * the number of spawn edges, the number of turns in each path, the number of waves, the number
+     * of monsters in each wave and the number of towers.
+     */
+    public static void main(String[] args) {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "stress");
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int levels = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int spawns = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int turns = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int waves = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+        int monstersPerWave = args.length > 6 ? Integer.parseInt(args[6]) : 20000;
+        int towers = args.length > 7 ? Integer.parseInt(args[7]) : 200;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create " + directory, e);
+        }
+
+        ScenarioGenerator generator = new ScenarioGenerator(seed);
+        String[] levelFiles = new String[levels];
+        for (int i = 0; i < levels; i++) {
+            Path levelFile = directory.resolve("level" + (i + 1) + ".txt");
+            writeLevel(generator.generateMap(spawns, turns, 0.05f), levelFile);
+            levelFiles[i] = levelFile.toString();
+        }
+
+        File configFile = directory.resolve("config.json").toFile();
+        generator.generateConfig(levelFiles, waves, monstersPerWave, towers).save(configFile, "indent=2");
+
+        // checking the scenario is valid before anyone runs it
+        GameConfig.load(configFile.getPath());
+        System.out.println("Wrote " + levels + " levels and " + configFile + " with " + waves + " waves of "
+            + monstersPerWave + " monsters");
+    }
+}
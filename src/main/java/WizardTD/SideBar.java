@@ -3,18 +3,19 @@ package WizardTD;
 import processing.core.PApplet;
 import java.util.HashMap;
 import java.util.Map;
+import java.nio.ByteBuffer;
 
 /**
  * Represents the sidebar in the game for different gameplay actions.
  */
 public class SideBar {
-    static String[] textInSquares = {"FF", "P", "T", "U1", "U2", "U3", "M"}; 
-    static String[] keys = {"f", "p", "t", "1", "2", "3", "m"};
-    static int numberOfSquares = 7;
+    static String[] textInSquares = {"FF", "P", "T", "U1", "U2", "U3", "M", "C"}; 
+    static String[] keys = {"f", "p", "t", "1", "2", "3", "m", "c"};
+    static int numberOfSquares = 8;
     static int spaceBetweenSquares = 10;
 
     String[] actionDescriptions = {"2x speed", "PAUSE", "Build\nTower", "Upgrade\nrange", 
-                                    "Upgrade\nspeed", "Upgrade\ndamage", "Mana pool\ncost: "};
+                                    "Upgrade\nspeed", "Upgrade\ndamage", "Mana pool\ncost: ", "Tower type:\nfireball"};
     int sideLength, squareX, squareY, startingSquareY, towerCost, manaPoolCost;
     HashMap<String, Boolean> keyStatus;
 
@@ -36,6 +37,30 @@ public class SideBar {
         setUpKeyStatus();
     }
 
+    /**
+     * Create a copy of a sidebar, such as for drawing it while the game carries on.
+     * 
+     * @param other The sidebar to copy.
+     */
+    public SideBar(SideBar other) {
+        this(other.towerCost, other.manaPoolCost);
+        copyFrom(other);
+    }
+
+    /**
+     * Copies which gameplay actions are selected on another sidebar, and the costs it shows.
+     * 
+     * @param other The sidebar to copy.
+     */
+    public void copyFrom(SideBar other) {
+        for (String key : keys) {
+            keyStatus.put(key, other.keyStatus.get(key));
+        }
+        this.towerCost = other.towerCost;
+        this.manaPoolCost = other.manaPoolCost;
+        System.arraycopy(other.actionDescriptions, 0, actionDescriptions, 0, actionDescriptions.length);
+    }
+
     /**
      * Draw the sidebar on the window.
      * 
@@ -46,7 +71,7 @@ public class SideBar {
         app.strokeWeight(2);
         app.noFill();
 
-        // Drawing 7 squares
+        // Drawing 8 squares
         for (int i = 0; i < numberOfSquares; i++) {
             
             // Drawing a square
@@ -127,6 +152,33 @@ public class SideBar {
         return "";
     }
 
+    /**
+     * Writes which gameplay actions are selected to a snapshot, one bit per key.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        int selected = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keyStatus.get(keys[i])) {
+                selected |= 1 << i;
+            }
+        }
+        buffer.put((byte)selected);
+    }
+
+    /**
+     * Reads which gameplay actions are selected from a snapshot.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        int selected = buffer.get();
+        for (int i = 0; i < keys.length; i++) {
+            keyStatus.put(keys[i], (selected & (1 << i)) != 0);
+        }
+    }
+
     /**
      * Updates mana pool cost.
      * Updates action description for mana pool to reflect the cost change.
@@ -138,6 +190,17 @@ public class SideBar {
         this.actionDescriptions[6] = "Mana pool\ncost: " + manaPoolCost;
     }
 
+    /**
+     * Updates the type of tower built, showing its name and cost.
+     * 
+     * @param name The name of the tower type.
+     * @param cost The cost of building a tower of that type.
+     */
+    public void setTowerType(String name, int cost) {
+        this.towerCost = cost;
+        this.actionDescriptions[7] = "Tower type:\n" + name;
+    }
+
     /**
      * Draws the cost tool tip for the tower and mana pool gameplay action.
      * 
@@ -161,7 +224,7 @@ public class SideBar {
      * the mouse hovers over the tower or mana pool buttons.
      * 
      * @param app The PApplet window for rendering images.
-     * @param i The specific square/button indicated by numbers 0-6.
+     * @param i The specific square/button indicated by numbers 0-7.
      */
     public void turnGrey(PApplet app, int i) {
         boolean hoverSquare = (app.mouseX >= squareX) && (app.mouseX <= squareX + sideLength) && 
@@ -188,13 +251,13 @@ public class SideBar {
      * Turns square yellow if corresponding key is pressed or it is selected via mouse click.
      * 
      * @param app The PApplet window for rendering.
-     * @param i The specific square/button indicated by numbers 0-6.
+     * @param i The specific square/button indicated by numbers 0-7.
      */
     public void turnYellow(PApplet app, int i) {
         for (Map.Entry<String, Boolean> entry : keyStatus.entrySet()) {
-            // i = 6 is the mana pool button, which is automatically applied
-            // so it does not need to turn yellow
-            if (entry.getKey() == keys[i] && entry.getValue() && keys[i] != "m") {
+            // i = 6 is the mana pool button and i = 7 cycles the tower type, which are
+            // automatically applied so they do not need to turn yellow
+            if (entry.getKey() == keys[i] && entry.getValue() && keys[i] != "m" && keys[i] != "c") {
                 app.fill(255, 255, 8);
                 app.rect(squareX, squareY, sideLength, sideLength);
                 app.fill(0, 0, 0);
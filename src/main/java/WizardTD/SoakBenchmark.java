@@ -0,0 +1,301 @@
+package WizardTD;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Plays a scenario without a window for a long time, timing every frame, to catch scaling regressions.
+ * Levels are played over and over with a new seed each time, with towers placed along the paths.
+ * Reports tick time percentiles, the heap still in use after garbage collection and garbage
+ * collection pauses, both periodically and at the end.
+ */
+public class SoakBenchmark {
+
+    // tick times are counted in buckets 1/16 of a power of two wide, so percentiles are within about 6%
+    private static final int SUB_BUCKETS = 16;
+
+    private final long[] tickCounts = new long[64 * SUB_BUCKETS];
+    private long ticks, maxTickNanos;
+    private final AtomicLong gcPauses = new AtomicLong();
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final AtomicLong maxGcPauseMillis = new AtomicLong();
+    private final AtomicLong heapAfterGc = new AtomicLong();
+
+    private final GameConfig config;
+    private final int towers;
+
+    /**
+     * Creates a new SoakBenchmark and starts listening for garbage collection pauses.
+     *
+     * @param config The config of the scenario.
+     * @param towers The number of towers placed at the start of each level.
+     */
+    public SoakBenchmark(GameConfig config, int towers) {
+        this.config = config;
+        this.towers = towers;
+
+        HashSet<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter)collector).addNotificationListener((notification, handback) -> {
+                    if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                        GcInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData()).getGcInfo();
+                        long pause = info.getDuration();
+                        long heap = 0;
+                        for (Map.Entry<String, MemoryUsage> pool : info.getMemoryUsageAfterGc().entrySet()) {
+                            if (heapPools.contains(pool.getKey())) {
+                                heap += pool.getValue().getUsed();
+                            }
+                        }
+                        heapAfterGc.set(heap);
+                        gcPauses.incrementAndGet();
+                        gcPauseMillis.addAndGet(pause);
+                        maxGcPauseMillis.accumulateAndGet(pause, Math::max);
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    /**
+     * Plays levels until a number of seconds have passed, reporting regularly.
+     *
+     * @param seconds The number of seconds of real time to run for.
+     * @param reportSeconds The number of seconds between reports.
+     */
+    public void run(long seconds, long reportSeconds) {
+        long start = System.nanoTime();
+        long end = start + seconds * 1000000000L;
+        long nextReport = start + reportSeconds * 1000000000L;
+        long startHeap = -1;
+        int games = 0;
+        int peakMonsters = 0;
+
+        while (System.nanoTime() < end) {
+            String levelFile = config.getLayout().get(games % config.getLayout().size());
+            HeadlessGame game = new HeadlessGame(config, levelFile, games);
+            placeTowers(game);
+            games++;
+
+            while (System.nanoTime() < end) {
+                long before = System.nanoTime();
+                boolean running = game.step();
+                long after = System.nanoTime();
+                record(after - before);
+                peakMonsters = Math.max(peakMonsters, game.getGameManager().countMonsters());
+
+                if (after >= nextReport) {
+                    startHeap = report((after - start) / 1000000000L, games, peakMonsters, startHeap);
+                    nextReport += reportSeconds * 1000000000L;
+                }
+                if (!running) {
+                    break;
+                }
+            }
+        }
+
+        System.out.println("Finished:");
+        report((System.nanoTime() - start) / 1000000000L, games, peakMonsters, startHeap);
+    }
+
+    /**
+     * Measures the memory allocated by GameManager.tick once a game is busy and the JIT has warmed up.
+     * The game is played until it has reached a busy point, then ticks are run on their own, without
+     * spawning new monsters, and the bytes allocated by the thread are counted.
+     *
+     * @param warmupFrames The number of frames to play before measuring.
+     * @param measuredTicks The number of ticks to measure.
+     * @return The number of bytes allocated over all the measured ticks, or -1 if the JVM cannot count them.
+     */
+    public long measureTickAllocation(int warmupFrames, int measuredTicks) {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof ThreadMXBean) || !((ThreadMXBean)threads).isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        ThreadMXBean allocations = (ThreadMXBean)threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        HeadlessGame game = new HeadlessGame(config, config.getLayout().get(0), 0);
+        placeTowers(game);
+        game.run(warmupFrames);
+
+        GameManager gameManager = game.getGameManager();
+        int framesPassed = game.getFramesPassed();
+        long thread = Thread.currentThread().getId();
+
+        // warming up the tick on its own as well, then measuring it
+        for (int i = 0; i < measuredTicks; i++) {
+            gameManager.tick(App.FPS, framesPassed++);
+        }
+        int monsters = gameManager.countMonsters();
+        int fireballs = gameManager.projectiles.size();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < measuredTicks; i++) {
+            gameManager.tick(App.FPS, framesPassed++);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        System.out.println("GameManager.tick allocated " + allocated + " bytes over " + measuredTicks
+            + " ticks, starting with " + monsters + " monsters, " + gameManager.towers.size()
+            + " towers and " + fireballs + " fireballs");
+        return allocated;
+    }
+
+    /**
+     * Places towers on the tiles next to paths, then further out, until the number of towers is reached.
+     * Each type of tower in the config is placed in turn.
+     *
+     * @param game The game the towers are placed in.
+     */
+    private void placeTowers(HeadlessGame game) {
+        List<TowerType> types = config.getTowerTypes();
+        ArrayList<int[]> candidates = PlacementSearch.candidates(game.getGameManager());
+        int placed = 0;
+        for (int i = 0; i < candidates.size() && placed < towers; i++) {
+            if (game.placeTower(candidates.get(i)[0], candidates.get(i)[1], types.get(placed % types.size()))) {
+                placed++;
+            }
+        }
+        char[][] map = game.getGameManager().getMap();
+        for (int row = 0; row < map.length && placed < towers; row++) {
+            for (int column = 0; column < map[row].length && placed < towers; column++) {
+                if (game.placeTower(column, row, types.get(placed % types.size()))) {
+                    placed++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a tick time in its bucket.
+     *
+     * @param nanos The time the tick took, in nanoseconds.
+     */
+    private void record(long nanos) {
+        tickCounts[bucket(Math.max(nanos, 1))]++;
+        ticks++;
+        maxTickNanos = Math.max(maxTickNanos, nanos);
+    }
+
+    private static int bucket(long nanos) {
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = Math.max(exponent - 4, 0);
+        int mantissa = (int)(nanos >>> shift) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + mantissa;
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        int mantissa = bucket % SUB_BUCKETS;
+        // below 16ns every nanosecond has its own bucket
+        if (exponent < 4) {
+            return mantissa;
+        }
+        int shift = exponent - 4;
+        return ((SUB_BUCKETS | (long)mantissa) + 1) << shift;
+    }
+
+    /**
+     * Finds the tick time that a given fraction of ticks took no longer than.
+     *
+     * @param fraction The fraction of ticks, e.g. 0.99.
+     * @return The tick time, in nanoseconds.
+     */
+    public long percentile(double fraction) {
+        long target = (long)Math.ceil(fraction * ticks);
+        long seen = 0;
+        for (int i = 0; i < tickCounts.length; i++) {
+            seen += tickCounts[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(bucketUpperBound(i), maxTickNanos);
+            }
+        }
+        return maxTickNanos;
+    }
+
+    /**
+     * Prints the results so far.
+     *
+     * @param elapsedSeconds The number of seconds the benchmark has run for.
+     * @param games The number of games started.
+     * @param peakMonsters The largest number of monsters on the field at once.
+     * @param startHeap The heap in use after the first garbage collection, which later
+     * reports are compared against, or -1 if there has not been one yet.
+     * @return The heap in use after the most recent garbage collection.
+     */
+    private long report(long elapsedSeconds, int games, int peakMonsters, long startHeap) {
+        // the heap still in use after garbage collection grows steadily if anything is leaking
+        long heap = heapAfterGc.get();
+        if (startHeap < 0 && gcPauses.get() > 0) {
+            startHeap = heap;
+        }
+        System.out.println(elapsedSeconds + "s: " + ticks + " ticks in " + games + " games, peak "
+            + peakMonsters + " monsters, tick p50 " + micros(percentile(0.5)) + " p99 " + micros(percentile(0.99))
+            + " p99.9 " + micros(percentile(0.999)) + " max " + micros(maxTickNanos)
+            + ", heap after GC " + heap / 1024 + "KB (" + (heap >= startHeap ? "+" : "")
+            + (startHeap < 0 ? 0 : heap - startHeap) / 1024 + "KB), " + gcPauses.get() + " GC pauses totalling "
+            + gcPauseMillis.get() + "ms, longest " + maxGcPauseMillis.get() + "ms");
+        return startHeap;
+    }
+
+    private static String micros(long nanos) {
+        return nanos / 1000 + "us";
+    }
+
+    /**
+     * Runs a soak test of a scenario, such as one written by ScenarioGenerator.
+     * Checks first that GameManager.tick does not allocate in a busy game, since any garbage made every
+     * tick eventually pauses the game for garbage collection. Exits with status 1 if the tick allocates
+     * or the 99th percentile tick time is over budget, so it can be used in scripts.
+     *
+     * @param args The config file to use (stress/config.json by default), the number of minutes to run
+     * for, the number of towers, the number of seconds between reports and the 99th percentile
+     * tick time budget in microseconds (0 for no budget).
+     */
+    public static void main(String[] args) {
+        String configPath = args.length > 0 ? args[0] : "stress/config.json";
+        double minutes = args.length > 1 ? Double.parseDouble(args[1]) : 60;
+        int towers = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long reportSeconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+        long budgetMicros = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        SoakBenchmark benchmark = new SoakBenchmark(GameConfig.load(configPath), towers);
+        long allocated = benchmark.measureTickAllocation(60 * App.FPS, 1000);
+        benchmark.run((long)(minutes * 60), reportSeconds);
+
+        boolean failed = false;
+        if (allocated > 0) {
+            System.out.println("GameManager.tick allocated memory in steady state");
+            failed = true;
+        }
+        long p99 = benchmark.percentile(0.99) / 1000;
+        if (budgetMicros > 0 && p99 > budgetMicros) {
+            System.out.println("Tick time p99 " + p99 + "us is over the budget of " + budgetMicros + "us");
+            failed = true;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package WizardTD;
+
+import java.util.ArrayList;
+
+/**
+ * Uniform grid over the board that buckets monsters by the tile they are currently on.
+ * Range queries only visit the tiles overlapping the query circle instead of every monster.
+ * Buckets are stored as linked lists inside flat int arrays, so rebuilding does not allocate
+ * once the arrays have grown to fit the largest wave. The grid remembers which cells monsters
+ * have walked through, so towers only look at the cells along the path within their range.
+ */
+public class SpatialGrid {
+
+    // one extra tile around the board, since monsters spawn just outside of the map
+    private static final int MARGIN = 1;
+
+    private final int columns, rows;
+    private final int[] cellHead;
+    // cells a monster has been bucketed in, and a version bumped whenever one is added
+    private final boolean[] walked;
+    private int walkedVersion;
+    private int[] next;
+    private Monster[] entries;
+    private int count;
+
+    /**
+     * Creates an empty grid covering a board of the given size in tiles.
+     *
+     * @param boardColumns The number of tile columns on the board.
+     * @param boardRows The number of tile rows on the board.
+     */
+    public SpatialGrid(int boardColumns, int boardRows) {
+        this.columns = boardColumns + 2 * MARGIN;
+        this.rows = boardRows + 2 * MARGIN;
+        this.cellHead = new int[columns * rows];
+        this.walked = new boolean[columns * rows];
+        this.next = new int[64];
+        this.entries = new Monster[64];
+        clear();
+    }
+
+    /**
+     * Removes all monsters from the grid.
+     */
+    public void clear() {
+        for (int i = 0; i < cellHead.length; i++) {
+            cellHead[i] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            entries[i] = null;
+        }
+        this.count = 0;
+    }
+
+    /**
+     * Re-buckets every monster based on its current position.
+     * Monsters are stored by their index in the given list.
+     *
+     * @param monsters The monsters currently on the field.
+     */
+    public void rebuild(ArrayList<Monster> monsters) {
+        clear();
+        ensureCapacity(monsters.size());
+
+        // inserting in reverse so each bucket lists monsters in ascending index order
+        for (int i = monsters.size() - 1; i >= 0; i--) {
+            Monster monster = monsters.get(i);
+            int cell = cellIndex(columnOf(monster.x), rowOf(monster.y));
+            if (!walked[cell]) {
+                walked[cell] = true;
+                this.walkedVersion++;
+            }
+            entries[i] = monster;
+            next[i] = cellHead[cell];
+            cellHead[cell] = i;
+        }
+        this.count = monsters.size();
+    }
+
+    /**
+     * Finds the monster with the lowest list index whose position lies within range of a point.
+     * This matches the order in which monsters were originally scanned, so targeting
+     * stays the same as a linear search through the monster list.
+     *
+     * @param x The x coordinate of the centre of the query.
+     * @param y The y coordinate of the centre of the query.
+     * @param range The radius of the query in pixels.
+     * @return The index of the monster found, or -1 if no monster is in range.
+     */
+    public int firstInRange(float x, float y, float range) {
+        int minColumn = columnOf(x - range);
+        int maxColumn = columnOf(x + range);
+        int minRow = rowOf(y - range);
+        int maxRow = rowOf(y + range);
+        float rangeSquared = range * range;
+        int best = -1;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int i = cellHead[cellIndex(column, row)]; i != -1; i = next[i]) {
+                    if (best != -1 && i > best) {
+                        break;
+                    }
+                    float xDiff = x - entries[i].x;
+                    float yDiff = y - entries[i].y;
+                    if (xDiff * xDiff + yDiff * yDiff <= rangeSquared) {
+                        best = i;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds every monster whose position lies within range of a point, for attacks that hit an area.
+     * Only the tiles overlapping the query circle are visited, so the time taken depends on
+     * the number of monsters nearby rather than the number on the field.
+     *
+     * @param x The x coordinate of the centre of the query.
+     * @param y The y coordinate of the centre of the query.
+     * @param range The radius of the query in pixels.
+     * @param found Filled with the index of each monster found, in no particular order.
+     * Must have room for every monster in the grid.
+     * @return The number of monsters found.
+     */
+    public int allInRange(float x, float y, float range, int[] found) {
+        int minColumn = columnOf(x - range);
+        int maxColumn = columnOf(x + range);
+        int minRow = rowOf(y - range);
+        int maxRow = rowOf(y + range);
+        float rangeSquared = range * range;
+        int total = 0;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int i = cellHead[cellIndex(column, row)]; i != -1; i = next[i]) {
+                    float xDiff = x - entries[i].x;
+                    float yDiff = y - entries[i].y;
+                    if (xDiff * xDiff + yDiff * yDiff <= rangeSquared) {
+                        found[total++] = i;
+                    }
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Finds the monster with the lowest list index within range of a tower, as firstInRange does,
+     * but only visiting the cells in the tower's coverage. Monsters in cells wholly inside the
+     * range need no distance check, so the first monster in such a cell is taken straight away.
+     *
+     * @param tower The tower looking for a target.
+     * @return The index of the monster found, or -1 if no monster is in range.
+     */
+    public int firstInRange(Tower tower) {
+        TowerCoverage coverage = cover(tower);
+        float range = tower.getRange();
+        float rangeSquared = range * range;
+        int best = -1;
+
+        for (int k = 0; k < coverage.size(); k++) {
+            int head = cellHead[coverage.getCell(k)];
+            if (coverage.isInside(k)) {
+                if (head != -1 && (best == -1 || head < best)) {
+                    best = head;
+                }
+                continue;
+            }
+            for (int i = head; i != -1; i = next[i]) {
+                if (best != -1 && i > best) {
+                    break;
+                }
+                float xDiff = tower.x - entries[i].x;
+                float yDiff = tower.y - entries[i].y;
+                if (xDiff * xDiff + yDiff * yDiff <= rangeSquared) {
+                    best = i;
+                    break;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds every monster within range of a tower, as allInRange does, but only visiting the
+     * cells in the tower's coverage. Monsters are found in the same order as allInRange.
+     *
+     * @param tower The tower whose range is searched.
+     * @param found Filled with the index of each monster found. Must have room for every monster in the grid.
+     * @return The number of monsters found.
+     */
+    public int allInRange(Tower tower, int[] found) {
+        TowerCoverage coverage = cover(tower);
+        float range = tower.getRange();
+        float rangeSquared = range * range;
+        int total = 0;
+
+        for (int k = 0; k < coverage.size(); k++) {
+            boolean inside = coverage.isInside(k);
+            for (int i = cellHead[coverage.getCell(k)]; i != -1; i = next[i]) {
+                float xDiff = tower.x - entries[i].x;
+                float yDiff = tower.y - entries[i].y;
+                if (inside || xDiff * xDiff + yDiff * yDiff <= rangeSquared) {
+                    found[total++] = i;
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Works out the cells a tower needs to visit, if its range has changed or monsters have walked
+     * through new cells since they were last worked out. Cells are listed in the order the square
+     * around the range is scanned, leaving out those monsters have never been in and those too far
+     * away to hold a monster in range. The cells on the edge of the grid also hold the monsters
+     * beyond it, so they are kept whenever the square reaches them.
+     *
+     * @param tower The tower whose coverage is brought up to date.
+     * @return The tower's coverage.
+     */
+    private TowerCoverage cover(Tower tower) {
+        TowerCoverage coverage = tower.getCoverage();
+        float range = tower.getRange();
+        if (coverage.isFor(range, walkedVersion)) {
+            return coverage;
+        }
+        coverage.reset(range, walkedVersion);
+
+        int minColumn = columnOf(tower.x - range);
+        int maxColumn = columnOf(tower.x + range);
+        int minRow = rowOf(tower.y - range);
+        int maxRow = rowOf(tower.y + range);
+        // a pixel either side of the range, well beyond any rounding in the distance checks
+        float outer = (range + 1) * (range + 1);
+        float inner = range > 1 ? (range - 1) * (range - 1) : -1;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = cellIndex(column, row);
+                if (!walked[cell]) {
+                    continue;
+                }
+                if (column == 0 || row == 0 || column == columns - 1 || row == rows - 1) {
+                    coverage.add(cell, false);
+                    continue;
+                }
+
+                float left = (column - MARGIN) * App.CELLSIZE;
+                float top = (row - MARGIN) * App.CELLSIZE + App.TOPBAR;
+                float nearX = Math.max(left - tower.x, Math.max(tower.x - left - App.CELLSIZE, 0));
+                float nearY = Math.max(top - tower.y, Math.max(tower.y - top - App.CELLSIZE, 0));
+                if (nearX * nearX + nearY * nearY > outer) {
+                    continue;
+                }
+                float farX = Math.max(Math.abs(left - tower.x), Math.abs(left + App.CELLSIZE - tower.x));
+                float farY = Math.max(Math.abs(top - tower.y), Math.abs(top + App.CELLSIZE - tower.y));
+                coverage.add(cell, farX * farX + farY * farY <= inner);
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * Retrieves the monster stored at a given index during the last rebuild.
+     *
+     * @param index The index of the monster in the list used to rebuild the grid.
+     * @return The monster at that index.
+     */
+    public Monster get(int index) {
+        return entries[index];
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > entries.length) {
+            int newLength = Math.max(capacity, entries.length * 2);
+            this.entries = new Monster[newLength];
+            this.next = new int[newLength];
+        }
+    }
+
+    private int columnOf(float x) {
+        return clamp((int)Math.floor(x / App.CELLSIZE) + MARGIN, columns);
+    }
+
+    private int rowOf(float y) {
+        return clamp((int)Math.floor((y - App.TOPBAR) / App.CELLSIZE) + MARGIN, rows);
+    }
+
+    private int cellIndex(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static int clamp(int value, int length) {
+        return Math.max(0, Math.min(length - 1, value));
+    }
+}
@@ -0,0 +1,96 @@
+package WizardTD;
+
+import processing.core.PImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Holds the sprite sheet of each type of element, so every element of a type shares the same frames.
+ */
+public class SpriteRegistry {
+
+    // since each image in the death animation lasts 4 frames
+    public static final int DEATH_TICKS_PER_FRAME = 4;
+
+    // every type of monster that can appear in a wave
+    public static final String[] MONSTER_TYPES = {"gremlin", "worm", "beetle"};
+
+    private static SpriteRegistry headless;
+
+    private final HashMap<String, SpriteSheet> sheets;
+
+    /**
+     * Creates an empty SpriteRegistry.
+     */
+    public SpriteRegistry() {
+        this.sheets = new HashMap<>();
+    }
+
+    /**
+     * Registers the sprite sheets for every type of monster, the towers, the Wizard House
+     * and fireballs using loaded images.
+     * The death animation frames are shared between all types of monster.
+     *
+     * @param assets The AssetManager the images are loaded from.
+     * @return A SpriteRegistry containing the sprite sheets.
+     */
+    public static SpriteRegistry load(AssetManager assets) {
+        SpriteRegistry registry = new SpriteRegistry();
+        ArrayList<PImage> deathFrames = assets.getAll("gremlin", 1, 6);
+
+        for (String type : MONSTER_TYPES) {
+            ArrayList<PImage> frames = new ArrayList<>();
+            frames.add(assets.get(type));
+            frames.addAll(deathFrames);
+            registry.register(new SpriteSheet(type, frames, DEATH_TICKS_PER_FRAME));
+        }
+
+        registry.register(new SpriteSheet("tower", assets.getAll("tower", 0, 3), 1));
+        registry.register(new SpriteSheet("wizard_house", List.of(assets.get("wizard_house")), 1));
+        registry.register(new SpriteSheet("fireball", List.of(assets.get("fireball")), 1));
+        return registry;
+    }
+
+    /**
+     * Retrieves the sprite sheets loaded without a window, which every headless game shares.
+     * Nothing is registered with it after loading, so games on other threads can read it.
+     *
+     * @return The shared headless SpriteRegistry.
+     */
+    public static synchronized SpriteRegistry headless() {
+        if (headless == null) {
+            headless = load(AssetManager.headless());
+        }
+        return headless;
+    }
+
+    /**
+     * Adds a sprite sheet to the registry, replacing any sprite sheet with the same name.
+     *
+     * @param sheet The sprite sheet to be added.
+     */
+    public void register(SpriteSheet sheet) {
+        sheets.put(sheet.getName(), sheet);
+    }
+
+    /**
+     * Retrieves a sprite sheet by name.
+     *
+     * @param name The name of the sprite sheet, e.g. gremlin.
+     * @return The sprite sheet, or null if there is none with that name.
+     */
+    public SpriteSheet get(String name) {
+        return sheets.get(name);
+    }
+
+    /**
+     * Checks if there is a sprite sheet with a given name.
+     *
+     * @param name The name of the sprite sheet, e.g. gremlin.
+     * @return True if there is a sprite sheet with that name, false otherwise.
+     */
+    public boolean contains(String name) {
+        return sheets.containsKey(name);
+    }
+}
@@ -0,0 +1,53 @@
+package WizardTD;
+
+import processing.core.PImage;
+import java.util.List;
+
+/**
+ * An immutable set of animation frames shared by every element drawn with it.
+ * Elements only keep track of which frame they are on, never their own copy of the frames.
+ */
+public class SpriteSheet {
+    private final String name;
+    private final PImage[] frames;
+    private final int ticksPerFrame;
+
+    /**
+     * Creates a new SpriteSheet from a list of frames.
+     *
+     * @param name The name of the sprite sheet, e.g. gremlin.
+     * @param frames The frames of the animation, in order.
+     * @param ticksPerFrame The number of ticks each frame of the animation lasts.
+     */
+    public SpriteSheet(String name, List<PImage> frames, int ticksPerFrame) {
+        this.name = name;
+        this.frames = frames.toArray(new PImage[0]);
+        this.ticksPerFrame = ticksPerFrame;
+    }
+
+    /**
+     * Retrieves a frame of the animation.
+     *
+     * @param index The index of the frame.
+     * @return The image of the frame.
+     */
+    public PImage getFrame(int index) {
+        return this.frames[index];
+    }
+
+    public int getFrameCount() {
+        return this.frames.length;
+    }
+
+    public int getLastFrame() {
+        return this.frames.length - 1;
+    }
+
+    public int getTicksPerFrame() {
+        return this.ticksPerFrame;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+}
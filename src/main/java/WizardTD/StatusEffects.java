@@ -0,0 +1,316 @@
+package WizardTD;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps the timed status effects on every monster, such as slows, burns and armour shred.
+ * Each affected monster has a slot in flat arrays holding a bit for each effect on it, and the
+ * strength and end of each effect. Effects run out through a timing wheel, a ring of lists
+ * of the effects ending on each frame, so a tick only looks at the effects that end on that frame
+ * rather than every effect. Monsters only hold a slot while they have an effect, and slots
+ * and wheel entries are reused, so effects do not allocate once the arrays have grown.
+ */
+public class StatusEffects {
+
+    // moves at a fraction of its speed; the strongest slow applies
+    public static final int SLOW = 0;
+    // takes damage every frame; the strongest burn applies
+    public static final int BURN = 1;
+    // armour lets through a fraction more of each hit; the strongest shred applies
+    public static final int SHRED = 2;
+    private static final int EFFECTS = 3;
+
+    // number of frames covered by one turn of the timing wheel, a power of two
+    private static final int WHEEL_SIZE = 256;
+
+    private int[] flags;
+    private float[] strength;
+    private int[] end;
+    private Monster[] owners;
+    private int[] freeSlots;
+    private int freeCount, slotCount, burning;
+
+    // entries of the timing wheel, linked into a list for each frame of the wheel
+    private final int[] wheel = new int[WHEEL_SIZE];
+    private int[] entrySlot, entryEffect, entryEnd, entryNext;
+    private int freeEntry = -1;
+    private int entryCount;
+    private int now;
+
+    /**
+     * Creates an empty set of status effects with room for a given number of affected monsters.
+     * The arrays grow automatically if more monsters are affected at once.
+     *
+     * @param capacity The initial number of monsters that can be affected at once.
+     */
+    public StatusEffects(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.flags = new int[capacity];
+        this.strength = new float[capacity * EFFECTS];
+        this.end = new int[capacity * EFFECTS];
+        this.owners = new Monster[capacity];
+        this.freeSlots = new int[capacity];
+        this.entrySlot = new int[capacity];
+        this.entryEffect = new int[capacity];
+        this.entryEnd = new int[capacity];
+        this.entryNext = new int[capacity];
+        Arrays.fill(wheel, -1);
+    }
+
+    /**
+     * Puts an effect on a monster for a number of frames. If the monster already has the effect,
+     * the stronger of the two applies until the later of the two ends.
+     *
+     * @param monster The monster affected.
+     * @param effect The effect: SLOW, BURN or SHRED.
+     * @param amount The fraction of speed kept (slow), the damage dealt each frame (burn),
+     * or the fraction of armour ignored (shred).
+     * @param frames The number of frames the effect lasts.
+     */
+    public void apply(Monster monster, int effect, float amount, int frames) {
+        if (frames <= 0) {
+            return;
+        }
+        int slot = monster.getEffectSlot();
+        if (slot == -1) {
+            slot = allocate(monster);
+        }
+
+        int index = slot * EFFECTS + effect;
+        int bit = 1 << effect;
+        int newEnd = now + frames;
+        if ((flags[slot] & bit) != 0) {
+            strength[index] = effect == SLOW ? Math.min(strength[index], amount) : Math.max(strength[index], amount);
+            if (newEnd <= end[index]) {
+                return;
+            }
+        } else {
+            flags[slot] |= bit;
+            strength[index] = amount;
+            if (effect == BURN) {
+                burning++;
+            }
+        }
+        end[index] = newEnd;
+        // the entry for the old end is left in the wheel, and skipped when its frame comes round
+        schedule(slot, effect, newEnd);
+    }
+
+    /**
+     * Advances every effect by one frame. Burning monsters take their damage through the event
+     * queue, then the effects ending on this frame are removed.
+     *
+     * @param events The queue burn damage is published to.
+     */
+    public void tick(GameEvents events) {
+        this.now++;
+
+        if (burning > 0) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if ((flags[slot] & (1 << BURN)) != 0 && owners[slot].getHp() > 0) {
+                    events.damage(owners[slot], strength[slot * EFFECTS + BURN]);
+                }
+            }
+        }
+
+        int bucket = now & (WHEEL_SIZE - 1);
+        int previous = -1;
+        int entry = wheel[bucket];
+        while (entry != -1) {
+            int next = entryNext[entry];
+            if (entryEnd[entry] > now) {
+                // ends on a later turn of the wheel
+                previous = entry;
+                entry = next;
+                continue;
+            }
+
+            int slot = entrySlot[entry];
+            int effect = entryEffect[entry];
+            if (entryEnd[entry] == now && end[slot * EFFECTS + effect] == now && (flags[slot] & (1 << effect)) != 0) {
+                remove(slot, effect);
+            }
+
+            if (previous == -1) {
+                wheel[bucket] = next;
+            } else {
+                entryNext[previous] = next;
+            }
+            entryNext[entry] = freeEntry;
+            this.freeEntry = entry;
+            entry = next;
+        }
+    }
+
+    /**
+     * Removes every effect from a monster, such as when it is killed or starts its path again.
+     *
+     * @param monster The monster to clear.
+     */
+    public void clear(Monster monster) {
+        int slot = monster.getEffectSlot();
+        if (slot == -1) {
+            return;
+        }
+        if ((flags[slot] & (1 << BURN)) != 0) {
+            burning--;
+        }
+        flags[slot] = 0;
+        release(slot);
+    }
+
+    /**
+     * Checks if a monster has an effect.
+     *
+     * @param slot The monster's effect slot, or -1 if it has none.
+     * @param effect The effect: SLOW, BURN or SHRED.
+     * @return True if the monster has the effect, false otherwise.
+     */
+    public boolean has(int slot, int effect) {
+        return slot != -1 && (flags[slot] & (1 << effect)) != 0;
+    }
+
+    /**
+     * Works out how fast a monster moves, as a fraction of its speed.
+     *
+     * @param slot The monster's effect slot, or -1 if it has none.
+     * @return The fraction of its speed the monster moves at.
+     */
+    public float speedMultiplier(int slot) {
+        return has(slot, SLOW) ? strength[slot * EFFECTS + SLOW] : 1;
+    }
+
+    /**
+     * Works out the fraction of damage a monster takes, with any shred applied to its armour.
+     *
+     * @param slot The monster's effect slot, or -1 if it has none.
+     * @param armour The fraction of damage the monster takes without shred.
+     * @return The fraction of damage the monster takes.
+     */
+    public float armourAfterShred(int slot, float armour) {
+        if (!has(slot, SHRED)) {
+            return armour;
+        }
+        return armour + (1 - armour) * strength[slot * EFFECTS + SHRED];
+    }
+
+    /**
+     * Writes the effects on a monster to a snapshot: a bit for each effect, then the
+     * strength and frames left of each effect it has.
+     *
+     * @param monster The monster whose effects are written.
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(Monster monster, ByteBuffer buffer) {
+        int slot = monster.getEffectSlot();
+        int bits = slot == -1 ? 0 : flags[slot];
+        buffer.put((byte)bits);
+        for (int effect = 0; effect < EFFECTS; effect++) {
+            if ((bits & (1 << effect)) != 0) {
+                buffer.putFloat(strength[slot * EFFECTS + effect]);
+                buffer.putInt(end[slot * EFFECTS + effect] - now);
+            }
+        }
+    }
+
+    /**
+     * Reads the effects on a monster from a snapshot, replacing any it has.
+     *
+     * @param monster The monster whose effects are read.
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(Monster monster, ByteBuffer buffer) {
+        clear(monster);
+        int bits = buffer.get();
+        for (int effect = 0; effect < EFFECTS; effect++) {
+            if ((bits & (1 << effect)) != 0) {
+                float amount = buffer.getFloat();
+                apply(monster, effect, amount, buffer.getInt());
+            }
+        }
+    }
+
+    /**
+     * Takes an effect off a monster, freeing its slot once it has no effects left.
+     *
+     * @param slot The monster's effect slot.
+     * @param effect The effect ending.
+     */
+    private void remove(int slot, int effect) {
+        flags[slot] &= ~(1 << effect);
+        if (effect == BURN) {
+            burning--;
+        }
+        if (flags[slot] == 0) {
+            release(slot);
+        }
+    }
+
+    private int allocate(Monster monster) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == flags.length) {
+                growSlots();
+            }
+            slot = slotCount++;
+        }
+        owners[slot] = monster;
+        monster.setEffectSlot(slot);
+        return slot;
+    }
+
+    private void release(int slot) {
+        owners[slot].setEffectSlot(-1);
+        owners[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void schedule(int slot, int effect, int frame) {
+        int entry;
+        if (freeEntry != -1) {
+            entry = freeEntry;
+            this.freeEntry = entryNext[entry];
+        } else {
+            if (entryCount == entrySlot.length) {
+                growEntries();
+            }
+            entry = entryCount++;
+        }
+
+        int bucket = frame & (WHEEL_SIZE - 1);
+        entrySlot[entry] = slot;
+        entryEffect[entry] = effect;
+        entryEnd[entry] = frame;
+        entryNext[entry] = wheel[bucket];
+        wheel[bucket] = entry;
+    }
+
+    private void growSlots() {
+        int capacity = flags.length * 2;
+        this.flags = Arrays.copyOf(flags, capacity);
+        this.strength = Arrays.copyOf(strength, capacity * EFFECTS);
+        this.end = Arrays.copyOf(end, capacity * EFFECTS);
+        this.owners = Arrays.copyOf(owners, capacity);
+        this.freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    private void growEntries() {
+        int capacity = entrySlot.length * 2;
+        this.entrySlot = Arrays.copyOf(entrySlot, capacity);
+        this.entryEffect = Arrays.copyOf(entryEffect, capacity);
+        this.entryEnd = Arrays.copyOf(entryEnd, capacity);
+        this.entryNext = Arrays.copyOf(entryNext, capacity);
+    }
+
+    /**
+     * Retrieves the number of monsters with at least one effect.
+     *
+     * @return The number of affected monsters.
+     */
+    public int size() {
+        return slotCount - freeCount;
+    }
+}
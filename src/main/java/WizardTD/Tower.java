@@ -1,37 +1,53 @@
 package WizardTD;
 
-import processing.core.PImage;
 import processing.core.PApplet;
-import processing.data.JSONObject;
 import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a tower in the game which can be upgraded.
  */
 public class Tower extends AnimatedElement {
-    private ArrayList<PImage> towerSprites;
+    private SpriteSheet towerSheet;
+    private TowerType type;
     private int range, level, rangeUpgrades, damageUpgrades, fireSpeedUpgrades;
-    private float damage, initialDamage, fireSpeed;
+    private float damage, initialDamage, fireSpeed, fireCharge;
     private int rangeCost, damageCost, fireSpeedCost;
-    
+    private final TowerCoverage coverage = new TowerCoverage();
+
+    // upper bound on the number of bytes written by writeState
+    public static final int STATE_BYTES = 40;
 
     /**
      * Creates a new instance of Tower.
      * 
-     * @param towerSprites The list of tower sprites to represent different levels.
+     * @param towerSheet The sprite sheet of tower, with a frame to represent each level.
+     * @param x The x coordinate of the tower.
+     * @param y The y coordinate of the tower.
+     * @param details Compiled config containing tower details.
+     */
+    public Tower(SpriteSheet towerSheet, int x, int y, GameConfig details) {
+        this(towerSheet, x, y, details, details.getTowerTypes().get(0));
+    }
+
+    /**
+     * Creates a new instance of Tower of a given type.
+     * 
+     * @param towerSheet The sprite sheet of tower, with a frame to represent each level.
      * @param x The x coordinate of the tower.
      * @param y The y coordinate of the tower.
-     * @param details JSON object containing tower details.
+     * @param details Compiled config containing tower details.
+     * @param type The type of tower, which decides how it attacks.
      */
-    public Tower(ArrayList<PImage> towerSprites, int x, int y, JSONObject details) {
-        super(towerSprites.get(0), x, y);
-        this.towerSprites = towerSprites;
+    public Tower(SpriteSheet towerSheet, int x, int y, GameConfig details, TowerType type) {
+        super(towerSheet.getFrame(0), x, y);
+        this.towerSheet = towerSheet;
+        this.type = type;
         
-        this.range = details.getInt("initial_tower_range");
-        System.out.println(this.range);
-        this.initialDamage = details.getFloat("initial_tower_damage");
+        this.range = details.getInitialTowerRange();
+        this.initialDamage = details.getInitialTowerDamage();
         this.damage = this.initialDamage;
-        this.fireSpeed = details.getFloat("initial_tower_firing_speed");
+        this.fireSpeed = details.getInitialTowerFiringSpeed();
 
         this.rangeCost = 20;
         this.damageCost = 20;
@@ -39,6 +55,41 @@ public class Tower extends AnimatedElement {
 
     }
 
+    /**
+     * Creates a copy of a tower, such as for drawing it while the game carries on.
+     * 
+     * @param other The tower to copy.
+     */
+    public Tower(Tower other) {
+        super(other.sprite, other.x, other.y);
+        copyFrom(other);
+    }
+
+    /**
+     * Copies the type, upgrades, costs and firing charge of another tower.
+     * 
+     * @param other The tower to copy.
+     */
+    public void copyFrom(Tower other) {
+        this.sprite = other.sprite;
+        this.x = other.x;
+        this.y = other.y;
+        this.towerSheet = other.towerSheet;
+        this.type = other.type;
+        this.range = other.range;
+        this.level = other.level;
+        this.rangeUpgrades = other.rangeUpgrades;
+        this.damageUpgrades = other.damageUpgrades;
+        this.fireSpeedUpgrades = other.fireSpeedUpgrades;
+        this.damage = other.damage;
+        this.initialDamage = other.initialDamage;
+        this.fireSpeed = other.fireSpeed;
+        this.fireCharge = other.fireCharge;
+        this.rangeCost = other.rangeCost;
+        this.damageCost = other.damageCost;
+        this.fireSpeedCost = other.fireSpeedCost;
+    }
+
     /**
      * Draws the tower onto the screen, and calls for upgrade table if upgrades are selected.
      * 
@@ -59,9 +110,30 @@ public class Tower extends AnimatedElement {
             drawUpgradeCosts(app, rangeButton, speedButton, damageButton);
 
         }
-        checkUpgrades();
         app.image(this.sprite, this.x, this.y);  
         drawUpgrades(app);  
+        drawType(app);
+    }
+
+    /**
+     * Marks towers that are not fireball towers with a dot in the colour of their type.
+     * 
+     * @param app The PApplet window where the mark is drawn.
+     */
+    private void drawType(PApplet app) {
+        if (type.getKind() == TowerType.FIREBALL) {
+            return;
+        }
+
+        app.noStroke();
+        if (type.getKind() == TowerType.SPLASH) {
+            app.fill(255, 140, 0);
+        } else if (type.getKind() == TowerType.CHAIN) {
+            app.fill(255, 255, 8);
+        } else {
+            app.fill(123, 181, 255);
+        }
+        app.ellipse(x + sprite.width - 5, y + sprite.height - 5, 7, 7);
     }
 
     /**
@@ -72,6 +144,7 @@ public class Tower extends AnimatedElement {
         this.range += 32;
         this.rangeUpgrades++;
         this.rangeCost += 10;
+        checkUpgrades();
     }
 
     /**
@@ -82,6 +155,7 @@ public class Tower extends AnimatedElement {
         this.damage += this.initialDamage * 0.5;
         this.damageUpgrades++;
         this.damageCost += 10;
+        checkUpgrades();
     }
 
     /**
@@ -92,20 +166,21 @@ public class Tower extends AnimatedElement {
         this.fireSpeed += 0.5;
         this.fireSpeedUpgrades++;
         this.fireSpeedCost += 10;
+        checkUpgrades();
     }
 
     /**
      * Checks if tower can be leveled up based on current upgrades.
+     * Called whenever the tower is upgraded, rather than every time it is drawn.
      * If tower can be leveled up, sprite is changed and level attribute is updated.
      */
     public void checkUpgrades() {
-        if (rangeUpgrades >= 1 && damageUpgrades >= 1 && fireSpeedUpgrades >= 1) {
-            this.level = 1;
-            this.sprite = towerSprites.get(this.level);
-        
-        }  if (rangeUpgrades >= 2 && damageUpgrades >= 2 && fireSpeedUpgrades >= 2) {
-            this.level = 2;
-            this.sprite = towerSprites.get(this.level);
+        int newLevel = Math.min(Math.min(rangeUpgrades, damageUpgrades), fireSpeedUpgrades);
+        newLevel = Math.min(newLevel, towerSheet.getLastFrame());
+
+        if (newLevel != this.level) {
+            this.level = newLevel;
+            this.sprite = towerSheet.getFrame(this.level);
         }
 
     }
@@ -195,6 +270,113 @@ public class Tower extends AnimatedElement {
 
     }
 
+    /**
+     * Builds up charge for firing based on the tower's firing speed.
+     * One full unit of charge is needed for each fireball fired.
+     *
+     * @param FPS The frames per second of the game.
+     */
+    public void charge(int FPS) {
+        this.fireCharge += this.fireSpeed / FPS;
+    }
+
+    /**
+     * Builds up charge over a number of frames where no monster is in range,
+     * keeping the tower ready to fire without building up extra charge.
+     * Charge is added a frame at a time, so it rounds the same way as charging every frame
+     * would have, but stops as soon as the tower is ready to fire.
+     *
+     * @param FPS The frames per second of the game.
+     * @param frames The number of frames passed.
+     */
+    public void chargeIdle(int FPS, int frames) {
+        for (int i = 0; i < frames; i++) {
+            charge(FPS);
+            if (isCharged()) {
+                holdCharge();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if the tower has enough charge to fire a fireball.
+     *
+     * @return True if the tower can fire, false otherwise.
+     */
+    public boolean isCharged() {
+        return this.fireCharge >= 1;
+    }
+
+    /**
+     * Uses up the charge for one fireball.
+     */
+    public void useCharge() {
+        this.fireCharge -= 1;
+    }
+
+    /**
+     * Keeps the tower ready to fire without building up extra charge,
+     * so it does not release a burst once a monster comes into range.
+     */
+    public void holdCharge() {
+        this.fireCharge = 1;
+    }
+
+    /**
+     * Determines if a given monster is within the tower's current range.
+     *
+     * @param monster The monster being checked.
+     * @return True if the monster is within the tower's range, false otherwise.
+     */
+    public boolean inRange(Monster monster) {
+        float xDiff = this.x - monster.x;
+        float yDiff = this.y - monster.y;
+        return xDiff*xDiff + yDiff*yDiff <= this.range * this.range;
+    }
+
+    /**
+     * Writes the tower's upgrades, costs and firing charge to a snapshot.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putInt(range);
+        buffer.putShort((short)rangeUpgrades);
+        buffer.putShort((short)damageUpgrades);
+        buffer.putShort((short)fireSpeedUpgrades);
+        buffer.putFloat(damage);
+        buffer.putFloat(fireSpeed);
+        buffer.putFloat(fireCharge);
+        buffer.putInt(rangeCost);
+        buffer.putInt(damageCost);
+        buffer.putInt(fireSpeedCost);
+    }
+
+    /**
+     * Reads the tower's upgrades, costs and firing charge from a snapshot,
+     * updating its sprite to match its level.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.range = buffer.getInt();
+        this.rangeUpgrades = buffer.getShort();
+        this.damageUpgrades = buffer.getShort();
+        this.fireSpeedUpgrades = buffer.getShort();
+        this.damage = buffer.getFloat();
+        this.fireSpeed = buffer.getFloat();
+        this.fireCharge = buffer.getFloat();
+        this.rangeCost = buffer.getInt();
+        this.damageCost = buffer.getInt();
+        this.fireSpeedCost = buffer.getInt();
+        checkUpgrades();
+    }
+
+    public TowerCoverage getCoverage() {
+        return this.coverage;
+    }
+
     public int getRangeCost() {
         return this.rangeCost;
     }
@@ -215,6 +397,10 @@ public class Tower extends AnimatedElement {
         return this.fireSpeed;
     }
 
+    public float getFireCharge() {
+        return this.fireCharge;
+    }
+
     public float getRange() {
         return this.range;
     } 
@@ -237,6 +423,10 @@ public class Tower extends AnimatedElement {
         return false;
     }
 
+    public TowerType getType() {
+        return this.type;
+    }
+
     public float getInitialDamage() {
         return this.initialDamage;
     }
@@ -0,0 +1,71 @@
+package WizardTD;
+
+import java.util.Arrays;
+
+/**
+ * The cells of the spatial grid a tower needs to look at to find the monsters in its range.
+ * Only cells monsters have walked through and that overlap the tower's range are kept, in the
+ * order a query over the whole square around the range would visit them. Cells that lie wholly
+ * inside the range are marked, so the monsters in them need no distance check. Towers and paths
+ * do not move, so the list is only worked out again when the tower's range changes or monsters
+ * walk through a cell for the first time.
+ */
+public class TowerCoverage {
+
+    private int[] cells = new int[16];
+    private boolean[] inside = new boolean[16];
+    private int count;
+    private float range = -1;
+    private int version = -1;
+
+    /**
+     * Checks if the list was worked out for a given range and set of walked cells.
+     *
+     * @param range The tower's range in pixels.
+     * @param version The version of the cells monsters have walked through.
+     * @return True if the list is up to date, false otherwise.
+     */
+    public boolean isFor(float range, int version) {
+        return this.range == range && this.version == version;
+    }
+
+    /**
+     * Empties the list, ready for it to be worked out for a range and set of walked cells.
+     *
+     * @param range The tower's range in pixels.
+     * @param version The version of the cells monsters have walked through.
+     */
+    public void reset(float range, int version) {
+        this.range = range;
+        this.version = version;
+        this.count = 0;
+    }
+
+    /**
+     * Adds a cell to the end of the list.
+     *
+     * @param cell The index of the cell in the spatial grid.
+     * @param wholly True if every point of the cell is within range, false otherwise.
+     */
+    public void add(int cell, boolean wholly) {
+        if (count == cells.length) {
+            this.cells = Arrays.copyOf(cells, count * 2);
+            this.inside = Arrays.copyOf(inside, count * 2);
+        }
+        cells[count] = cell;
+        inside[count] = wholly;
+        count++;
+    }
+
+    public int getCell(int index) {
+        return this.cells[index];
+    }
+
+    public boolean isInside(int index) {
+        return this.inside[index];
+    }
+
+    public int size() {
+        return this.count;
+    }
+}
@@ -0,0 +1,122 @@
+package WizardTD;
+
+/**
+ * The validated details of one type of tower the player can build.
+ * Fireball towers hit a single monster. Splash towers also damage the monsters around the one hit,
+ * chain towers jump from the monster hit to the next closest ones, and slow towers send out a pulse
+ * that slows every monster in range instead of firing. Any of these can also burn the monsters
+ * they damage, or shred their armour.
+ */
+public class TowerType {
+
+    public static final int FIREBALL = 0;
+    public static final int SPLASH = 1;
+    public static final int CHAIN = 2;
+    public static final int SLOW = 3;
+
+    // names of the kinds of tower, by kind, as used in the config
+    public static final String[] NAMES = {"fireball", "splash", "chain", "slow"};
+
+    private final int kind, cost;
+    private final float damageMultiplier, radius;
+    private final int jumps;
+    private final float falloff, slowMultiplier, slowSeconds;
+    private final float burnPerSecond, burnSeconds, shred, shredSeconds;
+
+    /**
+     * Creates a new TowerType.
+     *
+     * @param kind The kind of tower: FIREBALL, SPLASH, CHAIN or SLOW.
+     * @param cost The mana it costs to build the tower.
+     * @param damageMultiplier The fraction of the tower's damage dealt to the monsters around the one
+     * hit (splash), or to every monster in range (slow). Not used by the other kinds.
+     * @param radius The distance in pixels around the monster hit that is splashed (splash), or
+     * that the attack can jump (chain). Not used by the other kinds.
+     * @param jumps The number of further monsters the attack jumps to (chain).
+     * @param falloff The fraction of the damage kept on each jump (chain).
+     * @param slowMultiplier The fraction of their speed that slowed monsters keep (slow).
+     * @param slowSeconds The number of seconds monsters stay slowed (slow).
+     * @param burnPerSecond The damage per second dealt to monsters set on fire, or 0 for none.
+     * @param burnSeconds The number of seconds monsters burn for.
+     * @param shred The fraction of armour ignored by monsters shredded, or 0 for none.
+     * @param shredSeconds The number of seconds monsters stay shredded.
+     */
+    public TowerType(int kind, int cost, float damageMultiplier, float radius, int jumps,
+                     float falloff, float slowMultiplier, float slowSeconds,
+                     float burnPerSecond, float burnSeconds, float shred, float shredSeconds) {
+        this.kind = kind;
+        this.cost = cost;
+        this.damageMultiplier = damageMultiplier;
+        this.radius = radius;
+        this.jumps = jumps;
+        this.falloff = falloff;
+        this.slowMultiplier = slowMultiplier;
+        this.slowSeconds = slowSeconds;
+        this.burnPerSecond = burnPerSecond;
+        this.burnSeconds = burnSeconds;
+        this.shred = shred;
+        this.shredSeconds = shredSeconds;
+    }
+
+    /**
+     * Creates the plain tower that fires a fireball at a single monster.
+     *
+     * @param cost The mana it costs to build the tower.
+     * @return The fireball tower type.
+     */
+    public static TowerType fireball(int cost) {
+        return new TowerType(FIREBALL, cost, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0);
+    }
+
+    public String getName() {
+        return NAMES[this.kind];
+    }
+
+    public int getKind() {
+        return this.kind;
+    }
+
+    public int getCost() {
+        return this.cost;
+    }
+
+    public float getDamageMultiplier() {
+        return this.damageMultiplier;
+    }
+
+    public float getRadius() {
+        return this.radius;
+    }
+
+    public int getJumps() {
+        return this.jumps;
+    }
+
+    public float getFalloff() {
+        return this.falloff;
+    }
+
+    public float getSlowMultiplier() {
+        return this.slowMultiplier;
+    }
+
+    public float getSlowSeconds() {
+        return this.slowSeconds;
+    }
+
+    public float getBurnPerSecond() {
+        return this.burnPerSecond;
+    }
+
+    public float getBurnSeconds() {
+        return this.burnSeconds;
+    }
+
+    public float getShred() {
+        return this.shred;
+    }
+
+    public float getShredSeconds() {
+        return this.shredSeconds;
+    }
+}
@@ -0,0 +1,48 @@
+package WizardTD;
+
+import java.util.List;
+
+/**
+ * The validated details of a wave: how long it lasts, the pause before it and the monsters it spawns.
+ */
+public class WaveConfig {
+    private final float duration;
+    private final double preWavePause;
+    private final List<MonsterSpec> monsters;
+    private final int totalMonsters;
+
+    /**
+     * Creates a new WaveConfig.
+     *
+     * @param duration The number of seconds the wave lasts.
+     * @param preWavePause The number of seconds before the wave starts.
+     * @param monsters The monsters spawned in the wave, in order.
+     */
+    public WaveConfig(float duration, double preWavePause, List<MonsterSpec> monsters) {
+        this.duration = duration;
+        this.preWavePause = preWavePause;
+        this.monsters = List.copyOf(monsters);
+
+        int total = 0;
+        for (MonsterSpec monster : monsters) {
+            total += monster.getQuantity();
+        }
+        this.totalMonsters = total;
+    }
+
+    public float getDuration() {
+        return this.duration;
+    }
+
+    public double getPreWavePause() {
+        return this.preWavePause;
+    }
+
+    public List<MonsterSpec> getMonsters() {
+        return this.monsters;
+    }
+
+    public int getTotalMonsters() {
+        return this.totalMonsters;
+    }
+}
@@ -1,8 +1,8 @@
 package WizardTD;
 
-import processing.data.JSONArray;
-import processing.data.JSONObject;
 import processing.core.PApplet;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Manages game waves, including wave timing, progression and text display.
@@ -11,28 +11,34 @@ public class WaveManager {
     
     public int waveNumber, monsterIndex, FPS, currentMonsterQuantity;
     public double prewavePause, waveDuration, countdown;
-    public JSONObject currentWave, nextWave, details, currentMonsters;
+    public WaveConfig currentWave, nextWave;
+    public MonsterSpec currentMonsters;
+    public GameConfig details;
     public boolean preWaveState, firstWave, wavesDone;
-    public JSONArray waves, monsters;
+    public List<WaveConfig> waves;
+    public List<MonsterSpec> monsters;
+
+    // upper bound on the number of bytes written by writeState
+    public static final int STATE_BYTES = 48;
 
     /**
      * Creates WaveManager instance to handle waves of current game level.
      * 
-     * @param details JSON Object containing wave details.
+     * @param details Compiled config containing wave details.
      * @param FPS Frames per second for the game.
      */
-    public WaveManager(JSONObject details, int FPS) {
+    public WaveManager(GameConfig details, int FPS) {
         this.preWaveState = true;
         this.waveNumber = 0;
         this.monsterIndex = 0;
         this.firstWave = true;
         this.details = details;
         this.FPS = FPS;
-        this.waves = details.getJSONArray("waves");
-        this.currentWave = waves.getJSONObject(waveNumber);
-        this.nextWave = waves.getJSONObject(waveNumber + 1);
-        this.monsters = currentWave.getJSONArray("monsters");
-        this.currentMonsters = monsters.getJSONObject(monsterIndex);
+        this.waves = details.getWaves();
+        this.currentWave = waves.get(waveNumber);
+        this.nextWave = waves.get(Math.min(waveNumber + 1, waves.size() - 1));
+        this.monsters = currentWave.getMonsters();
+        this.currentMonsters = monsters.get(monsterIndex);
         this.currentMonsterQuantity = 0;        
         
         
@@ -47,7 +53,7 @@ public class WaveManager {
         
         // If game just started, only need pre wave pause for countdown
         if (framesPassed == 0) {
-                this.prewavePause = currentWave.getDouble("pre_wave_pause");
+                this.prewavePause = currentWave.getPreWavePause();
                 this.countdown = this.prewavePause;
             }
 
@@ -57,34 +63,34 @@ public class WaveManager {
                 firstWave = false;
             
             // Counting down every second, only if at least one second has passed
-            } else if (framesPassed >= 60 && framesPassed % 60 == 0) {
+            } else if (framesPassed >= FPS && framesPassed % FPS == 0) {
                 countdown--;
             }
         }
         else if (countdown <= 0) {
-            this.prewavePause = nextWave.getInt("pre_wave_pause");
-            this.waveDuration = currentWave.getInt("duration");
+            this.prewavePause = (int)nextWave.getPreWavePause();
+            this.waveDuration = (int)currentWave.getDuration();
             this.countdown =  prewavePause + waveDuration;
         }
             
         else {
-            if (framesPassed % 60 == 0) {
+            if (framesPassed % FPS == 0) {
                 countdown--;
 
                 if (countdown <= 0) {
                     // Move on to next wave, unless there are no more waves left
                     if (!this.currentWave.equals(this.nextWave)) {
                         
-                        this.currentWave = waves.getJSONObject(waveNumber++);
-                        this.monsters = currentWave.getJSONArray("monsters");
+                        this.currentWave = waves.get(waveNumber++);
+                        this.monsters = currentWave.getMonsters();
                         this.monsterIndex = 0;
-                        this.currentMonsters = monsters.getJSONObject(monsterIndex);
+                        this.currentMonsters = monsters.get(monsterIndex);
                         this.currentMonsterQuantity = 0;
                         preWaveState = false;
 
                         // Check if there is any more waves after current wave
                         if (waveNumber  < waves.size() - 1) {
-                            this.nextWave = waves.getJSONObject(waveNumber + 1);
+                            this.nextWave = waves.get(waveNumber + 1);
                         }
                     } else {
                         wavesDone = true;
@@ -100,26 +106,171 @@ public class WaveManager {
             
     }
 
+    /**
+     * Calculates how many frames can be skipped before the wave timer next does anything other
+     * than counting down, assuming no monsters are spawning in the meantime.
+     * 
+     * @param framesPassed The number of frames that have passed since the beginning of the level.
+     * @param gameSpeed The current speed multiplier of the game.
+     * @return The number of frames that can be skipped, which is 0 if the timer has to be
+     * stepped normally on this frame.
+     */
+    public int idleFramesUntilNextEvent(int framesPassed, int gameSpeed) {
+        if (framesPassed == 0) {
+            return 0;
+        }
+
+        if (firstWave) {
+            // first wave starts on the frame where time passed equals the pre wave pause exactly
+            double firstWaveStart = prewavePause * FPS;
+            if (firstWaveStart != Math.rint(firstWaveStart) || (long)firstWaveStart % gameSpeed != 0) {
+                return Integer.MAX_VALUE;
+            }
+            long firstWaveFrame = (long)firstWaveStart / gameSpeed;
+            if (firstWaveFrame < framesPassed) {
+                return Integer.MAX_VALUE;
+            }
+            return (int)(firstWaveFrame - framesPassed);
+        }
+
+        if (countdown <= 0) {
+            return 0;
+        }
+
+        // next wave starts on the frame of the countdown step that brings countdown to 0
+        int framesPerSecond = framesPerSecondTick(gameSpeed);
+        int secondsLeft = (int)Math.ceil(countdown);
+        long nextSecond = ((framesPassed + framesPerSecond - 1) / framesPerSecond) * (long)framesPerSecond;
+        long nextWaveStart = nextSecond + (long)(secondsLeft - 1) * framesPerSecond;
+        return (int)Math.min(Integer.MAX_VALUE, nextWaveStart - framesPassed);
+    }
+
+    /**
+     * Skips the wave timer forward by a number of frames, applying every countdown step
+     * in that span at once. Only valid for spans where idleFramesUntilNextEvent
+     * shows nothing else happens.
+     * 
+     * @param framesPassed The number of frames that have passed since the beginning of the level.
+     * @param gameSpeed The current speed multiplier of the game.
+     * @param frames The number of frames to skip.
+     */
+    public void skipIdleFrames(int framesPassed, int gameSpeed, int frames) {
+        this.countdown -= secondTicksBetween(framesPassed, framesPassed + frames, gameSpeed);
+    }
+
+    /**
+     * Counts the frames in a span on which a whole number of seconds of game time has passed,
+     * which is when the countdown steps and mana is regenerated.
+     * 
+     * @param fromFrame The first frame of the span (inclusive).
+     * @param toFrame The last frame of the span (exclusive).
+     * @param gameSpeed The current speed multiplier of the game.
+     * @return The number of frames in the span that fall on a whole second.
+     */
+    public int secondTicksBetween(int fromFrame, int toFrame, int gameSpeed) {
+        int framesPerSecond = framesPerSecondTick(gameSpeed);
+        int from = Math.max(fromFrame, 1);
+        if (toFrame <= from) {
+            return 0;
+        }
+        return (toFrame - 1) / framesPerSecond - (from - 1) / framesPerSecond;
+    }
+
+    /**
+     * Calculates the spacing in frames between frames that fall on a whole second,
+     * given that game time advances by gameSpeed frames every frame.
+     * 
+     * @param gameSpeed The current speed multiplier of the game.
+     * @return The number of frames between whole seconds of game time.
+     */
+    private int framesPerSecondTick(int gameSpeed) {
+        int a = FPS;
+        int b = gameSpeed;
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return FPS / a;
+    }
+
+    /**
+     * Checks if the progress through the waves can be carried over to a reloaded config:
+     * the current and next waves must still exist, and so must the entry being spawned.
+     * 
+     * @param reloaded The new config.
+     * @return True if readState can restore the progress under the new config, false otherwise.
+     */
+    public boolean fitsConfig(GameConfig reloaded) {
+        List<WaveConfig> reloadedWaves = reloaded.getWaves();
+        int current = waves.indexOf(currentWave);
+        int next = waves.indexOf(nextWave);
+        return current < reloadedWaves.size() && next < reloadedWaves.size()
+            && monsterIndex < reloadedWaves.get(current).getMonsters().size();
+    }
+
+    /**
+     * Writes the wave timer and the progress through the waves to a snapshot.
+     * The current and next waves are stored by their index in the config.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putInt(waveNumber);
+        buffer.putInt(waves.indexOf(currentWave));
+        buffer.putInt(waves.indexOf(nextWave));
+        buffer.putInt(monsterIndex);
+        buffer.putInt(currentMonsterQuantity);
+        buffer.putDouble(prewavePause);
+        buffer.putDouble(waveDuration);
+        buffer.putDouble(countdown);
+        buffer.put((byte)((preWaveState ? 1 : 0) | (firstWave ? 2 : 0) | (wavesDone ? 4 : 0)));
+    }
+
+    /**
+     * Reads the wave timer and the progress through the waves from a snapshot.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.waveNumber = buffer.getInt();
+        this.currentWave = waves.get(buffer.getInt());
+        this.nextWave = waves.get(buffer.getInt());
+        this.monsters = currentWave.getMonsters();
+        this.monsterIndex = buffer.getInt();
+        this.currentMonsters = monsters.get(monsterIndex);
+        this.currentMonsterQuantity = buffer.getInt();
+        this.prewavePause = buffer.getDouble();
+        this.waveDuration = buffer.getDouble();
+        this.countdown = buffer.getDouble();
+        byte flags = buffer.get();
+        this.preWaveState = (flags & 1) != 0;
+        this.firstWave = (flags & 2) != 0;
+        this.wavesDone = (flags & 4) != 0;
+    }
+
     /**
      * Calculates the time interval in seconds monsters should spawn at.
      * 
      * @return The time interval calculated.
      */
     public float durationBetweenMonsters() {
-        return currentWave.getFloat("duration")/totalMonstersInWave();
+        return currentWave.getDuration()/totalMonstersInWave();
     }
 
     /**
      * Writes wave timer onto the window.
      * 
      * @param app The PApplet window for rendering.
+     * @param wave The number of the next wave, or 0 if there are no waves left.
+     * @param countdown The whole seconds until the next wave starts.
      */
-    public void writeWaveText(PApplet app) {
+    public static void writeWaveText(PApplet app, int wave, int countdown) {
         app.fill(0);
         app.textSize(20);
         
-        if (waveNumber + 1 <= waves.size()) {
-            String message = "Wave " + (waveNumber + 1) + " starts: " + (int)countdown;
+        if (wave > 0) {
+            String message = "Wave " + wave + " starts: " + countdown;
             app.text(message, 10, 25);
         }
 
@@ -130,7 +281,7 @@ public class WaveManager {
      */
     public void nextMonsterElement() {
         if (monsterIndex != monsters.size() - 1) {
-            this.currentMonsters = monsters.getJSONObject(++monsterIndex);
+            this.currentMonsters = monsters.get(++monsterIndex);
         }
 
         currentMonsterQuantity = 0;
@@ -143,12 +294,7 @@ public class WaveManager {
      * @return The number of monsters to spawn in current wave.
      */
     public int totalMonstersInWave() {
-        int total = 0;
-        for (int i = 0; i < monsters.size(); i++) {
-            total += monsters.getJSONObject(i).getInt("quantity");
-        }
-
-        return total;
+        return currentWave.getTotalMonsters();
     }
 
     /**
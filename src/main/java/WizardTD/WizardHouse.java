@@ -2,7 +2,7 @@ package WizardTD;
 
 import processing.core.PImage;
 import processing.core.PApplet;
-import processing.data.JSONObject;
+import java.nio.ByteBuffer;
 
 /**
  * Represents wizard house, generating mana over time with capability to activate mana pool spell.
@@ -10,9 +10,12 @@ import processing.data.JSONObject;
 public class WizardHouse extends AnimatedElement {
     private int manaCap, manaPerSecond, manaPoolCost, manaPoolCostIncrease;
     private float poolSpellCapMul, manaGainedMul, mana;
-    private JSONObject details;
+    private GameConfig details;
     private boolean poolActivated;
 
+    // upper bound on the number of bytes written by writeState
+    public static final int STATE_BYTES = 24;
+
     private static final int manaBarLength = 320;
     private static final int manaBarWidth = 20;
 
@@ -22,9 +25,9 @@ public class WizardHouse extends AnimatedElement {
      * @param sprite Image representing the WizardHouse.
      * @param x The x coordinate of the WizardHouse.
      * @param y The y coordinate of the WizardHouse.
-     * @param details JSON Object containing details for the WizardHouse.
+     * @param details Compiled config containing details for the WizardHouse.
      */
-    public WizardHouse(PImage sprite, int x, int y, JSONObject details) {
+    public WizardHouse(PImage sprite, int x, int y, GameConfig details) {
         super(sprite, x, y);
         this.details = details;
         this.poolActivated = false;
@@ -33,16 +36,43 @@ public class WizardHouse extends AnimatedElement {
     }
 
     /**
-     * Loads the configuration details specified in JSON Object.
+     * Creates a copy of a WizardHouse, such as for drawing it while the game carries on.
+     * 
+     * @param other The WizardHouse to copy.
+     */
+    public WizardHouse(WizardHouse other) {
+        super(other.sprite, other.x, other.y);
+        this.details = other.details;
+        copyFrom(other);
+    }
+
+    /**
+     * Copies the mana and mana pool progress of another WizardHouse.
+     * 
+     * @param other The WizardHouse to copy.
+     */
+    public void copyFrom(WizardHouse other) {
+        this.mana = other.mana;
+        this.manaCap = other.manaCap;
+        this.manaPerSecond = other.manaPerSecond;
+        this.manaPoolCost = other.manaPoolCost;
+        this.manaPoolCostIncrease = other.manaPoolCostIncrease;
+        this.poolSpellCapMul = other.poolSpellCapMul;
+        this.manaGainedMul = other.manaGainedMul;
+        this.poolActivated = other.poolActivated;
+    }
+
+    /**
+     * Loads the configuration details specified in the compiled config.
      */
     public void loadConfigDetails() {
-        this.mana = details.getInt("initial_mana");
-        this.manaCap = details.getInt("initial_mana_cap");
-        this.manaPerSecond = details.getInt("initial_mana_gained_per_second");
-        this.manaPoolCost = details.getInt("mana_pool_spell_initial_cost");
-        this.manaPoolCostIncrease = details.getInt("mana_pool_spell_cost_increase_per_use");
-        this.poolSpellCapMul = details.getFloat("mana_pool_spell_cap_multiplier");
-        this.manaGainedMul = details.getFloat("mana_pool_spell_mana_gained_multiplier");
+        this.mana = details.getInitialMana();
+        this.manaCap = details.getInitialManaCap();
+        this.manaPerSecond = details.getInitialManaGainedPerSecond();
+        this.manaPoolCost = details.getManaPoolSpellInitialCost();
+        this.manaPoolCostIncrease = details.getManaPoolSpellCostIncrease();
+        this.poolSpellCapMul = details.getManaPoolSpellCapMultiplier();
+        this.manaGainedMul = details.getManaPoolSpellManaGainedMultiplier();
     }
 
     /**
@@ -95,6 +125,19 @@ public class WizardHouse extends AnimatedElement {
         }
     }
 
+    /**
+     * Adds the mana regenerated over a number of seconds, one second at a time.
+     * Mana is a float and the multiplier and cap apply to each addition, so adding
+     * the seconds one by one ends on exactly the same mana as ticking through them.
+     * 
+     * @param seconds The number of seconds of mana regeneration to add.
+     */
+    public void accrueMana(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            addMana(manaPerSecond);
+        }
+    }
+
     /**
      * Increases mana gained multiplier, deducts the cost of the mana pool from
      * mana, and increases mana cap and mana pool cost
@@ -109,6 +152,34 @@ public class WizardHouse extends AnimatedElement {
         manaPoolCost += manaPoolCostIncrease;
     }
 
+    /**
+     * Writes the WizardHouse's mana and mana pool progress to a snapshot.
+     * 
+     * @param buffer The buffer the state is written to.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putFloat(mana);
+        buffer.putInt(manaCap);
+        buffer.putInt(manaPerSecond);
+        buffer.putInt(manaPoolCost);
+        buffer.putFloat(manaGainedMul);
+        buffer.put((byte)(poolActivated ? 1 : 0));
+    }
+
+    /**
+     * Reads the WizardHouse's mana and mana pool progress from a snapshot.
+     * 
+     * @param buffer The buffer the state is read from.
+     */
+    public void readState(ByteBuffer buffer) {
+        this.mana = buffer.getFloat();
+        this.manaCap = buffer.getInt();
+        this.manaPerSecond = buffer.getInt();
+        this.manaPoolCost = buffer.getInt();
+        this.manaGainedMul = buffer.getFloat();
+        this.poolActivated = buffer.get() != 0;
+    }
+
     public int getManaPoolCost() {
         return this.manaPoolCost;
     }
@@ -0,0 +1,70 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+public class AllocationTest {
+
+    private static final int TICKS = 1000;
+
+    @Test
+    public void tickAllocatesNothingOnEveryLevel() {
+        GameConfig config = TestGames.richConfig(json -> json.setBoolean("group_spawns", true));
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 5, 8);
+            game.run(1200);
+            assertEquals(0, allocatedByTicks(game), level);
+        }
+    }
+
+    @Test
+    public void tickAllocatesNothingOnACrowdedField() throws Exception {
+        Path directory = Files.createTempDirectory("scenario");
+        try {
+            ScenarioGenerator generator = new ScenarioGenerator(3);
+            Path levelFile = directory.resolve("level1.txt");
+            ScenarioGenerator.writeLevel(generator.generateMap(4, 3, 0.05f), levelFile);
+            GameConfig config = GameConfig.compile(
+                generator.generateConfig(new String[] {levelFile.toString()}, 2, 3000, 20), "scenario");
+
+            HeadlessGame game = TestGames.withTowers(config, levelFile.toString(), 1, 20);
+            game.run(30 * App.FPS);
+            assertTrue(game.getGameManager().countMonsters() > 1000);
+            assertEquals(0, allocatedByTicks(game));
+        } finally {
+            Files.deleteIfExists(directory.resolve("level1.txt"));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Counts the bytes allocated by the current thread while ticking a game,
+     * after ticking it as many times again to warm up the JIT.
+     */
+    private static long allocatedByTicks(HeadlessGame game) {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof ThreadMXBean && ((ThreadMXBean)threads).isThreadAllocatedMemorySupported(),
+            "the JVM cannot count allocated bytes");
+        ThreadMXBean allocations = (ThreadMXBean)threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        GameManager gameManager = game.getGameManager();
+        int framesPassed = game.getFramesPassed();
+        for (int i = 0; i < TICKS; i++) {
+            gameManager.tick(App.FPS, framesPassed++);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < TICKS; i++) {
+            gameManager.tick(App.FPS, framesPassed++);
+        }
+        return allocations.getThreadAllocatedBytes(thread) - before;
+    }
+}
@@ -0,0 +1,83 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class DistanceFieldTest {
+
+    private static final char[] TILES = {' ', 'S', 'X'};
+    private static final PathCosts MIXED = new PathCosts(1, 3, 7);
+
+    @Test
+    public void repairedFieldMatchesRebuiltField() {
+        for (PathCosts costs : new PathCosts[] {PathCosts.DEFAULT, MIXED}) {
+            for (int level = 1; level <= 4; level++) {
+                char[][] map = LevelLoader.read("level" + level + ".txt").copyMap();
+                DistanceField field = new DistanceField(map, costs);
+                Random random = new Random(level);
+
+                for (int edit = 0; edit < 300; edit++) {
+                    int row = random.nextInt(map.length);
+                    int column = random.nextInt(map[row].length);
+                    if (map[row][column] == 'W') {
+                        continue;
+                    }
+                    map[row][column] = TILES[random.nextInt(TILES.length)];
+                    field.setTile(column, row, map[row][column]);
+
+                    assertSameDistances(new DistanceField(map, costs), field,
+                        "level" + level + " edit " + edit);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blockingAndReopeningATileRestoresTheField() {
+        char[][] map = LevelLoader.read("level1.txt").copyMap();
+        DistanceField original = new DistanceField(map);
+        DistanceField field = new DistanceField(map);
+
+        for (int row = 0; row < map.length; row++) {
+            for (int column = 0; column < map[row].length; column++) {
+                if (map[row][column] == 'X') {
+                    field.setWalkable(column, row, false);
+                    field.setWalkable(column, row, true);
+                }
+            }
+        }
+        assertSameDistances(original, field, "level1");
+    }
+
+    @Test
+    public void copyCanBeChangedWithoutChangingTheOriginal() {
+        char[][] map = LevelLoader.read("level2.txt").copyMap();
+        DistanceField original = new DistanceField(map, MIXED);
+        DistanceField copy = new DistanceField(original);
+        assertSameDistances(original, copy, "copy");
+
+        int changed = 0;
+        for (int row = 0; row < map.length; row++) {
+            for (int column = 0; column < map[row].length; column++) {
+                if (map[row][column] == 'X') {
+                    map[row][column] = 'S';
+                    changed += copy.setTile(column, row, 'S');
+                }
+            }
+        }
+        assertTrue(changed > 0);
+        assertSameDistances(new DistanceField(LevelLoader.read("level2.txt").getMap(), MIXED), original, "original");
+        assertSameDistances(new DistanceField(map, MIXED), copy, "changed copy");
+    }
+
+    private static void assertSameDistances(DistanceField expected, DistanceField actual, String message) {
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int column = 0; column < expected.getColumns(); column++) {
+                assertEquals(expected.getDistance(column, row), actual.getDistance(column, row),
+                    message + " at (" + column + ", " + row + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import processing.data.JSONObject;
+
+public class GameConfigTest {
+
+    @Test
+    public void compilesTheProjectConfig() {
+        GameConfig config = TestGames.config("config2.json", json -> {});
+        assertEquals("config2.json", config.getSource());
+        assertEquals(4, config.getLayout().size());
+        assertEquals(3, config.getWaves().size());
+        assertEquals("worm", config.getWaves().get(0).getMonsters().get(0).getType());
+        assertFalse(config.hasPathCosts());
+        assertEquals(App.FPS, config.getRenderRate());
+    }
+
+    @Test
+    public void reportsAMissingKey() {
+        assertProblem("config2.json: initial_tower_range is missing",
+            json -> json.remove("initial_tower_range"));
+        assertProblem("config2.json: waves[1].monsters[0].hp is missing",
+            json -> monster(json, 1, 0).remove("hp"));
+    }
+
+    @Test
+    public void reportsANonPositiveQuantity() {
+        assertProblem("config2.json: waves[0].monsters[1].quantity must be greater than 0, but is 0.0",
+            json -> monster(json, 0, 1).setInt("quantity", 0));
+        assertProblem("config2.json: waves[2].monsters[0].quantity must be greater than 0, but is -3.0",
+            json -> monster(json, 2, 0).setInt("quantity", -3));
+    }
+
+    @Test
+    public void reportsAnUnknownMonsterType() {
+        assertProblem("config2.json: waves[1].monsters[0].type must be one of " + String.join(", ", SpriteRegistry.MONSTER_TYPES),
+            json -> monster(json, 1, 0).setString("type", "dragon"));
+    }
+
+    @Test
+    public void reportsBadPathCosts() {
+        assertProblem("config2.json: path_costs must be an object",
+            json -> json.setString("path_costs", "cheap"));
+        assertProblem("config2.json: path_costs.dragon is not a type of monster, must be default or one of "
+            + String.join(", ", SpriteRegistry.MONSTER_TYPES),
+            json -> json.setJSONObject("path_costs", JSONObject.parse("{\"dragon\": {\"path\": 1}}")));
+        assertProblem("config2.json: path_costs.worm.water is not a type of tile, must be path, grass or shrub",
+            json -> json.setJSONObject("path_costs", JSONObject.parse("{\"worm\": {\"water\": 1}}")));
+        assertProblem("config2.json: path_costs.worm.grass must not be negative, but is -1.0",
+            json -> json.setJSONObject("path_costs", JSONObject.parse("{\"worm\": {\"grass\": -1}}")));
+        assertProblem("config2.json: path_costs.default leaves no route to the Wizard House on level1.txt",
+            json -> json.setJSONObject("path_costs", JSONObject.parse("{\"default\": {\"path\": 0}}")));
+    }
+
+    @Test
+    public void reportsBadTowerTypes() {
+        assertProblem("config2.json: tower_types must be an object",
+            json -> json.setInt("tower_types", 3));
+        assertProblem("config2.json: tower_types.laser is not a type of tower, must be one of splash, chain, slow",
+            json -> json.setJSONObject("tower_types", JSONObject.parse("{\"laser\": {}}")));
+        assertProblem("config2.json: tower_types.slow must be an object",
+            json -> json.setJSONObject("tower_types", JSONObject.parse("{\"slow\": 0.5}")));
+        assertProblem("config2.json: tower_types.slow.slow must be between 0 and 1, but is 1.5",
+            json -> json.setJSONObject("tower_types", JSONObject.parse("{\"slow\": {\"slow\": 1.5}}")));
+    }
+
+    @Test
+    public void reportsABadRenderRate() {
+        assertProblem("config2.json: render_rate must be a number or \"vsync\"",
+            json -> json.setString("render_rate", "fast"));
+        assertProblem("config2.json: render_rate must be a whole number, but is 29.5",
+            json -> json.setDouble("render_rate", 29.5));
+        assertEquals(GameConfig.VSYNC, TestGames.config("config2.json", json -> json.setString("render_rate", "vsync")).getRenderRate());
+    }
+
+    /**
+     * Changes config2.json and checks that compiling it fails with a given message.
+     */
+    private static void assertProblem(String message, Consumer<JSONObject> changes) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> TestGames.config("config2.json", changes));
+        assertEquals(message, error.getMessage());
+    }
+
+    private static JSONObject monster(JSONObject json, int wave, int monster) {
+        return json.getJSONArray("waves").getJSONObject(wave).getJSONArray("monsters").getJSONObject(monster);
+    }
+}
@@ -0,0 +1,156 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+public class GameSnapshotTest {
+
+    private final GameConfig config = TestGames.richConfig(json -> json.setBoolean("group_spawns", true));
+
+    @Test
+    public void snapshotStartsWithTheCurrentVersion() {
+        HeadlessGame game = TestGames.withTowers(config, "level1.txt", 7, 4);
+        game.run(600);
+
+        ByteBuffer header = ByteBuffer.wrap(game.snapshot().toBytes());
+        assertEquals(GameSnapshot.MAGIC, header.getInt());
+        assertEquals(GameSnapshot.VERSION, header.getShort());
+        assertEquals(600, header.getInt());
+    }
+
+    @Test
+    public void restoredGameCapturesTheSameSnapshot() {
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 7, 6);
+            for (int frames = 300; frames <= 3000 && !game.isFinished(); frames += 300) {
+                game.run(frames);
+                byte[] captured = game.snapshot().toBytes();
+
+                HeadlessGame restored = new HeadlessGame(config, new GameSnapshot(captured));
+                assertArrayEquals(captured, restored.snapshot().toBytes(), level + " at frame " + frames);
+            }
+        }
+    }
+
+    @Test
+    public void restoredGamePlaysOnLikeTheOriginal() {
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 3, 6);
+            game.run(900);
+            HeadlessGame restored = new HeadlessGame(config, game.snapshot());
+
+            game.run(2400);
+            restored.run(2400);
+            assertEquals(game.getFramesPassed(), restored.getFramesPassed(), level);
+            assertArrayEquals(game.snapshot().toBytes(), restored.snapshot().toBytes(), level);
+        }
+    }
+
+    @Test
+    public void capturingLeavesRestingMonstersResting() {
+        // without groups, monsters out of reach of the towers rest rather than moving as a group
+        GameConfig config = TestGames.richConfig(json -> {});
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 3, 2);
+            HeadlessGame captured = TestGames.withTowers(config, level, 3, 2);
+            int resting = 0;
+            for (int frames = App.FPS; frames <= 3000; frames += App.FPS) {
+                game.run(frames);
+                captured.run(frames);
+                int before = captured.getGameManager().lodScheduler.size();
+                GameSnapshot snapshot = captured.snapshot();
+                assertEquals(before, captured.getGameManager().lodScheduler.size(), level);
+                HeadlessGame restored = new HeadlessGame(config, snapshot);
+                assertEquals(before, restored.getGameManager().lodScheduler.size(), level);
+                assertArrayEquals(snapshot.toBytes(), restored.snapshot().toBytes(), level);
+                resting = Math.max(resting, before);
+            }
+            assertTrue(resting > 0, level + " never rests a monster");
+            assertArrayEquals(game.snapshot().toBytes(), captured.snapshot().toBytes(), level);
+        }
+    }
+
+    @Test
+    public void savedSnapshotLoadsBack() throws Exception {
+        HeadlessGame game = TestGames.withTowers(config, "level2.txt", 7, 4);
+        game.run(1200);
+        GameSnapshot snapshot = game.snapshot();
+
+        Path file = Files.createTempFile("snapshot", ".wtds");
+        try {
+            snapshot.save(file);
+            GameSnapshot loaded = GameSnapshot.load(file);
+            assertArrayEquals(snapshot.toBytes(), loaded.toBytes());
+            assertEquals(1200, loaded.getFramesPassed());
+            assertEquals("level2.txt", loaded.getLevelFile());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void rejectsOtherVersionsAndOtherData() {
+        HeadlessGame game = TestGames.withTowers(config, "level1.txt", 7, 2);
+        game.run(300);
+        byte[] data = game.snapshot().toBytes();
+
+        byte[] older = data.clone();
+        ByteBuffer.wrap(older).putShort(4, (short)(GameSnapshot.VERSION - 1));
+        assertThrows(IllegalArgumentException.class, () -> new GameSnapshot(older));
+
+        byte[] other = data.clone();
+        other[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> new GameSnapshot(other));
+    }
+
+    @Test
+    public void reloadedConfigMustKeepThePlacedTowerTypes() {
+        HeadlessGame game = TestGames.withTowers(config, "level1.txt", 7, 4);
+        GameManager gameManager = game.getGameManager();
+        assertTrue(gameManager.fitsConfig(config));
+
+        GameConfig withoutSplash = TestGames.richConfig(json -> json.setJSONObject("tower_types",
+            JSONObject.parse("{\"slow\": {\"slow\": 0.5, \"duration\": 1.5, \"damage\": 0.2}}")));
+        assertFalse(gameManager.fitsConfig(withoutSplash));
+    }
+
+    @Test
+    public void reloadedConfigMustKeepTheSelectedTowerType() {
+        HeadlessGame game = new HeadlessGame(config, "level1.txt", 7);
+        GameManager gameManager = game.getGameManager();
+        while (gameManager.getTowerType() != config.getTowerTypes().get(config.getTowerTypes().size() - 1)) {
+            gameManager.cycleTowerType();
+        }
+        GameConfig fireballsOnly = TestGames.richConfig(json -> json.setJSONObject("tower_types", new JSONObject()));
+        assertFalse(gameManager.fitsConfig(fireballsOnly));
+
+        // a checkpoint restored under such a config goes back to the first type
+        GameManager restored = game.snapshot().restore(fireballsOnly, SpriteRegistry.headless());
+        assertSame(fireballsOnly.getTowerTypes().get(0), restored.getTowerType());
+        restored.cycleTowerType();
+        assertSame(fireballsOnly.getTowerTypes().get(0), restored.getTowerType());
+    }
+
+    @Test
+    public void reloadedConfigMustKeepTheWavesBeingPlayed() {
+        WaveManager waveManager = new WaveManager(config, App.FPS);
+        assertTrue(waveManager.fitsConfig(config));
+
+        // the first wave is kept, but the next one is gone
+        GameConfig oneWave = TestGames.richConfig(json -> {
+            JSONArray waves = new JSONArray();
+            waves.append(json.getJSONArray("waves").getJSONObject(0));
+            json.setJSONArray("waves", waves);
+        });
+        assertFalse(waveManager.fitsConfig(oneWave));
+
+        waveManager.monsterIndex = config.getWaves().get(0).getMonsters().size();
+        assertFalse(waveManager.fitsConfig(config));
+    }
+}
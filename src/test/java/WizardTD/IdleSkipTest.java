@@ -0,0 +1,92 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class IdleSkipTest {
+
+    @Test
+    public void skippingIdleFramesPlaysLikeSteppingThrough() {
+        // towers that fire slowly are still charging when the frames they are idle for run out
+        for (GameConfig config : new GameConfig[] {TestGames.richConfig(json -> {}),
+            TestGames.richConfig(json -> json.setFloat("initial_tower_firing_speed", 0.07f))}) {
+            for (int speed = 1; speed <= 2; speed++) {
+                for (String level : config.getLayout()) {
+                    checkSkippingChangesNothing(config, level, speed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a level twice, once skipping idle frames and once stepping through every frame,
+     * checking the two games agree at every wave boundary the skipping game reaches.
+     */
+    private static void checkSkippingChangesNothing(GameConfig config, String level, int speed) {
+        SpriteRegistry sprites = SpriteRegistry.headless();
+        GameManager skipping = TestGames.withTowers(config, level, 4, 3).getGameManager();
+        GameManager stepping = TestGames.withTowers(config, level, 4, 3).getGameManager();
+        skipping.gameSpeed = speed;
+        stepping.gameSpeed = speed;
+
+        String where = level + " at speed " + speed;
+        int skippingFrames = 0;
+        int steppingFrames = 0;
+        int skipped = 0;
+        int boundaries = 0;
+        while (skippingFrames < 6000 && !skipping.checkWin() && !skipping.checkGameOver()) {
+            int wave = skipping.waveManager.waveNumber;
+            boolean preWave = skipping.waveManager.preWaveState;
+            int before = skippingFrames;
+            skippingFrames = skipping.update(App.FPS, skippingFrames, sprites, true);
+            skipped += Math.max(0, skippingFrames - before - 1);
+            if (wave == skipping.waveManager.waveNumber && preWave == skipping.waveManager.preWaveState) {
+                continue;
+            }
+
+            while (steppingFrames < skippingFrames) {
+                steppingFrames = stepping.update(App.FPS, steppingFrames, sprites, false);
+            }
+            String at = where + " at frame " + skippingFrames;
+            assertEquals(skippingFrames, steppingFrames, at);
+            assertEquals(stepping.waveManager.waveNumber, skipping.waveManager.waveNumber, at);
+            assertEquals(stepping.waveManager.getCountdown(), skipping.waveManager.getCountdown(), at);
+            assertEquals(stepping.wizardHouse.getMana(), skipping.wizardHouse.getMana(), at);
+            for (int i = 0; i < skipping.towers.size(); i++) {
+                assertEquals(stepping.towers.get(i).getFireCharge(), skipping.towers.get(i).getFireCharge(), at + " tower " + i);
+            }
+            boundaries++;
+        }
+        assertTrue(skipped > 0, where + " never skips a frame");
+        assertTrue(boundaries > 1, where + " reaches " + boundaries + " wave boundaries");
+    }
+
+    @Test
+    public void idleChargeAddsUpLikeChargingEveryFrame() {
+        for (float speed : new float[] {0.3f, 0.7f, 1.1f, 1.5f, 2.9f}) {
+            GameConfig config = TestGames.richConfig(json -> json.setFloat("initial_tower_firing_speed", speed));
+            Tower tower = TestGames.withTowers(config, "level1.txt", 1, 1).getGameManager().towers.get(0);
+            // spans both short of full charge and past it, from towers part way charged
+            for (int frames = 0; frames <= 3 * App.FPS; frames++) {
+                for (int charged = 0; charged < App.FPS; charged += 13) {
+                    Tower idle = new Tower(tower);
+                    Tower stepped = new Tower(tower);
+                    for (int i = 0; i < charged; i++) {
+                        idle.charge(App.FPS);
+                        stepped.charge(App.FPS);
+                    }
+                    idle.chargeIdle(App.FPS, frames);
+                    for (int i = 0; i < frames; i++) {
+                        stepped.charge(App.FPS);
+                        if (stepped.isCharged()) {
+                            stepped.holdCharge();
+                        }
+                    }
+                    assertEquals(stepped.getFireCharge(), idle.getFireCharge(),
+                        "speed " + speed + " after " + charged + " frames charging, over " + frames + " frames");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class InputQueueTest {
+
+    @Test
+    public void dropsInputWhileFull() {
+        InputQueue queue = new InputQueue(3);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offerClick(i, -i));
+        }
+        assertFalse(queue.offerKey('x'));
+
+        queue.pop();
+        assertTrue(queue.offerKey('x'));
+        for (int i = 1; i < 4; i++) {
+            assertEquals(InputQueue.CLICK, queue.kind());
+            assertEquals(i, queue.x());
+            assertEquals(-i, queue.y());
+            queue.pop();
+        }
+        assertEquals(InputQueue.KEY, queue.kind());
+        assertEquals('x', queue.key());
+        queue.pop();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void handsEveryEventToTheOtherThreadInOrder() throws InterruptedException {
+        InputQueue queue = new InputQueue(64);
+        int events = 200000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < events; ) {
+                boolean added = i % 3 == 0 ? queue.offerKey((char)i) : queue.offerClick(i, -i);
+                if (added) {
+                    i++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        }, "producer");
+        producer.setDaemon(true);
+        producer.start();
+
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        for (int i = 0; i < events; ) {
+            if (queue.isEmpty()) {
+                assertTrue(System.nanoTime() < deadline, "stuck after " + i + " events");
+                Thread.yield();
+                continue;
+            }
+            if (i % 3 == 0) {
+                assertEquals(InputQueue.KEY, queue.kind(), "event " + i);
+                assertEquals((char)i, queue.key(), "event " + i);
+            } else {
+                assertEquals(InputQueue.CLICK, queue.kind(), "event " + i);
+                assertEquals(i, queue.x(), "event " + i);
+                assertEquals(-i, queue.y(), "event " + i);
+            }
+            queue.pop();
+            i++;
+        }
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertTrue(queue.isEmpty());
+    }
+}
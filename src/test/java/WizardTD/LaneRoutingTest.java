@@ -0,0 +1,162 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+public class LaneRoutingTest {
+
+    // enough mana for a few towers beside the paths, where worms cut across the grass
+    private final GameConfig config = TestGames.laneConfig(json -> {
+        json.setInt("initial_mana", 3000);
+        json.setInt("initial_mana_cap", 5000);
+    });
+
+    @Test
+    public void monstersNeverWalkThroughTowers() {
+        int placed = 0;
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 2, 4);
+            GameManager gameManager = game.getGameManager();
+            assertFalse(gameManager.towers.isEmpty(), level);
+            for (int frames = 1; frames <= 3600 && !game.isFinished(); frames++) {
+                // towers built in the way of monsters on the field send them around
+                if (frames % 300 == 0) {
+                    placed += placeBesideRoutes(game, 1);
+                }
+                game.run(frames);
+                for (Monster monster : gameManager.monsters) {
+                    // dying monsters stay where they fell until their animation ends
+                    if (monster.getHp() <= 0) {
+                        continue;
+                    }
+                    for (int[] point : remainingTiles(monster)) {
+                        for (Tower tower : gameManager.towers) {
+                            assertFalse(point[0] == column(tower) && point[1] == row(tower),
+                                level + " " + monster.getSheet().getName() + " walks through the tower at "
+                                + column(tower) + ", " + row(tower) + " at frame " + frames);
+                        }
+                    }
+                }
+            }
+
+            HeadlessGame restored = new HeadlessGame(config, game.snapshot());
+            game.run(game.getFramesPassed() + 600);
+            restored.run(restored.getFramesPassed() + 600);
+            assertArrayEquals(game.snapshot().toBytes(), restored.snapshot().toBytes(), level);
+        }        assertTrue(placed > 0, "no tower is ever built in the way of a monster");
+    }
+
+    @Test
+    public void towersCannotBeBuiltUnderMonsters() {
+        int refused = 0;
+        for (String level : config.getLayout()) {
+            HeadlessGame game = new HeadlessGame(config, level, 2);
+            GameManager gameManager = game.getGameManager();
+            char[][] map = gameManager.getMap();
+            for (int frames = 30; frames <= 1800; frames += 30) {
+                game.run(frames);
+                for (Monster monster : new ArrayList<>(gameManager.monsters)) {
+                    int[] tile = remainingTiles(monster).get(0);
+                    if (tile[1] >= 0 && tile[1] < map.length && tile[0] >= 0 && tile[0] < map[tile[1]].length
+                        && map[tile[1]][tile[0]] == ' ') {
+                        int towers = gameManager.towers.size();
+                        assertFalse(game.placeTower(tile[0], tile[1]), level + " tower built under a " + monster.getSheet().getName());
+                        assertEquals(towers, gameManager.towers.size(), level);
+                        refused++;
+                    }
+                }
+            }
+        }
+        assertTrue(refused > 0, "no monster ever stands on grass");
+    }
+
+    @Test
+    public void typesTakeTheirOwnRoutesAndSpreadOverLanes() {
+        // enough mana that the Wizard House outlasts every monster that reaches it
+        GameConfig config = TestGames.laneConfig(json -> {
+            json.setInt("initial_mana", 100000);
+            json.setInt("initial_mana_cap", 100000);
+        });
+        int split = 0;
+        for (String level : config.getLayout()) {
+            HeadlessGame game = new HeadlessGame(config, level, 5);
+            GameManager gameManager = game.getGameManager();
+            char[][] map = gameManager.getMap();
+            HashMap<String, HashSet<PathTrack>> routes = new HashMap<>();
+            HashMap<String, HashSet<Character>> tiles = new HashMap<>();
+            for (int frames = 10; frames <= 3600 && !game.isFinished(); frames += 10) {
+                game.run(frames);
+                gameManager.wakeResting();
+                for (Monster monster : gameManager.monsters) {
+                    String type = monster.getSheet().getName();
+                    routes.computeIfAbsent(type, key -> new HashSet<>()).add(monster.getTrack());
+                    for (int[] point : monster.getTrack().getPoints()) {
+                        if (point[1] >= 0 && point[1] < map.length && point[0] >= 0 && point[0] < map[point[1]].length) {
+                            tiles.computeIfAbsent(type, key -> new HashSet<>()).add(map[point[1]][point[0]]);
+                        }
+                    }
+                }
+            }
+
+            // only worms cross grass, and only beetles cross shrubs
+            assertTrue(tiles.get("worm").contains(' '), level + " worms never cross grass");
+            assertFalse(tiles.get("gremlin").contains(' '), level + " gremlins cross grass");
+            assertFalse(tiles.get("gremlin").contains('S'), level + " gremlins cross shrubs");
+            assertFalse(tiles.get("beetle").contains(' '), level + " beetles cross grass");
+            assertFalse(tiles.get("worm").contains('S'), level + " worms cross shrubs");
+            HashSet<PathTrack> shared = new HashSet<>(routes.get("worm"));
+            shared.retainAll(routes.get("gremlin"));
+            assertTrue(shared.size() < routes.get("worm").size(), level + " worms only take the routes of gremlins");
+
+            // worms starting from the same tile split between lanes of equal cost
+            HashSet<String> starts = new HashSet<>();
+            for (PathTrack track : routes.get("worm")) {
+                starts.add(track.getPoints().get(1)[0] + "," + track.getPoints().get(1)[1]);
+            }
+            split += routes.get("worm").size() - starts.size();
+        }
+        assertTrue(split > 0, "worms never split between lanes");
+    }
+
+    /**
+     * Places towers on the grass tiles ahead of the monsters on the field, on their routes.
+     *
+     * @return The number of towers placed.
+     */
+    private static int placeBesideRoutes(HeadlessGame game, int towers) {
+        GameManager gameManager = game.getGameManager();
+        char[][] map = gameManager.getMap();
+        int placed = 0;
+        for (Monster monster : new ArrayList<>(gameManager.monsters)) {
+            ArrayList<int[]> remaining = remainingTiles(monster);
+            for (int i = 3; i < remaining.size() && placed < towers; i++) {
+                int[] point = remaining.get(i);
+                if (map[point[1]][point[0]] == ' ' && game.placeTower(point[0], point[1])) {
+                    placed++;
+                }
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * Lists the tiles a monster has yet to walk, from the one it is on to the Wizard House.
+     */
+    private static ArrayList<int[]> remainingTiles(Monster monster) {
+        ArrayList<int[]> points = monster.getTrack().getPoints();
+        int tile = Math.min((int)(monster.getDistance() / App.CELLSIZE), points.size() - 1);
+        return new ArrayList<>(points.subList(tile, points.size()));
+    }
+
+    private static int column(Tower tower) {
+        return (int)tower.x / App.CELLSIZE;
+    }
+
+    private static int row(Tower tower) {
+        return ((int)tower.y - App.TOPBAR) / App.CELLSIZE;
+    }
+}
@@ -0,0 +1,76 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class LevelLoaderTest {
+
+    // where the sprite codes and the path table start in an encoded 20x20 level
+    private static final int SPRITES = 4 + 1 + 2 + LevelLoader.ROWS * LevelLoader.COLUMNS;
+    private static final int PATHS = SPRITES + LevelLoader.ROWS * LevelLoader.COLUMNS;
+    private static final int FIRST_POINT = PATHS + 2 + 2;
+
+    @Test
+    public void bakedLevelDecodesToTheTextLevel() {
+        LevelData text = LevelLoader.read("level1.txt");
+        LevelData baked = LevelLoader.decode(LevelLoader.encode(text), "level1.wtdl");
+
+        assertTrue(Arrays.deepEquals(text.getMap(), baked.getMap()));
+        assertTrue(Arrays.deepEquals(text.getTileSprites(), baked.getTileSprites()));
+        assertEquals(text.getPaths().size(), baked.getPaths().size());
+        for (int i = 0; i < text.getPaths().size(); i++) {
+            ArrayList<int[]> path = text.getPaths().get(i);
+            for (int j = 0; j < path.size(); j++) {
+                assertArrayEquals(path.get(j), baked.getPaths().get(i).get(j));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnknownSpriteCode() {
+        ByteBuffer encoded = encoded("level1.txt");
+        encoded.put(SPRITES, (byte)0x0F);
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(encoded, "bad.wtdl"));
+
+        ByteBuffer rotated = encoded("level1.txt");
+        rotated.put(SPRITES, (byte)0x40);
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(rotated, "bad.wtdl"));
+    }
+
+    @Test
+    public void rejectsPathStartingFarOffTheMap() {
+        ByteBuffer encoded = encoded("level1.txt");
+        encoded.put(FIRST_POINT, (byte)-100);
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(encoded, "bad.wtdl"));
+    }
+
+    @Test
+    public void rejectsPathLeavingThePathTiles() {
+        ByteBuffer encoded = encoded("level1.txt");
+        // moving the third point of the path one tile sideways
+        encoded.put(FIRST_POINT + 5, (byte)(encoded.get(FIRST_POINT + 5) + 1));
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(encoded, "bad.wtdl"));
+    }
+
+    @Test
+    public void rejectsNegativePathLength() {
+        ByteBuffer encoded = encoded("level1.txt");
+        encoded.putShort(PATHS + 2, (short)-1);
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(encoded, "bad.wtdl"));
+    }
+
+    @Test
+    public void rejectsTruncatedFile() {
+        ByteBuffer encoded = encoded("level1.txt");
+        encoded.limit(FIRST_POINT + 3);
+        assertThrows(IllegalArgumentException.class, () -> LevelLoader.decode(encoded, "bad.wtdl"));
+    }
+
+    private static ByteBuffer encoded(String textFile) {
+        return LevelLoader.encode(LevelLoader.read(textFile));
+    }
+}
@@ -0,0 +1,78 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LodSchedulerTest {
+
+    @Test
+    public void restingGamePlaysLikeOneTickingEveryMonster() {
+        checkRestingChangesNothing(TestGames.richConfig(json -> {}), 2);
+        // enough mana for a few towers, which leave the start of most routes out of reach
+        checkRestingChangesNothing(TestGames.laneConfig(json -> {
+            json.setInt("initial_mana", 3000);
+            json.setInt("initial_mana_cap", 5000);
+        }), 3);
+    }
+
+    @Test
+    public void restingMonstersCatchUpOnEveryStepMissed() {
+        SpriteSheet sheet = SpriteRegistry.headless().get("gremlin");
+        PathTrack track = LevelLoader.load("level1.txt").getTracks().get(0);
+        MonsterSpec spec = TestGames.richConfig(json -> {}).getWaves().get(0).getMonsters().get(0);
+        StatusEffects effects = new StatusEffects(2);
+        Monster ticked = new Monster(sheet, track, null, effects);
+        Monster rested = new Monster(sheet, track, null, effects);
+        ticked.loadConfigDetails(spec);
+        rested.loadConfigDetails(spec);
+
+        LodScheduler scheduler = new LodScheduler(1);
+        MonsterArrivals arrivals = new MonsterArrivals(1);
+        ticked.tick();
+        rested.tick();
+        scheduler.rest(rested, 40);
+        scheduler.tick(arrivals);
+        for (int step = 1; step <= 40; step++) {
+            ticked.tick();
+            scheduler.tick(arrivals);
+            assertEquals(step == 40 ? 1 : 0, arrivals.size(), "step " + step);
+        }
+        assertEquals(0, scheduler.size());
+
+        assertEquals(ticked.getDistance(), rested.getDistance());
+        assertEquals(ticked.x, rested.x);
+        assertEquals(ticked.y, rested.y);
+    }
+
+    /**
+     * Plays each level twice, once as it is and once waking every resting monster after each
+     * frame so every monster is ticked every step, checking the two games deal the same damage
+     * and kill and banish the same monsters all along, and end up in the same state.
+     */
+    private static void checkRestingChangesNothing(GameConfig config, int towers) {
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 2, towers);
+            HeadlessGame ticking = TestGames.withTowers(config, level, 2, towers);
+            GameStats stats = new GameStats(game.getGameManager().events);
+            GameStats tickingStats = new GameStats(ticking.getGameManager().events);
+
+            int resting = 0;
+            for (int frames = 1; frames <= 3600; frames++) {
+                game.run(frames);
+                ticking.run(frames);
+                ticking.getGameManager().wakeResting();
+                resting = Math.max(resting, game.getGameManager().lodScheduler.size());
+                if (frames % App.FPS == 0) {
+                    assertEquals(tickingStats.getDamageDealt(), stats.getDamageDealt(), level + " at frame " + frames);
+                    assertEquals(tickingStats.getKills(), stats.getKills(), level + " at frame " + frames);
+                    assertEquals(tickingStats.getBanishes(), stats.getBanishes(), level + " at frame " + frames);
+                }
+            }
+            assertTrue(resting > 0, level + " never rests a monster");
+
+            game.getGameManager().wakeResting();
+            assertArrayEquals(ticking.snapshot().toBytes(), game.snapshot().toBytes(), level);
+        }
+    }
+}
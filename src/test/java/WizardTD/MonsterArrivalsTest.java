@@ -0,0 +1,65 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class MonsterArrivalsTest {
+
+    private final SpriteSheet sheet = SpriteRegistry.headless().get("gremlin");
+    private final PathTrack track = LevelLoader.load("level1.txt").getTracks().get(0);
+
+    @Test
+    public void mergesArrivalsIntoSpawnOrder() {
+        Random random = new Random(1);
+        MonsterArrivals arrivals = new MonsterArrivals(1);
+        for (int round = 0; round < 200; round++) {
+            ArrayList<Monster> everyone = monsters(random.nextInt(300));
+            Collections.shuffle(everyone, random);
+            int arriving = everyone.isEmpty() ? 0 : random.nextInt(everyone.size() + 1);
+
+            ArrayList<Monster> merged = new ArrayList<>(everyone.subList(arriving, everyone.size()));
+            merged.sort((a, b) -> Integer.compare(a.getSpawnOrder(), b.getSpawnOrder()));
+            for (Monster monster : everyone.subList(0, arriving)) {
+                arrivals.add(monster);
+            }
+            assertEquals(arriving, arrivals.size());
+            arrivals.mergeInto(merged);
+
+            assertEquals(everyone.size(), merged.size());
+            for (int i = 0; i < merged.size(); i++) {
+                assertEquals(i, merged.get(i).getSpawnOrder(), "round " + round);
+            }
+            assertEquals(0, arrivals.size());
+        }
+    }
+
+    @Test
+    public void keepsArrivalsAlreadyInOrder() {
+        ArrayList<Monster> everyone = monsters(100);
+        ArrayList<Monster> listed = new ArrayList<>();
+        MonsterArrivals arrivals = new MonsterArrivals(4);
+        for (Monster monster : everyone) {
+            if (monster.getSpawnOrder() % 3 == 0) {
+                listed.add(monster);
+            } else {
+                arrivals.add(monster);
+            }
+        }
+        arrivals.mergeInto(listed);
+        assertEquals(everyone, listed);
+    }
+
+    private ArrayList<Monster> monsters(int count) {
+        ArrayList<Monster> monsters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Monster monster = new Monster(sheet, track, null, null);
+            monster.setSpawnOrder(i);
+            monsters.add(monster);
+        }
+        return monsters;
+    }
+}
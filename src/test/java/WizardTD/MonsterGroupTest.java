@@ -0,0 +1,115 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+public class MonsterGroupTest {
+
+    @Test
+    public void monstersOnTheSameRouteShareAGroup() {
+        GameConfig config = TestGames.laneConfig(json -> {
+            json.setBoolean("group_spawns", true);
+            // many more monsters in each wave, so several take each route
+            JSONArray waves = json.getJSONArray("waves");
+            for (int i = 0; i < waves.size(); i++) {
+                JSONArray monsters = waves.getJSONObject(i).getJSONArray("monsters");
+                for (int j = 0; j < monsters.size(); j++) {
+                    monsters.getJSONObject(j).setInt("quantity", 100);
+                }
+            }
+        });
+        for (String level : config.getLayout()) {
+            HeadlessGame game = new HeadlessGame(config, level, 1);
+            game.run(1800);
+
+            ArrayList<MonsterGroup> groups = game.getGameManager().groups;
+            int grouped = 0;
+            for (int i = 0; i < groups.size(); i++) {
+                MonsterGroup group = groups.get(i);
+                grouped += group.size();
+                for (int j = i + 1; j < groups.size(); j++) {
+                    assertFalse(groups.get(j).getSpec() == group.getSpec()
+                        && groups.get(j).getTrack().equals(group.getTrack()), level + " has two groups on one route");
+                }
+            }
+            assertTrue(grouped > groups.size(), level + " has " + groups.size() + " groups of " + grouped);
+        }
+    }
+
+    @Test
+    public void groupedGamePlaysLikeOneWithoutGroups() {
+        checkGroupingChangesNothing(TestGames.richConfig(json -> {}),
+            TestGames.richConfig(json -> json.setBoolean("group_spawns", true)), 5);
+        // enough mana for a few towers, which leave the start of most routes out of reach
+        Consumer<JSONObject> mana = json -> {
+            json.setInt("initial_mana", 3000);
+            json.setInt("initial_mana_cap", 5000);
+        };
+        checkGroupingChangesNothing(TestGames.laneConfig(mana),
+            TestGames.laneConfig(mana.andThen(json -> json.setBoolean("group_spawns", true))), 3);
+    }
+
+    /**
+     * Plays each level with and without groups, checking the two games deal the same damage
+     * and kill and banish the same monsters all along, and end up in the same state once
+     * every group is released and every resting monster woken.
+     */
+    private static void checkGroupingChangesNothing(GameConfig plain, GameConfig grouping, int towers) {
+        for (String level : plain.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(plain, level, 2, towers);
+            HeadlessGame grouped = TestGames.withTowers(grouping, level, 2, towers);
+            GameStats stats = new GameStats(game.getGameManager().events);
+            GameStats groupedStats = new GameStats(grouped.getGameManager().events);
+
+            boolean hadGroups = false;
+            for (int frames = 60; frames <= 3600; frames += 60) {
+                game.run(frames);
+                grouped.run(frames);
+                hadGroups |= !grouped.getGameManager().groups.isEmpty();
+                assertEquals(stats.getDamageDealt(), groupedStats.getDamageDealt(), level + " at frame " + frames);
+                assertEquals(stats.getKills(), groupedStats.getKills(), level + " at frame " + frames);
+                assertEquals(stats.getBanishes(), groupedStats.getBanishes(), level + " at frame " + frames);
+            }
+            assertTrue(hadGroups, level + " never groups monsters");
+            assertTrue(stats.getKills() + stats.getBanishes() > 0, level + " never kills or banishes a monster");
+
+            for (HeadlessGame played : new HeadlessGame[] {game, grouped}) {
+                played.getGameManager().ungroupAll();
+                played.getGameManager().wakeResting();
+            }
+            assertArrayEquals(game.snapshot().toBytes(), grouped.snapshot().toBytes(), level);
+        }
+    }
+
+    @Test
+    public void tracksOfTheSameRouteAreEqual() {
+        ArrayList<int[]> path = LevelLoader.read("level1.txt").getPaths().get(0);
+        ArrayList<int[]> copy = new ArrayList<>();
+        for (int[] point : path) {
+            copy.add(point.clone());
+        }
+        assertEquals(new PathTrack(path), new PathTrack(copy));
+        assertEquals(new PathTrack(path).hashCode(), new PathTrack(copy).hashCode());
+
+        copy.remove(copy.size() - 1);
+        assertNotEquals(new PathTrack(path), new PathTrack(copy));
+    }
+
+    @Test
+    public void groupsAreFoundAgainAfterRestoring() {
+        GameConfig config = TestGames.laneConfig(json -> json.setBoolean("group_spawns", true));
+        HeadlessGame game = new HeadlessGame(config, "level2.txt", 4);
+        game.run(600);
+        HeadlessGame restored = new HeadlessGame(config, game.snapshot());
+
+        game.run(1800);
+        restored.run(1800);
+        assertEquals(game.getGameManager().groups.size(), restored.getGameManager().groups.size());
+        assertArrayEquals(game.snapshot().toBytes(), restored.snapshot().toBytes());
+    }
+}
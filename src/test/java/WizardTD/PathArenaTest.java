@@ -0,0 +1,210 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class PathArenaTest {
+
+    @Test
+    public void breadthFirstSearchFindsTheOldPaths() {
+        for (char[][] map : maps()) {
+            for (int[] start : PathCalculations.findStartCoordinates(map)) {
+                String where = describe(map, start);
+                ArrayList<int[]> expected = oldShortestPath(map, start);
+                ArrayList<int[]> found = PathCalculations.getShortestPath(map, start);
+                if (expected == null) {
+                    assertNull(found, where);
+                    continue;
+                }
+                assertNotNull(found, where);
+                assertEquals(expected.size(), found.size(), where);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals(expected.get(i), found.get(i), where + " tile " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void aStarFindsPathsJustAsShort() {
+        int houses = 0;
+        for (char[][] map : maps()) {
+            for (int[] start : PathCalculations.findStartCoordinates(map)) {
+                String where = describe(map, start);
+                ArrayList<int[]> breadthFirst = PathCalculations.getShortestPath(map, start);
+                ArrayList<int[]> aStar = PathCalculations.getShortestPathAStar(map, start);
+                if (breadthFirst == null) {
+                    assertNull(aStar, where);
+                    continue;
+                }
+                assertNotNull(aStar, where);
+                assertEquals(breadthFirst.size(), aStar.size(), where);
+                checkWalkable(map, start, aStar, where);
+                houses++;
+            }
+        }
+        assertTrue(houses > 0, "no map has a path to the Wizard House");
+    }
+
+    @Test
+    public void arenasOnSeveralThreadsDoNotShareState() throws InterruptedException {
+        ArrayList<char[][]> searchMaps = new ArrayList<>();
+        ArrayList<int[]> starts = new ArrayList<>();
+        ArrayList<ArrayList<int[]>> breadthFirst = new ArrayList<>();
+        ArrayList<ArrayList<int[]>> aStar = new ArrayList<>();
+        for (char[][] map : maps()) {
+            for (int[] start : PathCalculations.findStartCoordinates(map)) {
+                searchMaps.add(map);
+                starts.add(start);
+                breadthFirst.add(PathCalculations.getShortestPath(map, start));
+                aStar.add(PathCalculations.getShortestPathAStar(map, start));
+            }
+        }
+
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t * searchMaps.size() / threads.length;
+            threads[t] = new Thread(() -> {
+                // each thread starts at a different search, so searches of different maps with
+                // both kinds of search run at the same time
+                for (int i = 0; i < 20 * searchMaps.size() && failure.get() == null; i++) {
+                    int search = (i + offset) % searchMaps.size();
+                    boolean useAStar = (i / searchMaps.size() + search) % 2 == 0;
+                    ArrayList<int[]> found = useAStar
+                        ? PathCalculations.getShortestPathAStar(searchMaps.get(search), starts.get(search))
+                        : PathCalculations.getShortestPath(searchMaps.get(search), starts.get(search));
+                    if (!samePath(useAStar ? aStar.get(search) : breadthFirst.get(search), found)) {
+                        failure.compareAndSet(null, Thread.currentThread().getName() + (useAStar ? " A* " : " breadth first ")
+                            + describe(searchMaps.get(search), starts.get(search)));
+                    }
+                }
+            }, "searcher " + t);
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+            assertFalse(thread.isAlive(), thread.getName() + " is stuck");
+        }
+        assertNull(failure.get());
+    }
+
+    /**
+     * Lists every level in the project directory and generated maps of several sizes of path
+     * network, some of them with extra Wizard Houses along their paths.
+     */
+    private static ArrayList<char[][]> maps() {
+        ArrayList<char[][]> maps = new ArrayList<>();
+        for (String level : new String[] {"level1.txt", "level2.txt", "level3.txt", "level4.txt"}) {
+            maps.add(LevelLoader.read(level).getMap());
+        }
+        for (int seed = 1; seed <= 6; seed++) {
+            ScenarioGenerator generator = new ScenarioGenerator(seed);
+            char[][] map = generator.generateMap(2 + seed, 2 + seed % 3, 0.1f);
+            maps.add(map);
+            if (seed % 2 == 0) {
+                maps.add(withExtraHouses(map, seed, 3));
+            }
+        }
+        return maps;
+    }
+
+    /**
+     * Copies a map, turning some of the path tiles away from the edge of the map into more Wizard Houses.
+     */
+    private static char[][] withExtraHouses(char[][] map, long seed, int houses) {
+        char[][] copy = new char[map.length][];
+        for (int row = 0; row < map.length; row++) {
+            copy[row] = map[row].clone();
+        }
+        Random random = new Random(seed);
+        for (int placed = 0; placed < houses; ) {
+            int row = 2 + random.nextInt(copy.length - 4);
+            int column = 2 + random.nextInt(copy[row].length - 4);
+            if (copy[row][column] == 'X') {
+                copy[row][column] = 'W';
+                placed++;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Checks that a path steps from the tile before the start, one tile at a time over
+     * path tiles, to a Wizard House.
+     */
+    private static void checkWalkable(char[][] map, int[] start, ArrayList<int[]> path, String where) {
+        assertArrayEquals(PathCalculations.coordinateBeforeStart(start), path.get(0), where);
+        assertArrayEquals(start, path.get(1), where);
+        for (int i = 1; i < path.size(); i++) {
+            int[] from = path.get(i - 1);
+            int[] to = path.get(i);
+            assertEquals(1, Math.abs(from[0] - to[0]) + Math.abs(from[1] - to[1]), where + " tile " + i);
+            char tile = map[to[1]][to[0]];
+            assertTrue(i == path.size() - 1 ? tile == 'W' : tile == 'X', where + " tile " + i + " is '" + tile + "'");
+        }
+    }
+
+    private static boolean samePath(ArrayList<int[]> a, ArrayList<int[]> b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return a == b;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i)[0] != b.get(i)[0] || a.get(i)[1] != b.get(i)[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(char[][] map, int[] start) {
+        return map[0].length + "x" + map.length + " map from " + start[0] + ", " + start[1];
+    }
+
+    /**
+     * The breadth first search PathCalculations used before it searched in arenas, kept to check
+     * the arena visits tiles in the same order and finds the same paths.
+     */
+    private static ArrayList<int[]> oldShortestPath(char[][] grid, int[] startPoint) {
+        Queue<int[]> queue = new LinkedList<>();
+        int[][][] previous = new int[grid.length][grid[0].length][];
+        boolean[][] visited = new boolean[grid.length][grid[0].length];
+        queue.add(new int[] {startPoint[1], startPoint[0]});
+        visited[startPoint[1]][startPoint[0]] = true;
+
+        int[] dRow = {-1, 1, 0, 0};
+        int[] dCol = {0, 0, -1, 1};
+        while (!queue.isEmpty()) {
+            int[] p = queue.remove();
+            if (grid[p[0]][p[1]] == 'W') {
+                ArrayList<int[]> finalPath = new ArrayList<>();
+                while (previous[p[0]][p[1]] != null) {
+                    finalPath.add(new int[] {p[1], p[0]});
+                    p = previous[p[0]][p[1]];
+                }
+                finalPath.add(startPoint);
+                finalPath.add(PathCalculations.coordinateBeforeStart(startPoint));
+                Collections.reverse(finalPath);
+                return finalPath;
+            }
+
+            for (int i = 0; i < 4; i++) {
+                int newRow = p[0] + dRow[i];
+                int newCol = p[1] + dCol[i];
+                if (PathCalculations.isValid(newRow, newCol, grid, visited)) {
+                    previous[newRow][newCol] = p;
+                    queue.add(new int[] {newRow, newCol});
+                    visited[newRow][newCol] = true;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,52 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.IdentityHashMap;
+import org.junit.jupiter.api.Test;
+
+public class ProjectileSystemTest {
+
+    private final GameConfig config = TestGames.richConfig(json -> json.setBoolean("group_spawns", true));
+
+    @Test
+    public void monstersCountTheFireballsAimedAtThem() {
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 5, 8);
+            int fired = 0;
+            for (int frames = 10; frames <= 2400 && !game.isFinished(); frames += 10) {
+                game.run(frames);
+                fired += checkIncoming(game.getGameManager());
+            }
+            assertTrue(fired > 0, level + " never has a fireball in flight");
+
+            HeadlessGame restored = new HeadlessGame(config, game.snapshot());
+            checkIncoming(restored.getGameManager());
+        }
+    }
+
+    /**
+     * Checks that every monster targeted by a fireball in flight counts them all, and that
+     * every monster on the field without one counts none.
+     *
+     * @return The number of fireballs in flight.
+     */
+    private static int checkIncoming(GameManager game) {
+        ProjectileSystem projectiles = game.projectiles;
+        IdentityHashMap<Monster, Integer> aimed = new IdentityHashMap<>();
+        for (int i = 0; i < projectiles.size(); i++) {
+            aimed.merge(projectiles.getTarget(i), 1, Integer::sum);
+        }
+        for (Monster monster : aimed.keySet()) {
+            assertEquals((int)aimed.get(monster), monster.getIncoming());
+            assertTrue(projectiles.isTargeting(monster));
+        }
+        for (Monster monster : game.monsters) {
+            if (!aimed.containsKey(monster)) {
+                assertEquals(0, monster.getIncoming());
+                assertFalse(projectiles.isTargeting(monster));
+            }
+        }
+        return projectiles.size();
+    }
+}
@@ -0,0 +1,58 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderBufferTest {
+
+    @Test
+    public void hasNoFrameUntilOneIsPublished() {
+        RenderBuffer buffer = new RenderBuffer();
+        assertNull(buffer.latest());
+
+        buffer.back().setTiming(1, 60);
+        buffer.publish();
+        assertEquals(1, buffer.latest().getUpdatedAt());
+        // the frame taken stays the latest until another is published
+        assertEquals(1, buffer.latest().getUpdatedAt());
+    }
+
+    @Test
+    public void rendererOnlySeesWholeFramesInOrder() throws InterruptedException {
+        RenderBuffer buffer = new RenderBuffer();
+        int updates = 200000;
+        Thread simulation = new Thread(() -> {
+            for (int i = 1; i <= updates; i++) {
+                RenderFrame frame = buffer.back();
+                // both timing fields carry the update number, so a frame filled in while being read shows up
+                frame.setTiming(i, i);
+                buffer.publish();
+                if ((i & 15) == 0) {
+                    Thread.yield();
+                }
+            }
+        }, "simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        long last = 0;
+        int reads = 0;
+        while (last < updates) {
+            assertTrue(System.nanoTime() < deadline, "stuck at update " + last);
+            RenderFrame frame = buffer.latest();
+            if (frame != null) {
+                long updatedAt = frame.getUpdatedAt();
+                assertEquals(updatedAt, frame.getRenderRate(), "torn frame");
+                assertTrue(updatedAt >= last, "update " + updatedAt + " after " + last);
+                last = updatedAt;
+                reads++;
+            }
+            Thread.yield();
+        }
+        simulation.join(1000);
+        assertFalse(simulation.isAlive());
+        assertTrue(reads > 1);
+    }
+}
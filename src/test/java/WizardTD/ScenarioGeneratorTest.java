@@ -0,0 +1,47 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+public class ScenarioGeneratorTest {
+
+    private final JSONObject config = new ScenarioGenerator(1)
+        .generateConfig(new String[] {"level1.txt", "level2.txt"}, 4, 3000, 200);
+
+    @Test
+    public void writesDecimalsAsTheyWouldBeWrittenByHand() {
+        assertEquals("1.1", Double.toString(config.getDouble("mana_pool_spell_cap_multiplier")));
+        assertEquals("0.1", Double.toString(config.getJSONObject("tower_types").getJSONObject("slow").getDouble("damage")));
+
+        JSONArray waves = config.getJSONArray("waves");
+        for (int i = 0; i < waves.size(); i++) {
+            JSONArray monsters = waves.getJSONObject(i).getJSONArray("monsters");
+            for (int j = 0; j < monsters.size(); j++) {
+                double armour = monsters.getJSONObject(j).getDouble("armour");
+                assertEquals(Float.toString((float)armour), Double.toString(armour));
+            }
+        }
+    }
+
+    @Test
+    public void writesManaAFloatHoldsExactly() {
+        int mana = config.getInt("initial_mana");
+        int cap = config.getInt("initial_mana_cap");
+        assertEquals(mana, (int)(float)mana);
+        assertEquals(cap, (int)(float)cap);
+        // the mana for 200 towers and a reserve of a billion, rounded to the nearest float
+        assertEquals(200 * 100 + 1000000000.0, mana, 32.0);
+        assertTrue(mana <= cap);
+    }
+
+    @Test
+    public void configCompilesToTheWrittenValues() {
+        GameConfig compiled = GameConfig.compile(config, "generated");
+        assertEquals(config.getInt("initial_mana"), compiled.getInitialMana());
+        assertEquals(config.getInt("initial_mana_cap"), compiled.getInitialManaCap());
+        assertEquals(1.1f, compiled.getManaPoolSpellCapMultiplier());
+    }
+}
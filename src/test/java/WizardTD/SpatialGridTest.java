@@ -0,0 +1,65 @@
+package WizardTD;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class SpatialGridTest {
+
+    @Test
+    public void towerQueriesFindWhatAFullScanFinds() {
+        checkTowerQueries(TestGames.richConfig(json -> {}), 5);
+        // monsters on random routes walk through cells the level's paths never cross
+        checkTowerQueries(TestGames.laneConfig(json -> {
+            json.setInt("initial_mana", 3000);
+            json.setInt("initial_mana_cap", 5000);
+        }), 3);
+    }
+
+    /**
+     * Plays each level, checking after every frame that each tower's queries through its
+     * coverage find the same monsters in the same order as scanning every cell around the
+     * tower. Every tower's range is upgraded part way through, so its coverage is rebuilt.
+     */
+    private static void checkTowerQueries(GameConfig config, int towers) {
+        for (String level : config.getLayout()) {
+            HeadlessGame game = TestGames.withTowers(config, level, 2, towers);
+            GameManager gameManager = game.getGameManager();
+            int found = 0;
+            for (int frames = 1; frames <= 3600 && !game.isFinished(); frames++) {
+                if (frames == 1200) {
+                    upgradeRanges(gameManager);
+                }
+                game.run(frames);
+
+                SpatialGrid grid = gameManager.monsterGrid;
+                int[] covered = new int[grid.size()];
+                int[] scanned = new int[grid.size()];
+                for (Tower tower : gameManager.towers) {
+                    String where = level + " tower at " + tower.x + ", " + tower.y + " frame " + frames;
+                    assertEquals(grid.firstInRange(tower.x, tower.y, tower.getRange()), grid.firstInRange(tower), where);
+                    int total = grid.allInRange(tower.x, tower.y, tower.getRange(), scanned);
+                    assertEquals(total, grid.allInRange(tower, covered), where);
+                    assertArrayEquals(Arrays.copyOf(scanned, total), Arrays.copyOf(covered, total), where);
+                    found += total;
+                }
+            }
+            assertTrue(found > 0, level + " never has a monster in range");
+        }
+    }
+
+    /**
+     * Upgrades the range of every tower, as if the player clicked each one with the range upgrade selected.
+     */
+    private static void upgradeRanges(GameManager gameManager) {
+        gameManager.sideBar.keyStatus.put("1", true);
+        for (int i = 0; i < gameManager.towers.size(); i++) {
+            Tower tower = gameManager.towers.get(i);
+            float range = tower.getRange();
+            gameManager.checkMouseClick((int)tower.x + 16, (int)tower.y + 8, null);
+            assertTrue(tower.getRange() > range, "range of tower " + i + " upgraded");
+        }
+        gameManager.sideBar.keyStatus.put("1", false);
+    }
+}
@@ -0,0 +1,90 @@
+package WizardTD;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import processing.core.PApplet;
+import processing.data.JSONObject;
+
+/**
+ * Builds configs and headless games for the tests from the configs and levels in the project directory.
+ */
+final class TestGames {
+
+    // the tower types of the richer test configs
+    static final String TOWER_TYPES = "{\"splash\": {\"radius\": 48, \"damage\": 0.5, \"cost\": 120,"
+        + " \"shred\": 0.3, \"shred_duration\": 2},"
+        + " \"chain\": {\"radius\": 64, \"jumps\": 3, \"falloff\": 0.7, \"burn\": 20, \"burn_duration\": 2},"
+        + " \"slow\": {\"slow\": 0.5, \"duration\": 1.5, \"damage\": 0.2}}";
+
+    // path costs that let worms and beetles leave the paths, so monsters spread over many routes
+    static final String PATH_COSTS = "{\"default\": {\"path\": 1}, \"worm\": {\"path\": 2, \"grass\": 3},"
+        + " \"beetle\": {\"path\": 1, \"shrub\": 1}}";
+
+    private TestGames() {
+    }
+
+    /**
+     * Loads a config file, changes it and compiles it.
+     *
+     * @param file The config file in the project directory.
+     * @param changes Changes made to the JSON before it is compiled.
+     * @return The compiled config.
+     */
+    static GameConfig config(String file, Consumer<JSONObject> changes) {
+        JSONObject json = PApplet.loadJSONObject(new File(file));
+        changes.accept(json);
+        return GameConfig.compile(json, file);
+    }
+
+    /**
+     * Loads config2.json with plenty of mana, every level and every type of tower.
+     *
+     * @param changes Further changes made to the JSON before it is compiled.
+     * @return The compiled config.
+     */
+    static GameConfig richConfig(Consumer<JSONObject> changes) {
+        return config("config2.json", json -> {
+            json.setInt("initial_mana", 3000);
+            json.setInt("initial_mana_cap", 5000);
+            json.setJSONObject("tower_types", JSONObject.parse(TOWER_TYPES));
+            changes.accept(json);
+        });
+    }
+
+    /**
+     * Loads config2.json with path costs, so monsters take random routes across the map.
+     *
+     * @param changes Further changes made to the JSON before it is compiled.
+     * @return The compiled config.
+     */
+    static GameConfig laneConfig(Consumer<JSONObject> changes) {
+        return config("config2.json", json -> {
+            json.setJSONObject("path_costs", JSONObject.parse(PATH_COSTS));
+            changes.accept(json);
+        });
+    }
+
+    /**
+     * Starts a headless game with towers of every type placed on the grass tiles closest to the path.
+     *
+     * @param config The config of the game.
+     * @param levelFile The level to be played.
+     * @param seed The seed used to randomly choose monster paths.
+     * @param towers The most towers to place.
+     * @return The game.
+     */
+    static HeadlessGame withTowers(GameConfig config, String levelFile, long seed, int towers) {
+        HeadlessGame game = new HeadlessGame(config, levelFile, seed);
+        List<TowerType> types = config.getTowerTypes();
+        ArrayList<int[]> candidates = PlacementSearch.candidates(game.getGameManager());
+        int placed = 0;
+        for (int i = 0; i < candidates.size() && placed < towers; i++) {
+            if (game.placeTower(candidates.get(i)[0], candidates.get(i)[1], types.get(placed % types.size()))) {
+                placed++;
+            }
+        }
+        return game;
+    }
+}